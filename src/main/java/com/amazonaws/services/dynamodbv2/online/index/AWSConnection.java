@@ -18,31 +18,93 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 
+import java.util.concurrent.Executors;
+
+import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.PropertiesCredentials;
 import com.amazonaws.regions.Region;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBAsyncClient;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
 import com.amazonaws.services.s3.AmazonS3Client;
 
 /**
  * Providing AWS Clients, including DynamoDB and S3.
  * 
+ * Clients are created once and shared by all the components, the
+ * connection pool of the DynamoDB client is sized to the number of threads
+ * the options make call DynamoDB at once.
  */
 public class AWSConnection {
 
     private AWSCredentials awsCredentials;
+    private ClientConfiguration clientConfiguration;
+    private AmazonDynamoDBClient dynamoDBClient = null;
+    private AmazonDynamoDBAsyncClient dynamoDBAsyncClient = null;
+    private AmazonS3Client s3Client = null;
     public static final String DDB_LOCAL_ENDPOINT = "http://localhost:8000";
+    /** Connections beyond the worker threads, e.g. for the capacity refresher */
+    public static final int EXTRA_CONNECTIONS = 2;
 
     /**
      * Constructor for unit tests
      */
     protected AWSConnection(AWSCredentials awsCredentials) {
+        this(awsCredentials, new ClientConfiguration());
+    }
+
+    protected AWSConnection(AWSCredentials awsCredentials, ClientConfiguration clientConfiguration) {
         this.awsCredentials = awsCredentials;
+        this.clientConfiguration = clientConfiguration;
     }
 
+    /**
+     * Clients with the SDK default configuration.
+     */
     public AWSConnection(String credentialFilePath)
             throws FileNotFoundException, IOException {
         this.awsCredentials = loadCredentialFile(credentialFilePath);
+        this.clientConfiguration = new ClientConfiguration();
+    }
+
+    public AWSConnection(String credentialFilePath, Options options)
+            throws FileNotFoundException, IOException {
+        this.awsCredentials = loadCredentialFile(credentialFilePath);
+        this.clientConfiguration = createClientConfiguration(options);
+    }
+
+    /**
+     * Client configuration of the DynamoDB clients from the options.
+     */
+    protected static ClientConfiguration createClientConfiguration(Options options) {
+        return new ClientConfiguration()
+                .withMaxConnections(getMaxConnections(options))
+                .withConnectionTimeout(options.getConnectionTimeoutMillis())
+                .withSocketTimeout(options.getSocketTimeoutMillis())
+                .withTcpKeepAlive(options.isTcpKeepAlive())
+                .withConnectionTTL(options.getConnectionTTLMillis())
+                .withGzip(options.isResponseGzip())
+                .withRetryPolicy(PredefinedRetryPolicies.getDynamoDBDefaultRetryPolicyWithCustomMaxRetries(options.getMaxErrorRetry()));
+    }
+
+    /**
+     * The given number of connections, or one per thread calling DynamoDB
+     * in detection or correction, never less than the SDK default. Auto
+     * sized scan threads are not known before the table is described, the
+     * most they can be is used.
+     */
+    protected static int getMaxConnections(Options options) {
+        if (options.getMaxConnections() > 0) {
+            return options.getMaxConnections();
+        }
+        int detectionThreads = ScanSizer.getMaxNumOfScanThreads(options) + options.getNumOfFixWriterThreads();
+        int correctionThreads = Math.max(options.getNumOfCorrectionWorkers(), options.getMaxInFlightUpdates());
+        return Math.max(ClientConfiguration.DEFAULT_MAX_CONNECTIONS, Math.max(detectionThreads, correctionThreads) + EXTRA_CONNECTIONS);
+    }
+
+    protected ClientConfiguration getClientConfiguration() {
+        return clientConfiguration;
     }
 
     private AWSCredentials loadCredentialFile(String credentialsFilePath) throws IllegalArgumentException {
@@ -61,16 +123,48 @@ public class AWSConnection {
         }
     }
 
-    public AmazonDynamoDBClient getDynamoDBClient(Region dynamoDBTableRegion, boolean runOnDDBLocal) {
-        AmazonDynamoDBClient dynamoDBClient = new AmazonDynamoDBClient(awsCredentials);
-        dynamoDBClient.setRegion(dynamoDBTableRegion);
-        if(runOnDDBLocal) {
-            dynamoDBClient.setEndpoint(DDB_LOCAL_ENDPOINT);
+    /**
+     * The shared client, created on the first call. Its Scan responses can
+     * also be decoded as they stream in.
+     */
+    public synchronized AmazonDynamoDBClient getDynamoDBClient(Region dynamoDBTableRegion, boolean runOnDDBLocal) {
+        if (dynamoDBClient == null) {
+            dynamoDBClient = new StreamingDynamoDBClient(awsCredentials, clientConfiguration);
+            dynamoDBClient.setRegion(dynamoDBTableRegion);
+            if(runOnDDBLocal) {
+                dynamoDBClient.setEndpoint(DDB_LOCAL_ENDPOINT);
+            }
         }
         return dynamoDBClient;
     }
 
-    public AmazonS3Client getS3Client() {
-        return new AmazonS3Client(awsCredentials);
+    /**
+     * Async client able to keep the given number of requests in flight, both
+     * its thread pool and its connection pool are sized to that number at
+     * least. The shared client is created on the first call.
+     */
+    public synchronized AmazonDynamoDBAsyncClient getDynamoDBAsyncClient(Region dynamoDBTableRegion, boolean runOnDDBLocal, int maxInFlightRequests) {
+        if (dynamoDBAsyncClient == null) {
+            ClientConfiguration asyncClientConfiguration = new ClientConfiguration(clientConfiguration)
+                    .withMaxConnections(Math.max(clientConfiguration.getMaxConnections(), maxInFlightRequests));
+            dynamoDBAsyncClient = new AmazonDynamoDBAsyncClient(awsCredentials, asyncClientConfiguration,
+                    Executors.newFixedThreadPool(maxInFlightRequests));
+            dynamoDBAsyncClient.setRegion(dynamoDBTableRegion);
+            if(runOnDDBLocal) {
+                dynamoDBAsyncClient.setEndpoint(DDB_LOCAL_ENDPOINT);
+            }
+        }
+        return dynamoDBAsyncClient;
+    }
+
+    /**
+     * The shared S3 client, created on the first call. It keeps the SDK
+     * defaults, the tuning of the options is for DynamoDB.
+     */
+    public synchronized AmazonS3Client getS3Client() {
+        if (s3Client == null) {
+            s3Client = new AmazonS3Client(awsCredentials);
+        }
+        return s3Client;
     }
 }
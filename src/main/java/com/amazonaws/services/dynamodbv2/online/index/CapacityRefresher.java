@@ -0,0 +1,140 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.amazonaws.AmazonClientException;
+
+/**
+ * Describe the table on an interval and adjust the rate of the registered
+ * read and write rate limiters in place, so that capacity changes made during
+ * long runs are used without restarting. Write limiters also get the write
+ * capacity of each GSI.
+ */
+public class CapacityRefresher {
+
+    private TableHelper tableHelper;
+    private List<TableRWRateLimiter> readRateLimiters = new CopyOnWriteArrayList<TableRWRateLimiter>();
+    private List<TableRWRateLimiter> writeRateLimiters = new CopyOnWriteArrayList<TableRWRateLimiter>();
+    private volatile long readCapacityUnits;
+    private volatile long writeCapacityUnits;
+    private volatile Map<String, Long> gsiWriteCapacityUnits;
+    private ScheduledExecutorService executor;
+
+    private static final Logger logger = Logger.getLogger(CapacityRefresher.class);
+
+    public CapacityRefresher(TableHelper tableHelper) {
+        this.tableHelper = tableHelper;
+        this.readCapacityUnits = tableHelper.getReadCapacityUnits();
+        this.writeCapacityUnits = tableHelper.getWriteCapacityUnits();
+        this.gsiWriteCapacityUnits = tableHelper.getGsiWriteCapacityUnits();
+    }
+
+    public void addReadRateLimiter(TableRWRateLimiter rateLimiter) {
+        rateLimiter.setReadWriteIOPSCapacityUnits(readCapacityUnits);
+        readRateLimiters.add(rateLimiter);
+    }
+
+    public void addWriteRateLimiter(TableRWRateLimiter rateLimiter) {
+        rateLimiter.setReadWriteIOPSCapacityUnits(writeCapacityUnits);
+        rateLimiter.setIndexCapacityUnits(gsiWriteCapacityUnits);
+        writeRateLimiters.add(rateLimiter);
+    }
+
+    /**
+     * Start describing the table every given number of seconds on a daemon
+     * thread.
+     */
+    public void start(int intervalSeconds) {
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "capacity-refresher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                refresh();
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Describe the table and apply the capacity to the limiters if changed.
+     * Failures are logged and the current rates kept until the next refresh.
+     */
+    protected void refresh() {
+        try {
+            tableHelper.refresh();
+        } catch (IllegalArgumentException iae) {
+            logger.warn("Failed to describe table for capacity refresh, keeping current rates: " + iae.getMessage());
+            return;
+        } catch (AmazonClientException ace) {
+            logger.warn("Failed to describe table for capacity refresh, keeping current rates: " + ace.getMessage());
+            return;
+        }
+        long newReadCapacityUnits = tableHelper.getReadCapacityUnits();
+        if (newReadCapacityUnits != readCapacityUnits) {
+            logger.info("Table read capacity changed from " + readCapacityUnits + " to " + newReadCapacityUnits + " units, adjusting read rate.");
+            readCapacityUnits = newReadCapacityUnits;
+            for (TableRWRateLimiter rateLimiter : readRateLimiters) {
+                rateLimiter.setReadWriteIOPSCapacityUnits(newReadCapacityUnits);
+            }
+        }
+        long newWriteCapacityUnits = tableHelper.getWriteCapacityUnits();
+        if (newWriteCapacityUnits != writeCapacityUnits) {
+            logger.info("Table write capacity changed from " + writeCapacityUnits + " to " + newWriteCapacityUnits + " units, adjusting write rate.");
+            writeCapacityUnits = newWriteCapacityUnits;
+            for (TableRWRateLimiter rateLimiter : writeRateLimiters) {
+                rateLimiter.setReadWriteIOPSCapacityUnits(newWriteCapacityUnits);
+            }
+        }
+        Map<String, Long> newGsiWriteCapacityUnits = tableHelper.getGsiWriteCapacityUnits();
+        if (!newGsiWriteCapacityUnits.equals(gsiWriteCapacityUnits)) {
+            logger.info("GSI write capacity changed from " + gsiWriteCapacityUnits + " to " + newGsiWriteCapacityUnits + " units, adjusting write rate.");
+            gsiWriteCapacityUnits = newGsiWriteCapacityUnits;
+            for (TableRWRateLimiter rateLimiter : writeRateLimiters) {
+                rateLimiter.setIndexCapacityUnits(newGsiWriteCapacityUnits);
+            }
+        }
+    }
+
+    public long getReadCapacityUnits() {
+        return readCapacityUnits;
+    }
+
+    public long getWriteCapacityUnits() {
+        return writeCapacityUnits;
+    }
+}
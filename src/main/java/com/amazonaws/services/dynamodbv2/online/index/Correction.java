@@ -15,18 +15,34 @@
 package com.amazonaws.services.dynamodbv2.online.index;
 
 import java.io.FileNotFoundException;
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import org.apache.log4j.Logger;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.model.AttributeAction;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
 import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
 import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import com.amazonaws.services.s3.AmazonS3Client;
 
 /**
  * Control violation correction.
@@ -36,15 +52,62 @@ public class Correction {
     private Options options;
     private TableHelper tableHelper;
     private CorrectionReader correctionReader;
+    /** Indexes of the correction input columns, resolved once the header is loaded, -1 if not found */
+    private int tableHashKeyColumn = -1;
+    private int tableRangeKeyColumn = -1;
+    private int gsiHashKeyColumn = -1;
+    private int gsiRangeKeyColumn = -1;
+    private int gsiHashKeyUpdateValueColumn = -1;
+    private int gsiRangeKeyUpdateValueColumn = -1;
+    private int gsiHashKeyViolationTypeColumn = -1;
+    private int gsiRangeKeyViolationTypeColumn = -1;
+    private int deleteBlankColumn = -1;
     private TableWriter tableWriter;
+    private AmazonDynamoDB dynamoDBClient;
+    private AmazonS3Client s3Client;
+    private TableRWRateLimiter tableWriteRateLimiter;
+    private boolean isRunningOnDDBLocal = false;
     private long violationUpdateRequests = 0; // includes both delete and update
-    private long successfulUpdates = 0;
-    private long conditionalUpdateFailures = 0;
-    private long unexpectedErrors = 0;
-    
-    /*Correction runs as a single thread, so number of tasks set for rate limiter is 1*/
+    private AtomicLong successfulUpdates = new AtomicLong(0);
+    private AtomicLong conditionalUpdateFailures = new AtomicLong(0);
+    private AtomicLong unexpectedErrors = new AtomicLong(0);
+
+    // Used to create correction output file only if an error occurs
+    private boolean isCorrectionOutputFileGenerated = false;
+
+    /** Only used when correction journal is enabled */
+    private CorrectionJournal correctionJournal;
+
+    /** Only used when duplicate keys are removed from the correction input */
+    private CorrectionDeduplicator correctionDeduplicator;
+
+    /** Only used when items are read before conditional updates */
+    private CorrectionPreReader correctionPreReader;
+    private TableRWRateLimiter tableReadRateLimiter;
+    private CapacityRefresher capacityRefresher;
+    private List<CorrectionRequest> preReadBatch = new ArrayList<CorrectionRequest>();
+    private long alreadyFixedRecords = 0;
+
+    /** Update workers, only used when more than one worker is configured */
+    private ExecutorService updateWorkerExecutor;
+    private List<BlockingQueue<CorrectionRequest>> updateWorkerQueues;
+    private static final int UPDATE_WORKER_QUEUE_SIZE = 1000;
+    private static final long UPDATE_WORKER_OFFER_TIMEOUT_MILLIS = 1000;
+    private volatile Throwable updateWorkerFailure = null;
+    /** Updates still queued or in flight are abandoned after this long without progress */
+    private static final long UPDATE_DRAIN_STALL_TIMEOUT_MILLIS = 5 * 60 * 1000L;
+    private static final CorrectionRequest END_OF_REQUESTS = new CorrectionRequest(null, null, null, null, null, -1);
+
+    /** Async updates, only used when in-flight updates are allowed */
+    private final Object inFlightUpdatesLock = new Object();
+    private int inFlightUpdates = 0;
+    private Set<Map<String, AttributeValue>> inFlightPrimaryKeys = new HashSet<Map<String, AttributeValue>>();
+
+    /*All correction workers share one rate limiter, so number of tasks set for rate limiter is 1*/
     private static final int NUM_OF_TASKS_FOR_CORRECTION = 1;
 
+    private static final Logger logger = Logger.getLogger(Correction.class);
+
     /**
      * Constructor for Unit test only.
      */
@@ -55,36 +118,90 @@ public class Correction {
         this.tableWriter = tableWriter;
     }
 
-    public Correction(Options options, TableHelper tableHelper, AmazonDynamoDBClient dynamoDBClient, boolean isRunningOnDDBLocal) throws IOException {
+    public Correction(Options options, TableHelper tableHelper, AmazonDynamoDB dynamoDBClient, boolean isRunningOnDDBLocal) throws IOException {
+        this(options, tableHelper, dynamoDBClient, null /* s3Client */, isRunningOnDDBLocal);
+    }
+
+    /**
+     * The S3 client is only needed when the correction input is streamed from S3.
+     */
+    public Correction(Options options, TableHelper tableHelper, AmazonDynamoDB dynamoDBClient, AmazonS3Client s3Client, boolean isRunningOnDDBLocal)
+            throws IOException {
         this.options = options;
+        this.s3Client = s3Client;
         this.tableHelper = tableHelper;
+        this.dynamoDBClient = dynamoDBClient;
+        this.isRunningOnDDBLocal = isRunningOnDDBLocal;
         this.correctionReader = new CorrectionReader();
-        this.tableWriter = new TableWriter(options, tableHelper, dynamoDBClient, NUM_OF_TASKS_FOR_CORRECTION, isRunningOnDDBLocal);
+        this.tableWriteRateLimiter = new TableRWRateLimiter(tableHelper.getWriteCapacityUnits(), tableHelper.getGsiWriteCapacityUnits(), options.getReadWriteIOPSPercent(),
+                NUM_OF_TASKS_FOR_CORRECTION);
+        this.tableWriter = new TableWriter(options, tableHelper, dynamoDBClient, tableWriteRateLimiter, isRunningOnDDBLocal);
     }
     
     protected void createViolationWriter() throws IOException {
-        String outputFilePath;
+        ViolationWriter.getInstance().createOutputFile(getCorrectionOutputFilePath());
+    }
+
+    /**
+     * Local path of the correction output file, a temporary file is used
+     * when the output goes to S3.
+     */
+    protected String getCorrectionOutputFilePath() {
         if (options.isCorrectionOutputS3Path()) {
-            outputFilePath = options.getTmpCorrectionOutputPath();
-        } else {
-            outputFilePath = options.getCorrectionOutputPath();
+            return options.getTmpCorrectionOutputPath();
         }
-        ViolationWriter.getInstance().createOutputFile(outputFilePath);
+        return options.getCorrectionOutputPath();
     }
 
-    public void deleteFromFile() throws IllegalArgumentException {
+    public void deleteFromFile() throws IllegalArgumentException, IOException {
         String correctionFilePath = options.getCorrectionInputPath();
         PrintHelper.printDeleteStartInfo(correctionFilePath);
 
-        if (options.isCorrectionInputS3Path())
-            correctionFilePath = options.getTmpCorrectionInputPath();
-        loadRecordsFromCorrectionFile(correctionFilePath);
-        while (correctionReader.moveToNextRecordIfHas()) {
-            addRecordToDeleteRequest();
+        loadRecordsFromCorrectionInput();
+        prepareDeduplication();
+        DeleteFailureWriter.getInstance().init(options.getDeleteFailureOutputPath(), tableHelper.getTableRangeKeyName() != null);
+        startCapacityRefresher();
+        try {
+            long rowNumber = -1;
+            while (correctionReader.moveToNextRecordIfHas()) {
+                rowNumber++;
+                if (!isRowKeptByDeduplication(rowNumber)) {
+                    continue;
+                }
+                addRecordToDeleteRequest();
+            }
+            sendDeleteRequests();
+        } finally {
+            stopCapacityRefresher();
+            DeleteFailureWriter.getInstance().flushAndCloseWriter();
         }
-        sendDeleteRequests();
 
         PrintHelper.printCorrectionDeleteSummary(violationUpdateRequests);
+        printDeduplicationSummary();
+        PrintHelper.printDeleteFailureSummary(DeleteFailureWriter.getInstance().getNumOfFailedDeletes(), options.getDeleteFailureOutputPath());
+    }
+
+    /**
+     * Keep the write rate, and the pre-read rate if used, in line with table
+     * and GSI capacity changes made during the correction.
+     */
+    private void startCapacityRefresher() {
+        if (options.getCapacityRefreshIntervalSeconds() <= 0 || isRunningOnDDBLocal || tableWriteRateLimiter == null) {
+            return;
+        }
+        capacityRefresher = new CapacityRefresher(tableHelper);
+        capacityRefresher.addWriteRateLimiter(tableWriteRateLimiter);
+        if (tableReadRateLimiter != null) {
+            capacityRefresher.addReadRateLimiter(tableReadRateLimiter);
+        }
+        capacityRefresher.start(options.getCapacityRefreshIntervalSeconds());
+    }
+
+    private void stopCapacityRefresher() {
+        if (capacityRefresher != null) {
+            capacityRefresher.stop();
+            capacityRefresher = null;
+        }
     }
 
     protected void addRecordToDeleteRequest() {
@@ -104,7 +221,7 @@ public class Correction {
 
     protected void sendDeleteRequests() {
         try {
-        	violationUpdateRequests += tableWriter.sendDeleteRequests();
+        	violationUpdateRequests += tableWriter.drainDeleteRetries();
         } catch (IllegalArgumentException iae) {
             throw new IllegalArgumentException(iae.getMessage());
         }
@@ -116,72 +233,561 @@ public class Correction {
     public boolean updateFromFile(boolean useConditionalUpdate) throws Exception {
         String correctionFilePath = options.getCorrectionInputPath();
         PrintHelper.printUpdateStartInfo(correctionFilePath);
-        if (options.isCorrectionInputS3Path()) {
-            correctionFilePath = options.getTmpCorrectionInputPath();
-        }
 
-        loadRecordsFromCorrectionFile(correctionFilePath);
+        loadRecordsFromCorrectionInput();
         checkUseConditionalUpdate(useConditionalUpdate);
-        
-        // Used to create correction output file only if an error occurs
-        boolean isCorrectionOutputFileGenerated = false;
-        
+        prepareDeduplication();
+        isCorrectionOutputFileGenerated = false;
+
+        long rowsToSkip = 0;
+        if (options.isCorrectionJournal()) {
+            correctionJournal = new CorrectionJournal(getCorrectionOutputFilePath(), options.getCorrectionInputPath());
+            rowsToSkip = correctionJournal.getRowsToSkip();
+            if (correctionJournal.isResumed()) {
+                logger.info("Resuming correction, skipping " + rowsToSkip + " rows committed in journal " + correctionJournal.getJournalFilePath());
+            }
+        }
+
+        if (useConditionalUpdate && options.isPreReadCorrectionItems() && correctionPreReader == null) {
+            tableReadRateLimiter = new TableRWRateLimiter(tableHelper.getReadCapacityUnits(), options.getReadWriteIOPSPercent(),
+                    NUM_OF_TASKS_FOR_CORRECTION);
+            correctionPreReader = new CorrectionPreReader(dynamoDBClient, options.getTableName(), tableHelper, tableReadRateLimiter, isRunningOnDDBLocal);
+        }
+
+        boolean isRead = false;
+        boolean isCompleted = false;
+        startCapacityRefresher();
         try {
+            startUpdateWorkers();
+            long rowNumber = -1;
             while (correctionReader.moveToNextRecordIfHas()) {
+                rowNumber++;
+                // Checked before skipping, the first occurrence of a key may be in the skipped rows
+                boolean isKept = isRowKeptByDeduplication(rowNumber);
+                if (rowNumber < rowsToSkip) {
+                    continue;
+                }
+                if (!isKept) {
+                    completeRow(rowNumber);
+                    continue;
+                }
+                CorrectionRequest request;
                 try {
-                    Map<String, AttributeValue> primaryKey = genTablePrimaryKeyForRecord();
-                    Map<String, AttributeValueUpdate> updateItems = genUpdateItemsForRecord();
-                    Map<String, ExpectedAttributeValue> expectedItems = null;
-                    if (useConditionalUpdate) {
-                        expectedItems = genExpectedItemsForRecord(updateItems);
-                    }
-                    if(tableWriter.sendUpdateRequest(primaryKey, updateItems, expectedItems)) {
-                        successfulUpdates++;
-                    }
-                } catch(Exception e) {
-                    if(e instanceof ConditionalCheckFailedException) {
-                        conditionalUpdateFailures++;
-                    } else {
-                        unexpectedErrors++;
-                    }
-                    
-                    // generate output file if it does not exist
-                    if(!isCorrectionOutputFileGenerated) {
-                        createViolationWriter();
-                        isCorrectionOutputFileGenerated = true;
-                        // Add header to the output file
-                        List<String> correctionOutputHeader = new ArrayList<String>(correctionReader.getHeader());
-                        correctionOutputHeader.add(ViolationRecord.GSI_VALUE_UPDATE_ERROR); // Add another column for error
-                        ViolationWriter.getInstance().addViolationRecord(correctionOutputHeader);
-                    }
-                    List<String> failedRecord = new ArrayList<String>(correctionReader.getCurrentRecord());
-                    // Add error to the record
-                    failedRecord.add(correctionReader.getHeader().size(), e.getMessage());
-                    ViolationWriter.getInstance().addViolationRecord(failedRecord);
+                    request = genCorrectionRequestForRecord(useConditionalUpdate, rowNumber);
+                } catch (Exception e) {
+                    recordUpdateFailure(correctionReader.getCurrentRecord(), e);
+                    completeRow(rowNumber);
+                    continue;
+                }
+                if (correctionPreReader == null) {
+                    submitUpdate(request);
+                } else {
+                    addToPreReadBatch(request);
                 }
             }
+            submitPreReadBatch();
+            isRead = true;
         } finally {
+            try {
+                // Both run even if the first gives up, so that no worker is left behind
+                boolean isAsyncDrained = waitForAsyncUpdates();
+                boolean isWorkersDrained = stopUpdateWorkers();
+                isCompleted = isRead && isAsyncDrained && isWorkersDrained;
+            } finally {
+                stopCapacityRefresher();
+            }
             // close the file
             if(isCorrectionOutputFileGenerated) {
                 ViolationWriter.getInstance().flushAndCloseWriter();
             }
+            if (correctionJournal != null) {
+                if (isCompleted) {
+                    correctionJournal.delete();
+                } else {
+                    correctionJournal.commit();
+                }
+            }
         }
         
         if(useConditionalUpdate) {
-            PrintHelper.printCorrectionSummary(violationUpdateRequests, successfulUpdates, 
-                    conditionalUpdateFailures, unexpectedErrors, options.getCorrectionOutputPath());
+            PrintHelper.printCorrectionSummary(violationUpdateRequests, successfulUpdates.get(), 
+                    conditionalUpdateFailures.get(), unexpectedErrors.get(), options.getCorrectionOutputPath());
         } else {
-            PrintHelper.printCorrectionSummary(violationUpdateRequests, successfulUpdates, 
-                    unexpectedErrors, options.getCorrectionOutputPath());
+            PrintHelper.printCorrectionSummary(violationUpdateRequests, successfulUpdates.get(), 
+                    unexpectedErrors.get(), options.getCorrectionOutputPath());
+        }
+        printDeduplicationSummary();
+        if (correctionPreReader != null) {
+            PrintHelper.printAlreadyFixedSummary(alreadyFixedRecords);
         }
         
-        if(conditionalUpdateFailures > 0 || unexpectedErrors > 0) {
+        if(conditionalUpdateFailures.get() > 0 || unexpectedErrors.get() > 0) {
+            return true;
+        }
+        // Errors of the runs before resuming are still in the output file
+        if (correctionJournal != null && correctionJournal.isResumed() && new File(getCorrectionOutputFilePath()).exists()) {
             return true;
         }
         
         return false;
     }
-    
+
+    /**
+     * Find the duplicate table keys with a pre-pass over the correction
+     * input, then load the input again for the correction pass.
+     */
+    protected void prepareDeduplication() {
+        correctionDeduplicator = null;
+        if (!options.isDedupeCorrectionInput()) {
+            return;
+        }
+        CorrectionDeduplicator deduplicator = new CorrectionDeduplicator(options.getDedupeCorrectionInput(), options.getDedupeMemoryMB());
+        long rowNumber = -1;
+        while (correctionReader.moveToNextRecordIfHas()) {
+            rowNumber++;
+            deduplicator.addKeyOnPrePass(correctionReader.getValue(tableHashKeyColumn),
+                    correctionReader.getValue(tableRangeKeyColumn), rowNumber);
+        }
+        loadRecordsFromCorrectionInput();
+        correctionDeduplicator = deduplicator;
+    }
+
+    /**
+     * Every row of the correction input must be checked, in order.
+     */
+    protected boolean isRowKeptByDeduplication(long rowNumber) {
+        if (correctionDeduplicator == null) {
+            return true;
+        }
+        return correctionDeduplicator.isKept(correctionReader.getValue(tableHashKeyColumn),
+                correctionReader.getValue(tableRangeKeyColumn), rowNumber);
+    }
+
+    private void printDeduplicationSummary() {
+        if (correctionDeduplicator != null) {
+            PrintHelper.printDuplicateKeySummary(correctionDeduplicator.getNumOfDuplicatesRemoved(), options.getDedupeCorrectionInput());
+        }
+    }
+
+    /**
+     * Parse and validate every record of the correction input, and estimate
+     * the write units and time the correction would take, without sending
+     * any request.
+     */
+    public CorrectionCostEstimator dryRunFromFile(boolean delete) {
+        PrintHelper.printDryRunStartInfo(options.getCorrectionInputPath());
+        loadRecordsFromCorrectionInput();
+        prepareDeduplication();
+
+        CorrectionCostEstimator estimator = new CorrectionCostEstimator(tableHelper.getGsiKeyAttributeNames());
+        NumberValidator numberValidator = new NumberValidator();
+        long numOfRows = 0;
+        long invalidRows = 0;
+        long rowNumber = -1;
+        while (correctionReader.moveToNextRecordIfHas()) {
+            rowNumber++;
+            if (!isRowKeptByDeduplication(rowNumber)) {
+                continue;
+            }
+            numOfRows++;
+            try {
+                Map<String, AttributeValue> primaryKey = genTablePrimaryKeyForRecord();
+                if (primaryKey == null) {
+                    invalidRows++;
+                } else if (delete) {
+                    estimator.addDelete(primaryKey);
+                } else {
+                    Map<String, AttributeValueUpdate> updateItems = genUpdateItemsForRecord();
+                    if (isValidUpdate(updateItems, numberValidator)) {
+                        estimator.addUpdate(primaryKey, updateItems);
+                    } else {
+                        invalidRows++;
+                    }
+                }
+            } catch (IllegalArgumentException iae) {
+                invalidRows++;
+            }
+        }
+
+        // Paced as the real run, the table rate limiter has a limiter of its own for each GSI with write capacity
+        double writeUnitsPerSecond = tableHelper.getWriteCapacityUnits() * options.getReadWriteIOPSPercent() / 100.0;
+        Map<String, Double> gsiWriteUnitsPerSecond = new HashMap<String, Double>();
+        for (Map.Entry<String, Long> gsiCapacity : tableHelper.getGsiWriteCapacityUnits().entrySet()) {
+            gsiWriteUnitsPerSecond.put(gsiCapacity.getKey(), gsiCapacity.getValue() * options.getReadWriteIOPSPercent() / 100.0);
+        }
+        PrintHelper.printDryRunSummary(numOfRows, invalidRows, estimator.getNumOfWrites(), estimator.getTableWriteUnits(), estimator.getGsiWriteUnits(),
+                writeUnitsPerSecond, estimator.getProjectedSeconds(writeUnitsPerSecond, gsiWriteUnitsPerSecond));
+        printDeduplicationSummary();
+        return estimator;
+    }
+
+    /**
+     * The updated GSI key values must not be violations themselves.
+     */
+    private boolean isValidUpdate(Map<String, AttributeValueUpdate> updateItems, NumberValidator numberValidator) {
+        for (Map.Entry<String, AttributeValueUpdate> update : updateItems.entrySet()) {
+            AttributeValue value = update.getValue().getValue();
+            if (value == null) {
+                continue;
+            }
+            int maxKeySize = update.getKey().equals(options.getGsiHashKeyName()) ? ViolationChecker.MAX_HASH_KEY_SIZE : ViolationChecker.MAX_RANGE_KEY_SIZE;
+            if (value.getN() != null && numberValidator.validate(value.getN()) != NumberValidator.VALID) {
+                return false;
+            }
+            if ((value.getS() != null || value.getB() != null) && ItemSizeCalculator.getValueSize(value) > maxKeySize) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected CorrectionRequest genCorrectionRequestForRecord(boolean useConditionalUpdate, long rowNumber) {
+        Map<String, AttributeValue> primaryKey = genTablePrimaryKeyForRecord();
+        Map<String, AttributeValueUpdate> updateItems = genUpdateItemsForRecord();
+        Map<String, ExpectedAttributeValue> expectedItems = null;
+        if (useConditionalUpdate) {
+            expectedItems = genExpectedItemsForRecord(updateItems);
+        }
+        return new CorrectionRequest(correctionReader.getValue(tableHashKeyColumn), primaryKey, updateItems, expectedItems,
+                correctionReader.getCurrentRecord(), rowNumber);
+    }
+
+    /**
+     * Mark the row as handled in the journal. Before the journal is committed
+     * the output file is flushed, so the errors of the committed rows are not
+     * lost by a crash.
+     */
+    protected void completeRow(long rowNumber) {
+        if (correctionJournal == null) {
+            return;
+        }
+        try {
+            if (correctionJournal.completeRow(rowNumber)) {
+                synchronized (this) {
+                    if (isCorrectionOutputFileGenerated) {
+                        ViolationWriter.getInstance().flush();
+                    }
+                }
+                correctionJournal.commit();
+            }
+        } catch (IOException ioe) {
+            throw new IllegalArgumentException("Error: Failed to write correction journal: " + ioe.getMessage());
+        }
+    }
+
+    /**
+     * Send the update on the current thread if there is a single worker,
+     * otherwise hand it to the worker owning its table hash key, so that the
+     * updates on one item are still sent in input file order.
+     */
+    protected void submitUpdate(CorrectionRequest request) throws InterruptedException {
+        if (options.isAsyncCorrection()) {
+            submitAsyncUpdate(request);
+        } else if (updateWorkerQueues == null) {
+            sendUpdate(request, tableWriter);
+        } else {
+            offerToUpdateWorker(updateWorkerQueues.get(getUpdateWorkerForKey(request.getTableHashKey(), updateWorkerQueues.size())), request);
+        }
+    }
+
+    /**
+     * Queue the request, waiting while the queue is full. Fails once a worker
+     * has failed, since its queue would never be drained.
+     */
+    private void offerToUpdateWorker(BlockingQueue<CorrectionRequest> queue, CorrectionRequest request) throws InterruptedException {
+        checkUpdateWorkers();
+        while (!queue.offer(request, UPDATE_WORKER_OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            checkUpdateWorkers();
+        }
+    }
+
+    private void checkUpdateWorkers() {
+        Throwable failure = updateWorkerFailure;
+        if (failure != null) {
+            throw new IllegalArgumentException("Error: A correction worker failed, remaining updates cannot be sent: " + failure, failure);
+        }
+    }
+
+    /**
+     * Items are read in batches, a batch is submitted early when it already
+     * has the item, as a batch read can not have the same key twice.
+     */
+    protected void addToPreReadBatch(CorrectionRequest request) throws InterruptedException {
+        for (CorrectionRequest batchedRequest : preReadBatch) {
+            if (batchedRequest.getPrimaryKey().equals(request.getPrimaryKey())) {
+                submitPreReadBatch();
+                break;
+            }
+        }
+        preReadBatch.add(request);
+        if (preReadBatch.size() >= CorrectionPreReader.MAX_BATCH_SIZE) {
+            submitPreReadBatch();
+        }
+    }
+
+    /**
+     * Skip the records whose item no longer has the expected values, their
+     * conditional update would fail, and submit the others.
+     */
+    protected void submitPreReadBatch() throws InterruptedException {
+        if (preReadBatch.isEmpty()) {
+            return;
+        }
+        List<CorrectionRequest> batch = preReadBatch;
+        preReadBatch = new ArrayList<CorrectionRequest>();
+        Set<CorrectionRequest> alreadyFixed = correctionPreReader.findAlreadyFixed(batch);
+        for (CorrectionRequest request : batch) {
+            if (alreadyFixed.contains(request)) {
+                alreadyFixedRecords++;
+                completeRow(request.getRowNumber());
+            } else {
+                submitUpdate(request);
+            }
+        }
+    }
+
+    public long getAlreadyFixedRecords() {
+        return alreadyFixedRecords;
+    }
+
+    protected static int getUpdateWorkerForKey(String tableHashKey, int numOfWorkers) {
+        if (tableHashKey == null) {
+            return 0;
+        }
+        return (tableHashKey.hashCode() & Integer.MAX_VALUE) % numOfWorkers;
+    }
+
+    protected void sendUpdate(CorrectionRequest request, TableWriter writer) {
+        try {
+            if (writer.sendUpdateRequest(request.getPrimaryKey(), request.getUpdateItems(), request.getExpectedItems())) {
+                successfulUpdates.incrementAndGet();
+            }
+        } catch (Exception e) {
+            recordUpdateFailure(request.getRecord(), e);
+        } finally {
+            completeRow(request.getRowNumber());
+        }
+    }
+
+    /**
+     * Send the update without waiting for its response, so that next records
+     * are parsed while updates are in flight. Blocks while the in-flight window
+     * is full, or while an update on the same item (table hash and range key)
+     * is in flight so that the updates on one item are still applied in input
+     * file order.
+     */
+    protected void submitAsyncUpdate(final CorrectionRequest request) throws InterruptedException {
+        Map<String, AttributeValue> primaryKey = request.getPrimaryKey();
+        synchronized (inFlightUpdatesLock) {
+            while (inFlightUpdates >= options.getMaxInFlightUpdates() || inFlightPrimaryKeys.contains(primaryKey)) {
+                inFlightUpdatesLock.wait();
+            }
+            inFlightUpdates++;
+            inFlightPrimaryKeys.add(primaryKey);
+        }
+
+        boolean isSent = false;
+        try {
+            isSent = tableWriter.sendUpdateRequestAsync(request.getPrimaryKey(), request.getUpdateItems(), request.getExpectedItems(),
+                    new AsyncHandler<UpdateItemRequest, UpdateItemResult>() {
+                        @Override
+                        public void onSuccess(UpdateItemRequest updateItemRequest, UpdateItemResult result) {
+                            successfulUpdates.incrementAndGet();
+                            completeAsyncUpdate(request);
+                        }
+
+                        @Override
+                        public void onError(Exception exception) {
+                            try {
+                                recordUpdateFailure(request.getRecord(), exception);
+                            } catch (RuntimeException re) {
+                                logger.error("Exception!", re);
+                            } finally {
+                                completeAsyncUpdate(request);
+                            }
+                        }
+                    });
+        } catch (Exception e) {
+            recordUpdateFailure(request.getRecord(), e);
+        } finally {
+            if (!isSent) {
+                completeAsyncUpdate(request);
+            }
+        }
+    }
+
+    private void completeAsyncUpdate(CorrectionRequest request) {
+        try {
+            completeRow(request.getRowNumber());
+        } finally {
+            synchronized (inFlightUpdatesLock) {
+                inFlightUpdates--;
+                inFlightPrimaryKeys.remove(request.getPrimaryKey());
+                inFlightUpdatesLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Wait until the responses of all the async updates are received, giving
+     * up when none is received for UPDATE_DRAIN_STALL_TIMEOUT_MILLIS.
+     * 
+     * @return true if all the responses were received
+     */
+    protected boolean waitForAsyncUpdates() throws InterruptedException {
+        synchronized (inFlightUpdatesLock) {
+            int lastInFlightUpdates = inFlightUpdates;
+            long deadline = System.currentTimeMillis() + UPDATE_DRAIN_STALL_TIMEOUT_MILLIS;
+            while (inFlightUpdates > 0) {
+                if (inFlightUpdates != lastInFlightUpdates) {
+                    lastInFlightUpdates = inFlightUpdates;
+                    deadline = System.currentTimeMillis() + UPDATE_DRAIN_STALL_TIMEOUT_MILLIS;
+                }
+                long waitMillis = deadline - System.currentTimeMillis();
+                if (waitMillis <= 0) {
+                    logger.error("No response received for " + inFlightUpdates + " async updates in " + UPDATE_DRAIN_STALL_TIMEOUT_MILLIS
+                            + " ms, they may not have been applied.");
+                    return false;
+                }
+                inFlightUpdatesLock.wait(waitMillis);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Count the failure and write the failed record with the error to the
+     * correction output file, which is created on the first failure.
+     */
+    protected synchronized void recordUpdateFailure(List<String> record, Exception e) {
+        if(e instanceof ConditionalCheckFailedException) {
+            conditionalUpdateFailures.incrementAndGet();
+        } else {
+            unexpectedErrors.incrementAndGet();
+        }
+
+        try {
+            // generate output file if it does not exist
+            if(!isCorrectionOutputFileGenerated) {
+                String outputFilePath = getCorrectionOutputFilePath();
+                if (correctionJournal != null && correctionJournal.isResumed() && new File(outputFilePath).exists()) {
+                    // Keep the errors of the runs before resuming
+                    ViolationWriter.getInstance().appendToOutputFile(outputFilePath);
+                } else {
+                    createViolationWriter();
+                    // Add header to the output file
+                    List<String> correctionOutputHeader = new ArrayList<String>(correctionReader.getHeader());
+                    correctionOutputHeader.add(ViolationRecord.GSI_VALUE_UPDATE_ERROR); // Add another column for error
+                    ViolationWriter.getInstance().addViolationRecord(correctionOutputHeader);
+                }
+                isCorrectionOutputFileGenerated = true;
+            }
+            List<String> failedRecord = new ArrayList<String>(record);
+            // Add error to the record
+            failedRecord.add(correctionReader.getHeader().size(), e.getMessage());
+            ViolationWriter.getInstance().addViolationRecord(failedRecord);
+        } catch (IOException ioe) {
+            throw new IllegalArgumentException("Error: Failed to write correction output file: " + ioe.getMessage());
+        }
+    }
+
+    protected void startUpdateWorkers() {
+        int numOfWorkers = options.getNumOfCorrectionWorkers();
+        if (numOfWorkers <= 1) {
+            return;
+        }
+        logger.info("Starting " + numOfWorkers + " correction workers.");
+        updateWorkerFailure = null;
+        updateWorkerQueues = new ArrayList<BlockingQueue<CorrectionRequest>>();
+        updateWorkerExecutor = Executors.newFixedThreadPool(numOfWorkers);
+        for (int worker = 0; worker < numOfWorkers; worker++) {
+            BlockingQueue<CorrectionRequest> queue = new ArrayBlockingQueue<CorrectionRequest>(UPDATE_WORKER_QUEUE_SIZE);
+            updateWorkerQueues.add(queue);
+            TableWriter workerTableWriter = new TableWriter(options, tableHelper, dynamoDBClient, tableWriteRateLimiter, isRunningOnDDBLocal);
+            updateWorkerExecutor.execute(new UpdateWorker(queue, workerTableWriter));
+        }
+    }
+
+    /**
+     * Let the workers finish the queued updates and wait until they end. The
+     * workers are interrupted when one of them failed, or when the queued
+     * updates make no progress for UPDATE_DRAIN_STALL_TIMEOUT_MILLIS.
+     * 
+     * @return true if all the queued updates were sent
+     */
+    protected boolean stopUpdateWorkers() throws InterruptedException {
+        if (updateWorkerQueues == null) {
+            return true;
+        }
+        try {
+            for (BlockingQueue<CorrectionRequest> queue : updateWorkerQueues) {
+                if (updateWorkerFailure != null || !queue.offer(END_OF_REQUESTS, UPDATE_DRAIN_STALL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return abortUpdateWorkers();
+                }
+            }
+            updateWorkerExecutor.shutdown();
+            int lastQueuedUpdates = getQueuedUpdates();
+            while (!updateWorkerExecutor.awaitTermination(UPDATE_DRAIN_STALL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                int queuedUpdates = getQueuedUpdates();
+                if (queuedUpdates == lastQueuedUpdates) {
+                    return abortUpdateWorkers();
+                }
+                lastQueuedUpdates = queuedUpdates;
+            }
+            // The queue of a failed worker was not drained
+            return updateWorkerFailure == null;
+        } finally {
+            updateWorkerQueues = null;
+            updateWorkerExecutor = null;
+        }
+    }
+
+    private int getQueuedUpdates() {
+        int queuedUpdates = 0;
+        for (BlockingQueue<CorrectionRequest> queue : updateWorkerQueues) {
+            queuedUpdates += queue.size();
+        }
+        return queuedUpdates;
+    }
+
+    private boolean abortUpdateWorkers() {
+        logger.error("Stopping correction workers that failed or made no progress in " + UPDATE_DRAIN_STALL_TIMEOUT_MILLIS + " ms, "
+                + getQueuedUpdates() + " queued updates will not be sent.");
+        updateWorkerExecutor.shutdownNow();
+        return false;
+    }
+
+    private class UpdateWorker implements Runnable {
+        private BlockingQueue<CorrectionRequest> queue;
+        private TableWriter workerTableWriter;
+
+        public UpdateWorker(BlockingQueue<CorrectionRequest> queue, TableWriter workerTableWriter) {
+            this.queue = queue;
+            this.workerTableWriter = workerTableWriter;
+        }
+
+        @Override
+        public void run() {
+            try {
+                CorrectionRequest request;
+                while ((request = queue.take()) != END_OF_REQUESTS) {
+                    try {
+                        sendUpdate(request, workerTableWriter);
+                    } catch (RuntimeException re) {
+                        // Keep draining the queue, otherwise the reader would block forever
+                        logger.error("Exception!", re);
+                    }
+                }
+            } catch (InterruptedException ie) {
+                logger.error("Correction worker interrupted, remaining updates will not be sent.");
+            } catch (Throwable t) {
+                // Recorded so that the reader fails instead of blocking on this queue
+                logger.error("Correction worker failed, remaining updates will not be sent.", t);
+                updateWorkerFailure = t;
+            }
+        }
+    }
+
     private boolean checkUseConditionalUpdate(boolean useConditionalUpdate) {
         if (useConditionalUpdate) {
             if (options.getGsiHashKeyName() != null && !correctionReader.ifContainsColumn(ViolationRecord.GSI_HASH_KEY)) {
@@ -196,9 +802,35 @@ public class Correction {
         return false;
     }
 
+    /**
+     * Load the records from the local file, from the file downloaded from S3,
+     * or directly from S3 when the input is streamed.
+     */
+    protected void loadRecordsFromCorrectionInput() {
+        if (options.isCorrectionInputS3Path() && options.isStreamCorrectionInputFromS3()) {
+            loadRecordsFromS3(options.getCorrectionInputPath());
+        } else if (options.isCorrectionInputS3Path()) {
+            loadRecordsFromCorrectionFile(options.getTmpCorrectionInputPath());
+        } else {
+            loadRecordsFromCorrectionFile(options.getCorrectionInputPath());
+        }
+    }
+
+    protected void loadRecordsFromS3(String s3Path) {
+        try {
+            correctionReader.loadCSVStream(new S3RangedInputStream(s3Client, options.getS3PathBucketName(s3Path), options.getS3PathKey(s3Path)));
+            resolveColumnIndexes();
+        } catch (AmazonServiceException ase) {
+            throw new IllegalArgumentException("Error: Failed to read given file from S3 path: " + s3Path + " , please check your path.");
+        } catch (IOException ioe) {
+            throw new IllegalArgumentException("Error: Failed to read correction file from S3 path: " + s3Path + " .");
+        }
+    }
+
     protected void loadRecordsFromCorrectionFile(String correctionFilePath) {
         try {
-            correctionReader.loadCSVFile(correctionFilePath);
+            correctionReader.loadCSVFile(correctionFilePath, options.getNumOfCorrectionReaderThreads());
+            resolveColumnIndexes();
         } catch (FileNotFoundException fnfe) {
             throw new IllegalArgumentException("Error: Given correction file '" + correctionFilePath + "' not exists.");
         } catch (IOException ioe) {
@@ -206,6 +838,22 @@ public class Correction {
         }
     }
 
+    /**
+     * Resolve the columns once per loaded header, records are then read by
+     * index.
+     */
+    protected void resolveColumnIndexes() {
+        tableHashKeyColumn = correctionReader.getColumnIndex(ViolationRecord.TABLE_HASH_KEY);
+        tableRangeKeyColumn = correctionReader.getColumnIndex(ViolationRecord.TABLE_RANGE_KEY);
+        gsiHashKeyColumn = correctionReader.getColumnIndex(ViolationRecord.GSI_HASH_KEY);
+        gsiRangeKeyColumn = correctionReader.getColumnIndex(ViolationRecord.GSI_RANGE_KEY);
+        gsiHashKeyUpdateValueColumn = correctionReader.getColumnIndex(ViolationRecord.GSI_HASH_KEY_UPDATE_VALUE);
+        gsiRangeKeyUpdateValueColumn = correctionReader.getColumnIndex(ViolationRecord.GSI_RANGE_KEY_UPDATE_VALUE);
+        gsiHashKeyViolationTypeColumn = correctionReader.getColumnIndex(ViolationRecord.GSI_HASH_KEY_VIOLATION_TYPE);
+        gsiRangeKeyViolationTypeColumn = correctionReader.getColumnIndex(ViolationRecord.GSI_RANGE_KEY_VIOLATION_TYPE);
+        deleteBlankColumn = correctionReader.getColumnIndex(ViolationRecord.GSI_CORRECTION_DELETE_BLANK);
+    }
+
     protected Map<String, AttributeValue> genTablePrimaryKeyForRecord() {
         try {
             AttributeValue tableHashKeyValue = tableWriter.genAttributeValueForTableKey(tableHelper.getTableHashKeyType(), getNextTableHashKey());
@@ -318,7 +966,7 @@ public class Correction {
     }
 
     protected String getNextTableHashKey() throws IllegalArgumentException {
-        String nextHashKey = correctionReader.getValueInRecordByName(ViolationRecord.TABLE_HASH_KEY);
+        String nextHashKey = correctionReader.getValue(tableHashKeyColumn);
         if (null == nextHashKey) {
             throw new IllegalArgumentException("Error: '" + ViolationRecord.TABLE_HASH_KEY + "' not found on input file");
         }
@@ -326,7 +974,7 @@ public class Correction {
     }
 
     protected String getNextTableRangeKey() throws IllegalArgumentException {
-        String nextTableRangeKey = correctionReader.getValueInRecordByName(ViolationRecord.TABLE_RANGE_KEY);
+        String nextTableRangeKey = correctionReader.getValue(tableRangeKeyColumn);
         if (null != tableHelper.getTableRangeKeyName() && null == nextTableRangeKey) {
             throw new IllegalArgumentException("Error: Given table has range key, but '" + ViolationRecord.TABLE_RANGE_KEY + "' not found on input file.");
         }
@@ -338,7 +986,7 @@ public class Correction {
     }
 
     protected String getNextGsiHashKey() {
-        String nextGsiHashkeyValue = correctionReader.getValueInRecordByName(ViolationRecord.GSI_HASH_KEY);
+        String nextGsiHashkeyValue = correctionReader.getValue(gsiHashKeyColumn);
         if (null != options.getGsiHashKeyName() && null == nextGsiHashkeyValue) {
             throw new IllegalArgumentException("Error: '" + ViolationRecord.GSI_HASH_KEY
                     + "' not found on input file which is required for conditional update.");
@@ -351,7 +999,7 @@ public class Correction {
     }
 
     protected String getNextGsiRangeKey() {
-        String nextGsiRangeKeyValue = correctionReader.getValueInRecordByName(ViolationRecord.GSI_RANGE_KEY);
+        String nextGsiRangeKeyValue = correctionReader.getValue(gsiRangeKeyColumn);
         if (null != options.getGsiRangeKeyName() && null == nextGsiRangeKeyValue) {
             throw new IllegalArgumentException("Error: '" + ViolationRecord.GSI_RANGE_KEY
                     + "' not found on input file which is required for conditional update.");
@@ -364,31 +1012,31 @@ public class Correction {
     }
 
     protected String getNextGsiHashKeyUpdateValue() throws IllegalArgumentException {
-        String nextGsiHashKeyUpdateValues = correctionReader.getValueInRecordByName(ViolationRecord.GSI_HASH_KEY_UPDATE_VALUE);
+        String nextGsiHashKeyUpdateValues = correctionReader.getValue(gsiHashKeyUpdateValueColumn);
         // It is okay to ignore a random value mentioned even if GsiHashKeyName in options is null
         // It is also okay to ignore the places where GSIHashKeyUpdateValue is not specified as the user might want to keep that value
         return nextGsiHashKeyUpdateValues;
     }
     
     protected String getNextGsiHashKeyViolationType() {
-        String nextGsiHashKeyViolationType = correctionReader.getValueInRecordByName(ViolationRecord.GSI_HASH_KEY_VIOLATION_TYPE);
+        String nextGsiHashKeyViolationType = correctionReader.getValue(gsiHashKeyViolationTypeColumn);
         return nextGsiHashKeyViolationType;
     }
     
     protected String getNextGsiRangeKeyViolationType() {
-        String nextGsiRangeKeyViolationType = correctionReader.getValueInRecordByName(ViolationRecord.GSI_RANGE_KEY_VIOLATION_TYPE);
+        String nextGsiRangeKeyViolationType = correctionReader.getValue(gsiRangeKeyViolationTypeColumn);
         return nextGsiRangeKeyViolationType;
     }
 
     protected String getNextGsiRangeKeyUpdateValue() throws IllegalArgumentException {
-        String nextGsiRangeKeyUpdateValues = correctionReader.getValueInRecordByName(ViolationRecord.GSI_RANGE_KEY_UPDATE_VALUE);
+        String nextGsiRangeKeyUpdateValues = correctionReader.getValue(gsiRangeKeyUpdateValueColumn);
         // It is okay to ignore a random value mentioned even if GsiRangeKeyName in options is null
         // It is also okay to ignore the places where GSIRangeKeyUpdateValue is not specified as the user might want to keep that value
         return nextGsiRangeKeyUpdateValues;
     }
 
     protected boolean getNextDeleteBlankAttribute() throws IllegalArgumentException {
-        String deleteBlankAttributeValues = correctionReader.getValueInRecordByName(ViolationRecord.GSI_CORRECTION_DELETE_BLANK);
+        String deleteBlankAttributeValues = correctionReader.getValue(deleteBlankColumn);
         if (deleteBlankAttributeValues == null) {
             return false;
         }
@@ -408,7 +1056,7 @@ public class Correction {
     }
 
     public long getSuccessfulUpdates() {
-        return successfulUpdates;
+        return successfulUpdates.get();
     }
 
     public Options getOptions() {
@@ -428,11 +1076,11 @@ public class Correction {
     }
 
     public long getConditionalUpdateFailures() {
-        return conditionalUpdateFailures;
+        return conditionalUpdateFailures.get();
     }
 
     public long getUnexpectedErrors() {
-        return unexpectedErrors;
+        return unexpectedErrors.get();
     }
     
 }
@@ -0,0 +1,156 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeAction;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
+
+/**
+ * Estimate the write units consumed by correction requests, from the sizes
+ * of the keys and values in the correction input.
+ *
+ * An update is charged on the size of the item, which is only known in part,
+ * so the table write units are a lower bound for items larger than their
+ * keys and GSI key values. Each GSI having an updated attribute as key is
+ * charged a delete of the old index entry and a put of the new one, and each
+ * GSI is charged a delete when an item is deleted, which is an upper bound
+ * for items not in the index.
+ */
+public class CorrectionCostEstimator {
+    private Map<String, List<String>> gsiKeyAttributeNames;
+    private long numOfWrites = 0;
+    private long tableWriteUnits = 0;
+    private long gsiWriteUnits = 0;
+    private Map<String, Long> gsiWriteUnitsByIndex = new HashMap<String, Long>();
+
+    /**
+     * @param gsiKeyAttributeNames
+     *            key attribute names of each GSI, by index name
+     */
+    public CorrectionCostEstimator(Map<String, List<String>> gsiKeyAttributeNames) {
+        this.gsiKeyAttributeNames = gsiKeyAttributeNames;
+    }
+
+    public void addUpdate(Map<String, AttributeValue> primaryKey, Map<String, AttributeValueUpdate> updateItems) {
+        if (updateItems == null || updateItems.isEmpty()) {
+            return;
+        }
+        numOfWrites++;
+        long keySize = ItemSizeCalculator.getItemSize(primaryKey);
+        long itemSize = keySize;
+        for (Map.Entry<String, AttributeValueUpdate> update : updateItems.entrySet()) {
+            itemSize += ItemSizeCalculator.getAttributeSize(update.getKey(), update.getValue().getValue());
+        }
+        tableWriteUnits += ItemSizeCalculator.getWriteUnits(itemSize);
+
+        for (Map.Entry<String, List<String>> gsi : gsiKeyAttributeNames.entrySet()) {
+            List<String> keyAttributeNames = gsi.getValue();
+            boolean isKeyUpdated = false;
+            boolean isKeyDeleted = false;
+            long entrySize = keySize + ItemSizeCalculator.INDEX_ENTRY_OVERHEAD_BYTES;
+            for (String keyAttributeName : keyAttributeNames) {
+                AttributeValueUpdate update = updateItems.get(keyAttributeName);
+                if (update == null) {
+                    continue;
+                }
+                isKeyUpdated = true;
+                if (AttributeAction.DELETE.toString().equals(update.getAction())) {
+                    isKeyDeleted = true;
+                } else {
+                    entrySize += ItemSizeCalculator.getAttributeSize(keyAttributeName, update.getValue());
+                }
+            }
+            if (isKeyUpdated) {
+                // Delete of the old entry
+                long writeUnits = 1;
+                if (!isKeyDeleted) {
+                    writeUnits += ItemSizeCalculator.getWriteUnits(entrySize);
+                }
+                addGsiWriteUnits(gsi.getKey(), writeUnits);
+            }
+        }
+    }
+
+    public void addDelete(Map<String, AttributeValue> primaryKey) {
+        numOfWrites++;
+        tableWriteUnits += ItemSizeCalculator.getWriteUnits(ItemSizeCalculator.getItemSize(primaryKey));
+        for (String indexName : gsiKeyAttributeNames.keySet()) {
+            addGsiWriteUnits(indexName, 1);
+        }
+    }
+
+    private void addGsiWriteUnits(String indexName, long writeUnits) {
+        gsiWriteUnits += writeUnits;
+        gsiWriteUnitsByIndex.put(indexName, getGsiWriteUnits(indexName) + writeUnits);
+    }
+
+    public long getNumOfWrites() {
+        return numOfWrites;
+    }
+
+    public long getTableWriteUnits() {
+        return tableWriteUnits;
+    }
+
+    public long getGsiWriteUnits() {
+        return gsiWriteUnits;
+    }
+
+    public long getGsiWriteUnits(String indexName) {
+        Long writeUnits = gsiWriteUnitsByIndex.get(indexName);
+        return writeUnits == null ? 0 : writeUnits;
+    }
+
+    public long getTotalWriteUnits() {
+        return tableWriteUnits + gsiWriteUnits;
+    }
+
+    /**
+     * Seconds to consume the total write units at the given rate, -1 if the
+     * rate is unknown.
+     */
+    public long getProjectedSeconds(double writeUnitsPerSecond) {
+        return getProjectedSeconds(writeUnitsPerSecond, new HashMap<String, Double>());
+    }
+
+    /**
+     * Seconds to consume the write units when the table and each GSI with a
+     * rate of its own are paced separately, the slowest governs. The units
+     * of a GSI without a rate are consumed at the table rate. -1 if the table
+     * rate is unknown.
+     */
+    public long getProjectedSeconds(double tableWriteUnitsPerSecond, Map<String, Double> gsiWriteUnitsPerSecond) {
+        if (tableWriteUnitsPerSecond <= 0) {
+            return -1;
+        }
+        long unitsAtTableRate = getTotalWriteUnits();
+        double seconds = 0;
+        for (Map.Entry<String, Double> gsiRate : gsiWriteUnitsPerSecond.entrySet()) {
+            if (gsiRate.getValue() <= 0) {
+                continue;
+            }
+            long writeUnits = getGsiWriteUnits(gsiRate.getKey());
+            unitsAtTableRate -= writeUnits;
+            seconds = Math.max(seconds, writeUnits / gsiRate.getValue());
+        }
+        seconds = Math.max(seconds, unitsAtTableRate / tableWriteUnitsPerSecond);
+        return (long) Math.ceil(seconds);
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Remove rows of the correction input whose table key already appears on
+ * another row, keeping either the first or the last occurrence.
+ *
+ * Keys are reduced to 64-bit fingerprints. A pre-pass over the input adds
+ * every fingerprint to an off-heap Bloom filter; only the fingerprints the
+ * filter has possibly seen before are kept as duplicate candidates in an
+ * off-heap map, so memory stays within the given limit regardless of the
+ * number of rows. The map records the last row of each candidate, which
+ * decides the kept row on the correction pass.
+ */
+public class CorrectionDeduplicator {
+    public static final String KEEP_NONE = "none";
+    public static final String KEEP_FIRST = "first";
+    public static final String KEEP_LAST = "last";
+
+    /** Value of a candidate which has not yet been seen on the correction pass */
+    private static final long NOT_SEEN = -1;
+
+    private static final HashFunction FINGERPRINT_FUNCTION = Hashing.murmur3_128();
+
+    private boolean keepLast;
+    private KeyFingerprintBloomFilter bloomFilter;
+    private KeyFingerprintMap candidates;
+    private long numOfDuplicatesRemoved = 0;
+
+    /**
+     * Half of the memory is used by the Bloom filter, the other half by
+     * the duplicate candidates.
+     */
+    public CorrectionDeduplicator(String keep, int memoryMB) {
+        if (!KEEP_FIRST.equals(keep) && !KEEP_LAST.equals(keep)) {
+            throw new IllegalArgumentException("Error: Unknown duplicate key to keep: " + keep);
+        }
+        this.keepLast = KEEP_LAST.equals(keep);
+        long bytes = memoryMB * 1024L * 1024L;
+        this.bloomFilter = new KeyFingerprintBloomFilter(bytes / 2);
+        this.candidates = new KeyFingerprintMap(bytes / 2);
+    }
+
+    /**
+     * Add the table key of a row on the pre-pass. Rows must be added in
+     * input order.
+     */
+    public void addKeyOnPrePass(String tableHashKey, String tableRangeKey, long rowNumber) {
+        long fingerprint = getFingerprint(tableHashKey, tableRangeKey);
+        if (!bloomFilter.put(fingerprint)) {
+            return;
+        }
+        try {
+            candidates.put(fingerprint, keepLast ? rowNumber : NOT_SEEN);
+        } catch (IllegalStateException ise) {
+            throw new IllegalArgumentException("Error: Too many duplicate key candidates in correction input (" + candidates.size()
+                    + "), increase " + Options.DEDUPE_MEMORY_MB + ".");
+        }
+    }
+
+    /**
+     * Check on the correction pass if the row is kept. Every row must be
+     * checked in input order, including the rows skipped when resuming.
+     */
+    public boolean isKept(String tableHashKey, String tableRangeKey, long rowNumber) {
+        long fingerprint = getFingerprint(tableHashKey, tableRangeKey);
+        long candidateRow = candidates.get(fingerprint);
+        if (candidateRow == KeyFingerprintMap.NOT_FOUND) {
+            return true;
+        }
+        boolean isKept;
+        if (keepLast) {
+            isKept = candidateRow == rowNumber;
+        } else {
+            isKept = candidateRow == NOT_SEEN;
+            if (isKept) {
+                candidates.put(fingerprint, rowNumber);
+            }
+        }
+        if (!isKept) {
+            numOfDuplicatesRemoved++;
+        }
+        return isKept;
+    }
+
+    public long getNumOfDuplicatesRemoved() {
+        return numOfDuplicatesRemoved;
+    }
+
+    protected static long getFingerprint(String tableHashKey, String tableRangeKey) {
+        StringBuilder key = new StringBuilder();
+        key.append(tableHashKey == null ? "" : tableHashKey);
+        if (tableRangeKey != null) {
+            key.append('\u0000').append(tableRangeKey);
+        }
+        return FINGERPRINT_FUNCTION.hashString(key, Charsets.UTF_8).asLong();
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Journal of a correction run, so that a rerun after a crash skips the rows
+ * of the input file that were already handled.
+ * 
+ * Rows can complete out of order when several workers or async updates are
+ * used, so the journal only commits the number of rows from the start of the
+ * input file which are all completed. Rows completed after the committed ones
+ * may be sent again on restart.
+ */
+public class CorrectionJournal {
+    public static final String JOURNAL_FILE_SUFFIX = ".journal";
+    public static final String COMMITTED_ROWS = "committedRows";
+    public static final String CORRECTION_INPUT_PATH = "correctionInputPath";
+    public static final long COMMIT_INTERVAL_ROWS = 1000;
+
+    private File journalFile;
+    private String correctionInputPath;
+    private long committedRows = 0;
+    private long completedRows = 0;
+    private long rowsToSkip = 0;
+    private TreeSet<Long> rowsCompletedOutOfOrder = new TreeSet<Long>();
+
+    private static final Logger logger = Logger.getLogger(CorrectionJournal.class);
+
+    /**
+     * Open the journal kept next to the given correction output file. A journal
+     * left by a run on another input file is ignored.
+     */
+    public CorrectionJournal(String correctionOutputPath, String correctionInputPath) throws IOException {
+        this.journalFile = new File(correctionOutputPath + JOURNAL_FILE_SUFFIX);
+        this.correctionInputPath = correctionInputPath;
+        if (journalFile.exists()) {
+            Properties journal = new Properties();
+            InputStream in = new FileInputStream(journalFile);
+            try {
+                journal.load(in);
+            } finally {
+                in.close();
+            }
+            if (correctionInputPath.equals(journal.getProperty(CORRECTION_INPUT_PATH))) {
+                try {
+                    rowsToSkip = Long.parseLong(journal.getProperty(COMMITTED_ROWS, "0").trim());
+                } catch (NumberFormatException nfe) {
+                    throw new IllegalArgumentException("Error: Invalid " + COMMITTED_ROWS + " in correction journal " + journalFile.getPath());
+                }
+                committedRows = rowsToSkip;
+                completedRows = rowsToSkip;
+            } else {
+                logger.warn("Correction journal " + journalFile.getPath() + " was written for another input file, it will be ignored.");
+            }
+        }
+    }
+
+    /**
+     * Number of rows from the start of the input file handled by previous runs.
+     */
+    public long getRowsToSkip() {
+        return rowsToSkip;
+    }
+
+    public boolean isResumed() {
+        return rowsToSkip > 0;
+    }
+
+    /**
+     * Mark the given row, counted from 0 without the header, as handled.
+     * 
+     * @return true if {@link #COMMIT_INTERVAL_ROWS} more rows can be committed
+     */
+    public synchronized boolean completeRow(long rowNumber) {
+        if (rowNumber < completedRows) {
+            return false;
+        }
+        rowsCompletedOutOfOrder.add(rowNumber);
+        while (!rowsCompletedOutOfOrder.isEmpty() && rowsCompletedOutOfOrder.first() == completedRows) {
+            rowsCompletedOutOfOrder.pollFirst();
+            completedRows++;
+        }
+        return completedRows - committedRows >= COMMIT_INTERVAL_ROWS;
+    }
+
+    /**
+     * Write the completed rows to the journal. The journal is written to a
+     * temporary file first, so a crash while writing keeps the previous one.
+     */
+    public synchronized void commit() throws IOException {
+        if (completedRows == committedRows) {
+            return;
+        }
+        Properties journal = new Properties();
+        journal.setProperty(CORRECTION_INPUT_PATH, correctionInputPath);
+        journal.setProperty(COMMITTED_ROWS, String.valueOf(completedRows));
+        File tmpJournalFile = new File(journalFile.getPath() + ".tmp");
+        OutputStream out = new FileOutputStream(tmpJournalFile);
+        try {
+            journal.store(out, "Correction journal, delete this file to run the correction from the start");
+        } finally {
+            out.close();
+        }
+        Files.move(tmpJournalFile.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committedRows = completedRows;
+    }
+
+    /**
+     * Remove the journal once all the rows of the input file are handled.
+     */
+    public synchronized void delete() {
+        if (journalFile.exists()) {
+            journalFile.delete();
+        }
+    }
+
+    public synchronized long getCommittedRows() {
+        return committedRows;
+    }
+
+    public String getJournalFilePath() {
+        return journalFile.getPath();
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+
+/**
+ * Read the current GSI key values of the items to be updated with
+ * eventually consistent BatchGetItem requests, to find the conditional
+ * updates which would fail because the item has changed since detection.
+ */
+public class CorrectionPreReader {
+    public static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_READ_ATTEMPTS = 5;
+    private static final long READ_RETRY_BASE_DELAY_MILLIS = 50;
+
+    private AmazonDynamoDB dynamoDBClient;
+    private String tableName;
+    private TableHelper tableHelper;
+    private TableRWRateLimiter tableReadRateLimiter;
+    private boolean isRunningOnDDBLocal;
+    private Random random = new Random();
+
+    private static final Logger logger = Logger.getLogger(CorrectionPreReader.class);
+
+    public CorrectionPreReader(AmazonDynamoDB dynamoDBClient, String tableName, TableHelper tableHelper, TableRWRateLimiter tableReadRateLimiter,
+            boolean isRunningOnDDBLocal) {
+        this.dynamoDBClient = dynamoDBClient;
+        this.tableName = tableName;
+        this.tableHelper = tableHelper;
+        this.tableReadRateLimiter = tableReadRateLimiter;
+        this.isRunningOnDDBLocal = isRunningOnDDBLocal;
+    }
+
+    /**
+     * Find the requests whose item no longer has the expected values. The
+     * requests must not have the same primary key, and must be at most
+     * {@link #MAX_BATCH_SIZE}. Items which could not be read or were not
+     * returned are considered not fixed, their conditional update decides.
+     */
+    public Set<CorrectionRequest> findAlreadyFixed(List<CorrectionRequest> requests) {
+        Set<CorrectionRequest> alreadyFixed = new HashSet<CorrectionRequest>();
+        List<Map<String, AttributeValue>> keys = new ArrayList<Map<String, AttributeValue>>();
+        Set<String> attributesToGet = new HashSet<String>();
+        for (CorrectionRequest request : requests) {
+            if (request.getExpectedItems() == null || request.getExpectedItems().isEmpty()) {
+                continue;
+            }
+            keys.add(request.getPrimaryKey());
+            attributesToGet.addAll(request.getExpectedItems().keySet());
+        }
+        if (keys.isEmpty()) {
+            return alreadyFixed;
+        }
+        attributesToGet.add(tableHelper.getTableHashKeyName());
+        if (tableHelper.getTableRangeKeyName() != null) {
+            attributesToGet.add(tableHelper.getTableRangeKeyName());
+        }
+
+        Map<Map<String, AttributeValue>, Map<String, AttributeValue>> items;
+        try {
+            items = readItems(keys, new ArrayList<String>(attributesToGet));
+        } catch (AmazonClientException ace) {
+            logger.warn("Failed to pre-read " + keys.size() + " items, sending their updates: " + ace.getMessage());
+            return alreadyFixed;
+        }
+        for (CorrectionRequest request : requests) {
+            Map<String, AttributeValue> item = items.get(getLookupKey(request.getPrimaryKey()));
+            if (item != null && !isExpected(item, request.getExpectedItems())) {
+                alreadyFixed.add(request);
+            }
+        }
+        return alreadyFixed;
+    }
+
+    /**
+     * Returns the items read by their lookup key, see {@link #getLookupKey}.
+     * A key is absent if its item was not returned, whether it does not exist,
+     * could not be read or is written differently in the correction input.
+     */
+    protected Map<Map<String, AttributeValue>, Map<String, AttributeValue>> readItems(List<Map<String, AttributeValue>> keys, List<String> attributesToGet) {
+        Map<Map<String, AttributeValue>, Map<String, AttributeValue>> items = new HashMap<Map<String, AttributeValue>, Map<String, AttributeValue>>();
+        List<Map<String, AttributeValue>> keysToRead = keys;
+        for (int attempts = 1; !keysToRead.isEmpty(); attempts++) {
+            Map<String, KeysAndAttributes> requestItems = new HashMap<String, KeysAndAttributes>();
+            requestItems.put(tableName, new KeysAndAttributes().withKeys(keysToRead).withAttributesToGet(attributesToGet).withConsistentRead(false));
+            BatchGetItemResult result = dynamoDBClient.batchGetItem(new BatchGetItemRequest().withRequestItems(requestItems).withReturnConsumedCapacity(
+                    ReturnConsumedCapacity.TOTAL));
+            if (!isRunningOnDDBLocal && result.getConsumedCapacity() != null) {
+                // DDB Local does not support rate limiting
+                for (ConsumedCapacity consumedCapacity : result.getConsumedCapacity()) {
+                    tableReadRateLimiter.adjustRateWithConsumedCapacity(consumedCapacity);
+                }
+            }
+            List<Map<String, AttributeValue>> responses = result.getResponses() == null ? null : result.getResponses().get(tableName);
+            if (responses != null) {
+                for (Map<String, AttributeValue> item : responses) {
+                    items.put(getLookupKey(getPrimaryKey(item)), item);
+                }
+            }
+
+            KeysAndAttributes unprocessed = result.getUnprocessedKeys() == null ? null : result.getUnprocessedKeys().get(tableName);
+            keysToRead = unprocessed == null || unprocessed.getKeys() == null ? new ArrayList<Map<String, AttributeValue>>() : unprocessed.getKeys();
+            if (!keysToRead.isEmpty()) {
+                if (attempts >= MAX_READ_ATTEMPTS) {
+                    break;
+                }
+                sleepBeforeRetry(attempts);
+            }
+        }
+        return items;
+    }
+
+    private Map<String, AttributeValue> getPrimaryKey(Map<String, AttributeValue> item) {
+        Map<String, AttributeValue> primaryKey = new HashMap<String, AttributeValue>();
+        primaryKey.put(tableHelper.getTableHashKeyName(), item.get(tableHelper.getTableHashKeyName()));
+        if (tableHelper.getTableRangeKeyName() != null) {
+            primaryKey.put(tableHelper.getTableRangeKeyName(), item.get(tableHelper.getTableRangeKeyName()));
+        }
+        return primaryKey;
+    }
+
+    /**
+     * Key with its numbers written in one canonical form, the service returns
+     * numbers normalized while the correction input may have e.g. 1.50 for 1.5.
+     */
+    protected static Map<String, AttributeValue> getLookupKey(Map<String, AttributeValue> primaryKey) {
+        Map<String, AttributeValue> lookupKey = new HashMap<String, AttributeValue>();
+        for (Map.Entry<String, AttributeValue> entry : primaryKey.entrySet()) {
+            AttributeValue value = entry.getValue();
+            if (value != null && value.getN() != null) {
+                value = new AttributeValue().withN(normalizeNumber(value.getN()));
+            }
+            lookupKey.put(entry.getKey(), value);
+        }
+        return lookupKey;
+    }
+
+    private static String normalizeNumber(String number) {
+        try {
+            BigDecimal value = new BigDecimal(number);
+            // Zero keeps its scale when stripped on Java 7
+            if (value.signum() == 0) {
+                return "0";
+            }
+            return value.stripTrailingZeros().toPlainString();
+        } catch (NumberFormatException nfe) {
+            return number;
+        }
+    }
+
+    /**
+     * Same check as the conditional update, all expected values must exist
+     * and be equal.
+     */
+    protected static boolean isExpected(Map<String, AttributeValue> item, Map<String, ExpectedAttributeValue> expectedItems) {
+        for (Map.Entry<String, ExpectedAttributeValue> expected : expectedItems.entrySet()) {
+            AttributeValue current = item == null ? null : item.get(expected.getKey());
+            if (Boolean.FALSE.equals(expected.getValue().getExists())) {
+                if (current != null) {
+                    return false;
+                }
+            } else if (current == null || !isEqual(current, expected.getValue().getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Numbers are compared by value, the service may return another
+     * representation than the one in the correction input.
+     */
+    private static boolean isEqual(AttributeValue current, AttributeValue expected) {
+        if (current.getN() != null && expected.getN() != null) {
+            try {
+                return new BigDecimal(current.getN()).compareTo(new BigDecimal(expected.getN())) == 0;
+            } catch (NumberFormatException nfe) {
+                return current.getN().equals(expected.getN());
+            }
+        }
+        return current.equals(expected);
+    }
+
+    private void sleepBeforeRetry(int attempts) {
+        try {
+            Thread.sleep((long) (random.nextDouble() * (READ_RETRY_BASE_DELAY_MILLIS << attempts)));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalArgumentException("Error: Interrupted while reading items before correction.");
+        }
+    }
+}
@@ -14,12 +14,18 @@
  */
 package com.amazonaws.services.dynamodbv2.online.index;
 
+import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
@@ -28,13 +34,22 @@ import org.apache.commons.csv.CSVRecord;
 /**
  * Read input correction file.
  * 
+ * Column indexes are resolved once from the header with getColumnIndex,
+ * values of the current record are then read by index without looking up
+ * the header. Large files can be parsed on several threads with
+ * {@link ParallelCSVReader}.
  */
 public class CorrectionReader {
     private Reader reader = null;
     private CSVFormat format = CSVFormat.RFC4180.withHeader().withDelimiter(',').withIgnoreEmptyLines(true);
     private CSVParser parser = null;
     private Iterator<CSVRecord> recordIterator;
-    private CSVRecord currentRecord;
+    private ParallelCSVReader parallelReader = null;
+    private List<String> header = new ArrayList<String>();
+    private Map<String, Integer> columnIndexes = new HashMap<String, Integer>();
+    /** Current record, one of the two is set depending on the reader */
+    private CSVRecord currentCSVRecord;
+    private String[] currentRecord;
 
     /**
      * Constructor for unit test
@@ -47,43 +62,137 @@ public class CorrectionReader {
     public CorrectionReader() {}
 
     public void loadCSVFile(String csvFilePath) throws IOException {
-        reader = new FileReader(csvFilePath);
+        loadCSVFile(csvFilePath, 1);
+    }
+
+    /**
+     * Load the file, it is parsed on the given number of threads if more
+     * than one.
+     */
+    public void loadCSVFile(String csvFilePath, int numOfThreads) throws IOException {
+        closeLoadedInput();
+        if (numOfThreads > 1) {
+            parallelReader = new ParallelCSVReader(csvFilePath, numOfThreads);
+            setHeader(parallelReader.getHeader());
+        } else {
+            reader = new FileReader(csvFilePath);
+            parser = new CSVParser(reader, format);
+            recordIterator = parser.iterator();
+            setHeader(new ArrayList<String>(parser.getHeaderMap().keySet()));
+        }
+    }
+
+    /**
+     * Load records from a stream, used when the input is not a local file.
+     * The stream must be UTF-8 encoded.
+     */
+    public void loadCSVStream(InputStream inputStream) throws IOException {
+        closeLoadedInput();
+        reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
         parser = new CSVParser(reader, format);
         recordIterator = parser.iterator();
+        setHeader(new ArrayList<String>(parser.getHeaderMap().keySet()));
     }
-    
+
+    /**
+     * Close the input loaded before, the input is loaded again when the
+     * correction input is read twice.
+     */
+    private void closeLoadedInput() throws IOException {
+        if (parallelReader != null) {
+            parallelReader.close();
+            parallelReader = null;
+        }
+        if (reader != null) {
+            reader.close();
+            reader = null;
+        }
+        parser = null;
+        recordIterator = null;
+    }
+
+    private void setHeader(List<String> header) {
+        this.header = header;
+        columnIndexes = new HashMap<String, Integer>();
+        for (int i = 0; i < header.size(); i++) {
+            columnIndexes.put(header.get(i), i);
+        }
+    }
+
     public boolean ifContainsColumn(String columnName) {
-         return parser.getHeaderMap().containsKey(columnName);
+         return columnIndexes.containsKey(columnName);
     }
 
     public boolean moveToNextRecordIfHas() {
+        if (parallelReader != null) {
+            try {
+                currentCSVRecord = null;
+                currentRecord = parallelReader.nextRecord();
+            } catch (IOException ioe) {
+                throw new IllegalArgumentException("Error: Failed to read correction file: " + ioe.getMessage());
+            }
+            return currentRecord != null;
+        }
         if (recordIterator.hasNext()) {
-            currentRecord = recordIterator.next();
+            currentRecord = null;
+            currentCSVRecord = recordIterator.next();
             return true;
         }
         return false;
     }
 
-    public String getValueInRecordByName(String recordColumnName) {
-        try {
-            String value = currentRecord.get(recordColumnName);
-            if(value.equals("")) {
+    /**
+     * Index of the column in the loaded header, -1 if not found.
+     */
+    public int getColumnIndex(String columnName) {
+        Integer index = columnIndexes.get(columnName);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Value of the column of the current record, null if the column is not
+     * found or the value is empty.
+     */
+    public String getValue(int columnIndex) {
+        if (columnIndex < 0) {
+            return null;
+        }
+        String value;
+        if (currentCSVRecord != null) {
+            if (columnIndex >= currentCSVRecord.size()) {
+                return null;
+            }
+            value = currentCSVRecord.get(columnIndex);
+        } else {
+            if (columnIndex >= currentRecord.length) {
                 return null;
             }
-            return value;
-        } catch (IllegalArgumentException iae) {
+            value = currentRecord[columnIndex];
+        }
+        if(value.equals("")) {
             return null;
         }
+        return value;
+    }
+
+    public String getValueInRecordByName(String recordColumnName) {
+        return getValue(getColumnIndex(recordColumnName));
     }
     
     public List<String> getHeader() {
-        return new ArrayList<String>(parser.getHeaderMap().keySet());
+        return new ArrayList<String>(header);
     }
     
     public List<String> getCurrentRecord() {
         List<String> record = new ArrayList<String>();
-        for(int i = 0 ; i < currentRecord.size() ; i++) {
-            record.add(i, currentRecord.get(i));
+        if (currentCSVRecord != null) {
+            for (String value : currentCSVRecord) {
+                record.add(value);
+            }
+            return record;
+        }
+        for(int i = 0 ; i < currentRecord.length ; i++) {
+            record.add(i, currentRecord[i]);
         }
         return record;
     }
@@ -0,0 +1,79 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+
+/**
+ * An update generated from one record of the correction input file.
+ * 
+ */
+public class CorrectionRequest {
+    private String tableHashKey;
+    private Map<String, AttributeValue> primaryKey;
+    private Map<String, AttributeValueUpdate> updateItems;
+    private Map<String, ExpectedAttributeValue> expectedItems;
+    private List<String> record;
+    private long rowNumber;
+
+    public CorrectionRequest(String tableHashKey, Map<String, AttributeValue> primaryKey, Map<String, AttributeValueUpdate> updateItems,
+            Map<String, ExpectedAttributeValue> expectedItems, List<String> record, long rowNumber) {
+        this.tableHashKey = tableHashKey;
+        this.primaryKey = primaryKey;
+        this.updateItems = updateItems;
+        this.expectedItems = expectedItems;
+        this.record = record;
+        this.rowNumber = rowNumber;
+    }
+
+    /**
+     * Table hash key as written on the input file, used to partition requests.
+     */
+    public String getTableHashKey() {
+        return tableHashKey;
+    }
+
+    public Map<String, AttributeValue> getPrimaryKey() {
+        return primaryKey;
+    }
+
+    public Map<String, AttributeValueUpdate> getUpdateItems() {
+        return updateItems;
+    }
+
+    public Map<String, ExpectedAttributeValue> getExpectedItems() {
+        return expectedItems;
+    }
+
+    /**
+     * Values of the input record, written to the correction output file if
+     * the update fails.
+     */
+    public List<String> getRecord() {
+        return record;
+    }
+
+    /**
+     * Row of the record on the input file, counted from 0 without the header.
+     */
+    public long getRowNumber() {
+        return rowNumber;
+    }
+}
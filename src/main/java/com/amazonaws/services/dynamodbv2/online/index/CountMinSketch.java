@@ -0,0 +1,103 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.nio.ByteBuffer;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Estimate the frequency of any value of a stream in fixed memory.
+ * 
+ * The estimate is never below the true count, and exceeds it by at most
+ * e / width of the total count with probability 1 - e^-depth. Sketches with
+ * the same dimensions can be merged. Not thread safe.
+ */
+public class CountMinSketch {
+
+    public static final int DEFAULT_WIDTH = 8192;
+    public static final int DEFAULT_DEPTH = 5;
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final int width;
+    private final int depth;
+    private final long[][] counts;
+    private long total = 0;
+
+    public CountMinSketch() {
+        this(DEFAULT_WIDTH, DEFAULT_DEPTH);
+    }
+
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("Error: Count-Min sketch width and depth must be positive.");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counts = new long[depth][width];
+    }
+
+    public void add(String value) {
+        add(value, 1);
+    }
+
+    public void add(String value, long count) {
+        long[] hashes = hash(value);
+        for (int row = 0; row < depth; row++) {
+            counts[row][getColumn(hashes, row)] += count;
+        }
+        total += count;
+    }
+
+    public long estimate(String value) {
+        long[] hashes = hash(value);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counts[row][getColumn(hashes, row)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * The column of each row is derived from the two halves of one 128 bits
+     * hash instead of hashing the value once per row.
+     */
+    private static long[] hash(String value) {
+        ByteBuffer buffer = ByteBuffer.wrap(HASH_FUNCTION.hashString(value, ViolationChecker.UTF8).asBytes());
+        return new long[] { buffer.getLong(), buffer.getLong() };
+    }
+
+    private int getColumn(long[] hashes, int row) {
+        long combined = hashes[0] + row * hashes[1];
+        return (int) ((combined & Long.MAX_VALUE) % width);
+    }
+
+    public void merge(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Error: Cannot merge Count-Min sketches of different dimensions.");
+        }
+        for (int row = 0; row < depth; row++) {
+            for (int column = 0; column < width; column++) {
+                counts[row][column] += other.counts[row][column];
+            }
+        }
+        total += other.total;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+}
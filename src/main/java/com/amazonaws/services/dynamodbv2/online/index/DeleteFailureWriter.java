@@ -0,0 +1,107 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+/**
+ * Write keys of the items that could not be deleted to file. The file uses the
+ * table key columns of the violation detection output, so it can be given as
+ * input to violation correction in delete mode.
+ * 
+ */
+public class DeleteFailureWriter {
+    private String outputFilePath = null;
+    private boolean tableHasRangeKey = false;
+    private BufferedWriter bufferWriter = null;
+    private CSVPrinter printer = null;
+    private CSVFormat format = CSVFormat.RFC4180.withDelimiter(',');
+    private long numOfFailedDeletes = 0;
+    private static DeleteFailureWriter instance = new DeleteFailureWriter();
+
+    private DeleteFailureWriter() {
+    };
+
+    public static DeleteFailureWriter getInstance() {
+        return instance;
+    }
+
+    /**
+     * Set the file to write to, a file left by a previous run is removed. The
+     * file is only created when the first failed delete is added.
+     */
+    public synchronized void init(String outputFilePath, boolean tableHasRangeKey) throws IOException {
+        flushAndCloseWriter();
+        this.outputFilePath = outputFilePath;
+        this.tableHasRangeKey = tableHasRangeKey;
+        this.numOfFailedDeletes = 0;
+        File outputFile = new File(outputFilePath);
+        if (outputFile.exists()) {
+            outputFile.delete();
+        }
+    }
+
+    public synchronized void addFailedDelete(String tableHashKey, String tableRangeKey) throws IOException {
+        if (printer == null) {
+            createOutputFile();
+        }
+        List<String> record = new ArrayList<String>();
+        record.add(tableHashKey);
+        if (tableHasRangeKey) {
+            record.add(tableRangeKey);
+        }
+        printer.printRecord(record);
+        numOfFailedDeletes++;
+    }
+
+    private void createOutputFile() throws IOException {
+        if (outputFilePath == null) {
+            throw new IllegalArgumentException("Error: Delete failure output file is not set.");
+        }
+        bufferWriter = new BufferedWriter(new FileWriter(outputFilePath, false));
+        printer = new CSVPrinter(bufferWriter, format);
+        List<String> header = new ArrayList<String>();
+        header.add(ViolationRecord.TABLE_HASH_KEY);
+        if (tableHasRangeKey) {
+            header.add(ViolationRecord.TABLE_RANGE_KEY);
+        }
+        printer.printRecord(header);
+    }
+
+    public synchronized void flushAndCloseWriter() throws IOException {
+        if (printer != null) {
+            printer.flush();
+            printer.close();
+        }
+        printer = null;
+        bufferWriter = null;
+    }
+
+    public synchronized long getNumOfFailedDeletes() {
+        return numOfFailedDeletes;
+    }
+
+    public String getOutputFilePath() {
+        return outputFilePath;
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+/**
+ * Write the audit trail of the violations fixed during detection, with the
+ * value of the GSI key attribute before and after the fix.
+ * 
+ */
+public class FixAuditWriter {
+    public static final String ATTRIBUTE_NAME = "Attribute Name";
+    public static final String TRANSFORM = "Transform";
+    public static final String VALUE_BEFORE = "Value Before";
+    public static final String VALUE_AFTER = "Value After";
+    public static final String RESULT = "Result";
+
+    private boolean tableHasRangeKey = false;
+    private BufferedWriter bufferWriter = null;
+    private CSVPrinter printer = null;
+    private CSVFormat format = CSVFormat.RFC4180.withDelimiter(',');
+    private static FixAuditWriter instance = new FixAuditWriter();
+
+    private FixAuditWriter() {
+    };
+
+    public static FixAuditWriter getInstance() {
+        return instance;
+    }
+
+    public synchronized void createOutputFile(String outputFilePath, boolean tableHasRangeKey) throws IOException {
+        flushAndCloseWriter();
+        this.tableHasRangeKey = tableHasRangeKey;
+        bufferWriter = new BufferedWriter(new FileWriter(outputFilePath, false));
+        printer = new CSVPrinter(bufferWriter, format);
+        List<String> header = new ArrayList<String>();
+        header.add(ViolationRecord.TABLE_HASH_KEY);
+        if (tableHasRangeKey) {
+            header.add(ViolationRecord.TABLE_RANGE_KEY);
+        }
+        header.add(ATTRIBUTE_NAME);
+        header.add(TRANSFORM);
+        header.add(VALUE_BEFORE);
+        header.add(VALUE_AFTER);
+        header.add(RESULT);
+        printer.printRecord(header);
+    }
+
+    public synchronized void addAuditRecord(String tableHashKey, String tableRangeKey, String attributeName, String transform, String valueBefore,
+            String valueAfter, String result) throws IOException {
+        if (printer == null) {
+            throw new IllegalArgumentException("Error: Fix audit output file is not created.");
+        }
+        List<String> record = new ArrayList<String>();
+        record.add(tableHashKey);
+        if (tableHasRangeKey) {
+            record.add(tableRangeKey);
+        }
+        record.add(attributeName);
+        record.add(transform);
+        record.add(valueBefore);
+        record.add(valueAfter);
+        record.add(result);
+        printer.printRecord(record);
+    }
+
+    public synchronized void flushAndCloseWriter() throws IOException {
+        if (printer != null) {
+            printer.flush();
+            printer.close();
+        }
+        printer = null;
+        bufferWriter = null;
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Estimate the storage and the backfill time of a GSI to be created, from
+ * the items scanned during detection.
+ * 
+ * An item is written to the GSI only if it has the GSI key attributes. Its
+ * GSI entry holds the table and GSI keys, the projected attributes and an
+ * overhead of 100 bytes, and takes one write unit per started KB to backfill.
+ * The entry sizes are kept in a fixed memory histogram. Not thread safe.
+ */
+public class GsiBackfillEstimator {
+
+    private String projectionType;
+    private List<String> keyAttributeNames = new ArrayList<String>();
+    private List<String> nonKeyAttributeNames;
+    private String gsiHashKeyName;
+    private String gsiRangeKeyName;
+    private long gsiWriteCapacityUnits;
+
+    private long itemsProjected = 0;
+    private long itemsNotProjected = 0;
+    private long itemsWithViolations = 0;
+    private long totalWriteUnits = 0;
+    private SizeHistogram entrySizes = new SizeHistogram();
+
+    /**
+     * The GSI write capacity is the one given in the options, or the write
+     * capacity of the table if not given.
+     */
+    public GsiBackfillEstimator(Options options, TableHelper tableHelper) {
+        this(options.getGsiProjectionType(), options.getGsiNonKeyAttributes(), tableHelper.getTableHashKeyName(), tableHelper.getTableRangeKeyName(),
+                options.getGsiHashKeyName(), options.getGsiRangeKeyName(), options.getGsiWriteCapacityUnits() > 0 ? options.getGsiWriteCapacityUnits()
+                        : tableHelper.getWriteCapacityUnits());
+    }
+
+    public GsiBackfillEstimator(String projectionType, List<String> nonKeyAttributeNames, String tableHashKeyName, String tableRangeKeyName,
+            String gsiHashKeyName, String gsiRangeKeyName, long gsiWriteCapacityUnits) {
+        this.projectionType = projectionType;
+        this.nonKeyAttributeNames = nonKeyAttributeNames == null ? new ArrayList<String>() : nonKeyAttributeNames;
+        this.gsiHashKeyName = gsiHashKeyName;
+        this.gsiRangeKeyName = gsiRangeKeyName;
+        this.gsiWriteCapacityUnits = gsiWriteCapacityUnits;
+        for (String name : new String[] { tableHashKeyName, tableRangeKeyName, gsiHashKeyName, gsiRangeKeyName }) {
+            if (name != null && !keyAttributeNames.contains(name)) {
+                keyAttributeNames.add(name);
+            }
+        }
+    }
+
+    /**
+     * Add a scanned item, items with violations would fail the backfill and
+     * are only counted.
+     */
+    public void addItem(Map<String, AttributeValue> item, boolean hasViolation) {
+        if ((gsiHashKeyName != null && !item.containsKey(gsiHashKeyName)) || (gsiRangeKeyName != null && !item.containsKey(gsiRangeKeyName))) {
+            itemsNotProjected++;
+            return;
+        }
+        if (hasViolation) {
+            itemsWithViolations++;
+            return;
+        }
+        long size = getEntrySize(item);
+        itemsProjected++;
+        totalWriteUnits += ItemSizeCalculator.getWriteUnits(size);
+        entrySizes.add(size);
+    }
+
+    protected long getEntrySize(Map<String, AttributeValue> item) {
+        return ItemSizeCalculator.getIndexEntrySize(item, keyAttributeNames, projectionType, nonKeyAttributeNames);
+    }
+
+    public void merge(GsiBackfillEstimator other) {
+        itemsProjected += other.itemsProjected;
+        itemsNotProjected += other.itemsNotProjected;
+        itemsWithViolations += other.itemsWithViolations;
+        totalWriteUnits += other.totalWriteUnits;
+        entrySizes.merge(other.entrySizes);
+    }
+
+    /**
+     * Backfill duration at the GSI write capacity, -1 if the capacity is not
+     * known, e.g. for an on-demand table.
+     */
+    public long getEstimatedSeconds() {
+        if (gsiWriteCapacityUnits <= 0) {
+            return -1;
+        }
+        return (totalWriteUnits + gsiWriteCapacityUnits - 1) / gsiWriteCapacityUnits;
+    }
+
+    public void writeReport(JsonGenerator generator) throws IOException {
+        generator.writeObjectFieldStart("gsiBackfill");
+        generator.writeStringField("projectionType", projectionType);
+        generator.writeNumberField("itemsProjected", itemsProjected);
+        generator.writeNumberField("itemsWithoutGsiKeys", itemsNotProjected);
+        generator.writeNumberField("itemsWithViolations", itemsWithViolations);
+        generator.writeNumberField("estimatedStorageBytes", entrySizes.getSum());
+        ViolationAnalytics.writeSizes(generator, "entrySizes", entrySizes);
+        generator.writeNumberField("totalWriteUnits", totalWriteUnits);
+        generator.writeNumberField("gsiWriteCapacityUnits", gsiWriteCapacityUnits);
+        generator.writeNumberField("estimatedSeconds", getEstimatedSeconds());
+        generator.writeEndObject();
+    }
+
+    public long getItemsProjected() {
+        return itemsProjected;
+    }
+
+    public long getItemsNotProjected() {
+        return itemsNotProjected;
+    }
+
+    public long getItemsWithViolations() {
+        return itemsWithViolations;
+    }
+
+    public long getTotalWriteUnits() {
+        return totalWriteUnits;
+    }
+
+    public SizeHistogram getEntrySizes() {
+        return entrySizes;
+    }
+}
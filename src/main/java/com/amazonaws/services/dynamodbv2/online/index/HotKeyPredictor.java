@@ -0,0 +1,115 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Predict the hot partitions of a new GSI from the distribution of the
+ * values of its hash key among the scanned items.
+ * 
+ * All items with the same GSI hash key value land in one GSI partition, so
+ * a value held by a large share of the items takes the same share of the GSI
+ * writes. The most frequent values are found with SpaceSaving and their
+ * counts tightened with a Count-Min sketch, the number of distinct values is
+ * estimated with HyperLogLog. Not thread safe.
+ */
+public class HotKeyPredictor {
+
+    /** Write units per second one partition can sustain */
+    public static final long PARTITION_WRITE_LIMIT = 1000;
+    public static final int NUM_OF_TOP_VALUES = 10;
+    /** Number of values counted, more than reported to improve accuracy */
+    public static final int TOP_VALUE_CAPACITY = 1000;
+
+    private String gsiHashKeyName;
+    private long itemsWithValue = 0;
+    private CountMinSketch valueCounts = new CountMinSketch();
+    private SpaceSaving topValues = new SpaceSaving(TOP_VALUE_CAPACITY);
+    private HyperLogLog distinctValues = new HyperLogLog();
+
+    public HotKeyPredictor(String gsiHashKeyName) {
+        this.gsiHashKeyName = gsiHashKeyName;
+    }
+
+    public void addValue(String value) {
+        itemsWithValue++;
+        valueCounts.add(value);
+        topValues.add(value);
+        distinctValues.add(value);
+    }
+
+    public void merge(HotKeyPredictor other) {
+        itemsWithValue += other.itemsWithValue;
+        valueCounts.merge(other.valueCounts);
+        topValues.merge(other.topValues);
+        distinctValues.merge(other.distinctValues);
+    }
+
+    /**
+     * Estimated number of items holding the value, the lower of the
+     * SpaceSaving and Count-Min estimates, both of which never undercount.
+     */
+    public long getEstimatedCount(SpaceSaving.Entry entry) {
+        return Math.min(entry.getCount(), valueCounts.estimate(entry.getValue()));
+    }
+
+    public long getItemsWithValue() {
+        return itemsWithValue;
+    }
+
+    public long getDistinctValues() {
+        return distinctValues.estimate();
+    }
+
+    /**
+     * Write units per second the GSI partition holding a value would get, if
+     * the table writes are spread evenly over its items.
+     */
+    public static double getProjectedWriteRate(long count, long itemsScanned, double tableWriteRate) {
+        return itemsScanned == 0 ? 0 : tableWriteRate * count / itemsScanned;
+    }
+
+    public void writeReport(JsonGenerator generator, long itemsScanned, double tableWriteRate) throws IOException {
+        generator.writeObjectFieldStart("gsiHashKeySkew");
+        generator.writeStringField("attributeName", gsiHashKeyName);
+        generator.writeNumberField("itemsWithAttribute", itemsWithValue);
+        long distinct = getDistinctValues();
+        generator.writeNumberField("distinctValues", distinct);
+        generator.writeNumberField("tableWriteRate", tableWriteRate);
+        generator.writeNumberField("partitionWriteLimit", PARTITION_WRITE_LIMIT);
+        double averageWriteRate = distinct == 0 ? 0 : getProjectedWriteRate(itemsWithValue, itemsScanned, tableWriteRate) / distinct;
+        generator.writeNumberField("averageValueWriteRate", averageWriteRate);
+        long topCount = 0;
+        generator.writeArrayFieldStart("topValues");
+        for (SpaceSaving.Entry entry : topValues.getTop(NUM_OF_TOP_VALUES)) {
+            long count = getEstimatedCount(entry);
+            topCount += count;
+            double writeRate = getProjectedWriteRate(count, itemsScanned, tableWriteRate);
+            generator.writeStartObject();
+            generator.writeStringField("value", entry.getValue());
+            generator.writeNumberField("items", count);
+            generator.writeNumberField("share", itemsWithValue == 0 ? 0 : (double) count / itemsWithValue);
+            generator.writeNumberField("projectedWriteRate", writeRate);
+            generator.writeBooleanField("exceedsPartitionLimit", writeRate > PARTITION_WRITE_LIMIT);
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeNumberField("topValuesShare", itemsWithValue == 0 ? 0 : (double) topCount / itemsWithValue);
+        generator.writeEndObject();
+    }
+}
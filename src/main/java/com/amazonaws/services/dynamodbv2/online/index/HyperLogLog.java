@@ -0,0 +1,97 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Estimate the number of distinct values of a stream in fixed memory.
+ * 
+ * With 2^14 registers of one byte the standard error is about 0.8%. Sketches
+ * with the same precision can be merged, e.g. the sketches of each scan
+ * segment. Not thread safe.
+ */
+public class HyperLogLog {
+
+    public static final int DEFAULT_PRECISION = 14;
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("Error: HyperLogLog precision " + precision + " exceeds range 4 ~ 18.");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public void add(String value) {
+        addHash(HASH_FUNCTION.hashString(value, ViolationChecker.UTF8).asLong());
+    }
+
+    public void add(byte[] value) {
+        addHash(HASH_FUNCTION.hashBytes(value).asLong());
+    }
+
+    /**
+     * The first bits of the hash select the register, the register keeps the
+     * highest position of the first 1 bit seen in the remaining bits.
+     */
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        long remaining = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Error: Cannot merge HyperLogLog of precision " + other.precision + " into precision " + precision + ".");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        int numOfRegisters = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / numOfRegisters);
+        double estimate = alpha * numOfRegisters * numOfRegisters / sum;
+        /** Linear counting is more accurate for small cardinalities */
+        if (estimate <= 2.5 * numOfRegisters && zeros > 0) {
+            estimate = numOfRegisters * Math.log((double) numOfRegisters / zeros);
+        }
+        return Math.round(estimate);
+    }
+}
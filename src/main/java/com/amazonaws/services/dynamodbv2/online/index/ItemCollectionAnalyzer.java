@@ -0,0 +1,178 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndexDescription;
+import com.google.common.base.Charsets;
+
+/**
+ * Estimate the item collection size of each table hash key, to find the
+ * ones close to the 10 GB limit of tables with local secondary indexes.
+ * 
+ * An item adds its own size to its collection, and the size of its entry in
+ * each LSI it is written to, i.e. each LSI whose range key it has. The sums
+ * are kept in a {@link SpillingSizeAggregator} per segment, the segments are
+ * merged once the scan is done. Not thread safe.
+ */
+public class ItemCollectionAnalyzer {
+    public static final String TABLE_HASH_KEY = "Table Hash Key";
+    public static final String ITEM_COLLECTION_BYTES = "Estimated Item Collection Bytes";
+
+    private String tableHashKeyName;
+    private List<String> lsiRangeKeyNames = new ArrayList<String>();
+    private List<List<String>> lsiKeyAttributeNames = new ArrayList<List<String>>();
+    private List<String> lsiProjectionTypes = new ArrayList<String>();
+    private List<List<String>> lsiNonKeyAttributeNames = new ArrayList<List<String>>();
+    private long memoryBytes;
+    private File spillDirectory;
+    private SpillingSizeAggregator aggregator = null;
+    private List<File> runs = new ArrayList<File>();
+
+    private long itemsAnalyzed = 0;
+    private long distinctHashKeys = 0;
+    private long hashKeysOverThreshold = 0;
+    private long largestCollectionBytes = 0;
+
+    /**
+     * Memory is only allocated once the first item is added.
+     */
+    public ItemCollectionAnalyzer(String tableHashKeyName, String tableRangeKeyName, List<LocalSecondaryIndexDescription> localSecondaryIndexes,
+            long memoryBytes, File spillDirectory) {
+        this.tableHashKeyName = tableHashKeyName;
+        this.memoryBytes = memoryBytes;
+        this.spillDirectory = spillDirectory;
+        if (localSecondaryIndexes == null) {
+            return;
+        }
+        for (LocalSecondaryIndexDescription lsi : localSecondaryIndexes) {
+            List<String> keyAttributeNames = new ArrayList<String>();
+            keyAttributeNames.add(tableHashKeyName);
+            keyAttributeNames.add(tableRangeKeyName);
+            for (KeySchemaElement keyElement : lsi.getKeySchema()) {
+                if (KeyType.RANGE.toString().equals(keyElement.getKeyType())) {
+                    lsiRangeKeyNames.add(keyElement.getAttributeName());
+                    if (!keyAttributeNames.contains(keyElement.getAttributeName())) {
+                        keyAttributeNames.add(keyElement.getAttributeName());
+                    }
+                }
+            }
+            lsiKeyAttributeNames.add(keyAttributeNames);
+            lsiProjectionTypes.add(lsi.getProjection().getProjectionType());
+            lsiNonKeyAttributeNames.add(lsi.getProjection().getNonKeyAttributes());
+        }
+    }
+
+    public void addItem(Map<String, AttributeValue> item) throws IOException {
+        AttributeValue hashKey = item.get(tableHashKeyName);
+        if (hashKey == null) {
+            return;
+        }
+        if (aggregator == null) {
+            aggregator = new SpillingSizeAggregator(memoryBytes, spillDirectory);
+        }
+        itemsAnalyzed++;
+        aggregator.add(ViolationAnalytics.toKeyString(hashKey).getBytes(Charsets.UTF_8), getCollectionSize(item));
+    }
+
+    /**
+     * Size the item adds to its item collection.
+     */
+    protected long getCollectionSize(Map<String, AttributeValue> item) {
+        long size = ItemSizeCalculator.getItemSize(item);
+        for (int i = 0; i < lsiRangeKeyNames.size(); i++) {
+            if (item.containsKey(lsiRangeKeyNames.get(i))) {
+                size += ItemSizeCalculator.getIndexEntrySize(item, lsiKeyAttributeNames.get(i), lsiProjectionTypes.get(i), lsiNonKeyAttributeNames.get(i));
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Spill what is left in memory, done by each segment when its scan ends.
+     */
+    public void finish() throws IOException {
+        if (aggregator != null) {
+            runs.addAll(aggregator.finish());
+            aggregator = null;
+        }
+    }
+
+    public void merge(ItemCollectionAnalyzer other) throws IOException {
+        other.finish();
+        runs.addAll(other.runs);
+        other.runs.clear();
+        itemsAnalyzed += other.itemsAnalyzed;
+    }
+
+    /**
+     * Merge the spilled sums and write the hash keys whose item collection
+     * is estimated at the threshold or more. Keys are written in the order
+     * of their fingerprint, not of their size.
+     */
+    public void writeReport(String outputPath, final long thresholdBytes) throws IOException {
+        finish();
+        BufferedWriter bufferWriter = new BufferedWriter(new FileWriter(outputPath, false));
+        final CSVPrinter printer = new CSVPrinter(bufferWriter, CSVFormat.RFC4180.withDelimiter(','));
+        try {
+            printer.printRecord(TABLE_HASH_KEY, ITEM_COLLECTION_BYTES);
+            hashKeysOverThreshold = 0;
+            largestCollectionBytes = 0;
+            distinctHashKeys = SpillingSizeAggregator.mergeRuns(runs, 0, new SpillingSizeAggregator.KeyHandler() {
+                @Override
+                public void handle(byte[] key, long totalSize) throws IOException {
+                    largestCollectionBytes = Math.max(largestCollectionBytes, totalSize);
+                    if (totalSize >= thresholdBytes) {
+                        printer.printRecord(new String(key, Charsets.UTF_8), totalSize);
+                        hashKeysOverThreshold++;
+                    }
+                }
+            });
+            runs.clear();
+        } finally {
+            printer.flush();
+            printer.close();
+        }
+    }
+
+    public long getItemsAnalyzed() {
+        return itemsAnalyzed;
+    }
+
+    public long getDistinctHashKeys() {
+        return distinctHashKeys;
+    }
+
+    public long getHashKeysOverThreshold() {
+        return hashKeysOverThreshold;
+    }
+
+    public long getLargestCollectionBytes() {
+        return largestCollectionBytes;
+    }
+}
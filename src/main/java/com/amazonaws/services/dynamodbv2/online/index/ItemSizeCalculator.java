@@ -0,0 +1,177 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+
+/**
+ * Compute the size of items and attributes as DynamoDB counts it for
+ * capacity units: attribute names and values in UTF-8 bytes, numbers
+ * about one byte per two significant digits plus one.
+ */
+public class ItemSizeCalculator {
+    public static final int WRITE_UNIT_BYTES = 1024;
+    public static final int READ_UNIT_BYTES = 4096;
+    /** Overhead added to the size of each index entry */
+    public static final int INDEX_ENTRY_OVERHEAD_BYTES = 100;
+    /** Overhead of each element of a map or list */
+    private static final int DOCUMENT_ELEMENT_OVERHEAD_BYTES = 1;
+    private static final int DOCUMENT_OVERHEAD_BYTES = 3;
+
+    private ItemSizeCalculator() {
+    }
+
+    public static long getItemSize(Map<String, AttributeValue> item) {
+        long size = 0;
+        if (item == null) {
+            return size;
+        }
+        for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+            size += getAttributeSize(attribute.getKey(), attribute.getValue());
+        }
+        return size;
+    }
+
+    /**
+     * Size of the index entry of an item: the key attributes, the projected
+     * attributes and the index entry overhead. The key attributes are the
+     * table keys and the index keys.
+     */
+    public static long getIndexEntrySize(Map<String, AttributeValue> item, List<String> keyAttributeNames, String projectionType,
+            List<String> nonKeyAttributeNames) {
+        long size = INDEX_ENTRY_OVERHEAD_BYTES;
+        if (ProjectionType.ALL.toString().equals(projectionType)) {
+            return size + getItemSize(item);
+        }
+        for (String name : keyAttributeNames) {
+            size += getAttributeSize(item, name);
+        }
+        if (ProjectionType.INCLUDE.toString().equals(projectionType) && nonKeyAttributeNames != null) {
+            for (String name : nonKeyAttributeNames) {
+                if (!keyAttributeNames.contains(name)) {
+                    size += getAttributeSize(item, name);
+                }
+            }
+        }
+        return size;
+    }
+
+    private static long getAttributeSize(Map<String, AttributeValue> item, String name) {
+        AttributeValue value = item.get(name);
+        return value == null ? 0 : getAttributeSize(name, value);
+    }
+
+    public static long getAttributeSize(String name, AttributeValue value) {
+        return getStringSize(name) + getValueSize(value);
+    }
+
+    public static long getValueSize(AttributeValue value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value.getS() != null) {
+            return getStringSize(value.getS());
+        }
+        if (value.getN() != null) {
+            return getNumberSize(value.getN());
+        }
+        if (value.getB() != null) {
+            return getBinarySize(value.getB());
+        }
+        long size = 0;
+        if (value.getSS() != null) {
+            for (String element : value.getSS()) {
+                size += getStringSize(element);
+            }
+        } else if (value.getNS() != null) {
+            for (String element : value.getNS()) {
+                size += getNumberSize(element);
+            }
+        } else if (value.getBS() != null) {
+            for (ByteBuffer element : value.getBS()) {
+                size += getBinarySize(element);
+            }
+        } else if (value.getM() != null) {
+            size += DOCUMENT_OVERHEAD_BYTES;
+            for (Map.Entry<String, AttributeValue> element : value.getM().entrySet()) {
+                size += getAttributeSize(element.getKey(), element.getValue()) + DOCUMENT_ELEMENT_OVERHEAD_BYTES;
+            }
+        } else if (value.getL() != null) {
+            size += DOCUMENT_OVERHEAD_BYTES;
+            List<AttributeValue> elements = value.getL();
+            for (AttributeValue element : elements) {
+                size += getValueSize(element) + DOCUMENT_ELEMENT_OVERHEAD_BYTES;
+            }
+        } else if (value.getBOOL() != null || value.getNULL() != null) {
+            size = 1;
+        }
+        return size;
+    }
+
+    public static long getStringSize(String value) {
+        return value.getBytes(ViolationChecker.UTF8).length;
+    }
+
+    /**
+     * One byte per two significant digits, plus one byte.
+     */
+    public static long getNumberSize(String value) {
+        int digits = 0;
+        boolean leadingZero = true;
+        int trailingZeros = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == 'e' || c == 'E') {
+                break;
+            }
+            if (c < '0' || c > '9') {
+                continue;
+            }
+            if (c == '0' && leadingZero) {
+                continue;
+            }
+            leadingZero = false;
+            digits++;
+            trailingZeros = c == '0' ? trailingZeros + 1 : 0;
+        }
+        digits -= trailingZeros;
+        return (digits + 1) / 2 + 1;
+    }
+
+    public static long getBinarySize(ByteBuffer value) {
+        return value.remaining();
+    }
+
+    /**
+     * Write units consumed to write an item of the given size, at least one.
+     */
+    public static long getWriteUnits(long size) {
+        return Math.max(1, (size + WRITE_UNIT_BYTES - 1) / WRITE_UNIT_BYTES);
+    }
+
+    /**
+     * Read units consumed to read an item of the given size, at least one.
+     * Eventually consistent reads consume half of it.
+     */
+    public static double getReadUnits(long size, boolean consistentRead) {
+        long units = Math.max(1, (size + READ_UNIT_BYTES - 1) / READ_UNIT_BYTES);
+        return consistentRead ? units : units / 2.0;
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Bloom filter of 64-bit key fingerprints, stored off heap in a bit set of
+ * fixed size. Bit positions are derived from the two halves of the
+ * fingerprint.
+ */
+public class KeyFingerprintBloomFilter {
+    public static final int NUM_OF_HASH_FUNCTIONS = 7;
+
+    private LongBuffer words;
+    private long numOfBits;
+
+    public KeyFingerprintBloomFilter(long maxBytes) {
+        long numOfWords = Math.max(maxBytes / 8, 1);
+        numOfWords = Math.min(numOfWords, Integer.MAX_VALUE / 8);
+        this.numOfBits = numOfWords * 64;
+        this.words = ByteBuffer.allocateDirect((int) numOfWords * 8).asLongBuffer();
+    }
+
+    /**
+     * Add the fingerprint.
+     * 
+     * @return true if the fingerprint may have been added before, false if
+     *         it was certainly not
+     */
+    public boolean put(long fingerprint) {
+        long hash1 = (int) fingerprint;
+        long hash2 = (int) (fingerprint >>> 32);
+        boolean mayContain = true;
+        for (int i = 1; i <= NUM_OF_HASH_FUNCTIONS; i++) {
+            long combinedHash = hash1 + i * hash2;
+            long bit = (combinedHash & Long.MAX_VALUE) % numOfBits;
+            int wordIndex = (int) (bit >>> 6);
+            long mask = 1L << (bit & 63);
+            long word = words.get(wordIndex);
+            if ((word & mask) == 0) {
+                mayContain = false;
+                words.put(wordIndex, word | mask);
+            }
+        }
+        return mayContain;
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Open addressing hash map from 64-bit key fingerprints to long values,
+ * stored off heap in a buffer of fixed size.
+ */
+public class KeyFingerprintMap {
+    public static final long NOT_FOUND = Long.MIN_VALUE;
+    public static final int BYTES_PER_SLOT = 16;
+    private static final double MAX_LOAD_FACTOR = 0.75;
+    // Fingerprint 0 marks an empty slot
+    private static final long EMPTY = 0;
+
+    private LongBuffer slots;
+    private int capacity;
+    private int maxSize;
+    private int size = 0;
+
+    public KeyFingerprintMap(long maxBytes) {
+        long numOfSlots = Long.highestOneBit(Math.max(maxBytes / BYTES_PER_SLOT, 2));
+        numOfSlots = Math.min(numOfSlots, Integer.highestOneBit(Integer.MAX_VALUE / BYTES_PER_SLOT));
+        this.capacity = (int) numOfSlots;
+        this.maxSize = (int) (capacity * MAX_LOAD_FACTOR);
+        this.slots = ByteBuffer.allocateDirect(capacity * BYTES_PER_SLOT).asLongBuffer();
+    }
+
+    /**
+     * @return the value of the fingerprint, or {@link #NOT_FOUND}
+     */
+    public long get(long fingerprint) {
+        fingerprint = normalize(fingerprint);
+        int slot = findSlot(fingerprint);
+        if (slots.get(2 * slot) == EMPTY) {
+            return NOT_FOUND;
+        }
+        return slots.get(2 * slot + 1);
+    }
+
+    public void put(long fingerprint, long value) {
+        fingerprint = normalize(fingerprint);
+        int slot = findSlot(fingerprint);
+        if (slots.get(2 * slot) == EMPTY) {
+            if (size >= maxSize) {
+                throw new IllegalStateException("Key fingerprint map is full with " + size + " keys.");
+            }
+            slots.put(2 * slot, fingerprint);
+            size++;
+        }
+        slots.put(2 * slot + 1, value);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int findSlot(long fingerprint) {
+        int slot = (int) (mix(fingerprint) & (capacity - 1));
+        while (true) {
+            long slotFingerprint = slots.get(2 * slot);
+            if (slotFingerprint == EMPTY || slotFingerprint == fingerprint) {
+                return slot;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+    }
+
+    private static long normalize(long fingerprint) {
+        return fingerprint == EMPTY ? 1 : fingerprint;
+    }
+
+    /** Spread the bits so that slots do not only depend on the low bits */
+    private static long mix(long fingerprint) {
+        fingerprint ^= fingerprint >>> 33;
+        fingerprint *= 0xff51afd7ed558ccdL;
+        fingerprint ^= fingerprint >>> 33;
+        return fingerprint;
+    }
+}
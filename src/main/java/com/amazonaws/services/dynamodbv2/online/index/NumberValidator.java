@@ -0,0 +1,146 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+/**
+ * Check if a number string can be stored as a DynamoDB number.
+ *
+ * The check is a single pass over the characters of the string, it does not
+ * create BigDecimal or any other object, so it can be run on every scanned
+ * item. An instance keeps the details of the last checked number and is not
+ * thread safe, each scan thread should use its own instance.
+ */
+public class NumberValidator {
+
+    /** Results of validation */
+    public static final int VALID = 0;
+    public static final int INVALID_FORMAT = 1;
+    public static final int PRECISION_EXCEEDED = 2;
+    public static final int MAGNITUDE_EXCEEDED = 3;
+
+    /** Limits of DynamoDB number */
+    public static final int MAX_PRECISION = 38;
+    public static final int MAX_EXPONENT = 125;
+    public static final int MIN_EXPONENT = -130;
+
+    /** Exponent digits beyond this value can not change the result */
+    private static final long EXPONENT_SATURATION = 1000000000L;
+
+    private int significantDigits = 0;
+    private int exponent = 0;
+
+    /**
+     * Validate the given number string. Leading and trailing zeros are not
+     * counted as significant digits. The exponent checked is the one of the
+     * most significant digit in scientific notation, e.g. 123.45 is 1.2345E2.
+     * Any character sequence is accepted, so that a number can be checked
+     * in a parser buffer without creating a string.
+     */
+    public int validate(CharSequence number) {
+        significantDigits = 0;
+        exponent = 0;
+        int length = number.length();
+        int i = 0;
+        if (length > 0 && (number.charAt(0) == '-' || number.charAt(0) == '+')) {
+            i++;
+        }
+
+        /** Mantissa: positions are counted over digits only, '.' excluded */
+        int mantissaDigits = 0;
+        int integerDigits = -1;
+        int firstNonZero = -1;
+        int lastNonZero = -1;
+        for (; i < length; i++) {
+            char c = number.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (c != '0') {
+                    if (firstNonZero < 0) {
+                        firstNonZero = mantissaDigits;
+                    }
+                    lastNonZero = mantissaDigits;
+                }
+                mantissaDigits++;
+            } else if (c == '.' && integerDigits < 0) {
+                integerDigits = mantissaDigits;
+            } else if (c == 'e' || c == 'E') {
+                break;
+            } else {
+                return INVALID_FORMAT;
+            }
+        }
+        if (mantissaDigits == 0) {
+            return INVALID_FORMAT;
+        }
+        if (integerDigits < 0) {
+            integerDigits = mantissaDigits;
+        }
+
+        /** Exponent */
+        long givenExponent = 0;
+        if (i < length) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < length && (number.charAt(i) == '-' || number.charAt(i) == '+')) {
+                negativeExponent = number.charAt(i) == '-';
+                i++;
+            }
+            if (i == length) {
+                return INVALID_FORMAT;
+            }
+            for (; i < length; i++) {
+                char c = number.charAt(i);
+                if (c < '0' || c > '9') {
+                    return INVALID_FORMAT;
+                }
+                if (givenExponent < EXPONENT_SATURATION) {
+                    givenExponent = givenExponent * 10 + (c - '0');
+                }
+            }
+            if (negativeExponent) {
+                givenExponent = -givenExponent;
+            }
+        }
+
+        /** Zero is always valid regardless of its exponent */
+        if (firstNonZero < 0) {
+            return VALID;
+        }
+
+        significantDigits = lastNonZero - firstNonZero + 1;
+        long adjustedExponent = givenExponent + integerDigits - 1 - firstNonZero;
+        exponent = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, adjustedExponent));
+        if (significantDigits > MAX_PRECISION) {
+            return PRECISION_EXCEEDED;
+        }
+        if (adjustedExponent > MAX_EXPONENT || adjustedExponent < MIN_EXPONENT) {
+            return MAGNITUDE_EXCEEDED;
+        }
+        return VALID;
+    }
+
+    /**
+     * Number of significant digits of the last validated number.
+     */
+    public int getSignificantDigits() {
+        return significantDigits;
+    }
+
+    /**
+     * Exponent in scientific notation of the last validated number.
+     */
+    public int getExponent() {
+        return exponent;
+    }
+}
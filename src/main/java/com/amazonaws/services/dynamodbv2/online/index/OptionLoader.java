@@ -14,13 +14,18 @@
  */
 package com.amazonaws.services.dynamodbv2.online.index;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 
 import com.amazonaws.regions.Region;
 import com.amazonaws.regions.Regions;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
 
 /**
  * Load options from property file and check options.
@@ -87,6 +92,28 @@ public class OptionLoader {
 
         int scanIOPSPercent = loadScanIOPSPercent();
         options.setReadWriteIOPSPercentage(scanIOPSPercent);
+
+        int deleteRetryTimeoutSeconds = loadDeleteRetryTimeoutSeconds();
+        options.setDeleteRetryTimeoutSeconds(deleteRetryTimeoutSeconds);
+
+        String deleteFailureOutputPath = loadDeleteFailureOutputPath();
+        options.setDeleteFailureOutputPath(deleteFailureOutputPath);
+
+        int capacityRefreshIntervalSeconds = loadCapacityRefreshIntervalSeconds();
+        options.setCapacityRefreshIntervalSeconds(capacityRefreshIntervalSeconds);
+
+        options.setMaxConnections(loadIntegerInRange(Options.MAX_CONNECTIONS, Options.MAX_CONNECTIONS_DEFAULT, Options.MIN_MAX_CONNECTIONS,
+                Options.MAX_MAX_CONNECTIONS));
+        options.setConnectionTimeoutMillis(loadIntegerInRange(Options.CONNECTION_TIMEOUT_MILLIS, Options.CONNECTION_TIMEOUT_MILLIS_DEFAULT,
+                Options.MIN_CONNECTION_TIMEOUT_MILLIS, Options.MAX_CONNECTION_TIMEOUT_MILLIS));
+        options.setSocketTimeoutMillis(loadIntegerInRange(Options.SOCKET_TIMEOUT_MILLIS, Options.SOCKET_TIMEOUT_MILLIS_DEFAULT,
+                Options.MIN_SOCKET_TIMEOUT_MILLIS, Options.MAX_SOCKET_TIMEOUT_MILLIS));
+        options.setTcpKeepAlive(loadBoolean(Options.TCP_KEEP_ALIVE, Options.TCP_KEEP_ALIVE_DEFAULT));
+        options.setConnectionTTLMillis(loadIntegerInRange(Options.CONNECTION_TTL_MILLIS, Options.CONNECTION_TTL_MILLIS_DEFAULT,
+                Options.MIN_CONNECTION_TTL_MILLIS, Options.MAX_CONNECTION_TTL_MILLIS));
+        options.setResponseGzip(loadBoolean(Options.RESPONSE_GZIP, Options.RESPONSE_GZIP_DEFAULT));
+        options.setMaxErrorRetry(loadIntegerInRange(Options.MAX_ERROR_RETRY, Options.MAX_ERROR_RETRY_DEFAULT, Options.MIN_MAX_ERROR_RETRY,
+                Options.MAX_MAX_ERROR_RETRY));
     }
 
     protected String loadCredentialFilePath() throws IllegalArgumentException {
@@ -219,6 +246,226 @@ public class OptionLoader {
 
         int numOfRecords = loadNumOfRecords();
         options.setNumOfRecords(numOfRecords);
+
+        int scanPageSize = loadScanPageSize();
+        options.setScanPageSize(scanPageSize);
+        options.setNumOfScanThreads(loadIntegerInRange(Options.NUM_OF_SCAN_THREADS, Options.NUM_OF_SCAN_THREADS_DEFAULT,
+                Options.MIN_NUM_OF_SCAN_THREADS, Options.MAX_NUM_OF_SCAN_THREADS));
+        options.setScanMemoryPercent(loadIntegerInRange(Options.SCAN_MEMORY_PERCENT, Options.SCAN_MEMORY_PERCENT_DEFAULT,
+                Options.MIN_SCAN_MEMORY_PERCENT, Options.MAX_SCAN_MEMORY_PERCENT));
+
+        if (outputPath.equals(options.getDeleteFailureOutputPath())) {
+            throw new IllegalArgumentException("Error: " + Options.DETECTION_OUTPUT_PATH + " and " + 
+                    Options.DELETE_FAILURE_OUTPUT_PATH + " cannot be the same.");
+        }
+
+        options.setFixSizeViolation(loadFixTransform(Options.FIX_SIZE_VIOLATION, Options.FIX_SIZE_VIOLATION_DEFAULT, ViolationFixer.TRUNCATE,
+                ViolationFixer.REMOVE, ViolationFixer.NONE));
+        options.setFixTypeViolation(loadFixTransform(Options.FIX_TYPE_VIOLATION, Options.FIX_TYPE_VIOLATION_DEFAULT, ViolationFixer.COERCE,
+                ViolationFixer.REMOVE, ViolationFixer.NONE));
+        options.setFixNumberViolation(loadFixTransform(Options.FIX_NUMBER_VIOLATION, Options.FIX_NUMBER_VIOLATION_DEFAULT, ViolationFixer.REMOVE,
+                ViolationFixer.NONE));
+        String fixAuditOutputPath = loadFixAuditOutputPath();
+        options.setFixAuditOutputPath(fixAuditOutputPath);
+        int numOfFixWriterThreads = loadNumOfFixWriterThreads();
+        options.setNumOfFixWriterThreads(numOfFixWriterThreads);
+        if (fixAuditOutputPath.equals(outputPath) || fixAuditOutputPath.equals(options.getDeleteFailureOutputPath())) {
+            throw new IllegalArgumentException("Error: " + Options.FIX_AUDIT_OUTPUT_PATH + " cannot be the same as " + Options.DETECTION_OUTPUT_PATH
+                    + " or " + Options.DELETE_FAILURE_OUTPUT_PATH + ".");
+        }
+
+        options.setAnalyticsReport(loadAnalyticsReport());
+        String analyticsReportOutputPath = loadAnalyticsReportOutputPath();
+        options.setAnalyticsReportOutputPath(analyticsReportOutputPath);
+        options.setProjectedTableWriteRate(loadProjectedTableWriteRate());
+
+        boolean gsiBackfillEstimate = loadGsiBackfillEstimate();
+        if (gsiBackfillEstimate && !options.isAnalyticsReport()) {
+            throw new IllegalArgumentException("Error: " + Options.GSI_BACKFILL_ESTIMATE + " is written in the analytics report, " + Options.ANALYTICS_REPORT
+                    + " must be 'true'.");
+        }
+        options.setGsiBackfillEstimate(gsiBackfillEstimate);
+        String gsiProjectionType = loadGsiProjectionType();
+        options.setGsiProjectionType(gsiProjectionType);
+        List<String> gsiNonKeyAttributes = loadGsiNonKeyAttributes();
+        if (ProjectionType.INCLUDE.toString().equals(gsiProjectionType) && gsiNonKeyAttributes == null) {
+            throw new IllegalArgumentException("Error: " + Options.GSI_NON_KEY_ATTRIBUTES + " must be given when " + Options.GSI_PROJECTION_TYPE + " is "
+                    + ProjectionType.INCLUDE + ".");
+        }
+        options.setGsiNonKeyAttributes(gsiNonKeyAttributes);
+        options.setGsiWriteCapacityUnits(loadGsiWriteCapacityUnits());
+        if (analyticsReportOutputPath.equals(outputPath) || analyticsReportOutputPath.equals(fixAuditOutputPath)
+                || analyticsReportOutputPath.equals(options.getDeleteFailureOutputPath())) {
+            throw new IllegalArgumentException("Error: " + Options.ANALYTICS_REPORT_OUTPUT_PATH + " cannot be the same as " + Options.DETECTION_OUTPUT_PATH
+                    + ", " + Options.FIX_AUDIT_OUTPUT_PATH + " or " + Options.DELETE_FAILURE_OUTPUT_PATH + ".");
+        }
+
+        boolean itemCollectionAnalysis = loadItemCollectionAnalysis();
+        options.setItemCollectionAnalysis(itemCollectionAnalysis);
+        options.setItemCollectionThresholdMB(loadItemCollectionThresholdMB());
+        String itemCollectionOutputPath = loadItemCollectionOutputPath();
+        options.setItemCollectionOutputPath(itemCollectionOutputPath);
+        options.setItemCollectionMemoryMB(loadItemCollectionMemoryMB());
+        String itemCollectionSpillDirectory = loadItemCollectionSpillDirectory();
+        if (itemCollectionAnalysis && !new File(itemCollectionSpillDirectory).isDirectory()) {
+            throw new IllegalArgumentException("Error: Given " + Options.ITEM_COLLECTION_SPILL_DIRECTORY + " " + itemCollectionSpillDirectory
+                    + " is not an existing directory.");
+        }
+        options.setItemCollectionSpillDirectory(itemCollectionSpillDirectory);
+        if (itemCollectionOutputPath.equals(outputPath) || itemCollectionOutputPath.equals(fixAuditOutputPath)
+                || itemCollectionOutputPath.equals(options.getDeleteFailureOutputPath()) || itemCollectionOutputPath.equals(analyticsReportOutputPath)) {
+            throw new IllegalArgumentException("Error: " + Options.ITEM_COLLECTION_OUTPUT_PATH + " cannot be the same as " + Options.DETECTION_OUTPUT_PATH
+                    + ", " + Options.FIX_AUDIT_OUTPUT_PATH + ", " + Options.DELETE_FAILURE_OUTPUT_PATH + " or " + Options.ANALYTICS_REPORT_OUTPUT_PATH + ".");
+        }
+
+        boolean streamingScanDecoder = loadBoolean(Options.STREAMING_SCAN_DECODER, Options.STREAMING_SCAN_DECODER_DEFAULT);
+        checkStreamingScanDecoder(streamingScanDecoder, options.isAnalyticsReport(), itemCollectionAnalysis, numOfRecords);
+        options.setStreamingScanDecoder(streamingScanDecoder);
+    }
+
+    protected void checkStreamingScanDecoder(boolean streamingScanDecoder, boolean analyticsReport, boolean itemCollectionAnalysis, int numOfRecords)
+            throws IllegalArgumentException {
+        if (streamingScanDecoder && (analyticsReport || itemCollectionAnalysis || numOfRecords > 0)) {
+            throw new IllegalArgumentException("Error: " + Options.STREAMING_SCAN_DECODER + " only decodes the items that may be violations, it cannot be"
+                    + " used with " + Options.ANALYTICS_REPORT + ", " + Options.ITEM_COLLECTION_ANALYSIS + " or " + Options.NUM_OF_RECORDS + ".");
+        }
+    }
+
+    protected boolean loadItemCollectionAnalysis() throws IllegalArgumentException {
+        String itemCollectionAnalysis = properties.getProperty(Options.ITEM_COLLECTION_ANALYSIS, Options.ITEM_COLLECTION_ANALYSIS_DEFAULT).trim();
+        if (!itemCollectionAnalysis.equalsIgnoreCase("true") && !itemCollectionAnalysis.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("Error: Given " + Options.ITEM_COLLECTION_ANALYSIS + " invalid,  should be 'true' or 'false' if set.");
+        }
+        return Boolean.parseBoolean(itemCollectionAnalysis);
+    }
+
+    protected int loadItemCollectionThresholdMB() throws IllegalArgumentException {
+        String thresholdStr = properties.getProperty(Options.ITEM_COLLECTION_THRESHOLD_MB, Options.ITEM_COLLECTION_THRESHOLD_MB_DEFAULT).trim();
+        try {
+            int threshold = Integer.parseInt(thresholdStr);
+            if (!optionChecker.isNumberInRange(threshold, Options.MIN_ITEM_COLLECTION_THRESHOLD_MB, Options.MAX_ITEM_COLLECTION_THRESHOLD_MB)) {
+                throw new IllegalArgumentException("Error: Given " + Options.ITEM_COLLECTION_THRESHOLD_MB + " " + thresholdStr + " exceeds range "
+                        + Options.MIN_ITEM_COLLECTION_THRESHOLD_MB + " ~ " + Options.MAX_ITEM_COLLECTION_THRESHOLD_MB + ".");
+            }
+            return threshold;
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Error: Given " + Options.ITEM_COLLECTION_THRESHOLD_MB + " " + thresholdStr + " is not valid integer format.");
+        }
+    }
+
+    protected String loadItemCollectionOutputPath() throws IllegalArgumentException {
+        String itemCollectionOutputPath = properties.getProperty(Options.ITEM_COLLECTION_OUTPUT_PATH, Options.ITEM_COLLECTION_OUTPUT_PATH_DEFAULT).trim();
+        if (optionChecker.isS3Path(itemCollectionOutputPath)) {
+            throw new IllegalArgumentException("Error: " + Options.ITEM_COLLECTION_OUTPUT_PATH + " must be a local path.");
+        }
+        return itemCollectionOutputPath;
+    }
+
+    protected int loadItemCollectionMemoryMB() throws IllegalArgumentException {
+        String memoryStr = properties.getProperty(Options.ITEM_COLLECTION_MEMORY_MB, Options.ITEM_COLLECTION_MEMORY_MB_DEFAULT).trim();
+        try {
+            int memory = Integer.parseInt(memoryStr);
+            if (!optionChecker.isNumberInRange(memory, Options.MIN_ITEM_COLLECTION_MEMORY_MB, Options.MAX_ITEM_COLLECTION_MEMORY_MB)) {
+                throw new IllegalArgumentException("Error: Given " + Options.ITEM_COLLECTION_MEMORY_MB + " " + memoryStr + " exceeds range "
+                        + Options.MIN_ITEM_COLLECTION_MEMORY_MB + " ~ " + Options.MAX_ITEM_COLLECTION_MEMORY_MB + ".");
+            }
+            return memory;
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Error: Given " + Options.ITEM_COLLECTION_MEMORY_MB + " " + memoryStr + " is not valid integer format.");
+        }
+    }
+
+    /**
+     * Sorted runs of item collection sizes are spilled to this directory.
+     */
+    protected String loadItemCollectionSpillDirectory() throws IllegalArgumentException {
+        String spillDirectory = properties.getProperty(Options.ITEM_COLLECTION_SPILL_DIRECTORY, Options.ITEM_COLLECTION_SPILL_DIRECTORY_DEFAULT).trim();
+        if (optionChecker.isS3Path(spillDirectory)) {
+            throw new IllegalArgumentException("Error: " + Options.ITEM_COLLECTION_SPILL_DIRECTORY + " must be a local path.");
+        }
+        return spillDirectory;
+    }
+
+    protected boolean loadAnalyticsReport() throws IllegalArgumentException {
+        String analyticsReport = properties.getProperty(Options.ANALYTICS_REPORT, Options.ANALYTICS_REPORT_DEFAULT).trim();
+        if (!analyticsReport.equalsIgnoreCase("true") && !analyticsReport.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("Error: Given " + Options.ANALYTICS_REPORT + " invalid,  should be 'true' or 'false' if set.");
+        }
+        return Boolean.parseBoolean(analyticsReport);
+    }
+
+    protected int loadProjectedTableWriteRate() throws IllegalArgumentException {
+        String writeRateStr = properties.getProperty(Options.PROJECTED_TABLE_WRITE_RATE, Options.PROJECTED_TABLE_WRITE_RATE_DEFAULT).trim();
+        try {
+            int writeRate = Integer.parseInt(writeRateStr);
+            if (!optionChecker.isNumberInRange(writeRate, Options.MIN_PROJECTED_TABLE_WRITE_RATE, Options.MAX_PROJECTED_TABLE_WRITE_RATE)) {
+                throw new IllegalArgumentException("Error: Given " + Options.PROJECTED_TABLE_WRITE_RATE + " " + writeRateStr + " exceeds range "
+                        + Options.MIN_PROJECTED_TABLE_WRITE_RATE + " ~ " + Options.MAX_PROJECTED_TABLE_WRITE_RATE + ".");
+            }
+            return writeRate;
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Error: Given " + Options.PROJECTED_TABLE_WRITE_RATE + " " + writeRateStr + " is not valid integer format.");
+        }
+    }
+
+    protected boolean loadGsiBackfillEstimate() throws IllegalArgumentException {
+        String gsiBackfillEstimate = properties.getProperty(Options.GSI_BACKFILL_ESTIMATE, Options.GSI_BACKFILL_ESTIMATE_DEFAULT).trim();
+        if (!gsiBackfillEstimate.equalsIgnoreCase("true") && !gsiBackfillEstimate.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("Error: Given " + Options.GSI_BACKFILL_ESTIMATE + " invalid,  should be 'true' or 'false' if set.");
+        }
+        return Boolean.parseBoolean(gsiBackfillEstimate);
+    }
+
+    protected String loadGsiProjectionType() throws IllegalArgumentException {
+        String gsiProjectionType = properties.getProperty(Options.GSI_PROJECTION_TYPE, Options.GSI_PROJECTION_TYPE_DEFAULT).trim();
+        try {
+            return ProjectionType.fromValue(gsiProjectionType).toString();
+        } catch (IllegalArgumentException iae) {
+            throw new IllegalArgumentException("Error: Given " + Options.GSI_PROJECTION_TYPE + " " + gsiProjectionType + " invalid, should be "
+                    + ProjectionType.KEYS_ONLY + ", " + ProjectionType.INCLUDE + " or " + ProjectionType.ALL + ".");
+        }
+    }
+
+    /**
+     * Comma separated attribute names, null if not given.
+     */
+    protected List<String> loadGsiNonKeyAttributes() throws IllegalArgumentException {
+        String gsiNonKeyAttributes = properties.getProperty(Options.GSI_NON_KEY_ATTRIBUTES);
+        if (null == gsiNonKeyAttributes) {
+            return null;
+        }
+        List<String> attributeNames = new ArrayList<String>();
+        for (String attributeName : gsiNonKeyAttributes.split(",")) {
+            if (!attributeName.trim().isEmpty()) {
+                attributeNames.add(attributeName.trim());
+            }
+        }
+        if (attributeNames.isEmpty()) {
+            throw new IllegalArgumentException("Error: Given " + Options.GSI_NON_KEY_ATTRIBUTES + " is empty.");
+        }
+        return attributeNames;
+    }
+
+    protected int loadGsiWriteCapacityUnits() throws IllegalArgumentException {
+        String capacityStr = properties.getProperty(Options.GSI_WRITE_CAPACITY_UNITS, Options.GSI_WRITE_CAPACITY_UNITS_DEFAULT).trim();
+        try {
+            int capacity = Integer.parseInt(capacityStr);
+            if (!optionChecker.isNumberInRange(capacity, Options.MIN_GSI_WRITE_CAPACITY_UNITS, Options.MAX_GSI_WRITE_CAPACITY_UNITS)) {
+                throw new IllegalArgumentException("Error: Given " + Options.GSI_WRITE_CAPACITY_UNITS + " " + capacityStr + " exceeds range "
+                        + Options.MIN_GSI_WRITE_CAPACITY_UNITS + " ~ " + Options.MAX_GSI_WRITE_CAPACITY_UNITS + ".");
+            }
+            return capacity;
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Error: Given " + Options.GSI_WRITE_CAPACITY_UNITS + " " + capacityStr + " is not valid integer format.");
+        }
+    }
+
+    protected String loadAnalyticsReportOutputPath() throws IllegalArgumentException {
+        String analyticsReportOutputPath = properties.getProperty(Options.ANALYTICS_REPORT_OUTPUT_PATH, Options.ANALYTICS_REPORT_OUTPUT_PATH_DEFAULT).trim();
+        if (optionChecker.isS3Path(analyticsReportOutputPath)) {
+            throw new IllegalArgumentException("Error: " + Options.ANALYTICS_REPORT_OUTPUT_PATH + " must be a local path.");
+        }
+        return analyticsReportOutputPath;
     }
 
     protected boolean loadRecordDetails() throws IllegalArgumentException {
@@ -253,9 +500,10 @@ public class OptionLoader {
         String numOfSegmentsStr = properties.getProperty(Options.NUM_OF_SEGMENTS, Options.NUM_OF_SEGMENTS_DEFAULT).trim();
         try {
             int numOfSegments = Integer.parseInt(numOfSegmentsStr);
-            if (!optionChecker.isNumberInRange(numOfSegments, Options.MIN_NUM_OF_SEGMENTS, Options.MAX_NUM_OF_SEGMENTS)) {
+            if (numOfSegments != Options.AUTO_NUM_OF_SEGMENTS
+                    && !optionChecker.isNumberInRange(numOfSegments, Options.MIN_NUM_OF_SEGMENTS, Options.MAX_NUM_OF_SEGMENTS)) {
                 throw new IllegalArgumentException("Error: Given " + Options.NUM_OF_SEGMENTS + " " + numOfSegmentsStr + " exceeds range "
-                        + Options.MIN_NUM_OF_SEGMENTS + " ~ " + Options.MAX_NUM_OF_SEGMENTS + ".");
+                        + Options.MIN_NUM_OF_SEGMENTS + " ~ " + Options.MAX_NUM_OF_SEGMENTS + ", or " + Options.AUTO_NUM_OF_SEGMENTS + " for auto.");
             }
             return numOfSegments;
         } catch (NumberFormatException nfe) {
@@ -280,6 +528,20 @@ public class OptionLoader {
         }
     }
 
+    protected int loadScanPageSize() throws IllegalArgumentException {
+        String scanPageSizeStr = properties.getProperty(Options.SCAN_PAGE_SIZE, Options.SCAN_PAGE_SIZE_DEFAULT).trim();
+        try {
+            int scanPageSize = Integer.parseInt(scanPageSizeStr);
+            if (!optionChecker.isNumberInRange(scanPageSize, Options.MIN_SCAN_PAGE_SIZE, Options.MAX_SCAN_PAGE_SIZE)) {
+                throw new IllegalArgumentException("Error: Given " + Options.SCAN_PAGE_SIZE + " " + scanPageSizeStr + " exceeds range "
+                        + Options.MIN_SCAN_PAGE_SIZE + " ~ " + Options.MAX_SCAN_PAGE_SIZE + ".");
+            }
+            return scanPageSize;
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Error: Given " + Options.SCAN_PAGE_SIZE + " " + scanPageSizeStr + " is not valid integer format.");
+        }
+    }
+
     protected int loadNumOfRecords() throws IllegalArgumentException {
         String numOfRecordsStr = properties.getProperty(Options.NUM_OF_RECORDS);
         try {
@@ -319,11 +581,41 @@ public class OptionLoader {
         }
         options.setIsCorrectionOutputS3Path(isCorrectionOutputS3Path);
         
+        int numOfCorrectionWorkers = loadNumOfCorrectionWorkers();
+        options.setNumOfCorrectionWorkers(numOfCorrectionWorkers);
+        int maxInFlightUpdates = loadMaxInFlightUpdates();
+        options.setMaxInFlightUpdates(maxInFlightUpdates);
+        if (numOfCorrectionWorkers > 1 && maxInFlightUpdates > 0) {
+            throw new IllegalArgumentException("Error: " + Options.NUM_OF_CORRECTION_WORKERS + " and " + Options.MAX_IN_FLIGHT_UPDATES
+                    + " cannot be used together.");
+        }
+
+        boolean correctionJournal = loadCorrectionJournal();
+        options.setCorrectionJournal(correctionJournal);
+
+        int numOfCorrectionReaderThreads = loadNumOfCorrectionReaderThreads();
+        options.setNumOfCorrectionReaderThreads(numOfCorrectionReaderThreads);
+
+        boolean streamCorrectionInputFromS3 = loadStreamCorrectionInputFromS3();
+        options.setStreamCorrectionInputFromS3(streamCorrectionInputFromS3);
+
+        String dedupeCorrectionInput = loadDedupeCorrectionInput();
+        options.setDedupeCorrectionInput(dedupeCorrectionInput);
+        int dedupeMemoryMB = loadDedupeMemoryMB();
+        options.setDedupeMemoryMB(dedupeMemoryMB);
+
+        boolean preReadCorrectionItems = loadPreReadCorrectionItems();
+        options.setPreReadCorrectionItems(preReadCorrectionItems);
+
         // validate that input and output paths are not the same
         if(correctionInputPath.equals(correctionOutputPath)) {
             throw new IllegalArgumentException("Error: " + Options.CORRECTION_INPUT_PATH + " and " + 
                     Options.CORRECTION_OUTPUT_PATH + " cannot be the same.");
         }
+        if(correctionInputPath.equals(options.getDeleteFailureOutputPath())) {
+            throw new IllegalArgumentException("Error: " + Options.CORRECTION_INPUT_PATH + " and " + 
+                    Options.DELETE_FAILURE_OUTPUT_PATH + " cannot be the same.");
+        }
     }
 
     protected String loadCorrectionInputPath() throws IllegalArgumentException {
@@ -337,4 +629,196 @@ public class OptionLoader {
     protected String loadCorrectionOutputPath() throws IllegalArgumentException {
         return properties.getProperty(Options.CORRECTION_OUTPUT_PATH, Options.CORRECTION_OUTPUT_PATH_DEFAULT).trim();
     }
+
+    protected int loadNumOfCorrectionWorkers() throws IllegalArgumentException {
+        String numOfWorkersStr = properties.getProperty(Options.NUM_OF_CORRECTION_WORKERS, Options.NUM_OF_CORRECTION_WORKERS_DEFAULT).trim();
+        try {
+            int numOfWorkers = Integer.parseInt(numOfWorkersStr);
+            if (!optionChecker.isNumberInRange(numOfWorkers, Options.MIN_NUM_OF_CORRECTION_WORKERS, Options.MAX_NUM_OF_CORRECTION_WORKERS)) {
+                throw new IllegalArgumentException("Error: Given " + Options.NUM_OF_CORRECTION_WORKERS + " " + numOfWorkersStr + " exceeds range "
+                        + Options.MIN_NUM_OF_CORRECTION_WORKERS + " ~ " + Options.MAX_NUM_OF_CORRECTION_WORKERS + ".");
+            }
+            return numOfWorkers;
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Error: Given " + Options.NUM_OF_CORRECTION_WORKERS + " " + numOfWorkersStr + " is not valid integer format.");
+        }
+    }
+
+    protected int loadMaxInFlightUpdates() throws IllegalArgumentException {
+        String maxInFlightUpdatesStr = properties.getProperty(Options.MAX_IN_FLIGHT_UPDATES, Options.MAX_IN_FLIGHT_UPDATES_DEFAULT).trim();
+        try {
+            int maxInFlightUpdates = Integer.parseInt(maxInFlightUpdatesStr);
+            if (!optionChecker.isNumberInRange(maxInFlightUpdates, Options.MIN_MAX_IN_FLIGHT_UPDATES, Options.MAX_MAX_IN_FLIGHT_UPDATES)) {
+                throw new IllegalArgumentException("Error: Given " + Options.MAX_IN_FLIGHT_UPDATES + " " + maxInFlightUpdatesStr + " exceeds range "
+                        + Options.MIN_MAX_IN_FLIGHT_UPDATES + " ~ " + Options.MAX_MAX_IN_FLIGHT_UPDATES + ".");
+            }
+            return maxInFlightUpdates;
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Error: Given " + Options.MAX_IN_FLIGHT_UPDATES + " " + maxInFlightUpdatesStr + " is not valid integer format.");
+        }
+    }
+
+    protected int loadDeleteRetryTimeoutSeconds() throws IllegalArgumentException {
+        String timeoutStr = properties.getProperty(Options.DELETE_RETRY_TIMEOUT_SECONDS, Options.DELETE_RETRY_TIMEOUT_SECONDS_DEFAULT).trim();
+        try {
+            int timeout = Integer.parseInt(timeoutStr);
+            if (!optionChecker.isNumberInRange(timeout, Options.MIN_DELETE_RETRY_TIMEOUT_SECONDS, Options.MAX_DELETE_RETRY_TIMEOUT_SECONDS)) {
+                throw new IllegalArgumentException("Error: Given " + Options.DELETE_RETRY_TIMEOUT_SECONDS + " " + timeoutStr + " exceeds range "
+                        + Options.MIN_DELETE_RETRY_TIMEOUT_SECONDS + " ~ " + Options.MAX_DELETE_RETRY_TIMEOUT_SECONDS + ".");
+            }
+            return timeout;
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Error: Given " + Options.DELETE_RETRY_TIMEOUT_SECONDS + " " + timeoutStr + " is not valid integer format.");
+        }
+    }
+
+    /**
+     * Optional integer option with its default, checked against its range.
+     */
+    protected int loadIntegerInRange(String name, String defaultValue, int lowerBound, int upperBound) throws IllegalArgumentException {
+        String valueStr = properties.getProperty(name, defaultValue).trim();
+        try {
+            int value = Integer.parseInt(valueStr);
+            if (!optionChecker.isNumberInRange(value, lowerBound, upperBound)) {
+                throw new IllegalArgumentException("Error: Given " + name + " " + valueStr + " exceeds range " + lowerBound + " ~ " + upperBound + ".");
+            }
+            return value;
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Error: Given " + name + " " + valueStr + " is not valid integer format.");
+        }
+    }
+
+    /**
+     * Optional boolean option with its default.
+     */
+    protected boolean loadBoolean(String name, String defaultValue) throws IllegalArgumentException {
+        String value = properties.getProperty(name, defaultValue).trim();
+        if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("Error: Given " + name + " invalid,  should be 'true' or 'false' if set.");
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    protected int loadCapacityRefreshIntervalSeconds() throws IllegalArgumentException {
+        String intervalStr = properties.getProperty(Options.CAPACITY_REFRESH_INTERVAL_SECONDS, Options.CAPACITY_REFRESH_INTERVAL_SECONDS_DEFAULT).trim();
+        try {
+            int interval = Integer.parseInt(intervalStr);
+            if (!optionChecker.isNumberInRange(interval, Options.MIN_CAPACITY_REFRESH_INTERVAL_SECONDS, Options.MAX_CAPACITY_REFRESH_INTERVAL_SECONDS)) {
+                throw new IllegalArgumentException("Error: Given " + Options.CAPACITY_REFRESH_INTERVAL_SECONDS + " " + intervalStr + " exceeds range "
+                        + Options.MIN_CAPACITY_REFRESH_INTERVAL_SECONDS + " ~ " + Options.MAX_CAPACITY_REFRESH_INTERVAL_SECONDS + ".");
+            }
+            return interval;
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Error: Given " + Options.CAPACITY_REFRESH_INTERVAL_SECONDS + " " + intervalStr + " is not valid integer format.");
+        }
+    }
+
+    /**
+     * Only local path is supported, the file is written while deleting.
+     */
+    protected String loadDeleteFailureOutputPath() throws IllegalArgumentException {
+        String deleteFailureOutputPath = properties.getProperty(Options.DELETE_FAILURE_OUTPUT_PATH, Options.DELETE_FAILURE_OUTPUT_PATH_DEFAULT).trim();
+        if (optionChecker.isS3Path(deleteFailureOutputPath)) {
+            throw new IllegalArgumentException("Error: " + Options.DELETE_FAILURE_OUTPUT_PATH + " must be a local path.");
+        }
+        return deleteFailureOutputPath;
+    }
+
+    protected boolean loadCorrectionJournal() throws IllegalArgumentException {
+        String correctionJournal = properties.getProperty(Options.CORRECTION_JOURNAL, Options.CORRECTION_JOURNAL_DEFAULT).trim();
+        if (!correctionJournal.equalsIgnoreCase("true") && !correctionJournal.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("Error: Given " + Options.CORRECTION_JOURNAL + " invalid,  should be 'true' or 'false' if set.");
+        }
+        return Boolean.parseBoolean(correctionJournal);
+    }
+
+    protected int loadNumOfCorrectionReaderThreads() throws IllegalArgumentException {
+        String numOfThreadsStr = properties.getProperty(Options.NUM_OF_CORRECTION_READER_THREADS, Options.NUM_OF_CORRECTION_READER_THREADS_DEFAULT).trim();
+        try {
+            int numOfThreads = Integer.parseInt(numOfThreadsStr);
+            if (!optionChecker.isNumberInRange(numOfThreads, Options.MIN_NUM_OF_CORRECTION_READER_THREADS, Options.MAX_NUM_OF_CORRECTION_READER_THREADS)) {
+                throw new IllegalArgumentException("Error: Given " + Options.NUM_OF_CORRECTION_READER_THREADS + " " + numOfThreadsStr + " exceeds range "
+                        + Options.MIN_NUM_OF_CORRECTION_READER_THREADS + " ~ " + Options.MAX_NUM_OF_CORRECTION_READER_THREADS + ".");
+            }
+            return numOfThreads;
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Error: Given " + Options.NUM_OF_CORRECTION_READER_THREADS + " " + numOfThreadsStr
+                    + " is not valid integer format.");
+        }
+    }
+
+    protected boolean loadStreamCorrectionInputFromS3() throws IllegalArgumentException {
+        String streamInput = properties.getProperty(Options.STREAM_CORRECTION_INPUT_FROM_S3, Options.STREAM_CORRECTION_INPUT_FROM_S3_DEFAULT).trim();
+        if (!streamInput.equalsIgnoreCase("true") && !streamInput.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("Error: Given " + Options.STREAM_CORRECTION_INPUT_FROM_S3 + " invalid,  should be 'true' or 'false' if set.");
+        }
+        return Boolean.parseBoolean(streamInput);
+    }
+
+    protected String loadDedupeCorrectionInput() throws IllegalArgumentException {
+        String dedupe = properties.getProperty(Options.DEDUPE_CORRECTION_INPUT, Options.DEDUPE_CORRECTION_INPUT_DEFAULT).trim().toLowerCase();
+        if (!dedupe.equals(CorrectionDeduplicator.KEEP_NONE) && !dedupe.equals(CorrectionDeduplicator.KEEP_FIRST)
+                && !dedupe.equals(CorrectionDeduplicator.KEEP_LAST)) {
+            throw new IllegalArgumentException("Error: Given " + Options.DEDUPE_CORRECTION_INPUT + " invalid,  should be '"
+                    + CorrectionDeduplicator.KEEP_NONE + "', '" + CorrectionDeduplicator.KEEP_FIRST + "' or '" + CorrectionDeduplicator.KEEP_LAST
+                    + "' if set.");
+        }
+        return dedupe;
+    }
+
+    protected int loadDedupeMemoryMB() throws IllegalArgumentException {
+        String memoryMBStr = properties.getProperty(Options.DEDUPE_MEMORY_MB, Options.DEDUPE_MEMORY_MB_DEFAULT).trim();
+        try {
+            int memoryMB = Integer.parseInt(memoryMBStr);
+            if (!optionChecker.isNumberInRange(memoryMB, Options.MIN_DEDUPE_MEMORY_MB, Options.MAX_DEDUPE_MEMORY_MB)) {
+                throw new IllegalArgumentException("Error: Given " + Options.DEDUPE_MEMORY_MB + " " + memoryMBStr + " exceeds range "
+                        + Options.MIN_DEDUPE_MEMORY_MB + " ~ " + Options.MAX_DEDUPE_MEMORY_MB + ".");
+            }
+            return memoryMB;
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Error: Given " + Options.DEDUPE_MEMORY_MB + " " + memoryMBStr + " is not valid integer format.");
+        }
+    }
+
+    protected boolean loadPreReadCorrectionItems() throws IllegalArgumentException {
+        String preRead = properties.getProperty(Options.PRE_READ_CORRECTION_ITEMS, Options.PRE_READ_CORRECTION_ITEMS_DEFAULT).trim();
+        if (!preRead.equalsIgnoreCase("true") && !preRead.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("Error: Given " + Options.PRE_READ_CORRECTION_ITEMS + " invalid,  should be 'true' or 'false' if set.");
+        }
+        return Boolean.parseBoolean(preRead);
+    }
+
+    protected String loadFixTransform(String optionName, String defaultValue, String... validTransforms) throws IllegalArgumentException {
+        String transform = properties.getProperty(optionName, defaultValue).trim().toLowerCase();
+        for (String validTransform : validTransforms) {
+            if (validTransform.equals(transform)) {
+                return transform;
+            }
+        }
+        throw new IllegalArgumentException("Error: Given " + optionName + " " + transform + " invalid,  should be one of "
+                + Arrays.toString(validTransforms) + " if set.");
+    }
+
+    protected String loadFixAuditOutputPath() throws IllegalArgumentException {
+        String fixAuditOutputPath = properties.getProperty(Options.FIX_AUDIT_OUTPUT_PATH, Options.FIX_AUDIT_OUTPUT_PATH_DEFAULT).trim();
+        if (optionChecker.isS3Path(fixAuditOutputPath)) {
+            throw new IllegalArgumentException("Error: " + Options.FIX_AUDIT_OUTPUT_PATH + " must be a local path.");
+        }
+        return fixAuditOutputPath;
+    }
+
+    protected int loadNumOfFixWriterThreads() throws IllegalArgumentException {
+        String numOfThreadsStr = properties.getProperty(Options.NUM_OF_FIX_WRITER_THREADS, Options.NUM_OF_FIX_WRITER_THREADS_DEFAULT).trim();
+        try {
+            int numOfThreads = Integer.parseInt(numOfThreadsStr);
+            if (!optionChecker.isNumberInRange(numOfThreads, Options.MIN_NUM_OF_FIX_WRITER_THREADS, Options.MAX_NUM_OF_FIX_WRITER_THREADS)) {
+                throw new IllegalArgumentException("Error: Given " + Options.NUM_OF_FIX_WRITER_THREADS + " " + numOfThreadsStr + " exceeds range "
+                        + Options.MIN_NUM_OF_FIX_WRITER_THREADS + " ~ " + Options.MAX_NUM_OF_FIX_WRITER_THREADS + ".");
+            }
+            return numOfThreads;
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("Error: Given " + Options.NUM_OF_FIX_WRITER_THREADS + " " + numOfThreadsStr
+                    + " is not valid integer format.");
+        }
+    }
 }
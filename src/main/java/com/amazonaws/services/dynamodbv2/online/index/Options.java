@@ -14,6 +14,8 @@
  */
 package com.amazonaws.services.dynamodbv2.online.index;
 
+import java.util.List;
+
 import com.amazonaws.regions.Region;
 
 /**
@@ -42,6 +44,45 @@ public class Options {
     public static final String NUM_OF_RECORDS = "numOfRecords";
     public static final String CORRECTION_INPUT_PATH = "correctionInputPath";
     public static final String CORRECTION_OUTPUT_PATH = "correctionOutputPath";
+    public static final String NUM_OF_CORRECTION_WORKERS = "numOfCorrectionWorkers";
+    public static final String MAX_IN_FLIGHT_UPDATES = "maxInFlightUpdates";
+    public static final String DELETE_RETRY_TIMEOUT_SECONDS = "deleteRetryTimeoutSeconds";
+    public static final String DELETE_FAILURE_OUTPUT_PATH = "deleteFailureOutputPath";
+    public static final String CORRECTION_JOURNAL = "correctionJournal";
+    public static final String NUM_OF_CORRECTION_READER_THREADS = "numOfCorrectionReaderThreads";
+    public static final String STREAM_CORRECTION_INPUT_FROM_S3 = "streamCorrectionInputFromS3";
+    public static final String DEDUPE_CORRECTION_INPUT = "dedupeCorrectionInput";
+    public static final String DEDUPE_MEMORY_MB = "dedupeMemoryMB";
+    public static final String PRE_READ_CORRECTION_ITEMS = "preReadCorrectionItems";
+    public static final String FIX_SIZE_VIOLATION = "fixSizeViolation";
+    public static final String FIX_TYPE_VIOLATION = "fixTypeViolation";
+    public static final String FIX_NUMBER_VIOLATION = "fixNumberViolation";
+    public static final String FIX_AUDIT_OUTPUT_PATH = "fixAuditOutputPath";
+    public static final String NUM_OF_FIX_WRITER_THREADS = "numOfFixWriterThreads";
+    public static final String CAPACITY_REFRESH_INTERVAL_SECONDS = "capacityRefreshIntervalSeconds";
+    public static final String ANALYTICS_REPORT = "analyticsReport";
+    public static final String ANALYTICS_REPORT_OUTPUT_PATH = "analyticsReportOutputPath";
+    public static final String PROJECTED_TABLE_WRITE_RATE = "projectedTableWriteRate";
+    public static final String GSI_BACKFILL_ESTIMATE = "gsiBackfillEstimate";
+    public static final String GSI_PROJECTION_TYPE = "gsiProjectionType";
+    public static final String GSI_NON_KEY_ATTRIBUTES = "gsiNonKeyAttributes";
+    public static final String GSI_WRITE_CAPACITY_UNITS = "gsiWriteCapacityUnits";
+    public static final String ITEM_COLLECTION_ANALYSIS = "itemCollectionAnalysis";
+    public static final String ITEM_COLLECTION_THRESHOLD_MB = "itemCollectionThresholdMB";
+    public static final String ITEM_COLLECTION_OUTPUT_PATH = "itemCollectionOutputPath";
+    public static final String ITEM_COLLECTION_MEMORY_MB = "itemCollectionMemoryMB";
+    public static final String ITEM_COLLECTION_SPILL_DIRECTORY = "itemCollectionSpillDirectory";
+    public static final String SCAN_PAGE_SIZE = "scanPageSize";
+    public static final String NUM_OF_SCAN_THREADS = "numOfScanThreads";
+    public static final String SCAN_MEMORY_PERCENT = "scanMemoryPercent";
+    public static final String MAX_CONNECTIONS = "maxConnections";
+    public static final String CONNECTION_TIMEOUT_MILLIS = "connectionTimeoutMillis";
+    public static final String SOCKET_TIMEOUT_MILLIS = "socketTimeoutMillis";
+    public static final String TCP_KEEP_ALIVE = "tcpKeepAlive";
+    public static final String CONNECTION_TTL_MILLIS = "connectionTTLMillis";
+    public static final String RESPONSE_GZIP = "responseGzip";
+    public static final String MAX_ERROR_RETRY = "maxErrorRetry";
+    public static final String STREAMING_SCAN_DECODER = "streamingScanDecoder";
 
     /** Default value and limits */
     public static final String READ_WRITE_IOPS_PERCENT_DEFAULT = "25";
@@ -53,13 +94,91 @@ public class Options {
     public static final String DETECTION_OUTPUT_PATH_DEFAULT = "./violation_detection.csv";
     public static final String CORRECTION_OUTPUT_PATH_DEFAULT = "./violation_update_errors.csv";
     public static final String TEMP_DETECTION_OUTPUT_PATH = "./detection.tmp";
-    public static final String NUM_OF_SEGMENTS_DEFAULT = "1";
+    public static final String NUM_OF_SEGMENTS_DEFAULT = "0";
+    /** Segments chosen from the table size and read budget */
+    public static final int AUTO_NUM_OF_SEGMENTS = 0;
     public static int MIN_NUM_OF_SEGMENTS = 1;
     public static int MAX_NUM_OF_SEGMENTS = 4096;
     public static final int NUM_OF_VIOLATIONS_DEFAULT = -1;
     public static final int NUM_OF_RECORDS_DEFAULT = -1;
     public static final String TEMP_CORRECTION_INPUT_PATH = "./correction_input.tmp";
     public static final String TEMP_CORRECTION_OUTPUT_PATH = "./correction_output.tmp";
+    public static final String NUM_OF_CORRECTION_WORKERS_DEFAULT = "1";
+    public static int MIN_NUM_OF_CORRECTION_WORKERS = 1;
+    public static int MAX_NUM_OF_CORRECTION_WORKERS = 1024;
+    public static final String MAX_IN_FLIGHT_UPDATES_DEFAULT = "0";
+    public static int MIN_MAX_IN_FLIGHT_UPDATES = 0;
+    public static int MAX_MAX_IN_FLIGHT_UPDATES = 1024;
+    public static final String DELETE_RETRY_TIMEOUT_SECONDS_DEFAULT = "300";
+    public static int MIN_DELETE_RETRY_TIMEOUT_SECONDS = 0;
+    public static int MAX_DELETE_RETRY_TIMEOUT_SECONDS = 86400;
+    public static final String DELETE_FAILURE_OUTPUT_PATH_DEFAULT = "./violation_delete_failures.csv";
+    public static final String CORRECTION_JOURNAL_DEFAULT = "false";
+    public static final String NUM_OF_CORRECTION_READER_THREADS_DEFAULT = "1";
+    public static int MIN_NUM_OF_CORRECTION_READER_THREADS = 1;
+    public static int MAX_NUM_OF_CORRECTION_READER_THREADS = 64;
+    public static final String STREAM_CORRECTION_INPUT_FROM_S3_DEFAULT = "false";
+    public static final String DEDUPE_CORRECTION_INPUT_DEFAULT = CorrectionDeduplicator.KEEP_NONE;
+    public static final String DEDUPE_MEMORY_MB_DEFAULT = "256";
+    public static int MIN_DEDUPE_MEMORY_MB = 16;
+    public static int MAX_DEDUPE_MEMORY_MB = 2048;
+    public static final String PRE_READ_CORRECTION_ITEMS_DEFAULT = "false";
+    public static final String FIX_SIZE_VIOLATION_DEFAULT = ViolationFixer.TRUNCATE;
+    public static final String FIX_TYPE_VIOLATION_DEFAULT = ViolationFixer.COERCE;
+    public static final String FIX_NUMBER_VIOLATION_DEFAULT = ViolationFixer.NONE;
+    public static final String FIX_AUDIT_OUTPUT_PATH_DEFAULT = "./violation_fix_audit.csv";
+    public static final String NUM_OF_FIX_WRITER_THREADS_DEFAULT = "1";
+    public static int MIN_NUM_OF_FIX_WRITER_THREADS = 1;
+    public static int MAX_NUM_OF_FIX_WRITER_THREADS = 1024;
+    public static final String CAPACITY_REFRESH_INTERVAL_SECONDS_DEFAULT = "300";
+    public static int MIN_CAPACITY_REFRESH_INTERVAL_SECONDS = 0;
+    public static int MAX_CAPACITY_REFRESH_INTERVAL_SECONDS = 86400;
+    public static final String ANALYTICS_REPORT_DEFAULT = "false";
+    public static final String ANALYTICS_REPORT_OUTPUT_PATH_DEFAULT = "./violation_analytics.json";
+    public static final String PROJECTED_TABLE_WRITE_RATE_DEFAULT = "0";
+    public static int MIN_PROJECTED_TABLE_WRITE_RATE = 0;
+    public static int MAX_PROJECTED_TABLE_WRITE_RATE = 100000000;
+    public static final String GSI_BACKFILL_ESTIMATE_DEFAULT = "false";
+    public static final String GSI_PROJECTION_TYPE_DEFAULT = "KEYS_ONLY";
+    public static final String GSI_WRITE_CAPACITY_UNITS_DEFAULT = "0";
+    public static int MIN_GSI_WRITE_CAPACITY_UNITS = 0;
+    public static int MAX_GSI_WRITE_CAPACITY_UNITS = 100000000;
+    public static final String ITEM_COLLECTION_ANALYSIS_DEFAULT = "false";
+    public static final String ITEM_COLLECTION_THRESHOLD_MB_DEFAULT = "9216";
+    public static int MIN_ITEM_COLLECTION_THRESHOLD_MB = 1;
+    public static int MAX_ITEM_COLLECTION_THRESHOLD_MB = 10240;
+    public static final String ITEM_COLLECTION_OUTPUT_PATH_DEFAULT = "./item_collection_sizes.csv";
+    public static final String ITEM_COLLECTION_MEMORY_MB_DEFAULT = "256";
+    public static int MIN_ITEM_COLLECTION_MEMORY_MB = 16;
+    public static int MAX_ITEM_COLLECTION_MEMORY_MB = 2048;
+    public static final String ITEM_COLLECTION_SPILL_DIRECTORY_DEFAULT = ".";
+    public static final String SCAN_PAGE_SIZE_DEFAULT = "0";
+    public static int MIN_SCAN_PAGE_SIZE = 0;
+    public static int MAX_SCAN_PAGE_SIZE = 100000;
+    public static final String NUM_OF_SCAN_THREADS_DEFAULT = "0";
+    public static int MIN_NUM_OF_SCAN_THREADS = 0;
+    public static int MAX_NUM_OF_SCAN_THREADS = 1024;
+    public static final String SCAN_MEMORY_PERCENT_DEFAULT = "25";
+    public static int MIN_SCAN_MEMORY_PERCENT = 0;
+    public static int MAX_SCAN_MEMORY_PERCENT = 90;
+    public static final String MAX_CONNECTIONS_DEFAULT = "0";
+    public static int MIN_MAX_CONNECTIONS = 0;
+    public static int MAX_MAX_CONNECTIONS = 10000;
+    public static final String CONNECTION_TIMEOUT_MILLIS_DEFAULT = "50000";
+    public static int MIN_CONNECTION_TIMEOUT_MILLIS = 0;
+    public static int MAX_CONNECTION_TIMEOUT_MILLIS = 600000;
+    public static final String SOCKET_TIMEOUT_MILLIS_DEFAULT = "50000";
+    public static int MIN_SOCKET_TIMEOUT_MILLIS = 0;
+    public static int MAX_SOCKET_TIMEOUT_MILLIS = 600000;
+    public static final String TCP_KEEP_ALIVE_DEFAULT = "true";
+    public static final String CONNECTION_TTL_MILLIS_DEFAULT = "-1";
+    public static int MIN_CONNECTION_TTL_MILLIS = -1;
+    public static int MAX_CONNECTION_TTL_MILLIS = 86400000;
+    public static final String RESPONSE_GZIP_DEFAULT = "false";
+    public static final String MAX_ERROR_RETRY_DEFAULT = "10";
+    public static int MIN_MAX_ERROR_RETRY = 0;
+    public static int MAX_MAX_ERROR_RETRY = 100;
+    public static final String STREAMING_SCAN_DECODER_DEFAULT = "false";
 
     /** Options provided by the users */
     private String credentialFilePath = null;
@@ -75,7 +194,7 @@ public class Options {
     private String tmpDetectionOutputPath = null;
     private String correctionOutputPath = null;
     private String tmpCorrectionOutputPath = null;
-    private int numOfSegments = 1;
+    private int numOfSegments = AUTO_NUM_OF_SEGMENTS;
     private long numOfViolations = -1;
     private long numOfRecords = -1;
     private int readWriteIOPSPercent = 25;
@@ -84,6 +203,45 @@ public class Options {
     private boolean isDetectionOutputS3Path = false;
     private boolean isInputS3path = false;
     private boolean isCorrectionOutputS3Path = false;
+    private int numOfCorrectionWorkers = 1;
+    private int maxInFlightUpdates = 0;
+    private int deleteRetryTimeoutSeconds = 300;
+    private String deleteFailureOutputPath = DELETE_FAILURE_OUTPUT_PATH_DEFAULT;
+    private boolean correctionJournal = false;
+    private int numOfCorrectionReaderThreads = 1;
+    private boolean streamCorrectionInputFromS3 = false;
+    private String dedupeCorrectionInput = DEDUPE_CORRECTION_INPUT_DEFAULT;
+    private int dedupeMemoryMB = 256;
+    private boolean preReadCorrectionItems = false;
+    private String fixSizeViolation = FIX_SIZE_VIOLATION_DEFAULT;
+    private String fixTypeViolation = FIX_TYPE_VIOLATION_DEFAULT;
+    private String fixNumberViolation = FIX_NUMBER_VIOLATION_DEFAULT;
+    private String fixAuditOutputPath = FIX_AUDIT_OUTPUT_PATH_DEFAULT;
+    private int numOfFixWriterThreads = 1;
+    private int capacityRefreshIntervalSeconds = 300;
+    private boolean analyticsReport = false;
+    private String analyticsReportOutputPath = ANALYTICS_REPORT_OUTPUT_PATH_DEFAULT;
+    private int projectedTableWriteRate = 0;
+    private boolean gsiBackfillEstimate = false;
+    private String gsiProjectionType = GSI_PROJECTION_TYPE_DEFAULT;
+    private List<String> gsiNonKeyAttributes = null;
+    private int gsiWriteCapacityUnits = 0;
+    private boolean itemCollectionAnalysis = false;
+    private int itemCollectionThresholdMB = 9216;
+    private String itemCollectionOutputPath = ITEM_COLLECTION_OUTPUT_PATH_DEFAULT;
+    private int itemCollectionMemoryMB = 256;
+    private String itemCollectionSpillDirectory = ITEM_COLLECTION_SPILL_DIRECTORY_DEFAULT;
+    private int scanPageSize = 0;
+    private int numOfScanThreads = 0;
+    private int scanMemoryPercent = 25;
+    private int maxConnections = 0;
+    private int connectionTimeoutMillis = 50000;
+    private int socketTimeoutMillis = 50000;
+    private boolean tcpKeepAlive = true;
+    private int connectionTTLMillis = -1;
+    private boolean responseGzip = false;
+    private int maxErrorRetry = 10;
+    private boolean streamingScanDecoder = false;
 
     private Options() {
     };
@@ -278,4 +436,335 @@ public class Options {
     public void setIsCorrectionOutputS3Path(boolean isCorrectionOutputS3Path) {
         this.isCorrectionOutputS3Path = isCorrectionOutputS3Path;
     }
+
+    public int getNumOfCorrectionWorkers() {
+        return numOfCorrectionWorkers;
+    }
+
+    public void setNumOfCorrectionWorkers(int numOfCorrectionWorkers) {
+        this.numOfCorrectionWorkers = numOfCorrectionWorkers;
+    }
+
+    public int getMaxInFlightUpdates() {
+        return maxInFlightUpdates;
+    }
+
+    public void setMaxInFlightUpdates(int maxInFlightUpdates) {
+        this.maxInFlightUpdates = maxInFlightUpdates;
+    }
+
+    /**
+     * Updates are sent with the async client only if in-flight updates are allowed.
+     */
+    public boolean isAsyncCorrection() {
+        return maxInFlightUpdates > 0;
+    }
+
+    public int getDeleteRetryTimeoutSeconds() {
+        return deleteRetryTimeoutSeconds;
+    }
+
+    public void setDeleteRetryTimeoutSeconds(int deleteRetryTimeoutSeconds) {
+        this.deleteRetryTimeoutSeconds = deleteRetryTimeoutSeconds;
+    }
+
+    public String getDeleteFailureOutputPath() {
+        return deleteFailureOutputPath;
+    }
+
+    public void setDeleteFailureOutputPath(String deleteFailureOutputPath) {
+        this.deleteFailureOutputPath = deleteFailureOutputPath;
+    }
+
+    public boolean isCorrectionJournal() {
+        return correctionJournal;
+    }
+
+    public void setCorrectionJournal(boolean correctionJournal) {
+        this.correctionJournal = correctionJournal;
+    }
+
+    public int getNumOfCorrectionReaderThreads() {
+        return numOfCorrectionReaderThreads;
+    }
+
+    public void setNumOfCorrectionReaderThreads(int numOfCorrectionReaderThreads) {
+        this.numOfCorrectionReaderThreads = numOfCorrectionReaderThreads;
+    }
+
+    public boolean isStreamCorrectionInputFromS3() {
+        return streamCorrectionInputFromS3;
+    }
+
+    public void setStreamCorrectionInputFromS3(boolean streamCorrectionInputFromS3) {
+        this.streamCorrectionInputFromS3 = streamCorrectionInputFromS3;
+    }
+
+    public String getDedupeCorrectionInput() {
+        return dedupeCorrectionInput;
+    }
+
+    public void setDedupeCorrectionInput(String dedupeCorrectionInput) {
+        this.dedupeCorrectionInput = dedupeCorrectionInput;
+    }
+
+    public boolean isDedupeCorrectionInput() {
+        return !CorrectionDeduplicator.KEEP_NONE.equals(dedupeCorrectionInput);
+    }
+
+    public int getDedupeMemoryMB() {
+        return dedupeMemoryMB;
+    }
+
+    public void setDedupeMemoryMB(int dedupeMemoryMB) {
+        this.dedupeMemoryMB = dedupeMemoryMB;
+    }
+
+    public boolean isPreReadCorrectionItems() {
+        return preReadCorrectionItems;
+    }
+
+    public void setPreReadCorrectionItems(boolean preReadCorrectionItems) {
+        this.preReadCorrectionItems = preReadCorrectionItems;
+    }
+
+    public String getFixSizeViolation() {
+        return fixSizeViolation;
+    }
+
+    public void setFixSizeViolation(String fixSizeViolation) {
+        this.fixSizeViolation = fixSizeViolation;
+    }
+
+    public String getFixTypeViolation() {
+        return fixTypeViolation;
+    }
+
+    public void setFixTypeViolation(String fixTypeViolation) {
+        this.fixTypeViolation = fixTypeViolation;
+    }
+
+    public String getFixNumberViolation() {
+        return fixNumberViolation;
+    }
+
+    public void setFixNumberViolation(String fixNumberViolation) {
+        this.fixNumberViolation = fixNumberViolation;
+    }
+
+    public String getFixAuditOutputPath() {
+        return fixAuditOutputPath;
+    }
+
+    public void setFixAuditOutputPath(String fixAuditOutputPath) {
+        this.fixAuditOutputPath = fixAuditOutputPath;
+    }
+
+    public int getNumOfFixWriterThreads() {
+        return numOfFixWriterThreads;
+    }
+
+    public void setNumOfFixWriterThreads(int numOfFixWriterThreads) {
+        this.numOfFixWriterThreads = numOfFixWriterThreads;
+    }
+
+    public int getCapacityRefreshIntervalSeconds() {
+        return capacityRefreshIntervalSeconds;
+    }
+
+    public void setCapacityRefreshIntervalSeconds(int capacityRefreshIntervalSeconds) {
+        this.capacityRefreshIntervalSeconds = capacityRefreshIntervalSeconds;
+    }
+
+    public boolean isAnalyticsReport() {
+        return analyticsReport;
+    }
+
+    public void setAnalyticsReport(boolean analyticsReport) {
+        this.analyticsReport = analyticsReport;
+    }
+
+    public String getAnalyticsReportOutputPath() {
+        return analyticsReportOutputPath;
+    }
+
+    public void setAnalyticsReportOutputPath(String analyticsReportOutputPath) {
+        this.analyticsReportOutputPath = analyticsReportOutputPath;
+    }
+
+    public int getProjectedTableWriteRate() {
+        return projectedTableWriteRate;
+    }
+
+    public void setProjectedTableWriteRate(int projectedTableWriteRate) {
+        this.projectedTableWriteRate = projectedTableWriteRate;
+    }
+
+    public boolean isGsiBackfillEstimate() {
+        return gsiBackfillEstimate;
+    }
+
+    public void setGsiBackfillEstimate(boolean gsiBackfillEstimate) {
+        this.gsiBackfillEstimate = gsiBackfillEstimate;
+    }
+
+    public String getGsiProjectionType() {
+        return gsiProjectionType;
+    }
+
+    public void setGsiProjectionType(String gsiProjectionType) {
+        this.gsiProjectionType = gsiProjectionType;
+    }
+
+    public List<String> getGsiNonKeyAttributes() {
+        return gsiNonKeyAttributes;
+    }
+
+    public void setGsiNonKeyAttributes(List<String> gsiNonKeyAttributes) {
+        this.gsiNonKeyAttributes = gsiNonKeyAttributes;
+    }
+
+    public int getGsiWriteCapacityUnits() {
+        return gsiWriteCapacityUnits;
+    }
+
+    public void setGsiWriteCapacityUnits(int gsiWriteCapacityUnits) {
+        this.gsiWriteCapacityUnits = gsiWriteCapacityUnits;
+    }
+
+    public boolean isItemCollectionAnalysis() {
+        return itemCollectionAnalysis;
+    }
+
+    public void setItemCollectionAnalysis(boolean itemCollectionAnalysis) {
+        this.itemCollectionAnalysis = itemCollectionAnalysis;
+    }
+
+    public int getItemCollectionThresholdMB() {
+        return itemCollectionThresholdMB;
+    }
+
+    public void setItemCollectionThresholdMB(int itemCollectionThresholdMB) {
+        this.itemCollectionThresholdMB = itemCollectionThresholdMB;
+    }
+
+    public String getItemCollectionOutputPath() {
+        return itemCollectionOutputPath;
+    }
+
+    public void setItemCollectionOutputPath(String itemCollectionOutputPath) {
+        this.itemCollectionOutputPath = itemCollectionOutputPath;
+    }
+
+    public int getItemCollectionMemoryMB() {
+        return itemCollectionMemoryMB;
+    }
+
+    public void setItemCollectionMemoryMB(int itemCollectionMemoryMB) {
+        this.itemCollectionMemoryMB = itemCollectionMemoryMB;
+    }
+
+    public String getItemCollectionSpillDirectory() {
+        return itemCollectionSpillDirectory;
+    }
+
+    public void setItemCollectionSpillDirectory(String itemCollectionSpillDirectory) {
+        this.itemCollectionSpillDirectory = itemCollectionSpillDirectory;
+    }
+
+    public int getScanPageSize() {
+        return scanPageSize;
+    }
+
+    public void setScanPageSize(int scanPageSize) {
+        this.scanPageSize = scanPageSize;
+    }
+
+    /**
+     * Number of threads scanning the segments, 0 to size it to the network
+     * concurrency.
+     */
+    public int getNumOfScanThreads() {
+        return numOfScanThreads;
+    }
+
+    public void setNumOfScanThreads(int numOfScanThreads) {
+        this.numOfScanThreads = numOfScanThreads;
+    }
+
+    /**
+     * Percent of the max heap the scan pages in flight may take, 0 if not
+     * bounded.
+     */
+    public int getScanMemoryPercent() {
+        return scanMemoryPercent;
+    }
+
+    public void setScanMemoryPercent(int scanMemoryPercent) {
+        this.scanMemoryPercent = scanMemoryPercent;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getConnectionTimeoutMillis() {
+        return connectionTimeoutMillis;
+    }
+
+    public void setConnectionTimeoutMillis(int connectionTimeoutMillis) {
+        this.connectionTimeoutMillis = connectionTimeoutMillis;
+    }
+
+    public int getSocketTimeoutMillis() {
+        return socketTimeoutMillis;
+    }
+
+    public void setSocketTimeoutMillis(int socketTimeoutMillis) {
+        this.socketTimeoutMillis = socketTimeoutMillis;
+    }
+
+    public boolean isTcpKeepAlive() {
+        return tcpKeepAlive;
+    }
+
+    public void setTcpKeepAlive(boolean tcpKeepAlive) {
+        this.tcpKeepAlive = tcpKeepAlive;
+    }
+
+    public int getConnectionTTLMillis() {
+        return connectionTTLMillis;
+    }
+
+    public void setConnectionTTLMillis(int connectionTTLMillis) {
+        this.connectionTTLMillis = connectionTTLMillis;
+    }
+
+    public boolean isResponseGzip() {
+        return responseGzip;
+    }
+
+    public void setResponseGzip(boolean responseGzip) {
+        this.responseGzip = responseGzip;
+    }
+
+    public int getMaxErrorRetry() {
+        return maxErrorRetry;
+    }
+
+    public void setMaxErrorRetry(int maxErrorRetry) {
+        this.maxErrorRetry = maxErrorRetry;
+    }
+
+    public boolean isStreamingScanDecoder() {
+        return streamingScanDecoder;
+    }
+
+    public void setStreamingScanDecoder(boolean streamingScanDecoder) {
+        this.streamingScanDecoder = streamingScanDecoder;
+    }
 }
@@ -0,0 +1,293 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.io.CharArrayReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Parse a local CSV file on several threads.
+ * 
+ * The file is memory mapped and split into chunks ending on record
+ * boundaries. The boundaries are found in parallel: each range of chunk size
+ * bytes is scanned on a worker thread for its number of quotes and its first
+ * new line both as if the range started outside and inside a quoted field.
+ * Knowing whether the previous ranges left a field quoted, the reader then
+ * picks the boundary of each range without reading its bytes, so a quoted
+ * field with new lines is never split. Chunks are parsed in parallel and
+ * their records are returned in file order. The file must be UTF-8 encoded.
+ */
+public class ParallelCSVReader {
+    public static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+    private static final int SCAN_WINDOW_SIZE = 1024 * 1024;
+
+    private CSVFormat format = CSVFormat.RFC4180.withDelimiter(',').withIgnoreEmptyLines(true);
+    private FileInputStream inputStream;
+    private FileChannel channel;
+    private long fileSize;
+    private int chunkSize;
+    private int maxPendingChunks;
+    private ExecutorService executor;
+
+    private List<String> header = null;
+    private long nextChunkStart = 0;
+    /** Ranges scanned for record boundaries, in file order */
+    private long nextRangeStart = 0;
+    private boolean isRangeStartInQuotes = false;
+    private LinkedList<Future<RangeScan>> pendingRanges = new LinkedList<Future<RangeScan>>();
+    private LinkedList<Future<List<String[]>>> pendingChunks = new LinkedList<Future<List<String[]>>>();
+    private Iterator<String[]> currentChunk = null;
+
+    public ParallelCSVReader(String csvFilePath, int numOfThreads) throws IOException {
+        this(csvFilePath, numOfThreads, DEFAULT_CHUNK_SIZE);
+    }
+
+    public ParallelCSVReader(String csvFilePath, int numOfThreads, int chunkSize) throws IOException {
+        this.inputStream = new FileInputStream(csvFilePath);
+        this.channel = inputStream.getChannel();
+        this.fileSize = channel.size();
+        this.chunkSize = chunkSize;
+        // Keep the threads busy while the records of a chunk are consumed
+        this.maxPendingChunks = numOfThreads * 2;
+        this.executor = Executors.newFixedThreadPool(numOfThreads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "csv-reader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        readHeader();
+    }
+
+    /**
+     * The first non empty record of the file.
+     */
+    public List<String> getHeader() {
+        return header;
+    }
+
+    /**
+     * @return values of the next record, or null if there are no more records
+     */
+    public String[] nextRecord() throws IOException {
+        while (currentChunk == null || !currentChunk.hasNext()) {
+            scheduleChunks();
+            if (pendingChunks.isEmpty()) {
+                close();
+                return null;
+            }
+            try {
+                currentChunk = pendingChunks.removeFirst().get().iterator();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading CSV file.", ie);
+            } catch (ExecutionException ee) {
+                throw new IOException("Failed to parse CSV file: " + ee.getCause().getMessage(), ee.getCause());
+            }
+        }
+        return currentChunk.next();
+    }
+
+    public void close() throws IOException {
+        executor.shutdownNow();
+        channel.close();
+        inputStream.close();
+    }
+
+    private void readHeader() throws IOException {
+        long start = skipEmptyLines(0);
+        long end = findRecordEnd(start, start);
+        List<String[]> records = parseChunk(start, end);
+        header = new ArrayList<String>();
+        if (!records.isEmpty()) {
+            for (String value : records.get(0)) {
+                header.add(value);
+            }
+        }
+        nextChunkStart = end;
+        nextRangeStart = end;
+    }
+
+    private void scheduleChunks() throws IOException {
+        while (pendingChunks.size() < maxPendingChunks && nextChunkStart < fileSize) {
+            scheduleRanges();
+            if (pendingRanges.isEmpty()) {
+                // The last record ends with the file
+                scheduleChunk(nextChunkStart, fileSize);
+                continue;
+            }
+            RangeScan range;
+            try {
+                range = pendingRanges.removeFirst().get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading CSV file.", ie);
+            } catch (ExecutionException ee) {
+                throw new IOException("Failed to scan CSV file: " + ee.getCause().getMessage(), ee.getCause());
+            }
+            long recordEnd = isRangeStartInQuotes ? range.recordEndStartingInQuotes : range.recordEndStartingOutOfQuotes;
+            if (range.isOddQuotes) {
+                isRangeStartInQuotes = !isRangeStartInQuotes;
+            }
+            // Without a boundary, the record goes on in the next range
+            if (recordEnd >= 0) {
+                scheduleChunk(nextChunkStart, recordEnd);
+            }
+        }
+    }
+
+    private void scheduleChunk(final long start, final long end) {
+        pendingChunks.add(executor.submit(new Callable<List<String[]>>() {
+            @Override
+            public List<String[]> call() throws IOException {
+                return parseChunk(start, end);
+            }
+        }));
+        nextChunkStart = end;
+    }
+
+    private void scheduleRanges() {
+        while (pendingRanges.size() < maxPendingChunks && nextRangeStart < fileSize) {
+            final long start = nextRangeStart;
+            final long end = Math.min(start + chunkSize, fileSize);
+            pendingRanges.add(executor.submit(new Callable<RangeScan>() {
+                @Override
+                public RangeScan call() throws IOException {
+                    return scanRange(start, end);
+                }
+            }));
+            nextRangeStart = end;
+        }
+    }
+
+    /**
+     * Quotes and first record ends of a range, for both states the range may
+     * start in.
+     */
+    protected static class RangeScan {
+        protected boolean isOddQuotes = false;
+        /** Offset after the first new line ending a record, -1 if none */
+        protected long recordEndStartingOutOfQuotes = -1;
+        protected long recordEndStartingInQuotes = -1;
+    }
+
+    protected RangeScan scanRange(long start, long end) throws IOException {
+        RangeScan range = new RangeScan();
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        // Whether a quote is open, for a range starting out of quotes
+        boolean inQuotes = false;
+        for (int i = 0; i < end - start; i++) {
+            byte b = buffer.get(i);
+            if (b == '"') {
+                // An escaped quote toggles twice
+                inQuotes = !inQuotes;
+            } else if (b == '\n') {
+                if (!inQuotes && range.recordEndStartingOutOfQuotes < 0) {
+                    range.recordEndStartingOutOfQuotes = start + i + 1;
+                } else if (inQuotes && range.recordEndStartingInQuotes < 0) {
+                    range.recordEndStartingInQuotes = start + i + 1;
+                }
+            }
+        }
+        range.isOddQuotes = inQuotes;
+        return range;
+    }
+
+    private long skipEmptyLines(long position) throws IOException {
+        while (position < fileSize) {
+            long windowSize = Math.min(SCAN_WINDOW_SIZE, fileSize - position);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+            for (int i = 0; i < windowSize; i++) {
+                byte b = buffer.get(i);
+                if (b != '\r' && b != '\n') {
+                    return position + i;
+                }
+            }
+            position += windowSize;
+        }
+        return position;
+    }
+
+    /**
+     * Find the end of the first record ending at or after the given position,
+     * scanning from the given record start to know if the position is quoted.
+     * Only used for the header, the other boundaries are found in parallel.
+     * 
+     * @return offset after the new line ending the record, or the file size
+     */
+    protected long findRecordEnd(long recordStart, long position) throws IOException {
+        long offset = recordStart;
+        boolean inQuotes = false;
+        while (offset < fileSize) {
+            long windowSize = Math.min(Math.max(position - offset, 0) + SCAN_WINDOW_SIZE, fileSize - offset);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, windowSize);
+            for (int i = 0; i < windowSize; i++) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    // An escaped quote toggles twice
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes && offset + i >= position) {
+                    return offset + i + 1;
+                }
+            }
+            offset += windowSize;
+        }
+        return fileSize;
+    }
+
+    protected List<String[]> parseChunk(long start, long end) throws IOException {
+        List<String[]> records = new ArrayList<String[]>();
+        if (start >= end) {
+            return records;
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        CharBuffer chars = StandardCharsets.UTF_8.decode(buffer);
+        Reader reader = new CharArrayReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+        CSVParser parser = new CSVParser(reader, format);
+        try {
+            for (CSVRecord record : parser) {
+                String[] values = new String[record.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = record.get(i);
+                }
+                records.add(values);
+            }
+        } finally {
+            parser.close();
+        }
+        return records;
+    }
+}
@@ -111,6 +111,17 @@ public class PrintHelper {
         logger.info(message);
     }
 
+    public static void printAnalyticsReportInfo(String outputPath) {
+        logger.info("Violation analytics report written to: " + outputPath);
+    }
+
+    public static void printItemCollectionSummary(long itemsAnalyzed, long distinctHashKeys, long hashKeysOverThreshold, long largestCollectionBytes,
+            String outputPath) {
+        logger.info("Item collection analysis: Items analyzed: " + itemsAnalyzed + ", Distinct table hash keys: " + distinctHashKeys
+                + ", Largest estimated item collection: " + largestCollectionBytes + " bytes, Hash keys over threshold: " + hashKeysOverThreshold
+                + ", written to: " + outputPath);
+    }
+
     public static void printDeleteStartInfo(String inputFilePath) {
         String message = "Violation correction from file started: " + "Reading records from file: " + inputFilePath + ", will delete these records from table.";
         logger.info(message);
@@ -154,4 +165,74 @@ public class PrintHelper {
         logger.info(message);
     }
 
+    public static void printDeleteFailureSummary(long failedDeletes, String outputFile) {
+        if (failedDeletes == 0) {
+            return;
+        }
+        String message = "WARNING: " + failedDeletes + " items were still unprocessed when " + Options.DELETE_RETRY_TIMEOUT_SECONDS
+                + " elapsed, see their keys at: " + outputFile + ", give this file as " + Options.CORRECTION_INPUT_PATH
+                + " to delete them with correction in delete mode.";
+        logger.warn(message);
+    }
+
+    public static void printDuplicateKeySummary(long duplicatesRemoved, String keep) {
+        String message = "Duplicate table keys removed from correction input: " + duplicatesRemoved + ", kept the " + keep + " occurrence of each key.";
+        logger.info(message);
+    }
+
+    public static void printAlreadyFixedSummary(long alreadyFixedRecords) {
+        String message = "Records skipped because their item no longer has the detected GSI key values: " + alreadyFixedRecords;
+        logger.info(message);
+    }
+
+    public static void printFixSummary(long fixed, long changedSinceScan, long notFixed, long unexpectedErrors, String auditFile) {
+        String message = "Violation fix finished: Items fixed: " + fixed + ", Items changed since scan: " + changedSinceScan
+                + ", Items not fixed by the configured transforms: " + notFixed + ", Unexpected errors: " + unexpectedErrors
+                + ", see the values before and after each fix at: " + auditFile;
+        logger.info(message);
+    }
+
+    public static void printDryRunStartInfo(String inputFilePath) {
+        String message = "Dry run of violation correction from file: " + inputFilePath + ", no request will be sent to the table.";
+        logger.info(message);
+    }
+
+    public static void printDryRunSummary(long rows, long invalidRows, long writes, long tableWriteUnits, long gsiWriteUnits, double writeUnitsPerSecond,
+            long projectedSeconds) {
+        String message = "Dry run of violation correction finished: Rows: " + rows + ", Invalid rows: " + invalidRows + ", Write requests: " + writes
+                + ", Estimated write units: " + (tableWriteUnits + gsiWriteUnits) + " (table: " + tableWriteUnits + ", GSIs: " + gsiWriteUnits + ")";
+        if (projectedSeconds < 0) {
+            message += ", Projected runtime unknown, the table has no provisioned write capacity.";
+        } else {
+            message += ", Projected runtime at " + writeUnitsPerSecond + " table write units per second and the same share of each GSI write capacity: "
+                    + projectedSeconds + " seconds.";
+        }
+        logger.info(message);
+    }
+
+    public static void printScanSizing(long tableSizeBytes, double readUnitsPerSecond, int numOfCores, int numOfSegments, int numOfScanThreads,
+            String reason) {
+        String message = "Scan sizing: Table size: " + tableSizeBytes + " bytes, Read capacity used: "
+                + (readUnitsPerSecond > 0 ? (long) readUnitsPerSecond + " units per second" : "unbounded") + ", Cores: " + numOfCores + ", "
+                + Options.NUM_OF_SEGMENTS + ": " + numOfSegments + ", " + Options.NUM_OF_SCAN_THREADS + ": " + numOfScanThreads + " (" + reason
+                + "). The table size is updated by DynamoDB about every six hours.";
+        logger.info(message);
+    }
+
+    public static void printScanMemorySummary(int budgetKB, int peakInFlightKB, long numOfWaits) {
+        String message = "Scan memory: Budget for the pages in flight: " + budgetKB + " KB, Peak reserved: " + peakInFlightKB + " KB, Scan calls delayed: "
+                + numOfWaits + (numOfWaits > 0 ? ", raise " + Options.SCAN_MEMORY_PERCENT + " or the max heap to scan with more threads at once." : ".");
+        logger.info(message);
+    }
+
+    public static void printScanEstimate(long tableSizeBytes, long itemCount, long readCapacityUnits, double totalReadUnits, long pages,
+            int readWriteIOPSPercent, int numOfSegments, long estimatedSeconds, int recommendedSegments) {
+        String message = "Scan estimate: Table size: " + tableSizeBytes + " bytes, Items: " + itemCount + ", Provisioned read capacity: "
+                + (readCapacityUnits > 0 ? String.valueOf(readCapacityUnits) : "none") + ", Expected read units: " + (long) Math.ceil(totalReadUnits)
+                + " in about " + pages + " pages, Expected time with " + Options.READ_WRITE_IOPS_PERCENT + " " + readWriteIOPSPercent + " and "
+                + Options.NUM_OF_SEGMENTS + " " + numOfSegments + ": " + estimatedSeconds + " seconds, Recommended " + Options.NUM_OF_SEGMENTS + ": "
+                + recommendedSegments + ".";
+        logger.info(message);
+    }
+
 }
@@ -0,0 +1,189 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+
+/**
+ * Stream an S3 object with several ranged GETs sent in parallel. Ranges are
+ * fetched ahead of the reader and returned in object order, so reading can
+ * start as soon as the first range arrives.
+ */
+public class S3RangedInputStream extends InputStream {
+    public static final int DEFAULT_RANGE_SIZE = 8 * 1024 * 1024;
+    public static final int DEFAULT_NUM_OF_PARALLEL_RANGES = 8;
+    public static final int MAX_RANGE_ATTEMPTS = 3;
+    public static final long RANGE_RETRY_BASE_DELAY_MILLIS = 100;
+    public static final long RANGE_RETRY_MAX_DELAY_MILLIS = 5000;
+
+    private AmazonS3Client s3Client;
+    private String bucketName;
+    private String key;
+    private long objectSize;
+    private int rangeSize;
+    private int numOfParallelRanges;
+    private ExecutorService executor;
+
+    private long nextRangeStart = 0;
+    private LinkedList<Future<byte[]>> pendingRanges = new LinkedList<Future<byte[]>>();
+    private byte[] currentRange = null;
+    private int positionInRange = 0;
+    private Random random = new Random();
+
+    public S3RangedInputStream(AmazonS3Client s3Client, String bucketName, String key) {
+        this(s3Client, bucketName, key, DEFAULT_RANGE_SIZE, DEFAULT_NUM_OF_PARALLEL_RANGES);
+    }
+
+    public S3RangedInputStream(AmazonS3Client s3Client, String bucketName, String key, int rangeSize, int numOfParallelRanges) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.rangeSize = rangeSize;
+        this.numOfParallelRanges = numOfParallelRanges;
+        this.objectSize = s3Client.getObjectMetadata(bucketName, key).getContentLength();
+        this.executor = Executors.newFixedThreadPool(numOfParallelRanges, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "s3-range-reader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduleRanges();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!hasDataInCurrentRange()) {
+            return -1;
+        }
+        return currentRange[positionInRange++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!hasDataInCurrentRange()) {
+            return -1;
+        }
+        int bytesRead = Math.min(length, currentRange.length - positionInRange);
+        System.arraycopy(currentRange, positionInRange, buffer, offset, bytesRead);
+        positionInRange += bytesRead;
+        return bytesRead;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private boolean hasDataInCurrentRange() throws IOException {
+        while (currentRange == null || positionInRange >= currentRange.length) {
+            scheduleRanges();
+            if (pendingRanges.isEmpty()) {
+                return false;
+            }
+            try {
+                currentRange = pendingRanges.removeFirst().get();
+                positionInRange = 0;
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading s3://" + bucketName + "/" + key, ie);
+            } catch (ExecutionException ee) {
+                throw new IOException("Failed to read s3://" + bucketName + "/" + key + ": " + ee.getCause().getMessage(), ee.getCause());
+            }
+        }
+        return true;
+    }
+
+    private void scheduleRanges() {
+        while (pendingRanges.size() < numOfParallelRanges && nextRangeStart < objectSize) {
+            final long start = nextRangeStart;
+            final long end = Math.min(start + rangeSize, objectSize) - 1;
+            pendingRanges.add(executor.submit(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws IOException {
+                    return fetchRange(start, end);
+                }
+            }));
+            nextRangeStart = end + 1;
+        }
+    }
+
+    /**
+     * Get the bytes from start to end, both inclusive. A range whose
+     * connection fails while reading is fetched again after a backoff with
+     * full jitter, so that the parallel ranges do not retry together.
+     */
+    protected byte[] fetchRange(long start, long end) throws IOException {
+        byte[] range = new byte[(int) (end - start + 1)];
+        for (int attempt = 1;; attempt++) {
+            S3Object object = null;
+            try {
+                object = s3Client.getObject(new GetObjectRequest(bucketName, key).withRange(start, end));
+                InputStream in = object.getObjectContent();
+                int offset = 0;
+                while (offset < range.length) {
+                    int bytesRead = in.read(range, offset, range.length - offset);
+                    if (bytesRead < 0) {
+                        throw new IOException("Range " + start + "-" + end + " ended after " + offset + " bytes.");
+                    }
+                    offset += bytesRead;
+                }
+                return range;
+            } catch (IOException ioe) {
+                if (attempt >= MAX_RANGE_ATTEMPTS) {
+                    throw ioe;
+                }
+            } catch (AmazonClientException ace) {
+                if (attempt >= MAX_RANGE_ATTEMPTS) {
+                    throw ace;
+                }
+            } finally {
+                if (object != null) {
+                    object.close();
+                }
+            }
+            try {
+                Thread.sleep(getRangeRetryDelayMillis(attempt));
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while retrying range " + start + "-" + end, ie);
+            }
+        }
+    }
+
+    protected long getRangeRetryDelayMillis(int attempts) {
+        long maxDelay = RANGE_RETRY_BASE_DELAY_MILLIS << Math.min(attempts, 20);
+        maxDelay = Math.min(maxDelay, RANGE_RETRY_MAX_DELAY_MILLIS);
+        return (long) (random.nextDouble() * maxDelay);
+    }
+}
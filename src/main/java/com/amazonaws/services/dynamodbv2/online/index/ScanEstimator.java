@@ -0,0 +1,133 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+
+/**
+ * Estimate the read units and time a detection scan takes, from the table
+ * size and item count given by DescribeTable and a calibration scan of the
+ * first page of a few segments.
+ */
+public class ScanEstimator {
+    public static final int NUM_OF_CALIBRATION_SEGMENTS = 4;
+    /** Parallel scans are advised one segment per 2 GB of table */
+    public static final long BYTES_PER_SEGMENT = 2L * 1024 * 1024 * 1024;
+    private static final long MAX_PAGE_BYTES = 1024 * 1024;
+
+    private Options options;
+    private TableHelper tableHelper;
+    private AmazonDynamoDB dynamoDBClient;
+    private boolean isRunningOnDDBLocal;
+
+    /** Estimate */
+    private double totalReadUnits = 0;
+    private long numOfPages = 0;
+    private long estimatedSeconds = 0;
+    private int recommendedSegments = 1;
+
+    public ScanEstimator(Options options, TableHelper tableHelper, AmazonDynamoDB dynamoDBClient, boolean isRunningOnDDBLocal) {
+        this.options = options;
+        this.tableHelper = tableHelper;
+        this.dynamoDBClient = dynamoDBClient;
+        this.isRunningOnDDBLocal = isRunningOnDDBLocal;
+    }
+
+    public void estimate() {
+        new ScanSizer(options, tableHelper).resolve();
+        TableRWRateLimiter tableReadRateLimiter = null;
+        if (!isRunningOnDDBLocal && tableHelper.getReadCapacityUnits() > 0) {
+            tableReadRateLimiter = new TableRWRateLimiter(tableHelper.getReadCapacityUnits(), options.getReadWriteIOPSPercent(), 1);
+        }
+        double consumedReadUnits = 0;
+        long scannedCount = 0;
+        int pages = 0;
+        long latencyMillis = 0;
+        for (int segment = 0; segment < NUM_OF_CALIBRATION_SEGMENTS; segment++) {
+            ScanRequest scanRequest = new ScanRequest().withTableName(options.getTableName())
+                    .withAttributesToGet(tableHelper.getListOfAttributesToFetch(options.getGsiHashKeyName(), options.getGsiRangeKeyName()))
+                    .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL).withTotalSegments(NUM_OF_CALIBRATION_SEGMENTS).withSegment(segment);
+            long start = System.currentTimeMillis();
+            ScanResult scanResult = dynamoDBClient.scan(scanRequest);
+            latencyMillis += System.currentTimeMillis() - start;
+            pages++;
+            scannedCount += scanResult.getScannedCount() == null ? 0 : scanResult.getScannedCount();
+            if (scanResult.getConsumedCapacity() != null) {
+                consumedReadUnits += scanResult.getConsumedCapacity().getCapacityUnits();
+                if (tableReadRateLimiter != null) {
+                    tableReadRateLimiter.adjustRateWithConsumedCapacity(scanResult.getConsumedCapacity());
+                }
+            }
+        }
+        computeEstimate(consumedReadUnits, scannedCount, pages, latencyMillis);
+        PrintHelper.printScanEstimate(tableHelper.getTableSizeBytes(), tableHelper.getItemCount(), tableHelper.getReadCapacityUnits(), totalReadUnits,
+                numOfPages, options.getReadWriteIOPSPercent(), options.getNumOfSegments(), estimatedSeconds, recommendedSegments);
+    }
+
+    /**
+     * The read units of an item are taken from the calibration scan, as a
+     * scan is charged on whole items even when only the keys are returned.
+     * The time is bounded by the read rate at readWriteIOPSPercent and by
+     * the page latency of each scan thread.
+     */
+    protected void computeEstimate(double consumedReadUnits, long scannedCount, int pages, long latencyMillis) {
+        long tableSizeBytes = tableHelper.getTableSizeBytes();
+        long itemCount = tableHelper.getItemCount();
+        if (scannedCount > 0 && itemCount > 0) {
+            totalReadUnits = itemCount * consumedReadUnits / scannedCount;
+        } else {
+            // Scans are eventually consistent reads
+            totalReadUnits = ItemSizeCalculator.getReadUnits(tableSizeBytes, false);
+        }
+
+        double readUnitsPerPage = ItemSizeCalculator.getReadUnits(MAX_PAGE_BYTES, false);
+        numOfPages = Math.max(1, (long) Math.ceil(totalReadUnits / readUnitsPerPage));
+        double secondsPerPage = pages > 0 ? latencyMillis / 1000.0 / pages : 0;
+
+        double readUnitsPerSecond = tableHelper.getReadCapacityUnits() * options.getReadWriteIOPSPercent() / 100.0;
+        double latencyBoundSeconds = numOfPages * secondsPerPage / options.getNumOfScanThreads();
+        if (readUnitsPerSecond > 0) {
+            double rateBoundSeconds = totalReadUnits / readUnitsPerSecond;
+            estimatedSeconds = (long) Math.ceil(Math.max(rateBoundSeconds, latencyBoundSeconds));
+            // Enough segments so that page latency does not slow the scan below the read rate
+            double readUnitsPerSecondPerSegment = secondsPerPage > 0 ? readUnitsPerPage / secondsPerPage : readUnitsPerSecond;
+            recommendedSegments = (int) Math.ceil(readUnitsPerSecond / readUnitsPerSecondPerSegment);
+        } else {
+            // No provisioned read capacity, only the latency bounds the scan
+            estimatedSeconds = (long) Math.ceil(latencyBoundSeconds);
+            recommendedSegments = (int) Math.ceil((double) tableSizeBytes / BYTES_PER_SEGMENT);
+        }
+        recommendedSegments = Math.min(Math.max(recommendedSegments, Options.MIN_NUM_OF_SEGMENTS), Options.MAX_NUM_OF_SEGMENTS);
+    }
+
+    public double getTotalReadUnits() {
+        return totalReadUnits;
+    }
+
+    public long getNumOfPages() {
+        return numOfPages;
+    }
+
+    public long getEstimatedSeconds() {
+        return estimatedSeconds;
+    }
+
+    public int getRecommendedSegments() {
+        return recommendedSegments;
+    }
+}
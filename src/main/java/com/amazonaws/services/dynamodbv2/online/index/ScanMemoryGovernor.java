@@ -0,0 +1,137 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+
+/**
+ * Bound the memory held by the scan pages in flight, shared by all the scan
+ * threads. A scan call is sent only once the estimated bytes of its page
+ * are reserved from the budget, and they are given back once the page is
+ * checked, so the threads beyond what the budget allows wait instead of
+ * filling the heap.
+ * 
+ * The budget is kept in KB. A page is estimated from the read units of the
+ * last pages, starting from the 1 MB a page may read, times the memory its
+ * items take once unmarshalled. A page never reserves more than the whole
+ * budget, so one page is always admitted.
+ */
+public class ScanMemoryGovernor {
+    /** A scan page reads at most 1 MB */
+    public static final long MAX_PAGE_BYTES = 1024 * 1024;
+    /** Scans are eventually consistent reads, a read unit reads 8 KB */
+    public static final long BYTES_PER_READ_UNIT = 8 * 1024;
+    /** Items unmarshalled by the SDK take several times their size in the response */
+    public static final int SDK_INFLATION = 4;
+    /** The streaming decoder only builds the items that may be violations */
+    public static final int DECODER_INFLATION = 1;
+
+    private Semaphore permits;
+    private int budgetKB;
+    private int inflation;
+    private volatile long pageBytesEstimate = MAX_PAGE_BYTES;
+
+    /** Statistics */
+    private AtomicInteger inFlightKB = new AtomicInteger(0);
+    private AtomicInteger peakInFlightKB = new AtomicInteger(0);
+    private AtomicLong numOfWaits = new AtomicLong(0);
+
+    public ScanMemoryGovernor(long budgetBytes, int inflation) {
+        this.budgetKB = (int) Math.max(1, Math.min(Integer.MAX_VALUE, budgetBytes / 1024));
+        this.inflation = inflation;
+        this.permits = new Semaphore(budgetKB, true /* fair */);
+    }
+
+    public ScanMemoryGovernor(Options options) {
+        this(getBudgetBytes(options.getScanMemoryPercent()), getInflation(options));
+    }
+
+    public static long getBudgetBytes(int scanMemoryPercent) {
+        return Runtime.getRuntime().maxMemory() / 100 * scanMemoryPercent;
+    }
+
+    public static int getInflation(Options options) {
+        return options.isStreamingScanDecoder() ? DECODER_INFLATION : SDK_INFLATION;
+    }
+
+    /**
+     * Number of pages of 1 MB the budget holds at once, at least 1.
+     */
+    public static int getMaxPagesInFlight(long budgetBytes, int inflation) {
+        return (int) Math.max(1, budgetBytes / (MAX_PAGE_BYTES * inflation));
+    }
+
+    /**
+     * Wait until the estimated bytes of a page are reserved, returns the KB
+     * reserved to be given back to release.
+     */
+    public int acquire() {
+        int reservedKB = getPageReservationKB();
+        if (!permits.tryAcquire(reservedKB)) {
+            numOfWaits.incrementAndGet();
+            permits.acquireUninterruptibly(reservedKB);
+        }
+        int current = inFlightKB.addAndGet(reservedKB);
+        int peak;
+        while (current > (peak = peakInFlightKB.get()) && !peakInFlightKB.compareAndSet(peak, current)) {
+        }
+        return reservedKB;
+    }
+
+    /**
+     * Give back the KB reserved for a page, the consumed capacity of the
+     * page, null if not returned, updates the page estimate.
+     */
+    public void release(int reservedKB, ConsumedCapacity consumedCapacity) {
+        inFlightKB.addAndGet(-reservedKB);
+        permits.release(reservedKB);
+        if (consumedCapacity != null && consumedCapacity.getCapacityUnits() != null && consumedCapacity.getCapacityUnits() > 0) {
+            updatePageBytesEstimate((long) (consumedCapacity.getCapacityUnits() * BYTES_PER_READ_UNIT));
+        }
+    }
+
+    /**
+     * The estimate follows a larger page at once and a smaller one slowly.
+     */
+    protected synchronized void updatePageBytesEstimate(long pageBytes) {
+        pageBytes = Math.min(pageBytes, MAX_PAGE_BYTES);
+        pageBytesEstimate = Math.max(pageBytes, (pageBytesEstimate * 7 + pageBytes) / 8);
+    }
+
+    protected int getPageReservationKB() {
+        long reservedKB = (pageBytesEstimate * inflation + 1023) / 1024;
+        return (int) Math.max(1, Math.min(budgetKB, reservedKB));
+    }
+
+    public int getBudgetKB() {
+        return budgetKB;
+    }
+
+    public long getPageBytesEstimate() {
+        return pageBytesEstimate;
+    }
+
+    public int getPeakInFlightKB() {
+        return peakInFlightKB.get();
+    }
+
+    public long getNumOfWaits() {
+        return numOfWaits.get();
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+
+/**
+ * One page of a scan decoded by {@link ScanResponseDecoder}: the counts,
+ * consumed capacity and last evaluated key of the page, and only the items
+ * that may violate the GSI keys, with their index in the page.
+ */
+public class ScanPage {
+    private int count = 0;
+    private int scannedCount = 0;
+    private ConsumedCapacity consumedCapacity = null;
+    private Map<String, AttributeValue> lastEvaluatedKey = null;
+    private List<Map<String, AttributeValue>> violationCandidates = new ArrayList<Map<String, AttributeValue>>();
+    private List<Integer> violationCandidateIndexes = new ArrayList<Integer>();
+
+    /**
+     * Number of items returned in the page.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public int getScannedCount() {
+        return scannedCount;
+    }
+
+    public void setScannedCount(int scannedCount) {
+        this.scannedCount = scannedCount;
+    }
+
+    public ConsumedCapacity getConsumedCapacity() {
+        return consumedCapacity;
+    }
+
+    public void setConsumedCapacity(ConsumedCapacity consumedCapacity) {
+        this.consumedCapacity = consumedCapacity;
+    }
+
+    /**
+     * Null when the scan of the segment is complete.
+     */
+    public Map<String, AttributeValue> getLastEvaluatedKey() {
+        return lastEvaluatedKey;
+    }
+
+    public void setLastEvaluatedKey(Map<String, AttributeValue> lastEvaluatedKey) {
+        this.lastEvaluatedKey = lastEvaluatedKey;
+    }
+
+    public void addViolationCandidate(Map<String, AttributeValue> item, int index) {
+        violationCandidates.add(item);
+        violationCandidateIndexes.add(index);
+    }
+
+    /**
+     * Items that may violate the GSI keys, in page order.
+     */
+    public List<Map<String, AttributeValue>> getViolationCandidates() {
+        return violationCandidates;
+    }
+
+    /**
+     * Index in the page of each violation candidate.
+     */
+    public List<Integer> getViolationCandidateIndexes() {
+        return violationCandidateIndexes;
+    }
+}
@@ -0,0 +1,407 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.Capacity;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Decode the JSON response of a Scan as it streams in, without creating the
+ * attribute values of every item.
+ * 
+ * Only the table key and GSI key attributes of an item are kept, in buffers
+ * reused from item to item, and the GSI key checks of
+ * {@link ViolationChecker} are run on them. An item is materialized into an
+ * attribute value map only when one of its GSI keys may be a violation, it
+ * is then checked again by the violation checker. So the scan must only
+ * get the key attributes, other attributes are skipped. Not thread safe,
+ * each scan thread should use its own decoder.
+ */
+public class ScanResponseDecoder {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /** Response fields */
+    private static final String CONSUMED_CAPACITY = "ConsumedCapacity";
+    private static final String COUNT = "Count";
+    private static final String ITEMS = "Items";
+    private static final String LAST_EVALUATED_KEY = "LastEvaluatedKey";
+    private static final String SCANNED_COUNT = "ScannedCount";
+    private static final String CAPACITY_UNITS = "CapacityUnits";
+    private static final String TABLE_NAME = "TableName";
+    private static final String TABLE = "Table";
+    private static final String GLOBAL_SECONDARY_INDEXES = "GlobalSecondaryIndexes";
+    private static final String LOCAL_SECONDARY_INDEXES = "LocalSecondaryIndexes";
+
+    /** Attribute value types */
+    private static final String S = "S";
+    private static final String N = "N";
+    private static final String B = "B";
+    private static final String SS = "SS";
+    private static final String NS = "NS";
+    private static final String BS = "BS";
+    private static final String M = "M";
+    private static final String L = "L";
+    private static final String BOOL = "BOOL";
+    private static final String NULL = "NULL";
+
+    /**
+     * A kept attribute of the current item, a scalar is kept as its JSON
+     * text, other types as an attribute value.
+     */
+    private static class KeptAttribute {
+        private String name;
+        private boolean present = false;
+        private String type = null;
+        private StringBuilder text = new StringBuilder();
+        private AttributeValue value = null;
+
+        private KeptAttribute(String name) {
+            this.name = name;
+        }
+    }
+
+    private Map<String, KeptAttribute> keptAttributes = new HashMap<String, KeptAttribute>();
+    private KeptAttribute gsiHashKey = null;
+    private String gsiHashKeyType;
+    private KeptAttribute gsiRangeKey = null;
+    private String gsiRangeKeyType;
+    private NumberValidator numberValidator = new NumberValidator();
+
+    public ScanResponseDecoder(String tableHashKeyName, String tableRangeKeyName, String gsiHashKeyName, String gsiHashKeyType, String gsiRangeKeyName,
+            String gsiRangeKeyType) {
+        keep(tableHashKeyName);
+        keep(tableRangeKeyName);
+        if (gsiHashKeyName != null) {
+            gsiHashKey = keep(gsiHashKeyName);
+            this.gsiHashKeyType = gsiHashKeyType;
+        }
+        if (gsiRangeKeyName != null) {
+            gsiRangeKey = keep(gsiRangeKeyName);
+            this.gsiRangeKeyType = gsiRangeKeyType;
+        }
+    }
+
+    public ScanResponseDecoder(Options options, TableHelper tableHelper) {
+        this(tableHelper.getTableHashKeyName(), tableHelper.getTableRangeKeyName(), options.getGsiHashKeyName(), options.getGsiHashKeyType(),
+                options.getGsiRangeKeyName(), options.getGsiRangeKeyType());
+    }
+
+    private KeptAttribute keep(String name) {
+        if (name == null) {
+            return null;
+        }
+        KeptAttribute attribute = keptAttributes.get(name);
+        if (attribute == null) {
+            attribute = new KeptAttribute(name);
+            keptAttributes.put(name, attribute);
+        }
+        return attribute;
+    }
+
+    /**
+     * Decode a Scan response. The input is not closed, it is left to the
+     * caller.
+     */
+    public ScanPage decode(InputStream input) throws IOException {
+        JsonParser parser = JSON_FACTORY.createParser(input);
+        parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        try {
+            return decode(parser);
+        } finally {
+            parser.close();
+        }
+    }
+
+    protected ScanPage decode(JsonParser parser) throws IOException {
+        ScanPage scanPage = new ScanPage();
+        expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (COUNT.equals(field)) {
+                scanPage.setCount(parser.getIntValue());
+            } else if (SCANNED_COUNT.equals(field)) {
+                scanPage.setScannedCount(parser.getIntValue());
+            } else if (ITEMS.equals(field)) {
+                expect(parser, token, JsonToken.START_ARRAY);
+                int index = 0;
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    decodeItem(parser);
+                    if (isViolationCandidate()) {
+                        scanPage.addViolationCandidate(materializeItem(), index);
+                    }
+                    index++;
+                }
+            } else if (LAST_EVALUATED_KEY.equals(field)) {
+                expect(parser, token, JsonToken.START_OBJECT);
+                scanPage.setLastEvaluatedKey(parseAttributeMap(parser));
+            } else if (CONSUMED_CAPACITY.equals(field)) {
+                expect(parser, token, JsonToken.START_OBJECT);
+                scanPage.setConsumedCapacity(parseConsumedCapacity(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return scanPage;
+    }
+
+    private static void expect(JsonParser parser, JsonToken token, JsonToken expected) throws JsonParseException {
+        if (token != expected) {
+            throw new JsonParseException("Expected " + expected + " but found " + token + " in Scan response.", parser.getCurrentLocation());
+        }
+    }
+
+    /**
+     * Keep the key attributes of the item, the parser is on the start of the
+     * item and ends on its end.
+     */
+    private void decodeItem(JsonParser parser) throws IOException {
+        for (KeptAttribute attribute : keptAttributes.values()) {
+            attribute.present = false;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            KeptAttribute attribute = keptAttributes.get(parser.getCurrentName());
+            JsonToken token = parser.nextToken();
+            if (attribute == null) {
+                parser.skipChildren();
+                continue;
+            }
+            expect(parser, token, JsonToken.START_OBJECT);
+            expect(parser, parser.nextToken(), JsonToken.FIELD_NAME);
+            String type = parser.getCurrentName();
+            token = parser.nextToken();
+            attribute.present = true;
+            attribute.type = type;
+            if (token == JsonToken.VALUE_STRING && (S.equals(type) || N.equals(type) || B.equals(type))) {
+                attribute.text.setLength(0);
+                attribute.text.append(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                attribute.value = null;
+            } else {
+                attribute.value = parseAttributeValue(parser, type);
+            }
+            expect(parser, parser.nextToken(), JsonToken.END_OBJECT);
+        }
+    }
+
+    /**
+     * The same checks as {@link ViolationChecker}, on the kept attributes.
+     */
+    protected boolean isViolationCandidate() {
+        return isViolationCandidate(gsiHashKey, gsiHashKeyType, ViolationChecker.MAX_HASH_KEY_SIZE)
+                || isViolationCandidate(gsiRangeKey, gsiRangeKeyType, ViolationChecker.MAX_RANGE_KEY_SIZE);
+    }
+
+    private boolean isViolationCandidate(KeptAttribute attribute, String expectedType, int maxKeySize) {
+        if (attribute == null || !attribute.present) {
+            return false;
+        }
+        String type = attribute.type;
+        if (SS.equals(type) || NS.equals(type) || BS.equals(type)) {
+            return true;
+        }
+        if (!S.equals(type) && !N.equals(type) && !B.equals(type)) {
+            return false;
+        }
+        if (!type.equals(expectedType)) {
+            return true;
+        }
+        if (S.equals(type)) {
+            return getUtf8Length(attribute.text) > maxKeySize;
+        } else if (N.equals(type)) {
+            return numberValidator.validate(attribute.text) != NumberValidator.VALID;
+        } else {
+            return getBase64DecodedLength(attribute.text) > maxKeySize;
+        }
+    }
+
+    /**
+     * Length of the text encoded in UTF-8, as String.getBytes gives it: 4
+     * bytes for a surrogate pair, 1 for an unpaired surrogate.
+     */
+    protected static int getUtf8Length(CharSequence text) {
+        int length = 0;
+        int size = text.length();
+        for (int i = 0; i < size; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < size && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    protected static int getBase64DecodedLength(CharSequence text) {
+        int length = text.length();
+        int padding = 0;
+        while (padding < 2 && length - padding > 0 && text.charAt(length - padding - 1) == '=') {
+            padding++;
+        }
+        return length / 4 * 3 - padding + (length % 4 == 0 ? 0 : length % 4 - 1);
+    }
+
+    private Map<String, AttributeValue> materializeItem() {
+        Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+        for (KeptAttribute attribute : keptAttributes.values()) {
+            if (!attribute.present) {
+                continue;
+            }
+            if (attribute.value != null) {
+                item.put(attribute.name, attribute.value);
+            } else if (S.equals(attribute.type)) {
+                item.put(attribute.name, new AttributeValue().withS(attribute.text.toString()));
+            } else if (N.equals(attribute.type)) {
+                item.put(attribute.name, new AttributeValue().withN(attribute.text.toString()));
+            } else {
+                item.put(attribute.name, new AttributeValue().withB(ByteBuffer.wrap(Base64Variants.getDefaultVariant().decode(attribute.text.toString()))));
+            }
+        }
+        return item;
+    }
+
+    /**
+     * Parse an attribute map, the parser is on its start and ends on its
+     * end.
+     */
+    protected static Map<String, AttributeValue> parseAttributeMap(JsonParser parser) throws IOException {
+        Map<String, AttributeValue> attributes = new HashMap<String, AttributeValue>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            expect(parser, parser.nextToken(), JsonToken.FIELD_NAME);
+            String type = parser.getCurrentName();
+            parser.nextToken();
+            attributes.put(name, parseAttributeValue(parser, type));
+            expect(parser, parser.nextToken(), JsonToken.END_OBJECT);
+        }
+        return attributes;
+    }
+
+    /**
+     * Parse the value of an attribute of the given type, the parser is on
+     * the value and ends on its last token.
+     */
+    protected static AttributeValue parseAttributeValue(JsonParser parser, String type) throws IOException {
+        if (S.equals(type)) {
+            return new AttributeValue().withS(parser.getText());
+        } else if (N.equals(type)) {
+            return new AttributeValue().withN(parser.getText());
+        } else if (B.equals(type)) {
+            return new AttributeValue().withB(ByteBuffer.wrap(parser.getBinaryValue()));
+        } else if (BOOL.equals(type)) {
+            return new AttributeValue().withBOOL(parser.getValueAsBoolean());
+        } else if (NULL.equals(type)) {
+            return new AttributeValue().withNULL(parser.getValueAsBoolean());
+        } else if (SS.equals(type) || NS.equals(type) || BS.equals(type)) {
+            expect(parser, parser.getCurrentToken(), JsonToken.START_ARRAY);
+            List<String> strings = new ArrayList<String>();
+            List<ByteBuffer> binaries = new ArrayList<ByteBuffer>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (BS.equals(type)) {
+                    binaries.add(ByteBuffer.wrap(parser.getBinaryValue()));
+                } else {
+                    strings.add(parser.getText());
+                }
+            }
+            if (SS.equals(type)) {
+                return new AttributeValue().withSS(strings);
+            }
+            return NS.equals(type) ? new AttributeValue().withNS(strings) : new AttributeValue().withBS(binaries);
+        } else if (M.equals(type)) {
+            expect(parser, parser.getCurrentToken(), JsonToken.START_OBJECT);
+            return new AttributeValue().withM(parseAttributeMap(parser));
+        } else if (L.equals(type)) {
+            expect(parser, parser.getCurrentToken(), JsonToken.START_ARRAY);
+            List<AttributeValue> values = new ArrayList<AttributeValue>();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                expect(parser, parser.nextToken(), JsonToken.FIELD_NAME);
+                String elementType = parser.getCurrentName();
+                parser.nextToken();
+                values.add(parseAttributeValue(parser, elementType));
+                expect(parser, parser.nextToken(), JsonToken.END_OBJECT);
+            }
+            return new AttributeValue().withL(values);
+        }
+        throw new JsonParseException("Unknown attribute type " + type + " in Scan response.", parser.getCurrentLocation());
+    }
+
+    private static ConsumedCapacity parseConsumedCapacity(JsonParser parser) throws IOException {
+        ConsumedCapacity consumedCapacity = new ConsumedCapacity();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (CAPACITY_UNITS.equals(field)) {
+                consumedCapacity.setCapacityUnits(parser.getDoubleValue());
+            } else if (TABLE_NAME.equals(field)) {
+                consumedCapacity.setTableName(parser.getText());
+            } else if (TABLE.equals(field)) {
+                consumedCapacity.setTable(parseCapacity(parser));
+            } else if (GLOBAL_SECONDARY_INDEXES.equals(field)) {
+                consumedCapacity.setGlobalSecondaryIndexes(parseIndexCapacities(parser));
+            } else if (LOCAL_SECONDARY_INDEXES.equals(field)) {
+                consumedCapacity.setLocalSecondaryIndexes(parseIndexCapacities(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return consumedCapacity;
+    }
+
+    private static Map<String, Capacity> parseIndexCapacities(JsonParser parser) throws IOException {
+        Map<String, Capacity> capacities = new HashMap<String, Capacity>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String indexName = parser.getCurrentName();
+            parser.nextToken();
+            capacities.put(indexName, parseCapacity(parser));
+        }
+        return capacities;
+    }
+
+    private static Capacity parseCapacity(JsonParser parser) throws IOException {
+        Capacity capacity = new Capacity();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (CAPACITY_UNITS.equals(field)) {
+                capacity.setCapacityUnits(parser.getDoubleValue());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+/**
+ * Choose the number of segments and of scan threads of a detection scan
+ * when they are not given.
+ * 
+ * Threads are sized to the network concurrency: a scan thread mostly waits
+ * for its page, so a few threads per core are used, no more than needed to
+ * use the read capacity at readWriteIOPSPercent, no more than the pages
+ * the scan memory budget holds at once, and no more than the table size is
+ * worth. Segments are sized to the table, one per 2 GB, and at least one
+ * per thread. A thread scans one segment at a time until all are scanned,
+ * so a large table does not need as many threads as segments. When only
+ * the segments are given, one thread scans each segment.
+ */
+public class ScanSizer {
+    public static final int SCAN_THREADS_PER_CORE = 8;
+    /** A thread started for less than this much of the table is not worth it */
+    public static final long BYTES_PER_SCAN_THREAD = 64L * 1024 * 1024;
+    /** A thread reads a page of 1 MB, 128 read units, in about 100 ms */
+    public static final double READ_UNITS_PER_SECOND_PER_THREAD = 1280;
+
+    private Options options;
+    private TableHelper tableHelper;
+    private int numOfCores;
+
+    /** Choice */
+    private int numOfSegments;
+    private int numOfScanThreads;
+    private String reason;
+
+    public ScanSizer(Options options, TableHelper tableHelper) {
+        this(options, tableHelper, Runtime.getRuntime().availableProcessors());
+    }
+
+    protected ScanSizer(Options options, TableHelper tableHelper, int numOfCores) {
+        this.options = options;
+        this.tableHelper = tableHelper;
+        this.numOfCores = numOfCores;
+    }
+
+    /**
+     * Most scan threads the options allow before the table is described,
+     * the connection pool is sized with it.
+     */
+    public static int getMaxNumOfScanThreads(Options options) {
+        if (options.getNumOfScanThreads() > 0) {
+            return options.getNumOfScanThreads();
+        }
+        if (options.getNumOfSegments() != Options.AUTO_NUM_OF_SEGMENTS) {
+            return options.getNumOfSegments();
+        }
+        return Runtime.getRuntime().availableProcessors() * SCAN_THREADS_PER_CORE;
+    }
+
+    /**
+     * Set the chosen values in the options and log them with the reason,
+     * nothing is done when both are given.
+     */
+    public void resolve() {
+        if (options.getNumOfSegments() != Options.AUTO_NUM_OF_SEGMENTS && options.getNumOfScanThreads() > 0) {
+            return;
+        }
+        compute();
+        options.setNumOfSegments(numOfSegments);
+        options.setNumOfScanThreads(numOfScanThreads);
+        PrintHelper.printScanSizing(tableHelper.getTableSizeBytes(), getReadUnitsPerSecond(), numOfCores, numOfSegments, numOfScanThreads, reason);
+    }
+
+    private double getReadUnitsPerSecond() {
+        return tableHelper.getReadCapacityUnits() * options.getReadWriteIOPSPercent() / 100.0;
+    }
+
+    protected void compute() {
+        long tableSizeBytes = tableHelper.getTableSizeBytes();
+        boolean autoSegments = options.getNumOfSegments() == Options.AUTO_NUM_OF_SEGMENTS;
+        String threadsReason;
+        if (options.getNumOfScanThreads() > 0) {
+            numOfScanThreads = options.getNumOfScanThreads();
+            threadsReason = "given";
+        } else if (!autoSegments) {
+            // Given segments without given threads keep one thread per segment
+            numOfScanThreads = options.getNumOfSegments();
+            threadsReason = "one per given segment";
+        } else {
+            numOfScanThreads = numOfCores * SCAN_THREADS_PER_CORE;
+            threadsReason = "limited by " + SCAN_THREADS_PER_CORE + " per core";
+            double readUnitsPerSecond = getReadUnitsPerSecond();
+            // No provisioned read capacity, the read rate does not bound the threads
+            if (readUnitsPerSecond > 0) {
+                int budgetThreads = (int) Math.ceil(readUnitsPerSecond / READ_UNITS_PER_SECOND_PER_THREAD);
+                if (budgetThreads < numOfScanThreads) {
+                    numOfScanThreads = budgetThreads;
+                    threadsReason = "limited by the read capacity used, " + (long) READ_UNITS_PER_SECOND_PER_THREAD + " read units per second per thread";
+                }
+            }
+            if (options.getScanMemoryPercent() > 0) {
+                int memoryThreads = ScanMemoryGovernor.getMaxPagesInFlight(ScanMemoryGovernor.getBudgetBytes(options.getScanMemoryPercent()),
+                        ScanMemoryGovernor.getInflation(options));
+                if (memoryThreads < numOfScanThreads) {
+                    numOfScanThreads = memoryThreads;
+                    threadsReason = "limited by " + Options.SCAN_MEMORY_PERCENT + " " + options.getScanMemoryPercent() + " of the max heap";
+                }
+            }
+            long sizeThreads = (tableSizeBytes + BYTES_PER_SCAN_THREAD - 1) / BYTES_PER_SCAN_THREAD;
+            if (sizeThreads < numOfScanThreads) {
+                numOfScanThreads = (int) Math.max(1, sizeThreads);
+                threadsReason = "limited by the table size, " + BYTES_PER_SCAN_THREAD / 1024 / 1024 + " MB per thread";
+            }
+        }
+
+        String segmentsReason;
+        if (autoSegments) {
+            long sizeSegments = (tableSizeBytes + ScanEstimator.BYTES_PER_SEGMENT - 1) / ScanEstimator.BYTES_PER_SEGMENT;
+            numOfSegments = (int) Math.min(Math.max(sizeSegments, numOfScanThreads), Options.MAX_NUM_OF_SEGMENTS);
+            numOfSegments = Math.max(numOfSegments, Options.MIN_NUM_OF_SEGMENTS);
+            segmentsReason = "one per " + ScanEstimator.BYTES_PER_SEGMENT / 1024 / 1024 / 1024 + " GB of table and at least one per thread";
+        } else {
+            numOfSegments = options.getNumOfSegments();
+            segmentsReason = "given";
+        }
+        // A thread without a segment to scan would stay idle
+        if (numOfScanThreads > numOfSegments) {
+            numOfScanThreads = numOfSegments;
+            threadsReason = "one per segment";
+        }
+        reason = "segments " + segmentsReason + ", threads " + threadsReason;
+    }
+
+    public int getNumOfSegments() {
+        return numOfSegments;
+    }
+
+    public int getNumOfScanThreads() {
+        return numOfScanThreads;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+}
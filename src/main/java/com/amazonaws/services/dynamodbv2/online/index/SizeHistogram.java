@@ -0,0 +1,122 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+/**
+ * Distribution of sizes in bytes kept in fixed memory.
+ * 
+ * Sizes below 16 have a bucket each, larger sizes are split into powers of
+ * two, each divided in 16 buckets, so that a quantile is within about 3% of
+ * the true size. Histograms can be merged, e.g. the histograms of each scan
+ * segment. Not thread safe.
+ */
+public class SizeHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int NUM_OF_BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[NUM_OF_BUCKETS];
+    private long count = 0;
+    private long sum = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = 0;
+
+    public void add(long size) {
+        add(size, 1);
+    }
+
+    public void add(long size, long times) {
+        if (size < 0 || times <= 0) {
+            return;
+        }
+        counts[getBucket(size)] += times;
+        count += times;
+        sum += size * times;
+        min = Math.min(min, size);
+        max = Math.max(max, size);
+    }
+
+    public void merge(SizeHistogram other) {
+        for (int i = 0; i < NUM_OF_BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    protected static int getBucket(long size) {
+        if (size < SUB_BUCKETS) {
+            return (int) size;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(size);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) ((size >>> shift) & (SUB_BUCKETS - 1));
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Middle of the sizes falling in the given bucket.
+     */
+    protected static long getBucketValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        long lowest = ((long) (SUB_BUCKETS + subBucket)) << shift;
+        return lowest + ((1L << shift) >>> 1);
+    }
+
+    /**
+     * Size below which the given fraction of the sizes fall, 0 if empty.
+     */
+    public long getQuantile(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < NUM_OF_BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return Math.max(min, Math.min(max, getBucketValue(i)));
+            }
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+}
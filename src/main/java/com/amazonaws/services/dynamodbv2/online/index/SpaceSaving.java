@@ -0,0 +1,191 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Find the most frequent values of a stream in fixed memory with the
+ * SpaceSaving algorithm.
+ * 
+ * At most capacity values are counted. When a new value comes and all
+ * counters are used, the value with the lowest count is replaced and the new
+ * value inherits its count, which is kept as the maximum overestimate. Any
+ * value more frequent than total / capacity is guaranteed to be kept. The
+ * counters are kept in a min-heap so that each value is counted in
+ * O(log capacity). Not thread safe.
+ */
+public class SpaceSaving {
+
+    private final int capacity;
+    private final String[] values;
+    private final long[] counts;
+    private final long[] errors;
+    private final Map<String, Integer> positions;
+    private int size = 0;
+    private long total = 0;
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Error: SpaceSaving capacity must be positive.");
+        }
+        this.capacity = capacity;
+        this.values = new String[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.positions = new HashMap<String, Integer>(capacity * 2);
+    }
+
+    public void add(String value) {
+        add(value, 1, 0);
+    }
+
+    /**
+     * Add the value with the given count and overestimate, used when merging.
+     */
+    public void add(String value, long count, long error) {
+        total += count;
+        Integer position = positions.get(value);
+        if (position != null) {
+            counts[position] += count;
+            errors[position] += error;
+            siftDown(position);
+            return;
+        }
+        if (size < capacity) {
+            values[size] = value;
+            counts[size] = count;
+            errors[size] = error;
+            positions.put(value, size);
+            siftUp(size);
+            size++;
+            return;
+        }
+        /** Replace the value with the lowest count, at the heap root */
+        positions.remove(values[0]);
+        long minCount = counts[0];
+        values[0] = value;
+        counts[0] = minCount + count;
+        errors[0] = minCount + error;
+        positions.put(value, 0);
+        siftDown(0);
+    }
+
+    public void merge(SpaceSaving other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.values[i], other.counts[i], other.errors[i]);
+        }
+    }
+
+    /**
+     * Total count of the values added.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * The k values with the highest counts, highest first.
+     */
+    public List<Entry> getTop(int k) {
+        List<Entry> entries = new ArrayList<Entry>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(new Entry(values[i], counts[i], errors[i]));
+        }
+        Collections.sort(entries, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry e1, Entry e2) {
+                return e1.getCount() == e2.getCount() ? 0 : (e1.getCount() > e2.getCount() ? -1 : 1);
+            }
+        });
+        return entries.size() > k ? entries.subList(0, k) : entries;
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (counts[parent] <= counts[position]) {
+                break;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (right < size && counts[right] < counts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        String value = values[i];
+        long count = counts[i];
+        long error = errors[i];
+        values[i] = values[j];
+        counts[i] = counts[j];
+        errors[i] = errors[j];
+        values[j] = value;
+        counts[j] = count;
+        errors[j] = error;
+        positions.put(values[i], i);
+        positions.put(values[j], j);
+    }
+
+    /**
+     * A counted value, its true count is between count - error and count.
+     */
+    public static class Entry {
+        private final String value;
+        private final long count;
+        private final long error;
+
+        public Entry(String value, long count, long error) {
+            this.value = value;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Sum sizes per key for more keys than fit in memory.
+ * 
+ * Sums are kept off heap in an open addressing table of 64-bit key
+ * fingerprints, with the keys themselves in a separate buffer. When either
+ * is full, the entries are sorted by fingerprint and spilled to a run file,
+ * and the table starts empty again. The runs of any number of aggregators
+ * are then merged, adding up the sums of each key, at most MAX_MERGE_FAN_IN
+ * runs at a time so that the open files and read buffers stay bounded
+ * however many runs were spilled. Two keys with the same 64-bit
+ * fingerprint are summed together. Not thread safe.
+ */
+public class SpillingSizeAggregator {
+    public static final int BYTES_PER_SLOT = 24;
+    public static final int MAX_KEY_BYTES = 65535;
+    private static final double MAX_LOAD_FACTOR = 0.7;
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+    /** Runs open at once while merging, each with its read buffer */
+    public static final int MAX_MERGE_FAN_IN = 64;
+    // Fingerprint 0 marks an empty slot
+    private static final long EMPTY = 0;
+    private static final HashFunction FINGERPRINT_FUNCTION = Hashing.murmur3_128();
+
+    /** Slot: fingerprint, sum of sizes, offset of the key in the keys buffer */
+    private ByteBuffer slots;
+    private ByteBuffer keys;
+    private int capacity;
+    private int maxSize;
+    private int size = 0;
+    private File spillDirectory;
+    private List<File> runs = new ArrayList<File>();
+
+    /**
+     * Half of the given memory goes to the table, half to the keys.
+     */
+    public SpillingSizeAggregator(long maxBytes, File spillDirectory) {
+        long numOfSlots = Long.highestOneBit(Math.max(maxBytes / 2 / BYTES_PER_SLOT, 2));
+        numOfSlots = Math.min(numOfSlots, Integer.highestOneBit(Integer.MAX_VALUE / BYTES_PER_SLOT));
+        this.capacity = (int) numOfSlots;
+        this.maxSize = Math.max(1, (int) (capacity * MAX_LOAD_FACTOR));
+        this.slots = ByteBuffer.allocateDirect(capacity * BYTES_PER_SLOT);
+        long keyBytes = Math.max(maxBytes - (long) capacity * BYTES_PER_SLOT, 2 + MAX_KEY_BYTES);
+        this.keys = ByteBuffer.allocateDirect((int) Math.min(keyBytes, Integer.MAX_VALUE));
+        this.spillDirectory = spillDirectory;
+    }
+
+    public void add(byte[] key, long sizeToAdd) throws IOException {
+        if (key.length > MAX_KEY_BYTES) {
+            throw new IllegalArgumentException("Error: Key of " + key.length + " bytes exceeds " + MAX_KEY_BYTES + " bytes.");
+        }
+        long fingerprint = normalize(FINGERPRINT_FUNCTION.hashBytes(key).asLong());
+        int slot = findSlot(fingerprint);
+        int position = slot * BYTES_PER_SLOT;
+        if (slots.getLong(position) != EMPTY) {
+            slots.putLong(position + 8, slots.getLong(position + 8) + sizeToAdd);
+            return;
+        }
+        if (size >= maxSize || keys.remaining() < 2 + key.length) {
+            spill();
+            slot = findSlot(fingerprint);
+            position = slot * BYTES_PER_SLOT;
+        }
+        slots.putLong(position, fingerprint);
+        slots.putLong(position + 8, sizeToAdd);
+        slots.putLong(position + 16, keys.position());
+        keys.putShort((short) key.length);
+        keys.put(key);
+        size++;
+    }
+
+    /**
+     * Spill the entries left in memory and return the runs of this
+     * aggregator, to be merged with {@link #mergeRuns}.
+     */
+    public List<File> finish() throws IOException {
+        spill();
+        return runs;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    protected void spill() throws IOException {
+        if (size == 0) {
+            return;
+        }
+        /** Move the entries to the front of the table and sort them */
+        int next = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            if (slots.getLong(slot * BYTES_PER_SLOT) != EMPTY) {
+                if (slot != next) {
+                    copySlot(slot, next);
+                    slots.putLong(slot * BYTES_PER_SLOT, EMPTY);
+                }
+                next++;
+            }
+        }
+        sortSlots(size);
+
+        File run = File.createTempFile("item_collection_run", ".bin", spillDirectory);
+        run.deleteOnExit();
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run)));
+        try {
+            for (int slot = 0; slot < size; slot++) {
+                int position = slot * BYTES_PER_SLOT;
+                output.writeLong(slots.getLong(position));
+                output.writeLong(slots.getLong(position + 8));
+                int keyOffset = (int) slots.getLong(position + 16);
+                int keyLength = keys.getShort(keyOffset) & 0xffff;
+                output.writeShort(keyLength);
+                for (int i = 0; i < keyLength; i++) {
+                    output.write(keys.get(keyOffset + 2 + i));
+                }
+                slots.putLong(position, EMPTY);
+            }
+        } finally {
+            output.close();
+        }
+        runs.add(run);
+        size = 0;
+        keys.clear();
+    }
+
+    /**
+     * Heap sort of the first slots by fingerprint, in place so that no
+     * memory is needed beyond the table.
+     */
+    private void sortSlots(int numOfSlots) {
+        for (int i = numOfSlots / 2 - 1; i >= 0; i--) {
+            siftDown(i, numOfSlots);
+        }
+        for (int end = numOfSlots - 1; end > 0; end--) {
+            swapSlots(0, end);
+            siftDown(0, end);
+        }
+    }
+
+    private void siftDown(int slot, int end) {
+        while (true) {
+            int largest = slot;
+            int left = 2 * slot + 1;
+            int right = left + 1;
+            if (left < end && getFingerprint(left) > getFingerprint(largest)) {
+                largest = left;
+            }
+            if (right < end && getFingerprint(right) > getFingerprint(largest)) {
+                largest = right;
+            }
+            if (largest == slot) {
+                return;
+            }
+            swapSlots(slot, largest);
+            slot = largest;
+        }
+    }
+
+    private long getFingerprint(int slot) {
+        return slots.getLong(slot * BYTES_PER_SLOT);
+    }
+
+    private void swapSlots(int first, int second) {
+        for (int offset = 0; offset < BYTES_PER_SLOT; offset += 8) {
+            long value = slots.getLong(first * BYTES_PER_SLOT + offset);
+            slots.putLong(first * BYTES_PER_SLOT + offset, slots.getLong(second * BYTES_PER_SLOT + offset));
+            slots.putLong(second * BYTES_PER_SLOT + offset, value);
+        }
+    }
+
+    private void copySlot(int from, int to) {
+        for (int offset = 0; offset < BYTES_PER_SLOT; offset += 8) {
+            slots.putLong(to * BYTES_PER_SLOT + offset, slots.getLong(from * BYTES_PER_SLOT + offset));
+        }
+    }
+
+    private int findSlot(long fingerprint) {
+        int slot = (int) (mix(fingerprint) & (capacity - 1));
+        while (true) {
+            long slotFingerprint = slots.getLong(slot * BYTES_PER_SLOT);
+            if (slotFingerprint == EMPTY || slotFingerprint == fingerprint) {
+                return slot;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+    }
+
+    private static long normalize(long fingerprint) {
+        return fingerprint == EMPTY ? 1 : fingerprint;
+    }
+
+    /** Spread the bits so that slots do not only depend on the low bits */
+    private static long mix(long fingerprint) {
+        fingerprint ^= fingerprint >>> 33;
+        fingerprint *= 0xff51afd7ed558ccdL;
+        fingerprint ^= fingerprint >>> 33;
+        return fingerprint;
+    }
+
+    /**
+     * Called with each key whose total size reaches the threshold.
+     */
+    public interface KeyHandler {
+        void handle(byte[] key, long totalSize) throws IOException;
+    }
+
+    /**
+     * Merge the sorted runs, call the handler for the keys whose total size
+     * is at least the threshold, and delete the runs.
+     * 
+     * @return the number of distinct keys in the runs
+     */
+    public static long mergeRuns(List<File> runs, long threshold, KeyHandler handler) throws IOException {
+        return mergeRuns(runs, threshold, handler, MAX_MERGE_FAN_IN);
+    }
+
+    /**
+     * Runs beyond the fan-in are first merged by groups into intermediate
+     * runs, pass after pass, so that no more than the fan-in are open at once.
+     */
+    protected static long mergeRuns(List<File> runs, final long threshold, final KeyHandler handler, int maxFanIn) throws IOException {
+        List<File> intermediateRuns = new ArrayList<File>();
+        try {
+            List<File> pending = runs;
+            while (pending.size() > maxFanIn) {
+                List<File> merged = new ArrayList<File>();
+                for (int start = 0; start < pending.size(); start += maxFanIn) {
+                    List<File> group = pending.subList(start, Math.min(start + maxFanIn, pending.size()));
+                    if (group.size() == 1) {
+                        merged.add(group.get(0));
+                        continue;
+                    }
+                    File mergedRun = File.createTempFile("item_collection_run", ".bin", group.get(0).getParentFile());
+                    mergedRun.deleteOnExit();
+                    intermediateRuns.add(mergedRun);
+                    mergeToRun(group, mergedRun);
+                    merged.add(mergedRun);
+                }
+                pending = merged;
+            }
+            final long[] distinctKeys = new long[1];
+            merge(pending, new MergedEntryHandler() {
+                @Override
+                public void handle(long fingerprint, long totalSize, byte[] key) throws IOException {
+                    distinctKeys[0]++;
+                    if (totalSize >= threshold) {
+                        handler.handle(key, totalSize);
+                    }
+                }
+            });
+            return distinctKeys[0];
+        } finally {
+            for (File run : runs) {
+                run.delete();
+            }
+            for (File run : intermediateRuns) {
+                run.delete();
+            }
+        }
+    }
+
+    private static void mergeToRun(List<File> group, File mergedRun) throws IOException {
+        final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(mergedRun)));
+        try {
+            merge(group, new MergedEntryHandler() {
+                @Override
+                public void handle(long fingerprint, long totalSize, byte[] key) throws IOException {
+                    output.writeLong(fingerprint);
+                    output.writeLong(totalSize);
+                    output.writeShort(key.length);
+                    output.write(key);
+                }
+            });
+        } finally {
+            output.close();
+        }
+        for (File run : group) {
+            run.delete();
+        }
+    }
+
+    /** Called with each distinct fingerprint of the merged runs, in order */
+    private interface MergedEntryHandler {
+        void handle(long fingerprint, long totalSize, byte[] key) throws IOException;
+    }
+
+    private static void merge(List<File> runs, MergedEntryHandler handler) throws IOException {
+        PriorityQueue<RunReader> readers = new PriorityQueue<RunReader>(Math.max(1, runs.size()), new Comparator<RunReader>() {
+            @Override
+            public int compare(RunReader r1, RunReader r2) {
+                return r1.fingerprint < r2.fingerprint ? -1 : (r1.fingerprint == r2.fingerprint ? 0 : 1);
+            }
+        });
+        List<RunReader> opened = new ArrayList<RunReader>();
+        try {
+            for (File run : runs) {
+                RunReader reader = new RunReader(run);
+                opened.add(reader);
+                if (reader.next()) {
+                    readers.add(reader);
+                }
+            }
+            while (!readers.isEmpty()) {
+                RunReader reader = readers.poll();
+                long fingerprint = reader.fingerprint;
+                long totalSize = reader.sum;
+                byte[] key = reader.key;
+                if (reader.next()) {
+                    readers.add(reader);
+                }
+                while (!readers.isEmpty() && readers.peek().fingerprint == fingerprint) {
+                    RunReader same = readers.poll();
+                    totalSize += same.sum;
+                    if (same.next()) {
+                        readers.add(same);
+                    }
+                }
+                handler.handle(fingerprint, totalSize, key);
+            }
+        } finally {
+            for (RunReader reader : opened) {
+                reader.close();
+            }
+        }
+    }
+
+    private static class RunReader {
+        private DataInputStream input;
+        private long fingerprint;
+        private long sum;
+        private byte[] key;
+
+        public RunReader(File run) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(run), READ_BUFFER_BYTES));
+        }
+
+        public boolean next() throws IOException {
+            try {
+                fingerprint = input.readLong();
+            } catch (EOFException eofe) {
+                return false;
+            }
+            sum = input.readLong();
+            key = new byte[input.readUnsignedShort()];
+            input.readFully(key);
+            return true;
+        }
+
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import com.amazonaws.AmazonWebServiceResponse;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.Request;
+import com.amazonaws.ResponseMetadata;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.http.ExecutionContext;
+import com.amazonaws.http.HttpResponse;
+import com.amazonaws.http.HttpResponseHandler;
+import com.amazonaws.http.JsonErrorResponseHandler;
+import com.amazonaws.internal.CRC32MismatchException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.transform.ScanRequestMarshaller;
+import com.amazonaws.util.CRC32ChecksumCalculatingInputStream;
+
+/**
+ * DynamoDB client whose Scan responses can be decoded as they stream in,
+ * all other calls are the ones of the SDK client.
+ * 
+ * The request goes through the HTTP client of the SDK client, so it is
+ * signed, retried and its errors unmarshalled as any other call, only the
+ * response handler differs.
+ */
+public class StreamingDynamoDBClient extends AmazonDynamoDBClient implements StreamingScanClient {
+    private static final String CRC32_HEADER = "x-amz-crc32";
+    private static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+    private static final String REQUEST_ID_HEADER = "x-amzn-RequestId";
+
+    private AWSCredentials awsCredentials;
+
+    public StreamingDynamoDBClient(AWSCredentials awsCredentials, ClientConfiguration clientConfiguration) {
+        super(awsCredentials, clientConfiguration);
+        this.awsCredentials = awsCredentials;
+    }
+
+    @Override
+    public ScanPage streamingScan(ScanRequest scanRequest, ScanResponseDecoder decoder) {
+        ExecutionContext executionContext = createExecutionContext(scanRequest);
+        executionContext.setCredentials(awsCredentials);
+        Request<ScanRequest> request = new ScanRequestMarshaller().marshall(scanRequest);
+        request.setEndpoint(endpoint);
+        request.setTimeOffset(timeOffset);
+        return client.execute(request, new ScanPageResponseHandler(decoder), new JsonErrorResponseHandler(jsonErrorUnmarshallers), executionContext)
+                .getAwsResponse();
+    }
+
+    /**
+     * Decode the response content with the decoder, checking its CRC32 as
+     * the SDK does.
+     */
+    protected static class ScanPageResponseHandler implements HttpResponseHandler<AmazonWebServiceResponse<ScanPage>> {
+        private ScanResponseDecoder decoder;
+
+        protected ScanPageResponseHandler(ScanResponseDecoder decoder) {
+            this.decoder = decoder;
+        }
+
+        @Override
+        public AmazonWebServiceResponse<ScanPage> handle(HttpResponse response) throws Exception {
+            InputStream content = response.getContent();
+            String crc32 = response.getHeaders().get(CRC32_HEADER);
+            CRC32ChecksumCalculatingInputStream checksumContent = null;
+            if (crc32 != null) {
+                checksumContent = new CRC32ChecksumCalculatingInputStream(content);
+                content = checksumContent;
+            }
+            if ("gzip".equals(response.getHeaders().get(CONTENT_ENCODING_HEADER))) {
+                content = new GZIPInputStream(content);
+            }
+            ScanPage scanPage = decoder.decode(content);
+            if (checksumContent != null) {
+                // Read to the end, the checksum covers all the content
+                while (checksumContent.read() != -1) {
+                }
+                if (checksumContent.getCRC32Checksum() != Long.parseLong(crc32)) {
+                    throw new CRC32MismatchException("Client calculated crc32 checksum didn't match that calculated by server side");
+                }
+            }
+
+            AmazonWebServiceResponse<ScanPage> awsResponse = new AmazonWebServiceResponse<ScanPage>();
+            awsResponse.setResult(scanPage);
+            Map<String, String> metadata = new HashMap<String, String>();
+            metadata.put(ResponseMetadata.AWS_REQUEST_ID, response.getHeaders().get(REQUEST_ID_HEADER));
+            awsResponse.setResponseMetadata(new ResponseMetadata(metadata));
+            return awsResponse;
+        }
+
+        @Override
+        public boolean needsConnectionLeftOpen() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+
+/**
+ * DynamoDB client able to decode Scan responses as they stream in.
+ */
+public interface StreamingScanClient {
+
+    /**
+     * Scan one page, the response is decoded by the given decoder instead
+     * of being unmarshalled into a ScanResult.
+     */
+    ScanPage streamingScan(ScanRequest scanRequest, ScanResponseDecoder decoder);
+}
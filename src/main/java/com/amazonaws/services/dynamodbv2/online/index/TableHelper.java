@@ -15,15 +15,19 @@
 package com.amazonaws.services.dynamodbv2.online.index;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.amazonaws.AmazonServiceException;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
 import com.amazonaws.services.dynamodbv2.model.DescribeTableResult;
 import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexDescription;
 import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
 import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndexDescription;
 import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
 import com.amazonaws.services.dynamodbv2.model.TableDescription;
 
@@ -33,20 +37,32 @@ import com.amazonaws.services.dynamodbv2.model.TableDescription;
  */
 public class TableHelper {
 
-    private AmazonDynamoDBClient dynamoDBClient;
-    private TableDescription tableDescription;
+    private AmazonDynamoDB dynamoDBClient;
+    private String tableName;
+    /** Replaced on refresh, read by scan and write threads */
+    private volatile TableDescription tableDescription;
 
     /**
      * Constructor for unit test.
      */
-    protected TableHelper(AmazonDynamoDBClient dynamoDBClient, TableDescription tableDescription) {
+    protected TableHelper(AmazonDynamoDB dynamoDBClient, TableDescription tableDescription) {
         this.dynamoDBClient = dynamoDBClient;
+        this.tableName = tableDescription.getTableName();
         this.tableDescription = tableDescription;
     }
 
-    public TableHelper(AmazonDynamoDBClient dynamoDBClient, String tableName)
+    public TableHelper(AmazonDynamoDB dynamoDBClient, String tableName)
             throws IllegalArgumentException {
         this.dynamoDBClient = dynamoDBClient;
+        this.tableName = tableName;
+        describeTable(tableName);
+    }
+
+    /**
+     * Describe the table again, so that capacity changes made while the tool
+     * is running are picked up.
+     */
+    public void refresh() throws IllegalArgumentException {
         describeTable(tableName);
     }
 
@@ -147,6 +163,50 @@ public class TableHelper {
         return false;
     }
 
+    /**
+     * Key attribute names of each GSI of the table, by index name.
+     */
+    public Map<String, List<String>> getGsiKeyAttributeNames() {
+        Map<String, List<String>> gsiKeyAttributeNames = new LinkedHashMap<String, List<String>>();
+        List<GlobalSecondaryIndexDescription> descriptionList = tableDescription.getGlobalSecondaryIndexes();
+        if (null == descriptionList) {
+            return gsiKeyAttributeNames;
+        }
+        for (GlobalSecondaryIndexDescription desc : descriptionList) {
+            List<String> keyAttributeNames = new ArrayList<String>();
+            for (KeySchemaElement keyElement : desc.getKeySchema()) {
+                keyAttributeNames.add(keyElement.getAttributeName());
+            }
+            gsiKeyAttributeNames.put(desc.getIndexName(), keyAttributeNames);
+        }
+        return gsiKeyAttributeNames;
+    }
+
+    /**
+     * Local secondary indexes of the table, empty if none.
+     */
+    public List<LocalSecondaryIndexDescription> getLocalSecondaryIndexes() {
+        List<LocalSecondaryIndexDescription> descriptionList = tableDescription.getLocalSecondaryIndexes();
+        if (null == descriptionList) {
+            return new ArrayList<LocalSecondaryIndexDescription>();
+        }
+        return descriptionList;
+    }
+
+    /**
+     * Size of the table, updated by DynamoDB about every six hours.
+     */
+    public long getTableSizeBytes() {
+        return tableDescription.getTableSizeBytes() == null ? 0 : tableDescription.getTableSizeBytes();
+    }
+
+    /**
+     * Number of items of the table, updated by DynamoDB about every six hours.
+     */
+    public long getItemCount() {
+        return tableDescription.getItemCount() == null ? 0 : tableDescription.getItemCount();
+    }
+
     public long getReadCapacityUnits() {
         return tableDescription.getProvisionedThroughput().getReadCapacityUnits();
     }
@@ -154,4 +214,22 @@ public class TableHelper {
     public long getWriteCapacityUnits() {
         return tableDescription.getProvisionedThroughput().getWriteCapacityUnits();
     }
+
+    /**
+     * Write capacity units of each GSI of the table, by index name. Writes
+     * changing the GSI key or projected attributes also consume it.
+     */
+    public Map<String, Long> getGsiWriteCapacityUnits() {
+        Map<String, Long> gsiWriteCapacityUnits = new HashMap<String, Long>();
+        List<GlobalSecondaryIndexDescription> descriptionList = tableDescription.getGlobalSecondaryIndexes();
+        if (null == descriptionList) {
+            return gsiWriteCapacityUnits;
+        }
+        for (GlobalSecondaryIndexDescription desc : descriptionList) {
+            if (desc.getProvisionedThroughput() != null && desc.getProvisionedThroughput().getWriteCapacityUnits() != null) {
+                gsiWriteCapacityUnits.put(desc.getIndexName(), desc.getProvisionedThroughput().getWriteCapacityUnits());
+            }
+        }
+        return gsiWriteCapacityUnits;
+    }
 }
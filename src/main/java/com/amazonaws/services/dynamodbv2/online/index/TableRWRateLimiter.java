@@ -15,7 +15,10 @@
 package com.amazonaws.services.dynamodbv2.online.index;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import com.amazonaws.services.dynamodbv2.model.Capacity;
 import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
 import com.google.common.util.concurrent.RateLimiter;
 
@@ -36,6 +39,12 @@ public class TableRWRateLimiter {
      * http://docs.guava-libraries.googlecode.com/git/javadoc/com/google/common/util/concurrent/RateLimiter.html
      */
     private RateLimiter rateLimiter;
+    /**
+     * Writes also consume the write capacity of each GSI they change, a
+     * limiter per GSI paces against the GSI own capacity, so that the index
+     * with the least capacity left governs the rate.
+     */
+    private Map<String, TableRWRateLimiter> indexRateLimiters = new ConcurrentHashMap<String, TableRWRateLimiter>();
 
     public TableRWRateLimiter(double readWriteIOPSCapacityUnits, double readWriteIOPSPercent, int numOfTasks) {
         this.readWriteIOPSCapacityUnits = readWriteIOPSCapacityUnits;
@@ -46,6 +55,15 @@ public class TableRWRateLimiter {
         rateLimiter = RateLimiter.create(rateLimit);
     }
 
+    /**
+     * Create a write rate limiter also pacing against the write capacity of
+     * each GSI, the consumed capacity must then be returned per index.
+     */
+    public TableRWRateLimiter(double readWriteIOPSCapacityUnits, Map<String, Long> indexCapacityUnits, double readWriteIOPSPercent, int numOfTasks) {
+        this(readWriteIOPSCapacityUnits, readWriteIOPSPercent, numOfTasks);
+        setIndexCapacityUnits(indexCapacityUnits);
+    }
+
     private double getRateLimit() {
         double rateLimit = readWriteIOPSCapacityUnits * readWriteIOPSPercent / 100;
         double rateLimitPerTask = rateLimit / numOfTasks;
@@ -56,18 +74,94 @@ public class TableRWRateLimiter {
         return rateLimitPerTask;
     }
 
+    public synchronized double getReadWriteIOPSCapacityUnits() {
+        return readWriteIOPSCapacityUnits;
+    }
+
+    /**
+     * Change the capacity units the rate is computed from, threads waiting
+     * for permits are paced with the new rate from their next acquire. A
+     * capacity of 0 or less is ignored and the current rate kept.
+     */
+    public synchronized boolean setReadWriteIOPSCapacityUnits(double readWriteIOPSCapacityUnits) {
+        if (readWriteIOPSCapacityUnits <= 0 || readWriteIOPSCapacityUnits == this.readWriteIOPSCapacityUnits) {
+            return false;
+        }
+        this.readWriteIOPSCapacityUnits = readWriteIOPSCapacityUnits;
+        rateLimiter.setRate(getRateLimit());
+        return true;
+    }
+
+    /**
+     * Change the capacity units of the given indexes, a limiter is added for
+     * an index not paced yet. Indexes with 0 capacity units are not paced.
+     */
+    public void setIndexCapacityUnits(Map<String, Long> indexCapacityUnits) {
+        for (Map.Entry<String, Long> entry : indexCapacityUnits.entrySet()) {
+            if (entry.getValue() <= 0) {
+                continue;
+            }
+            TableRWRateLimiter indexRateLimiter = indexRateLimiters.get(entry.getKey());
+            if (indexRateLimiter == null) {
+                indexRateLimiters.put(entry.getKey(), new TableRWRateLimiter(entry.getValue(), readWriteIOPSPercent, numOfTasks));
+            } else {
+                indexRateLimiter.setReadWriteIOPSCapacityUnits(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Null if the index is not paced.
+     */
+    public TableRWRateLimiter getIndexRateLimiter(String indexName) {
+        return indexRateLimiters.get(indexName);
+    }
+
     public void adjustRateWithConsumedCapacity(List<ConsumedCapacity> bathWriteConsumedCapacity) {
         for (ConsumedCapacity consumedCapacity : bathWriteConsumedCapacity) {
             adjustRateWithConsumedCapacity(consumedCapacity);
         }
     }
     
+    /**
+     * A limiter can be shared by several threads, only the accumulation is
+     * synchronized so that a thread waiting for permits does not block the
+     * others from accumulating theirs.
+     */
     public void adjustRateWithConsumedCapacity(ConsumedCapacity consumedCapacity) {
-        accumulatedReadWritePermits += consumedCapacity.getCapacityUnits();
-        if (accumulatedReadWritePermits > 1.0) {
-            int intValueOfPermits = Double.valueOf(accumulatedReadWritePermits).intValue();
+        if (indexRateLimiters.isEmpty() || consumedCapacity.getTable() == null) {
+            acquire(consumedCapacity.getCapacityUnits());
+            return;
+        }
+        /** Table and LSIs share the table capacity */
+        double tableCapacityUnits = consumedCapacity.getTable().getCapacityUnits();
+        if (consumedCapacity.getLocalSecondaryIndexes() != null) {
+            for (Capacity capacity : consumedCapacity.getLocalSecondaryIndexes().values()) {
+                tableCapacityUnits += capacity.getCapacityUnits();
+            }
+        }
+        acquire(tableCapacityUnits);
+        if (consumedCapacity.getGlobalSecondaryIndexes() != null) {
+            for (Map.Entry<String, Capacity> entry : consumedCapacity.getGlobalSecondaryIndexes().entrySet()) {
+                TableRWRateLimiter indexRateLimiter = indexRateLimiters.get(entry.getKey());
+                if (indexRateLimiter != null) {
+                    indexRateLimiter.acquire(entry.getValue().getCapacityUnits());
+                }
+            }
+        }
+    }
+
+    private void acquire(double capacityUnits) {
+        int intValueOfPermits = 0;
+        synchronized (this) {
+            accumulatedReadWritePermits += capacityUnits;
+            if (accumulatedReadWritePermits > 1.0) {
+                intValueOfPermits = Double.valueOf(accumulatedReadWritePermits).intValue();
+                accumulatedReadWritePermits -= (double) intValueOfPermits;
+            }
+        }
+        if (intValueOfPermits > 0) {
             rateLimiter.acquire(intValueOfPermits);
-            accumulatedReadWritePermits -= (double) intValueOfPermits;
         }
     }
 
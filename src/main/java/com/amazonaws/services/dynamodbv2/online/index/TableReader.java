@@ -14,16 +14,21 @@
  */
 package com.amazonaws.services.dynamodbv2.online.index;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
 import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
 import com.amazonaws.services.dynamodbv2.model.ScanRequest;
 import com.amazonaws.services.dynamodbv2.model.ScanResult;
@@ -36,13 +41,21 @@ public class TableReader {
 
     private static Options options;
     private static TableHelper tableHelper;
-    private static AmazonDynamoDBClient dynamoDBClient;
+    private static AmazonDynamoDB dynamoDBClient;
     private static List<String> attributesToGet;
     private static long itemsScanLimit;
     private static AtomicLong itemsScanned;
     private static long violationsFindLimit;
     private static AtomicLong violationsFound;
     private static AtomicLong violationsDeleted;
+    private static ViolationFixer violationFixer;
+    private static CapacityRefresher capacityRefresher;
+    private static List<ViolationAnalytics> segmentAnalytics;
+    private static List<ItemCollectionAnalyzer> segmentItemCollections;
+    /** Next segment to be scanned by a free scan thread */
+    private static AtomicInteger nextSegment;
+    /** Null when the memory of the pages in flight is not bounded */
+    private static ScanMemoryGovernor scanMemoryGovernor;
     
     // Used for running tests on DDB Local. (Rate Limiter cannot be used with DDB Local.)
     private static boolean isRunningOnDDBLocal = false;
@@ -50,7 +63,7 @@ public class TableReader {
     /**
      * Constructor for unit test purpose only.
      */
-    protected TableReader(Options options, AmazonDynamoDBClient dynamoDBClient, TableHelper tableHelper, ViolationChecker violationChecker,
+    protected TableReader(Options options, AmazonDynamoDB dynamoDBClient, TableHelper tableHelper, ViolationChecker violationChecker,
             List<String> attributesToGet, double taskRateLimit) {
         TableReader.options = options;
         TableReader.dynamoDBClient = dynamoDBClient;
@@ -58,12 +71,12 @@ public class TableReader {
         TableReader.attributesToGet = attributesToGet;
     }
 
-    public TableReader(Options options, AmazonDynamoDBClient dynamoDBClient, TableHelper tableHelper, boolean isRunningOnDDBLocal)
+    public TableReader(Options options, AmazonDynamoDB dynamoDBClient, TableHelper tableHelper, boolean isRunningOnDDBLocal)
             throws IOException, IllegalArgumentException {
         TableReader.options = options;
         TableReader.dynamoDBClient = dynamoDBClient;
         TableReader.tableHelper = tableHelper;
-        attributesToGet = tableHelper.getListOfAttributesToFetch(options.getGsiHashKeyName(), options.getGsiRangeKeyName());
+        attributesToGet = getAttributesToGet(options, tableHelper);
         itemsScanned = new AtomicLong(0);
         itemsScanLimit = options.getNumOfRecords();
         violationsFound = new AtomicLong(0);
@@ -75,6 +88,50 @@ public class TableReader {
         TableReader.isRunningOnDDBLocal = isRunningOnDDBLocal;
     }
 
+    /**
+     * The GSI backfill estimate also needs the attributes projected to the
+     * GSI, all of them for an ALL projection, and the item collection
+     * analysis needs the whole items. Null means all attributes.
+     */
+    protected static List<String> getAttributesToGet(Options options, TableHelper tableHelper) {
+        if (options.isItemCollectionAnalysis()) {
+            return null;
+        }
+        List<String> attributes = tableHelper.getListOfAttributesToFetch(options.getGsiHashKeyName(), options.getGsiRangeKeyName());
+        if (!options.isGsiBackfillEstimate()) {
+            return attributes;
+        }
+        if (ProjectionType.ALL.toString().equals(options.getGsiProjectionType())) {
+            return null;
+        }
+        if (ProjectionType.INCLUDE.toString().equals(options.getGsiProjectionType())) {
+            for (String attribute : options.getGsiNonKeyAttributes()) {
+                if (!attributes.contains(attribute)) {
+                    attributes.add(attribute);
+                }
+            }
+        }
+        return attributes;
+    }
+
+    /**
+     * Analytics of one segment, or of all once merged.
+     */
+    private static ViolationAnalytics createViolationAnalytics() {
+        GsiBackfillEstimator gsiBackfillEstimator = options.isGsiBackfillEstimate() ? new GsiBackfillEstimator(options, tableHelper) : null;
+        return new ViolationAnalytics(tableHelper.getTableHashKeyName(), options.getGsiHashKeyName(), options.getGsiRangeKeyName(), gsiBackfillEstimator);
+    }
+
+    /**
+     * Item collection sizes of the segments of one scan thread, the memory
+     * is shared by the scan threads.
+     */
+    private static ItemCollectionAnalyzer createItemCollectionAnalyzer() {
+        long memoryBytes = (long) options.getItemCollectionMemoryMB() * 1024 * 1024 / options.getNumOfScanThreads();
+        return new ItemCollectionAnalyzer(tableHelper.getTableHashKeyName(), tableHelper.getTableRangeKeyName(), tableHelper.getLocalSecondaryIndexes(),
+                memoryBytes, new File(options.getItemCollectionSpillDirectory()));
+    }
+
     protected void createViolationWriter() throws IOException {
         String outputFilePath;
         if (options.isDetectionOutputS3Path()) {
@@ -86,24 +143,107 @@ public class TableReader {
     }
 
     public void scanTable(boolean deleteViolationsAfterFound) throws IOException {
-        int numOfSegments = options.getNumOfSegments();
-        boolean parallelScan = Integer.parseInt(Options.NUM_OF_SEGMENTS_DEFAULT) != numOfSegments;
+        scanTable(deleteViolationsAfterFound, false /* fixViolationsAfterFound */);
+    }
+
+    /**
+     * Violations are either deleted or fixed after found, not both.
+     */
+    public void scanTable(boolean deleteViolationsAfterFound, boolean fixViolationsAfterFound) throws IOException {
+        new ScanSizer(options, tableHelper).resolve();
+        boolean parallelScan = options.getNumOfSegments() > 1;
         PrintHelper.printScanStartInfo(parallelScan, options.getTableName(), options.getGsiHashKeyName(), options.getGsiRangeKeyName());
         if (deleteViolationsAfterFound) {
             PrintHelper.printDeleteWarning();
+            DeleteFailureWriter.getInstance().init(options.getDeleteFailureOutputPath(), tableHelper.getTableRangeKeyName() != null);
+        }
+        violationFixer = null;
+        if (fixViolationsAfterFound && !deleteViolationsAfterFound) {
+            FixAuditWriter.getInstance().createOutputFile(options.getFixAuditOutputPath(), tableHelper.getTableRangeKeyName() != null);
+            violationFixer = new ViolationFixer(options, tableHelper, dynamoDBClient, isRunningOnDDBLocal);
+        }
+        segmentAnalytics = options.isAnalyticsReport() ? new ArrayList<ViolationAnalytics>() : null;
+        segmentItemCollections = options.isItemCollectionAnalysis() ? new ArrayList<ItemCollectionAnalyzer>() : null;
+        scanMemoryGovernor = options.getScanMemoryPercent() > 0 ? new ScanMemoryGovernor(options) : null;
+        capacityRefresher = null;
+        if (options.getCapacityRefreshIntervalSeconds() > 0 && !isRunningOnDDBLocal) {
+            capacityRefresher = new CapacityRefresher(tableHelper);
+            if (violationFixer != null) {
+                capacityRefresher.addWriteRateLimiter(violationFixer.getTableWriteRateLimiter());
+            }
+            capacityRefresher.start(options.getCapacityRefreshIntervalSeconds());
+        }
+        try {
+            createSegmentScanThreads(options.getNumOfScanThreads(), deleteViolationsAfterFound);
+        } finally {
+            if (capacityRefresher != null) {
+                capacityRefresher.stop();
+            }
+            if (violationFixer != null) {
+                violationFixer.shutdownAndWait();
+                FixAuditWriter.getInstance().flushAndCloseWriter();
+            }
         }
-        createSegmentScanThreads(numOfSegments, deleteViolationsAfterFound);
         if (options.recordDetails()) {
             ViolationWriter.getInstance().flushAndCloseWriter();
         }
+        if (segmentAnalytics != null) {
+            writeAnalyticsReport();
+        }
+        if (segmentItemCollections != null) {
+            writeItemCollectionReport();
+        }
+        if (scanMemoryGovernor != null) {
+            PrintHelper.printScanMemorySummary(scanMemoryGovernor.getBudgetKB(), scanMemoryGovernor.getPeakInFlightKB(), scanMemoryGovernor.getNumOfWaits());
+        }
         PrintHelper.printScanSummary(itemsScanned.get(), violationsFound.get(), violationsDeleted.get(), options.getDetectionOutputPath(), options.recordDetails());
+        if (deleteViolationsAfterFound) {
+            DeleteFailureWriter.getInstance().flushAndCloseWriter();
+            PrintHelper.printDeleteFailureSummary(DeleteFailureWriter.getInstance().getNumOfFailedDeletes(), options.getDeleteFailureOutputPath());
+        }
+        if (violationFixer != null) {
+            PrintHelper.printFixSummary(violationFixer.getItemsFixed(), violationFixer.getItemsChanged(), violationFixer.getItemsNotFixed(),
+                    violationFixer.getUnexpectedErrors(), options.getFixAuditOutputPath());
+        }
         return;
     }
 
+    /**
+     * Merge the analytics of the segments and write the report.
+     */
+    protected void writeAnalyticsReport() throws IOException {
+        ViolationAnalytics analytics = createViolationAnalytics();
+        for (ViolationAnalytics segment : segmentAnalytics) {
+            analytics.merge(segment);
+        }
+        double tableWriteRate = options.getProjectedTableWriteRate() > 0 ? options.getProjectedTableWriteRate() : tableHelper.getWriteCapacityUnits();
+        analytics.writeReport(options.getAnalyticsReportOutputPath(), options.getTableName(), tableWriteRate);
+        PrintHelper.printAnalyticsReportInfo(options.getAnalyticsReportOutputPath());
+    }
+
+    /**
+     * Merge the item collection sizes of the segments and write the hash
+     * keys over the threshold.
+     */
+    protected void writeItemCollectionReport() throws IOException {
+        ItemCollectionAnalyzer itemCollections = createItemCollectionAnalyzer();
+        for (ItemCollectionAnalyzer segment : segmentItemCollections) {
+            itemCollections.merge(segment);
+        }
+        itemCollections.writeReport(options.getItemCollectionOutputPath(), (long) options.getItemCollectionThresholdMB() * 1024 * 1024);
+        PrintHelper.printItemCollectionSummary(itemCollections.getItemsAnalyzed(), itemCollections.getDistinctHashKeys(),
+                itemCollections.getHashKeysOverThreshold(), itemCollections.getLargestCollectionBytes(), options.getItemCollectionOutputPath());
+    }
+
+    /**
+     * Each thread scans one segment at a time until all segments are
+     * scanned.
+     */
     protected void createSegmentScanThreads(int numOfThreadsToCreate, boolean deleteViolationsAfterFound) throws IOException {
+        nextSegment = new AtomicInteger(0);
         ExecutorService executor = Executors.newFixedThreadPool(numOfThreadsToCreate);
-        for (int segment = 0; segment < numOfThreadsToCreate; segment++) {
-            ScanSegment scanSegmenTask = new ScanSegment(options, tableHelper, dynamoDBClient, deleteViolationsAfterFound, segment);
+        for (int threadNum = 0; threadNum < numOfThreadsToCreate; threadNum++) {
+            ScanSegment scanSegmenTask = new ScanSegment(options, tableHelper, dynamoDBClient, deleteViolationsAfterFound, threadNum);
             executor.execute(scanSegmenTask);
         }
 
@@ -137,10 +277,17 @@ public class TableReader {
         return violationsDeleted.get();
     }
 
+    /**
+     * For testing, null unless violations are fixed
+     */
+    public ViolationFixer getViolationFixer() {
+        return violationFixer;
+    }
+
     private static class ScanSegment implements Runnable {
         private String tableName;
         private int numOfSegments;
-        private int segmentNum;
+        private int threadNum;
         private long itemScannedByThread = 0;
         private long violationFoundByThread = 0;
         private long violationDeleteByThread = 0;
@@ -149,62 +296,142 @@ public class TableReader {
 
         private TableWriter tableWriter;
         private TableRWRateLimiter tableReadRateLimiter;
+        private ViolationAnalytics violationAnalytics;
+        private ItemCollectionAnalyzer itemCollectionAnalyzer;
+        /** Null when scan responses are unmarshalled by the SDK */
+        private ScanResponseDecoder scanResponseDecoder = null;
 
-        public ScanSegment(Options options, TableHelper tableHelper, AmazonDynamoDBClient dynamoDBClient, boolean deleteViolationAfterFound, int segmentNum)
+        public ScanSegment(Options options, TableHelper tableHelper, AmazonDynamoDB dynamoDBClient, boolean deleteViolationAfterFound, int threadNum)
                 throws IOException {
             this.tableName = options.getTableName();
             this.numOfSegments = options.getNumOfSegments();
-            this.segmentNum = segmentNum;
+            this.threadNum = threadNum;
             this.deleteViolationAfterFound = deleteViolationAfterFound;
             this.violationChecker = new ViolationChecker(options, tableHelper);
-            this.tableWriter = new TableWriter(options, tableHelper, dynamoDBClient, numOfSegments, isRunningOnDDBLocal);
+            // The capacity is shared by the threads running at once, not by all the segments
+            this.tableWriter = new TableWriter(options, tableHelper, dynamoDBClient, options.getNumOfScanThreads(), isRunningOnDDBLocal);
             this.tableReadRateLimiter = new TableRWRateLimiter(tableHelper.getReadCapacityUnits(), options.getReadWriteIOPSPercent(),
-                    options.getNumOfSegments());
+                    options.getNumOfScanThreads());
+            if (segmentAnalytics != null) {
+                violationAnalytics = createViolationAnalytics();
+                synchronized (segmentAnalytics) {
+                    segmentAnalytics.add(violationAnalytics);
+                }
+            }
+            if (segmentItemCollections != null) {
+                itemCollectionAnalyzer = createItemCollectionAnalyzer();
+                synchronized (segmentItemCollections) {
+                    segmentItemCollections.add(itemCollectionAnalyzer);
+                }
+            }
+            if (capacityRefresher != null) {
+                capacityRefresher.addReadRateLimiter(tableReadRateLimiter);
+                capacityRefresher.addWriteRateLimiter(tableWriter.getTableWriteRateLimiter());
+            }
+            // Only the key attributes may be fetched for the decoder, analytics need whole items
+            if (options.isStreamingScanDecoder() && dynamoDBClient instanceof StreamingScanClient && attributesToGet != null
+                    && violationAnalytics == null && itemCollectionAnalyzer == null) {
+                scanResponseDecoder = new ScanResponseDecoder(options, tableHelper);
+            }
             /**Write header to the output file, this is not a good idea to test the first*/
-            if (segmentNum == 0 && options.recordDetails()) {
+            if (threadNum == 0 && options.recordDetails()) {
                 ViolationWriter.getInstance().addViolationRecord(violationChecker.getViolationRecordHead());
             }
         }
 
         @Override
         public void run() {
+            boolean scanNumLimitReached = false;
+            int segmentNum;
+            while (!scanNumLimitReached && (segmentNum = nextSegment.getAndIncrement()) < numOfSegments) {
+                scanNumLimitReached = scanSegment(segmentNum);
+            }
+
+            if (deleteViolationAfterFound) {
+                drainDeleteViolations();
+            }
+            if (itemCollectionAnalyzer != null) {
+                try {
+                    itemCollectionAnalyzer.finish();
+                } catch (IOException ioe) {
+                    throw new IllegalArgumentException("Error: Failed to spill item collection sizes to disk.");
+                }
+            }
+            return;
+        }
+
+        /**
+         * Scan the segment to its end, returns true if the number of items or
+         * violations to find is reached.
+         */
+        protected boolean scanSegment(int segmentNum) {
             Map<String, AttributeValue> exclusiveStartKey = null;
             ScanRequest scanRequest = new ScanRequest().withTableName(tableName).withAttributesToGet(attributesToGet)
                     .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL).withTotalSegments(numOfSegments).withSegment(segmentNum);
+            if (options.getScanPageSize() > 0) {
+                scanRequest.withLimit(options.getScanPageSize());
+            }
             boolean scanNumLimitReached = false;
             while (!scanNumLimitReached) {
                 scanRequest.withExclusiveStartKey(exclusiveStartKey);
-                ScanResult scanResult = dynamoDBClient.scan(scanRequest);
-                if(!isRunningOnDDBLocal) {
-                    // DDB Local does not support rate limiting
-                    tableReadRateLimiter.adjustRateWithConsumedCapacity(scanResult.getConsumedCapacity());
-                }
+                // The page is held until its items are checked and their deletes sent
+                int reservedKB = scanMemoryGovernor != null ? scanMemoryGovernor.acquire() : 0;
+                ConsumedCapacity consumedCapacity = null;
+                try {
+                    if (scanResponseDecoder != null) {
+                        ScanPage scanPage = ((StreamingScanClient) dynamoDBClient).streamingScan(scanRequest, scanResponseDecoder);
+                        consumedCapacity = scanPage.getConsumedCapacity();
+                        if(!isRunningOnDDBLocal) {
+                            tableReadRateLimiter.adjustRateWithConsumedCapacity(consumedCapacity);
+                        }
+                        scanNumLimitReached = checkScanPage(scanPage);
+                        exclusiveStartKey = scanPage.getLastEvaluatedKey();
+                    } else {
+                        ScanResult scanResult = dynamoDBClient.scan(scanRequest);
+                        consumedCapacity = scanResult.getConsumedCapacity();
+                        if(!isRunningOnDDBLocal) {
+                            // DDB Local does not support rate limiting
+                            tableReadRateLimiter.adjustRateWithConsumedCapacity(consumedCapacity);
+                        }
 
-                for (Map<String, AttributeValue> item : scanResult.getItems()) {
-                    checkItemViolationAndAddDeleteRequest(item);
-                    itemsScanned.addAndGet(1);
-                    itemScannedByThread += 1;
-                    scanNumLimitReached = isScanNumberLimitReached();
-                    if(scanNumLimitReached) {
-                        break;
+                        for (Map<String, AttributeValue> item : scanResult.getItems()) {
+                            checkItemViolationAndAddDeleteRequest(item);
+                            itemsScanned.addAndGet(1);
+                            itemScannedByThread += 1;
+                            scanNumLimitReached = isScanNumberLimitReached();
+                            if(scanNumLimitReached) {
+                                break;
+                            }
+                        }
+                        exclusiveStartKey = scanResult.getLastEvaluatedKey();
                     }
-                }
 
-                if (deleteViolationAfterFound) {
-                    sendDeleteViolations();
+                    if (deleteViolationAfterFound) {
+                        sendDeleteViolations();
+                    }
+                } finally {
+                    if (scanMemoryGovernor != null) {
+                        scanMemoryGovernor.release(reservedKB, consumedCapacity);
+                    }
                 }
                 PrintHelper.printScanProgress(itemsScanned.get(), itemScannedByThread, violationFoundByThread, violationDeleteByThread);
 
-                if (null == (exclusiveStartKey = scanResult.getLastEvaluatedKey())) {
+                if (null == exclusiveStartKey) {
                     break;
                 }
             }
-            return;
+            return scanNumLimitReached;
         }
 
         protected void checkItemViolationAndAddDeleteRequest(Map<String, AttributeValue> item) {
             try {
                 ViolationRecord violationRecord = violationChecker.checkItemViolationAndGetRecord(item);
+                if (violationAnalytics != null) {
+                    violationAnalytics.addItem(item, violationChecker);
+                }
+                if (itemCollectionAnalyzer != null) {
+                    itemCollectionAnalyzer.addItem(item);
+                }
                 if (violationRecord != null) {
                     if (options.recordDetails()) {
                         ViolationWriter.getInstance().addViolationRecord(violationRecord);
@@ -213,11 +440,34 @@ public class TableReader {
                     violationFoundByThread += 1;
                     if (deleteViolationAfterFound) {
                         addDeleteViolationRequests(item);
+                    } else if (violationFixer != null) {
+                        violationFixer.submit(item, violationChecker.isHashKeyViolation(), violationChecker.isRangeKeyViolation());
                     }
                 }
             } catch (IOException ioe) {
-                throw new IllegalArgumentException("Error: Failed to write violation records to file.");
+                throw new IllegalArgumentException("Error: Failed to write violation records or item collection sizes to file.");
+            }
+        }
+
+        /**
+         * Check the violation candidates of a decoded page, the other items
+         * of the page are counted as scanned without violation.
+         */
+        protected boolean checkScanPage(ScanPage scanPage) {
+            int itemsCounted = 0;
+            for (int i = 0; i < scanPage.getViolationCandidates().size(); i++) {
+                checkItemViolationAndAddDeleteRequest(scanPage.getViolationCandidates().get(i));
+                int index = scanPage.getViolationCandidateIndexes().get(i);
+                itemsScanned.addAndGet(index + 1 - itemsCounted);
+                itemScannedByThread += index + 1 - itemsCounted;
+                itemsCounted = index + 1;
+                if (isScanNumberLimitReached()) {
+                    return true;
+                }
             }
+            itemsScanned.addAndGet(scanPage.getCount() - itemsCounted);
+            itemScannedByThread += scanPage.getCount() - itemsCounted;
+            return isScanNumberLimitReached();
         }
 
         protected boolean isScanNumberLimitReached() {
@@ -243,5 +493,12 @@ public class TableReader {
             violationsDeleted.addAndGet(numOfDeletedItem);
             violationDeleteByThread += numOfDeletedItem;
         }
+
+        /** Keep retrying unprocessed deletes before the thread ends */
+        protected void drainDeleteViolations() {
+            int numOfDeletedItem = tableWriter.drainDeleteRetries();
+            violationsDeleted.addAndGet(numOfDeletedItem);
+            violationDeleteByThread += numOfDeletedItem;
+        }
     }
 }
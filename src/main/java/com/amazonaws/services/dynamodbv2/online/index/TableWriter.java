@@ -14,15 +14,20 @@
  */
 package com.amazonaws.services.dynamodbv2.online.index;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import org.apache.log4j.Logger;
 
 import com.amazonaws.AmazonServiceException;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBAsync;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
 import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
@@ -45,10 +50,20 @@ public class TableWriter {
     private String tableHashKeyName;
     private String tableRangeKeyName;
     private long totalNumOfItemsDeleted;
-    private AmazonDynamoDBClient dynamoDBClient;
+    private AmazonDynamoDB dynamoDBClient;
     private List<WriteRequest> batchDeleteRequests;
     public final static int MAX_BATCH_WRITE_REQUEST_NUM = 25;
     private TableRWRateLimiter tableWriteRateLimiter;
+
+    /** Unprocessed delete requests waiting to be retried, with their deadlines */
+    private List<DeleteRetry> deleteRetries = new LinkedList<DeleteRetry>();
+    private Map<Map<String, AttributeValue>, Long> sentDeleteRetryDeadlines = new HashMap<Map<String, AttributeValue>, Long>();
+    private long deleteRetryTimeoutMillis = 0;
+    private int deleteRetryAttempts = 0;
+    private long nextDeleteRetryTimeMillis = 0;
+    private Random random = new Random();
+    public final static long DELETE_RETRY_BASE_DELAY_MILLIS = 50;
+    public final static long DELETE_RETRY_MAX_DELAY_MILLIS = 10000;
     
     private static final Logger logger = Logger.getLogger(TableWriter.class);
     
@@ -58,7 +73,7 @@ public class TableWriter {
     /**
      * Constructor for unit test.
      */
-    public TableWriter(String tableName, String tableHashKeyName, String tableRangeKeyName, AmazonDynamoDBClient dynamoDBClient, RateLimiter rateLimiter,
+    public TableWriter(String tableName, String tableHashKeyName, String tableRangeKeyName, AmazonDynamoDB dynamoDBClient, RateLimiter rateLimiter,
             ArrayList<WriteRequest> batchDeleteRequests) {
         this.tableName = tableName;
         this.tableHashKeyName = tableHashKeyName;
@@ -67,14 +82,33 @@ public class TableWriter {
         this.batchDeleteRequests = batchDeleteRequests;
     }
 
-    public TableWriter(Options options, TableHelper tableHelper, AmazonDynamoDBClient dynamoDBClient, int numOfTasks, boolean isRunningOnDDBLocal) {
+    public TableWriter(Options options, TableHelper tableHelper, AmazonDynamoDB dynamoDBClient, int numOfTasks, boolean isRunningOnDDBLocal) {
+        this.tableName = options.getTableName();
+        this.tableHashKeyName = tableHelper.getTableHashKeyName();
+        this.tableRangeKeyName = tableHelper.getTableRangeKeyName();
+        this.dynamoDBClient = dynamoDBClient;
+        this.totalNumOfItemsDeleted = 0;
+        batchDeleteRequests = new ArrayList<WriteRequest>();
+        this.deleteRetryTimeoutMillis = options.getDeleteRetryTimeoutSeconds() * 1000L;
+        tableWriteRateLimiter = new TableRWRateLimiter(tableHelper.getWriteCapacityUnits(), tableHelper.getGsiWriteCapacityUnits(),
+                options.getReadWriteIOPSPercent(), numOfTasks);
+        TableWriter.isRunningOnDDBLocal = isRunningOnDDBLocal;
+    }
+
+    /**
+     * Create a writer pacing its writes with the given rate limiter, so that
+     * several writers can share one write capacity budget.
+     */
+    public TableWriter(Options options, TableHelper tableHelper, AmazonDynamoDB dynamoDBClient, TableRWRateLimiter tableWriteRateLimiter,
+            boolean isRunningOnDDBLocal) {
         this.tableName = options.getTableName();
         this.tableHashKeyName = tableHelper.getTableHashKeyName();
         this.tableRangeKeyName = tableHelper.getTableRangeKeyName();
         this.dynamoDBClient = dynamoDBClient;
         this.totalNumOfItemsDeleted = 0;
         batchDeleteRequests = new ArrayList<WriteRequest>();
-        tableWriteRateLimiter = new TableRWRateLimiter(tableHelper.getWriteCapacityUnits(), options.getReadWriteIOPSPercent(), numOfTasks);
+        this.deleteRetryTimeoutMillis = options.getDeleteRetryTimeoutSeconds() * 1000L;
+        this.tableWriteRateLimiter = tableWriteRateLimiter;
         TableWriter.isRunningOnDDBLocal = isRunningOnDDBLocal;
     }
 
@@ -108,28 +142,140 @@ public class TableWriter {
         return primaryKey;
     }
 
+    /**
+     * Send the delete requests added so far together with the unprocessed ones
+     * whose backoff has elapsed. Requests left unprocessed by DynamoDB are
+     * queued for retry instead of being dropped.
+     */
     public int sendDeleteRequests() throws IllegalArgumentException {
+        addDueDeleteRetries();
         if (batchDeleteRequests.isEmpty()) {
             return 0;
         }
-        BatchWriteItemRequest batchWriteItemRequest = genBatchWriteItemRequest();
+        int deletedRequest = 0;
+        // Retries added to the requests may take them over the batch limit
+        for (int start = 0; start < batchDeleteRequests.size(); start += MAX_BATCH_WRITE_REQUEST_NUM) {
+            int end = Math.min(start + MAX_BATCH_WRITE_REQUEST_NUM, batchDeleteRequests.size());
+            deletedRequest += sendBatchDeleteRequests(batchDeleteRequests.subList(start, end));
+        }
+        sentDeleteRetryDeadlines.clear();
+        totalNumOfItemsDeleted += deletedRequest;
+        PrintHelper.printDeleteProgressInfo(deletedRequest, totalNumOfItemsDeleted);
+        batchDeleteRequests = new ArrayList<WriteRequest>();
+        return deletedRequest;
+    }
+
+    /**
+     * Send the remaining delete requests and keep retrying the unprocessed ones
+     * until they are deleted or their deadline passes, in which case their keys
+     * are written to the delete failure file.
+     */
+    public int drainDeleteRetries() throws IllegalArgumentException {
+        int deletedRequest = sendDeleteRequests();
+        while (!deleteRetries.isEmpty()) {
+            long waitMillis = nextDeleteRetryTimeMillis - System.currentTimeMillis();
+            if (waitMillis > 0) {
+                try {
+                    Thread.sleep(waitMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    for (DeleteRetry deleteRetry : deleteRetries) {
+                        recordFailedDelete(deleteRetry.getKey());
+                    }
+                    deleteRetries.clear();
+                    break;
+                }
+            }
+            deletedRequest += sendDeleteRequests();
+        }
+        return deletedRequest;
+    }
+
+    protected int sendBatchDeleteRequests(List<WriteRequest> deleteRequests) throws IllegalArgumentException {
+        BatchWriteItemRequest batchWriteItemRequest = genBatchWriteItemRequest(deleteRequests);
         BatchWriteItemResult bathWriteResult = sendBatchWriteRequest(batchWriteItemRequest);
         int undeletedItemNum = countAndPrintUndeletedItems(bathWriteResult);
         if(!isRunningOnDDBLocal) {
             // DDB Local does not support rate limiting
             tableWriteRateLimiter.adjustRateWithConsumedCapacity(bathWriteResult.getConsumedCapacity());
         }
-        int deletedRequest = batchDeleteRequests.size() - undeletedItemNum;
-        totalNumOfItemsDeleted += deletedRequest;
-        PrintHelper.printDeleteProgressInfo(deletedRequest, totalNumOfItemsDeleted);
-        batchDeleteRequests = new ArrayList<WriteRequest>();
-        return deletedRequest;
+        if (undeletedItemNum > 0) {
+            addDeleteRetries(bathWriteResult.getUnprocessedItems().get(tableName));
+        } else {
+            deleteRetryAttempts = 0;
+        }
+        return deleteRequests.size() - undeletedItemNum;
+    }
+
+    /**
+     * Queue the unprocessed requests and back off with full jitter, the delay
+     * grows exponentially with consecutive batches having unprocessed items.
+     */
+    protected void addDeleteRetries(List<WriteRequest> unprocessedRequests) {
+        long now = System.currentTimeMillis();
+        for (WriteRequest unprocessedRequest : unprocessedRequests) {
+            Map<String, AttributeValue> key = unprocessedRequest.getDeleteRequest().getKey();
+            Long deadline = sentDeleteRetryDeadlines.get(key);
+            if (deadline == null) {
+                deadline = now + deleteRetryTimeoutMillis;
+            }
+            if (now >= deadline) {
+                recordFailedDelete(key);
+            } else {
+                deleteRetries.add(new DeleteRetry(key, deadline));
+            }
+        }
+        deleteRetryAttempts++;
+        nextDeleteRetryTimeMillis = now + getDeleteRetryDelayMillis(deleteRetryAttempts);
+    }
+
+    protected long getDeleteRetryDelayMillis(int attempts) {
+        long maxDelay = DELETE_RETRY_BASE_DELAY_MILLIS << Math.min(attempts, 20);
+        maxDelay = Math.min(maxDelay, DELETE_RETRY_MAX_DELAY_MILLIS);
+        return (long) (random.nextDouble() * maxDelay);
+    }
+
+    private void addDueDeleteRetries() {
+        long now = System.currentTimeMillis();
+        if (deleteRetries.isEmpty() || now < nextDeleteRetryTimeMillis) {
+            return;
+        }
+        for (DeleteRetry deleteRetry : deleteRetries) {
+            if (now >= deleteRetry.getDeadline()) {
+                recordFailedDelete(deleteRetry.getKey());
+            } else {
+                batchDeleteRequests.add(new WriteRequest().withDeleteRequest(new DeleteRequest().withKey(deleteRetry.getKey())));
+                sentDeleteRetryDeadlines.put(deleteRetry.getKey(), deleteRetry.getDeadline());
+            }
+        }
+        deleteRetries.clear();
+    }
+
+    private void recordFailedDelete(Map<String, AttributeValue> key) {
+        String tableHashKey = AttributeValueConverter.toBlankString(key.get(tableHashKeyName));
+        String tableRangeKey = null;
+        if (tableRangeKeyName != null) {
+            tableRangeKey = AttributeValueConverter.toBlankString(key.get(tableRangeKeyName));
+        }
+        try {
+            DeleteFailureWriter.getInstance().addFailedDelete(tableHashKey, tableRangeKey);
+        } catch (IOException ioe) {
+            throw new IllegalArgumentException("Error: Failed to write delete failures to file.");
+        }
+    }
+
+    public int getNumOfDeleteRetries() {
+        return deleteRetries.size();
     }
 
     protected BatchWriteItemRequest genBatchWriteItemRequest() {
+        return genBatchWriteItemRequest(batchDeleteRequests);
+    }
+
+    protected BatchWriteItemRequest genBatchWriteItemRequest(List<WriteRequest> deleteRequests) {
         Map<String, List<WriteRequest>> requestItems = new HashMap<String, List<WriteRequest>>();
-        requestItems.put(tableName, batchDeleteRequests);
-        return new BatchWriteItemRequest().withRequestItems(requestItems).withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        requestItems.put(tableName, deleteRequests);
+        return new BatchWriteItemRequest().withRequestItems(requestItems).withReturnConsumedCapacity(ReturnConsumedCapacity.INDEXES);
     }
 
     protected BatchWriteItemResult sendBatchWriteRequest(BatchWriteItemRequest batchWriteItemRequest) {
@@ -203,12 +349,7 @@ public class TableWriter {
         if (updateItems.isEmpty()) {
             return false; // No update, return false
         }
-        UpdateItemRequest updateItemRequest = new UpdateItemRequest().withTableName(tableName).withKey(primaryKey).withReturnValues(ReturnValue.UPDATED_NEW)
-                .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL).withAttributeUpdates(updateItems);
-        if (expectedItems != null) {
-            updateItemRequest.withExpected(expectedItems);
-        }
-
+        UpdateItemRequest updateItemRequest = genUpdateItemRequest(primaryKey, updateItems, expectedItems);
         UpdateItemResult result = dynamoDBClient.updateItem(updateItemRequest);
         if(!isRunningOnDDBLocal) {
             // DDB Local does not support rate limiting
@@ -216,4 +357,73 @@ public class TableWriter {
         }
         return true;
     }
+
+    /**
+     * Send the update without waiting for the response, the handler is called
+     * once the write capacity consumed by the update has been paced. The
+     * writer must be created with an async client.
+     * 
+     * @return false if there is nothing to update and no request was sent
+     */
+    public boolean sendUpdateRequestAsync(Map<String, AttributeValue> primaryKey, Map<String, AttributeValueUpdate> updateItems,
+            Map<String, ExpectedAttributeValue> expectedItems, final AsyncHandler<UpdateItemRequest, UpdateItemResult> handler) {
+        if (!(dynamoDBClient instanceof AmazonDynamoDBAsync)) {
+            throw new IllegalArgumentException("Error: Async updates can only be sent with an async DynamoDB client.");
+        }
+        if (updateItems.isEmpty()) {
+            return false; // No update, return false
+        }
+        UpdateItemRequest updateItemRequest = genUpdateItemRequest(primaryKey, updateItems, expectedItems);
+        ((AmazonDynamoDBAsync) dynamoDBClient).updateItemAsync(updateItemRequest, new AsyncHandler<UpdateItemRequest, UpdateItemResult>() {
+            @Override
+            public void onSuccess(UpdateItemRequest request, UpdateItemResult result) {
+                if (!isRunningOnDDBLocal) {
+                    // DDB Local does not support rate limiting
+                    tableWriteRateLimiter.adjustRateWithConsumedCapacity(result.getConsumedCapacity());
+                }
+                handler.onSuccess(request, result);
+            }
+
+            @Override
+            public void onError(Exception exception) {
+                handler.onError(exception);
+            }
+        });
+        return true;
+    }
+
+    private UpdateItemRequest genUpdateItemRequest(Map<String, AttributeValue> primaryKey, Map<String, AttributeValueUpdate> updateItems,
+            Map<String, ExpectedAttributeValue> expectedItems) {
+        UpdateItemRequest updateItemRequest = new UpdateItemRequest().withTableName(tableName).withKey(primaryKey).withReturnValues(ReturnValue.UPDATED_NEW)
+                .withReturnConsumedCapacity(ReturnConsumedCapacity.INDEXES).withAttributeUpdates(updateItems);
+        if (expectedItems != null) {
+            updateItemRequest.withExpected(expectedItems);
+        }
+        return updateItemRequest;
+    }
+
+    private static class DeleteRetry {
+        private Map<String, AttributeValue> key;
+        private long deadline;
+
+        public DeleteRetry(Map<String, AttributeValue> key, long deadline) {
+            this.key = key;
+            this.deadline = deadline;
+        }
+
+        public Map<String, AttributeValue> getKey() {
+            return key;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+    }
+
+    /**
+     * Null when created for unit test.
+     */
+    public TableRWRateLimiter getTableWriteRateLimiter() {
+        return tableWriteRateLimiter;
+    }
 }
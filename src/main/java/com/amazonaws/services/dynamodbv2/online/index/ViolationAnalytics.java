@@ -0,0 +1,280 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * Aggregate the violation check results of the scanned items in fixed
+ * memory, so that an analytics report can be written at the end of the scan
+ * without reparsing the detection output.
+ * 
+ * Each scan segment keeps its own instance, the instances are merged once
+ * the segments end. Not thread safe.
+ */
+public class ViolationAnalytics {
+
+    /** Number of leading characters of the table hash key grouped together */
+    public static final int KEY_PREFIX_LENGTH = 8;
+    /** Number of prefixes counted, more than reported to improve accuracy */
+    public static final int KEY_PREFIX_CAPACITY = 1000;
+    public static final int NUM_OF_TOP_KEY_PREFIXES = 20;
+
+    private String tableHashKeyName;
+    private String gsiHashKeyName;
+    private String gsiRangeKeyName;
+
+    private long itemsScanned = 0;
+    private long itemsWithViolations = 0;
+    private long itemsMissingGsiHashKey = 0;
+    private long itemsMissingGsiRangeKey = 0;
+    private Map<String, Long> gsiHashKeyViolations = new TreeMap<String, Long>();
+    private Map<String, Long> gsiRangeKeyViolations = new TreeMap<String, Long>();
+    private SizeHistogram oversizeValueSizes = new SizeHistogram();
+    private SpaceSaving topViolatingKeyPrefixes = new SpaceSaving(KEY_PREFIX_CAPACITY);
+    private HyperLogLog distinctViolatingHashKeys = new HyperLogLog();
+    /** Null if no GSI hash key is checked */
+    private HotKeyPredictor hotKeyPredictor;
+    /** Null if the GSI backfill is not estimated */
+    private GsiBackfillEstimator gsiBackfillEstimator;
+
+    public ViolationAnalytics(String tableHashKeyName, String gsiHashKeyName, String gsiRangeKeyName) {
+        this(tableHashKeyName, gsiHashKeyName, gsiRangeKeyName, null /* gsiBackfillEstimator */);
+    }
+
+    public ViolationAnalytics(String tableHashKeyName, String gsiHashKeyName, String gsiRangeKeyName, GsiBackfillEstimator gsiBackfillEstimator) {
+        this.tableHashKeyName = tableHashKeyName;
+        this.gsiBackfillEstimator = gsiBackfillEstimator;
+        this.gsiHashKeyName = gsiHashKeyName;
+        this.gsiRangeKeyName = gsiRangeKeyName;
+        if (gsiHashKeyName != null) {
+            hotKeyPredictor = new HotKeyPredictor(gsiHashKeyName);
+        }
+    }
+
+    /**
+     * Add an item just checked by the given violation checker.
+     */
+    public void addItem(Map<String, AttributeValue> item, ViolationChecker violationChecker) {
+        itemsScanned++;
+        if (gsiHashKeyName != null) {
+            AttributeValue gsiHashKeyValue = item.get(gsiHashKeyName);
+            if (gsiHashKeyValue == null) {
+                itemsMissingGsiHashKey++;
+            } else if (violationChecker.getHashKeyViolationType() == null && violationChecker.getRangeKeyViolationType() == null) {
+                // Items with violations on either GSI key cannot be written to the GSI
+                hotKeyPredictor.addValue(toKeyString(gsiHashKeyValue));
+            }
+        }
+        if (gsiRangeKeyName != null && !item.containsKey(gsiRangeKeyName)) {
+            itemsMissingGsiRangeKey++;
+        }
+        String hashKeyViolationType = violationChecker.getHashKeyViolationType();
+        String rangeKeyViolationType = violationChecker.getRangeKeyViolationType();
+        if (gsiBackfillEstimator != null) {
+            gsiBackfillEstimator.addItem(item, hashKeyViolationType != null || rangeKeyViolationType != null);
+        }
+        if (hashKeyViolationType == null && rangeKeyViolationType == null) {
+            return;
+        }
+        itemsWithViolations++;
+        if (hashKeyViolationType != null) {
+            increment(gsiHashKeyViolations, hashKeyViolationType, 1);
+            if (ViolationChecker.SIZE_VIOLATION.equals(hashKeyViolationType)) {
+                oversizeValueSizes.add(violationChecker.getHashKeyViolationSize());
+            }
+        }
+        if (rangeKeyViolationType != null) {
+            increment(gsiRangeKeyViolations, rangeKeyViolationType, 1);
+            if (ViolationChecker.SIZE_VIOLATION.equals(rangeKeyViolationType)) {
+                oversizeValueSizes.add(violationChecker.getRangeKeyViolationSize());
+            }
+        }
+        AttributeValue tableHashKey = item.get(tableHashKeyName);
+        if (tableHashKey != null) {
+            String tableHashKeyString = toKeyString(tableHashKey);
+            distinctViolatingHashKeys.add(tableHashKeyString);
+            topViolatingKeyPrefixes.add(tableHashKeyString.length() > KEY_PREFIX_LENGTH ? tableHashKeyString.substring(0, KEY_PREFIX_LENGTH)
+                    : tableHashKeyString);
+        }
+    }
+
+    public void merge(ViolationAnalytics other) {
+        itemsScanned += other.itemsScanned;
+        itemsWithViolations += other.itemsWithViolations;
+        itemsMissingGsiHashKey += other.itemsMissingGsiHashKey;
+        itemsMissingGsiRangeKey += other.itemsMissingGsiRangeKey;
+        for (Map.Entry<String, Long> entry : other.gsiHashKeyViolations.entrySet()) {
+            increment(gsiHashKeyViolations, entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, Long> entry : other.gsiRangeKeyViolations.entrySet()) {
+            increment(gsiRangeKeyViolations, entry.getKey(), entry.getValue());
+        }
+        oversizeValueSizes.merge(other.oversizeValueSizes);
+        topViolatingKeyPrefixes.merge(other.topViolatingKeyPrefixes);
+        distinctViolatingHashKeys.merge(other.distinctViolatingHashKeys);
+        if (hotKeyPredictor != null) {
+            hotKeyPredictor.merge(other.hotKeyPredictor);
+        }
+        if (gsiBackfillEstimator != null) {
+            gsiBackfillEstimator.merge(other.gsiBackfillEstimator);
+        }
+    }
+
+    /**
+     * String of a key value, binary is Base64 encoded. The value is not
+     * changed, unlike when decoding binary with AttributeValueConverter.
+     */
+    protected static String toKeyString(AttributeValue value) {
+        if (value.getS() != null) {
+            return value.getS();
+        }
+        if (value.getN() != null) {
+            return value.getN();
+        }
+        if (value.getB() != null) {
+            ByteBuffer buffer = value.getB().duplicate();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return BaseEncoding.base64().encode(bytes);
+        }
+        return value.toString();
+    }
+
+    private static void increment(Map<String, Long> counts, String key, long count) {
+        Long current = counts.get(key);
+        counts.put(key, current == null ? count : current + count);
+    }
+
+    /**
+     * Write the report as JSON to the given local path. The table write rate
+     * is used to project the write rate of the GSI hash key values.
+     */
+    public void writeReport(String outputPath, String tableName, double tableWriteRate) throws IOException {
+        JsonGenerator generator = new JsonFactory().createGenerator(new File(outputPath), JsonEncoding.UTF8);
+        try {
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartObject();
+            generator.writeStringField("tableName", tableName);
+            generator.writeNumberField("itemsScanned", itemsScanned);
+            generator.writeNumberField("itemsWithViolations", itemsWithViolations);
+            generator.writeNumberField("distinctTableHashKeysWithViolations", distinctViolatingHashKeys.estimate());
+            if (gsiHashKeyName != null) {
+                writeGsiKey(generator, "gsiHashKey", gsiHashKeyName, itemsMissingGsiHashKey, gsiHashKeyViolations);
+            }
+            if (gsiRangeKeyName != null) {
+                writeGsiKey(generator, "gsiRangeKey", gsiRangeKeyName, itemsMissingGsiRangeKey, gsiRangeKeyViolations);
+            }
+            writeSizes(generator, "oversizeValueSizes", oversizeValueSizes);
+            generator.writeArrayFieldStart("topTableHashKeyPrefixesWithViolations");
+            for (SpaceSaving.Entry entry : topViolatingKeyPrefixes.getTop(NUM_OF_TOP_KEY_PREFIXES)) {
+                generator.writeStartObject();
+                generator.writeStringField("prefix", entry.getValue());
+                generator.writeNumberField("violations", entry.getCount());
+                generator.writeNumberField("maxOverestimate", entry.getError());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            if (hotKeyPredictor != null) {
+                hotKeyPredictor.writeReport(generator, itemsScanned, tableWriteRate);
+            }
+            if (gsiBackfillEstimator != null) {
+                gsiBackfillEstimator.writeReport(generator);
+            }
+            generator.writeEndObject();
+        } finally {
+            generator.close();
+        }
+    }
+
+    private static void writeGsiKey(JsonGenerator generator, String fieldName, String attributeName, long itemsMissing, Map<String, Long> violations)
+            throws IOException {
+        generator.writeObjectFieldStart(fieldName);
+        generator.writeStringField("attributeName", attributeName);
+        generator.writeNumberField("itemsMissingAttribute", itemsMissing);
+        generator.writeObjectFieldStart("violations");
+        for (Map.Entry<String, Long> entry : violations.entrySet()) {
+            generator.writeNumberField(entry.getKey(), entry.getValue());
+        }
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    protected static void writeSizes(JsonGenerator generator, String fieldName, SizeHistogram sizes) throws IOException {
+        generator.writeObjectFieldStart(fieldName);
+        generator.writeNumberField("count", sizes.getCount());
+        generator.writeNumberField("min", sizes.getMin());
+        generator.writeNumberField("mean", Math.round(sizes.getMean()));
+        generator.writeNumberField("p50", sizes.getQuantile(0.5));
+        generator.writeNumberField("p90", sizes.getQuantile(0.9));
+        generator.writeNumberField("p99", sizes.getQuantile(0.99));
+        generator.writeNumberField("max", sizes.getMax());
+        generator.writeEndObject();
+    }
+
+    public long getItemsScanned() {
+        return itemsScanned;
+    }
+
+    public long getItemsWithViolations() {
+        return itemsWithViolations;
+    }
+
+    public long getItemsMissingGsiHashKey() {
+        return itemsMissingGsiHashKey;
+    }
+
+    public long getItemsMissingGsiRangeKey() {
+        return itemsMissingGsiRangeKey;
+    }
+
+    public Map<String, Long> getGsiHashKeyViolations() {
+        return gsiHashKeyViolations;
+    }
+
+    public Map<String, Long> getGsiRangeKeyViolations() {
+        return gsiRangeKeyViolations;
+    }
+
+    public SizeHistogram getOversizeValueSizes() {
+        return oversizeValueSizes;
+    }
+
+    public SpaceSaving getTopViolatingKeyPrefixes() {
+        return topViolatingKeyPrefixes;
+    }
+
+    public HotKeyPredictor getHotKeyPredictor() {
+        return hotKeyPredictor;
+    }
+
+    public GsiBackfillEstimator getGsiBackfillEstimator() {
+        return gsiBackfillEstimator;
+    }
+
+    public long getDistinctViolatingHashKeys() {
+        return distinctViolatingHashKeys.estimate();
+    }
+}
@@ -31,6 +31,7 @@ public class ViolationChecker {
     /** Violation Types */
     public static final String SIZE_VIOLATION = "Size Violation";
     public static final String TYPE_VIOLATION = "Type Violation";
+    public static final String NUMBER_VIOLATION = "Number Violation";
 
     /** Maximum Values in Bytes */
     public static final int MAX_HASH_KEY_SIZE = 2048;
@@ -58,6 +59,14 @@ public class ViolationChecker {
     private ViolationRecord violationRecord;
     private boolean isHashKeyViolation = false;
     private boolean isRangeKeyViolation = false;
+    private String hashKeyViolationType = null;
+    private String rangeKeyViolationType = null;
+    private int hashKeyViolationSize = 0;
+    private int rangeKeyViolationSize = 0;
+    /** Type and size of the violation found by the last attribute check */
+    private String violationType = null;
+    private int violationSize = 0;
+    private NumberValidator numberValidator = new NumberValidator();
 
     /**
      * Constructor for unit tests
@@ -123,6 +132,8 @@ public class ViolationChecker {
     public ViolationRecord checkItemViolationAndGetRecord(Map<String, AttributeValue> item) {
         isHashKeyViolation = false;
         isRangeKeyViolation = false;
+        hashKeyViolationType = null;
+        rangeKeyViolationType = null;
 
         if (recordViolation) {
             violationRecord.clear();
@@ -133,6 +144,10 @@ public class ViolationChecker {
             /** If that value does not exist, ignore */
             if (GSIHashKeyValue != null) {
                 isHashKeyViolation = checkAttributeViolation(GSIHashKeyValue, GSIHashKeyType, KeyType.HASH);
+                if (isHashKeyViolation) {
+                    hashKeyViolationType = violationType;
+                    hashKeyViolationSize = violationSize;
+                }
             }
         }
 
@@ -140,6 +155,10 @@ public class ViolationChecker {
             AttributeValue GSIRangeKeyValue = item.get(GSIRangeKeyName);
             if (GSIRangeKeyValue != null) {
                 isRangeKeyViolation = checkAttributeViolation(GSIRangeKeyValue, GSIRangeKeyType, KeyType.RANGE);
+                if (isRangeKeyViolation) {
+                    rangeKeyViolationType = violationType;
+                    rangeKeyViolationSize = violationSize;
+                }
             }
         }
 
@@ -161,8 +180,56 @@ public class ViolationChecker {
         return null;
     }
 
+    /**
+     * If the GSI hash key of the last checked item is a violation.
+     */
+    public boolean isHashKeyViolation() {
+        return isHashKeyViolation;
+    }
+
+    /**
+     * If the GSI range key of the last checked item is a violation.
+     */
+    public boolean isRangeKeyViolation() {
+        return isRangeKeyViolation;
+    }
+
+    /**
+     * Violation type of the GSI hash key of the last checked item, null if
+     * not a violation.
+     */
+    public String getHashKeyViolationType() {
+        return hashKeyViolationType;
+    }
+
+    /**
+     * Violation type of the GSI range key of the last checked item, null if
+     * not a violation.
+     */
+    public String getRangeKeyViolationType() {
+        return rangeKeyViolationType;
+    }
+
+    /**
+     * Size in bytes of the GSI hash key of the last checked item if it is a
+     * size violation.
+     */
+    public int getHashKeyViolationSize() {
+        return hashKeyViolationSize;
+    }
+
+    /**
+     * Size in bytes of the GSI range key of the last checked item if it is a
+     * size violation.
+     */
+    public int getRangeKeyViolationSize() {
+        return rangeKeyViolationSize;
+    }
+
     protected boolean checkAttributeViolation(AttributeValue keyValue, String expectedDatatype, KeyType keyType) {
         int maxKeySize = keyType.name().equals(KeyType.HASH.name()) ? MAX_HASH_KEY_SIZE : MAX_RANGE_KEY_SIZE;
+        violationType = TYPE_VIOLATION;
+        violationSize = 0;
         if (keyValue.getS() != null) {
             if (!ScalarAttributeType.S.name().equals(expectedDatatype)) {
                 if (recordViolation) {
@@ -172,6 +239,8 @@ public class ViolationChecker {
             } else {
                 int size = keyValue.getS().getBytes(UTF8).length;
                 if (size > maxKeySize) {
+                    violationType = SIZE_VIOLATION;
+                    violationSize = size;
                     if (recordViolation) {
                         recordSizeViolation(keyValue, size, keyType);
                     }
@@ -187,8 +256,16 @@ public class ViolationChecker {
                 }
                 return true;
             } else {
-                // There can be no size violation for Number datatype
-                return false;
+                // Number has no size limit, but its precision and magnitude are limited
+                int result = numberValidator.validate(keyValue.getN());
+                if (result == NumberValidator.VALID) {
+                    return false;
+                }
+                violationType = NUMBER_VIOLATION;
+                if (recordViolation) {
+                    recordNumberViolation(keyValue, keyType, result);
+                }
+                return true;
             }
         } else if (keyValue.getB() != null) {
             if (!ScalarAttributeType.B.name().equals(expectedDatatype)) {
@@ -199,6 +276,8 @@ public class ViolationChecker {
             } else {
                 int size = keyValue.getB().array().length;
                 if (size > maxKeySize) {
+                    violationType = SIZE_VIOLATION;
+                    violationSize = size;
                     if (recordViolation) {
                         recordSizeViolation(keyValue, size, keyType);
                     }
@@ -259,6 +338,31 @@ public class ViolationChecker {
         }
     }
 
+    protected void recordNumberViolation(AttributeValue keyValue, KeyType keyType, int validationResult) {
+        String violationDesc;
+        if (validationResult == NumberValidator.PRECISION_EXCEEDED) {
+            violationDesc = "Max Precision Allowed: " + NumberValidator.MAX_PRECISION + " Found: " + numberValidator.getSignificantDigits();
+        } else if (validationResult == NumberValidator.MAGNITUDE_EXCEEDED) {
+            violationDesc = "Exponent Range Allowed: " + NumberValidator.MIN_EXPONENT + " ~ " + NumberValidator.MAX_EXPONENT + " Found: "
+                    + numberValidator.getExponent();
+        } else {
+            violationDesc = "Invalid Number Format";
+        }
+        if (keyType == KeyType.HASH) {
+            if (recordGsiValueInViolationRecord) {
+                violationRecord.setGSIHashKey(AttributeValueConverter.toStringWithAttributeType(keyValue));
+            }
+            violationRecord.setGSIHashKeyViolationType(NUMBER_VIOLATION);
+            violationRecord.setGSIHashKeyViolationDesc(violationDesc);
+        } else {
+            if (recordGsiValueInViolationRecord) {
+                violationRecord.setGSIRangeKey(AttributeValueConverter.toStringWithAttributeType(keyValue));
+            }
+            violationRecord.setGSIRangeKeyViolationType(NUMBER_VIOLATION);
+            violationRecord.setGSIRangeKeyViolationDesc(violationDesc);
+        }
+    }
+
     public void recordItemTablePrimaryKey(AttributeValue itemHashKey, AttributeValue itemRangeKey) {
         recordItemTableHashKey(itemHashKey);
         recordItemTableRangeKey(itemRangeKey);
@@ -27,7 +27,8 @@ import org.apache.commons.cli.ParseException;
 import org.apache.log4j.Logger;
 
 import com.amazonaws.AmazonServiceException;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBAsync;
 import com.amazonaws.services.s3.AmazonS3Client;
 import com.amazonaws.services.s3.model.GetObjectRequest;
 
@@ -49,8 +50,9 @@ public class ViolationDetector {
     private boolean runOnDDBLocal = false;
     
     // Command line usage
-    private static final String TOOL_USAGE = "\nDetection:  java -jar ViolationDetector.jar -p <config-file-path> -t <keep/delete>\n" +
-            "Correction: java -jar ViolationDetector.jar -p <config-file-path> -c <update/delete>";
+    private static final String TOOL_USAGE = "\nDetection:  java -jar ViolationDetector.jar -p <config-file-path> -t <keep/delete/fix>\n" +
+            "Estimate:   java -jar ViolationDetector.jar -p <config-file-path> -e\n" +
+            "Correction: java -jar ViolationDetector.jar -p <config-file-path> -c <update/delete> [-d]";
     private static final int TOOL_USAGE_WIDTH = 150;
 
     /**
@@ -84,7 +86,7 @@ public class ViolationDetector {
         try {
             optionLoader.loadDetectionOptions();
             options = optionLoader.getOptions();
-            awsConnection = new AWSConnection(options.getCredentialsFilePath());
+            awsConnection = new AWSConnection(options.getCredentialsFilePath(), options);
         } catch (Exception e) {
             logger.error("Exception!", e);
             e.printStackTrace();
@@ -107,12 +109,16 @@ public class ViolationDetector {
     }
 
     public void violationDetection(boolean delete) {
+        violationDetection(delete, false /* fix */);
+    }
+
+    public void violationDetection(boolean delete, boolean fix) {
         try {
-            AmazonDynamoDBClient dynamoDBClient = awsConnection.getDynamoDBClient(options.getDynamoDBRegion(), runOnDDBLocal);
+            AmazonDynamoDB dynamoDBClient = awsConnection.getDynamoDBClient(options.getDynamoDBRegion(), runOnDDBLocal);
             tableHelper = new TableHelper(dynamoDBClient, options.getTableName());
             tableReader = new TableReader(options, dynamoDBClient, tableHelper, runOnDDBLocal);
             validateKeyNames();
-            tableReader.scanTable(delete);
+            tableReader.scanTable(delete, fix);
         } catch (Exception e) {
             logger.error("Exception!", e);
             e.printStackTrace();
@@ -124,6 +130,23 @@ public class ViolationDetector {
         }
     }
 
+    /**
+     * Estimate the cost and time of the detection scan, only a few pages
+     * of the table are scanned.
+     */
+    public void scanEstimate() {
+        try {
+            AmazonDynamoDB dynamoDBClient = awsConnection.getDynamoDBClient(options.getDynamoDBRegion(), runOnDDBLocal);
+            tableHelper = new TableHelper(dynamoDBClient, options.getTableName());
+            validateKeyNames();
+            new ScanEstimator(options, tableHelper, dynamoDBClient, runOnDDBLocal).estimate();
+        } catch (Exception e) {
+            logger.error("Exception!", e);
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
     /**
      * Ensure that gsiHashKeyName and gsiRangeKeyName is not equal to table hash key name or table range key name
      */
@@ -175,7 +198,7 @@ public class ViolationDetector {
         try {
             optionLoader.loadCorrectionOptions();
             options = optionLoader.getOptions();
-            awsConnection = new AWSConnection(options.getCredentialsFilePath());
+            awsConnection = new AWSConnection(options.getCredentialsFilePath(), options);
         } catch (Exception e) {
             logger.error("Exception!", e);
             e.printStackTrace();
@@ -200,16 +223,25 @@ public class ViolationDetector {
     }
 
     public void violationCorrection(boolean delete, boolean useConditionalUpdate) {
-        /** Get file from S3 to temporary correction file before processing */
-        if (options.isCorrectionInputS3Path()) {
+        /** Get file from S3 to temporary correction file before processing, unless it is streamed */
+        if (options.isCorrectionInputS3Path() && !options.isStreamCorrectionInputFromS3()) {
             downloadInputFileToLocal();
         }
 
+        AmazonDynamoDB dynamoDBClient = null;
         try {
-            AmazonDynamoDBClient dynamoDBClient = awsConnection.getDynamoDBClient(options.getDynamoDBRegion(), runOnDDBLocal);
+            if (!delete && options.isAsyncCorrection()) {
+                dynamoDBClient = awsConnection.getDynamoDBAsyncClient(options.getDynamoDBRegion(), runOnDDBLocal, options.getMaxInFlightUpdates());
+            } else {
+                dynamoDBClient = awsConnection.getDynamoDBClient(options.getDynamoDBRegion(), runOnDDBLocal);
+            }
             tableHelper = new TableHelper(dynamoDBClient, options.getTableName());
             validateKeyNames();
-            correction = new Correction(options, tableHelper, dynamoDBClient, runOnDDBLocal);
+            if (options.isCorrectionInputS3Path() && options.isStreamCorrectionInputFromS3()) {
+                correction = new Correction(options, tableHelper, dynamoDBClient, awsConnection.getS3Client(), runOnDDBLocal);
+            } else {
+                correction = new Correction(options, tableHelper, dynamoDBClient, runOnDDBLocal);
+            }
             if (delete) {
                 correction.deleteFromFile();
             } else {
@@ -222,6 +254,36 @@ public class ViolationDetector {
             logger.error("Exception!", e);
             e.printStackTrace();
             System.exit(1);
+        } finally {
+            // Threads of the async client would keep the tool running
+            if (dynamoDBClient instanceof AmazonDynamoDBAsync) {
+                dynamoDBClient.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Validate the correction input and estimate its cost, nothing is
+     * written to the table.
+     */
+    public void violationCorrectionDryRun(boolean delete) {
+        if (options.isCorrectionInputS3Path() && !options.isStreamCorrectionInputFromS3()) {
+            downloadInputFileToLocal();
+        }
+        try {
+            AmazonDynamoDB dynamoDBClient = awsConnection.getDynamoDBClient(options.getDynamoDBRegion(), runOnDDBLocal);
+            tableHelper = new TableHelper(dynamoDBClient, options.getTableName());
+            validateKeyNames();
+            if (options.isCorrectionInputS3Path() && options.isStreamCorrectionInputFromS3()) {
+                correction = new Correction(options, tableHelper, dynamoDBClient, awsConnection.getS3Client(), runOnDDBLocal);
+            } else {
+                correction = new Correction(options, tableHelper, dynamoDBClient, runOnDDBLocal);
+            }
+            correction.dryRunFromFile(delete);
+        } catch (Exception e) {
+            logger.error("Exception!", e);
+            e.printStackTrace();
+            System.exit(1);
         }
     }
 
@@ -261,6 +323,25 @@ public class ViolationDetector {
         }
     }
     
+    private static void confirmFix() {
+        Scanner scanner = new Scanner(System.in);
+        System.out.println("Are you sure to fix all violations on the table with the configured transforms? y/n ");
+        String op = scanner.nextLine().trim();
+        if (op.equalsIgnoreCase("n")) {
+            logger.info("User decided to not fix. Exiting...");
+            scanner.close();
+            System.exit(0);
+        } else if (op.equalsIgnoreCase("y")) {
+            logger.info("Confirmed fix. Will fix all violations in the table...");
+            scanner.close();
+        } else {
+            logger.error("Invalid entry by the user. Will exit.");
+            System.out.println("Please type in y/n, exiting...");
+            scanner.close();
+            System.exit(0);
+        }
+    }
+    
     private static boolean getUseConditionalUpdateOptionFromConsole() {
         Scanner scanner = new Scanner(System.in);
         System.out.println("Do you want to use conditional update? y/n ");
@@ -290,11 +371,12 @@ public class ViolationDetector {
 
         Option optionHelp = new Option("h", "help", false, "Help and usage information");
 
-        OptionBuilder.withArgName("keep/delete");
+        OptionBuilder.withArgName("keep/delete/fix");
         OptionBuilder.withLongOpt("detect");
         OptionBuilder.hasArg();
         OptionBuilder.withDescription("Detect violations on given table. " + "\nwith 'keep', violations will be kept and recorded;"
-                + "\nwith 'delete', violations will be deleted and recorded.");
+                + "\nwith 'delete', violations will be deleted and recorded;"
+                + "\nwith 'fix', violations will be fixed with the configured transforms and recorded.");
         Option optionDetection = OptionBuilder.create("t");
 
         OptionBuilder.withArgName("update/delete");
@@ -305,6 +387,12 @@ public class ViolationDetector {
                 + "\nwith 'update', records on input file will be updated to the table.");
         Option optionCorrection = OptionBuilder.create("c");
 
+        Option optionEstimate = new Option("e", "estimate", false, "Estimate the read units and time of the detection scan on given table, "
+                + "and recommend the number of segments, with a short calibration scan.");
+
+        Option optionDryRun = new Option("d", "dryRun", false, "With 'c/correct', validate the correction input file and estimate the write units "
+                + "and time the correction would take, without writing to the table.");
+
         OptionBuilder.withArgName("configFilePath");
         OptionBuilder.withLongOpt("configFilePath");
         OptionBuilder.hasArg();
@@ -314,6 +402,8 @@ public class ViolationDetector {
         options.addOption(optionConfigFilePath);
         options.addOption(optionDetection);
         options.addOption(optionCorrection);
+        options.addOption(optionDryRun);
+        options.addOption(optionEstimate);
         options.addOption(optionHelp);
 
         try {
@@ -335,6 +425,10 @@ public class ViolationDetector {
                     confirmDelete();
                     detector.initDetection();
                     detector.violationDetection(true);
+                } else if (detectOption.compareTo("fix") == 0) {
+                    confirmFix();
+                    detector.initDetection();
+                    detector.violationDetection(false, true);
                 } else if (detectOption.compareTo("keep") == 0) {
                     detector.initDetection();
                     detector.violationDetection(false);
@@ -347,6 +441,19 @@ public class ViolationDetector {
                 return;
             }
 
+            /** Scan estimate */
+            if (commandLine.hasOption("e")) {
+                if(!commandLine.hasOption("p")) {
+                    logger.error("Config file path not provided. Exiting...");
+                    formatter.printHelp(TOOL_USAGE_WIDTH, TOOL_USAGE, null /*header*/, options, null /*footer*/);
+                    System.exit(1);
+                }
+                detector.setConfigFile(commandLine.getOptionValue("p"));
+                detector.initDetection();
+                detector.scanEstimate();
+                return;
+            }
+
             /** Violation correction */
             if (commandLine.hasOption("c")) {
                 if(!commandLine.hasOption("p")) {
@@ -358,7 +465,11 @@ public class ViolationDetector {
                 detector.setConfigFile(configFilePath);
                 
                 String correctOption = commandLine.getOptionValue("c");
-                if (correctOption.compareTo("delete") == 0) {
+                boolean dryRun = commandLine.hasOption("d");
+                if (dryRun && (correctOption.compareTo("delete") == 0 || correctOption.compareTo("update") == 0)) {
+                    detector.initCorrection();
+                    detector.violationCorrectionDryRun(correctOption.compareTo("delete") == 0);
+                } else if (correctOption.compareTo("delete") == 0) {
                     confirmDelete();
                     detector.initCorrection();
                     detector.violationCorrection(true, false /* useConditionalUpdate */);
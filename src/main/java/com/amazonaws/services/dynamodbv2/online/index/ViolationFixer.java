@@ -0,0 +1,332 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeAction;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+
+/**
+ * Fix violations found during detection with the configured transforms. The
+ * fixes are sent as conditional updates, expecting the violating values, by
+ * a pool of writer threads separate from the scan threads, and recorded in
+ * the fix audit output file.
+ */
+public class ViolationFixer {
+    /** Transforms */
+    public static final String TRUNCATE = "truncate";
+    public static final String COERCE = "coerce";
+    public static final String REMOVE = "remove";
+    public static final String NONE = "none";
+
+    /** Results recorded in the audit file */
+    public static final String FIXED = "Fixed";
+    public static final String NOT_FIXED = "Not Fixed";
+    public static final String CHANGED_SINCE_SCAN = "Changed Since Scan";
+
+    private static final int FIX_QUEUE_SIZE = 1000;
+
+    private String tableHashKeyName;
+    private String tableRangeKeyName;
+    private String gsiHashKeyName;
+    private String gsiHashKeyType;
+    private String gsiRangeKeyName;
+    private String gsiRangeKeyType;
+    private String sizeViolationFix;
+    private String typeViolationFix;
+    private String numberViolationFix;
+    private TableWriter tableWriter;
+    private ThreadPoolExecutor writerExecutor;
+
+    private AtomicLong itemsFixed = new AtomicLong(0);
+    private AtomicLong itemsNotFixed = new AtomicLong(0);
+    private AtomicLong itemsChanged = new AtomicLong(0);
+    private AtomicLong unexpectedErrors = new AtomicLong(0);
+
+    private static final Logger logger = Logger.getLogger(ViolationFixer.class);
+
+    /**
+     * Constructor for unit tests, fixes are sent on the calling thread.
+     */
+    protected ViolationFixer(Options options, TableHelper tableHelper, TableWriter tableWriter) {
+        init(options, tableHelper, tableWriter);
+    }
+
+    public ViolationFixer(Options options, TableHelper tableHelper, AmazonDynamoDB dynamoDBClient, boolean isRunningOnDDBLocal) {
+        TableRWRateLimiter tableWriteRateLimiter = new TableRWRateLimiter(tableHelper.getWriteCapacityUnits(), tableHelper.getGsiWriteCapacityUnits(),
+                options.getReadWriteIOPSPercent(), 1);
+        init(options, tableHelper, new TableWriter(options, tableHelper, dynamoDBClient, tableWriteRateLimiter, isRunningOnDDBLocal));
+        int numOfThreads = options.getNumOfFixWriterThreads();
+        // The scan threads send the fixes themselves when the queue is full
+        writerExecutor = new ThreadPoolExecutor(numOfThreads, numOfThreads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(FIX_QUEUE_SIZE),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public TableRWRateLimiter getTableWriteRateLimiter() {
+        return tableWriter.getTableWriteRateLimiter();
+    }
+
+    private void init(Options options, TableHelper tableHelper, TableWriter tableWriter) {
+        this.tableHashKeyName = tableHelper.getTableHashKeyName();
+        this.tableRangeKeyName = tableHelper.getTableRangeKeyName();
+        this.gsiHashKeyName = options.getGsiHashKeyName();
+        this.gsiHashKeyType = options.getGsiHashKeyType();
+        this.gsiRangeKeyName = options.getGsiRangeKeyName();
+        this.gsiRangeKeyType = options.getGsiRangeKeyType();
+        this.sizeViolationFix = options.getFixSizeViolation();
+        this.typeViolationFix = options.getFixTypeViolation();
+        this.numberViolationFix = options.getFixNumberViolation();
+        this.tableWriter = tableWriter;
+    }
+
+    /**
+     * Fix the violating GSI key attributes of the item.
+     */
+    public void submit(final Map<String, AttributeValue> item, final boolean isHashKeyViolation, final boolean isRangeKeyViolation) {
+        Runnable fix = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    fixItem(item, isHashKeyViolation, isRangeKeyViolation);
+                } catch (RuntimeException re) {
+                    unexpectedErrors.incrementAndGet();
+                    logger.error("Exception!", re);
+                }
+            }
+        };
+        if (writerExecutor == null) {
+            fix.run();
+        } else {
+            writerExecutor.execute(fix);
+        }
+    }
+
+    /**
+     * Wait for the submitted fixes to be sent.
+     */
+    public void shutdownAndWait() {
+        if (writerExecutor == null) {
+            return;
+        }
+        writerExecutor.shutdown();
+        try {
+            writerExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    protected void fixItem(Map<String, AttributeValue> item, boolean isHashKeyViolation, boolean isRangeKeyViolation) {
+        Map<String, AttributeValueUpdate> updateItems = new HashMap<String, AttributeValueUpdate>();
+        Map<String, ExpectedAttributeValue> expectedItems = new HashMap<String, ExpectedAttributeValue>();
+        Map<String, String> transforms = new HashMap<String, String>();
+        if (isHashKeyViolation) {
+            addFix(item, gsiHashKeyName, gsiHashKeyType, ViolationChecker.MAX_HASH_KEY_SIZE, updateItems, expectedItems, transforms);
+        }
+        if (isRangeKeyViolation) {
+            addFix(item, gsiRangeKeyName, gsiRangeKeyType, ViolationChecker.MAX_RANGE_KEY_SIZE, updateItems, expectedItems, transforms);
+        }
+
+        String result;
+        if (updateItems.size() < transforms.size()) {
+            // Fix the attributes of an item together or not at all
+            result = NOT_FIXED;
+            updateItems.clear();
+            itemsNotFixed.incrementAndGet();
+        } else {
+            try {
+                Map<String, AttributeValue> primaryKey = tableWriter.genTablePrimaryKey(item.get(tableHashKeyName),
+                        tableRangeKeyName == null ? null : item.get(tableRangeKeyName));
+                tableWriter.sendUpdateRequest(primaryKey, updateItems, expectedItems);
+                result = FIXED;
+                itemsFixed.incrementAndGet();
+            } catch (ConditionalCheckFailedException ccfe) {
+                result = CHANGED_SINCE_SCAN;
+                itemsChanged.incrementAndGet();
+            } catch (Exception e) {
+                result = "Error: " + e.getMessage();
+                unexpectedErrors.incrementAndGet();
+            }
+        }
+        recordAudit(item, transforms, updateItems, result);
+    }
+
+    private void addFix(Map<String, AttributeValue> item, String attributeName, String expectedType, int maxKeySize,
+            Map<String, AttributeValueUpdate> updateItems, Map<String, ExpectedAttributeValue> expectedItems, Map<String, String> transforms) {
+        AttributeValue value = item.get(attributeName);
+        String transform = getTransform(value, expectedType, maxKeySize);
+        transforms.put(attributeName, transform);
+        if (NONE.equals(transform)) {
+            return;
+        }
+        AttributeValueUpdate update;
+        if (REMOVE.equals(transform)) {
+            update = new AttributeValueUpdate().withAction(AttributeAction.DELETE);
+        } else {
+            AttributeValue fixedValue = applyTransform(transform, value, expectedType, maxKeySize);
+            if (fixedValue == null) {
+                transforms.put(attributeName, NONE);
+                return;
+            }
+            update = new AttributeValueUpdate().withAction(AttributeAction.PUT).withValue(fixedValue);
+        }
+        updateItems.put(attributeName, update);
+        if (value.getB() != null) {
+            value = new AttributeValue().withB(getWholeBuffer(value.getB()));
+        }
+        expectedItems.put(attributeName, new ExpectedAttributeValue().withExists(true).withValue(value));
+    }
+
+    /**
+     * The transform configured for the violation of the value.
+     */
+    protected String getTransform(AttributeValue value, String expectedType, int maxKeySize) {
+        String foundType = null;
+        if (value.getS() != null) {
+            foundType = ScalarAttributeType.S.name();
+        } else if (value.getN() != null) {
+            foundType = ScalarAttributeType.N.name();
+        } else if (value.getB() != null) {
+            foundType = ScalarAttributeType.B.name();
+        }
+        if (!expectedType.equals(foundType)) {
+            return typeViolationFix;
+        }
+        if (value.getN() != null) {
+            return numberViolationFix;
+        }
+        if (getSize(value) > maxKeySize) {
+            return sizeViolationFix;
+        }
+        return NONE;
+    }
+
+    /**
+     * @return the fixed value, or null if the transform can not fix the value
+     */
+    protected static AttributeValue applyTransform(String transform, AttributeValue value, String expectedType, int maxKeySize) {
+        if (TRUNCATE.equals(transform)) {
+            if (value.getS() != null) {
+                return new AttributeValue().withS(truncate(value.getS(), maxKeySize));
+            }
+            if (value.getB() != null) {
+                ByteBuffer truncated = getWholeBuffer(value.getB());
+                truncated.limit(Math.min(truncated.remaining(), maxKeySize));
+                return new AttributeValue().withB(truncated.slice());
+            }
+        } else if (COERCE.equals(transform)) {
+            if (ScalarAttributeType.N.name().equals(expectedType) && value.getS() != null) {
+                String number = value.getS().trim();
+                if (new NumberValidator().validate(number) == NumberValidator.VALID) {
+                    return new AttributeValue().withN(number);
+                }
+            } else if (ScalarAttributeType.S.name().equals(expectedType) && value.getN() != null) {
+                return new AttributeValue().withS(value.getN());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Truncate the string to at most the given number of UTF-8 bytes, without
+     * splitting a character.
+     */
+    protected static String truncate(String value, int maxBytes) {
+        byte[] bytes = value.getBytes(ViolationChecker.UTF8);
+        if (bytes.length <= maxBytes) {
+            return value;
+        }
+        int end = maxBytes;
+        while (end > 0 && (bytes[end] & 0xC0) == 0x80) {
+            end--;
+        }
+        return new String(bytes, 0, end, ViolationChecker.UTF8);
+    }
+
+    private static int getSize(AttributeValue value) {
+        if (value.getS() != null) {
+            return value.getS().getBytes(ViolationChecker.UTF8).length;
+        }
+        return getWholeBuffer(value.getB()).remaining();
+    }
+
+    /**
+     * The whole value from its first byte, the buffer may have been read
+     * already, e.g. when the violation was recorded with the GSI value.
+     */
+    private static ByteBuffer getWholeBuffer(ByteBuffer buffer) {
+        ByteBuffer wholeBuffer = buffer.duplicate();
+        wholeBuffer.rewind();
+        return wholeBuffer;
+    }
+
+    private void recordAudit(Map<String, AttributeValue> item, Map<String, String> transforms, Map<String, AttributeValueUpdate> updateItems, String result) {
+        String tableHashKey = AttributeValueConverter.toBlankString(item.get(tableHashKeyName));
+        String tableRangeKey = tableRangeKeyName == null ? null : AttributeValueConverter.toBlankString(item.get(tableRangeKeyName));
+        try {
+            for (Map.Entry<String, String> transform : transforms.entrySet()) {
+                AttributeValueUpdate update = updateItems.get(transform.getKey());
+                String valueAfter = update == null || update.getValue() == null ? "" : toAuditString(update.getValue());
+                FixAuditWriter.getInstance().addAuditRecord(tableHashKey, tableRangeKey, transform.getKey(), transform.getValue(),
+                        toAuditString(item.get(transform.getKey())), valueAfter, result);
+            }
+        } catch (IOException ioe) {
+            throw new IllegalArgumentException("Error: Failed to write fix audit records to file.");
+        }
+    }
+
+    private static String toAuditString(AttributeValue value) {
+        if (value.getB() != null) {
+            // Decoding reads the buffer, the value sent must stay whole
+            value = new AttributeValue().withB(getWholeBuffer(value.getB()));
+        }
+        try {
+            return AttributeValueConverter.toStringWithAttributeType(value);
+        } catch (IllegalArgumentException iae) {
+            return "";
+        }
+    }
+
+    public long getItemsFixed() {
+        return itemsFixed.get();
+    }
+
+    public long getItemsNotFixed() {
+        return itemsNotFixed.get();
+    }
+
+    public long getItemsChanged() {
+        return itemsChanged.get();
+    }
+
+    public long getUnexpectedErrors() {
+        return unexpectedErrors.get();
+    }
+}
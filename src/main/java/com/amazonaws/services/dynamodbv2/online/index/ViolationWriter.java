@@ -51,6 +51,16 @@ public class ViolationWriter {
         printer = new CSVPrinter(bufferWriter, format);
     }
 
+    /**
+     * Open an existing output file to add records after the ones it has,
+     * the header is not written again.
+     */
+    public void appendToOutputFile(String outputFilePath) throws IOException {
+        FileWriter out = new FileWriter(outputFilePath, true);
+        bufferWriter = new BufferedWriter(out);
+        printer = new CSVPrinter(bufferWriter, CSVFormat.RFC4180.withDelimiter(','));
+    }
+
     public void addViolationRecord(ViolationRecord violationRecord) throws IOException {
         synchronized (this) {
             if (violationRecord != null) {
@@ -67,6 +77,14 @@ public class ViolationWriter {
         }
     }
 
+    public void flush() throws IOException {
+        synchronized (this) {
+            if (printer != null) {
+                printer.flush();
+            }
+        }
+    }
+
     public void flushAndCloseWriter() throws IOException {
         if(bufferWriter != null) {
             bufferWriter.flush();
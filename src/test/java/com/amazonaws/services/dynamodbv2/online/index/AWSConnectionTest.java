@@ -14,6 +14,8 @@
  */
 package com.amazonaws.services.dynamodbv2.online.index;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.FileNotFoundException;
@@ -23,6 +25,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.regions.Region;
 import com.amazonaws.regions.Regions;
@@ -59,4 +62,49 @@ public class AWSConnectionTest {
     public void testGetS3Client() {
         assertTrue(awsConnection.getS3Client() instanceof AmazonS3Client);
     }
+
+    @Test
+    public void testClientsAreShared() {
+        Region region = Region.getRegion(Regions.EU_WEST_1);
+        assertSame(awsConnection.getDynamoDBClient(region, false /*runOnDDBLocal*/), awsConnection.getDynamoDBClient(region, false /*runOnDDBLocal*/));
+        assertSame(awsConnection.getS3Client(), awsConnection.getS3Client());
+    }
+
+    @Test
+    public void testMaxConnectionsSizedToConcurrency() {
+        Options options = Mockito.mock(Options.class);
+        Mockito.when(options.getNumOfSegments()).thenReturn(1);
+        Mockito.when(options.getNumOfFixWriterThreads()).thenReturn(1);
+        Mockito.when(options.getNumOfCorrectionWorkers()).thenReturn(1);
+        assertEquals(ClientConfiguration.DEFAULT_MAX_CONNECTIONS, AWSConnection.getMaxConnections(options));
+        Mockito.when(options.getNumOfSegments()).thenReturn(200);
+        Mockito.when(options.getNumOfScanThreads()).thenReturn(200);
+        Mockito.when(options.getNumOfFixWriterThreads()).thenReturn(8);
+        assertEquals(200 + 8 + AWSConnection.EXTRA_CONNECTIONS, AWSConnection.getMaxConnections(options));
+        Mockito.when(options.getMaxInFlightUpdates()).thenReturn(500);
+        assertEquals(500 + AWSConnection.EXTRA_CONNECTIONS, AWSConnection.getMaxConnections(options));
+        Mockito.when(options.getMaxConnections()).thenReturn(64);
+        assertEquals(64, AWSConnection.getMaxConnections(options));
+    }
+
+    @Test
+    public void testCreateClientConfiguration() {
+        Options options = Mockito.mock(Options.class);
+        Mockito.when(options.getNumOfSegments()).thenReturn(100);
+        Mockito.when(options.getNumOfScanThreads()).thenReturn(100);
+        Mockito.when(options.getConnectionTimeoutMillis()).thenReturn(1000);
+        Mockito.when(options.getSocketTimeoutMillis()).thenReturn(2000);
+        Mockito.when(options.isTcpKeepAlive()).thenReturn(true);
+        Mockito.when(options.getConnectionTTLMillis()).thenReturn(60000);
+        Mockito.when(options.isResponseGzip()).thenReturn(true);
+        Mockito.when(options.getMaxErrorRetry()).thenReturn(3);
+        ClientConfiguration clientConfiguration = AWSConnection.createClientConfiguration(options);
+        assertEquals(100 + AWSConnection.EXTRA_CONNECTIONS, clientConfiguration.getMaxConnections());
+        assertEquals(1000, clientConfiguration.getConnectionTimeout());
+        assertEquals(2000, clientConfiguration.getSocketTimeout());
+        assertTrue(clientConfiguration.useTcpKeepAlive());
+        assertEquals(60000L, clientConfiguration.getConnectionTTL());
+        assertTrue(clientConfiguration.useGzip());
+        assertEquals(3, clientConfiguration.getRetryPolicy().getMaxErrorRetry());
+    }
 }
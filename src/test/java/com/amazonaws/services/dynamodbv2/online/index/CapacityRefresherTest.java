@@ -0,0 +1,86 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableResult;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputDescription;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+
+/**
+ * 
+ * Unit tests for CapacityRefresher.
+ * 
+ */
+public class CapacityRefresherTest {
+    private static final String TABLE_NAME = "table";
+
+    private AmazonDynamoDBClient mockDynamoDBClient = Mockito.mock(AmazonDynamoDBClient.class);
+
+    private TableDescription tableDescription(long readCapacityUnits, long writeCapacityUnits, long gsiWriteCapacityUnits) {
+        List<KeySchemaElement> keySchema = new ArrayList<KeySchemaElement>();
+        keySchema.add(new KeySchemaElement().withAttributeName("id").withKeyType(KeyType.HASH));
+        GlobalSecondaryIndexDescription gsi = new GlobalSecondaryIndexDescription().withIndexName("gsi")
+                .withKeySchema(new KeySchemaElement().withAttributeName("gsiHash").withKeyType(KeyType.HASH))
+                .withProvisionedThroughput(new ProvisionedThroughputDescription().withReadCapacityUnits(1L).withWriteCapacityUnits(gsiWriteCapacityUnits));
+        return new TableDescription().withTableName(TABLE_NAME).withKeySchema(keySchema).withGlobalSecondaryIndexes(gsi)
+                .withProvisionedThroughput(new ProvisionedThroughputDescription().withReadCapacityUnits(readCapacityUnits)
+                        .withWriteCapacityUnits(writeCapacityUnits));
+    }
+
+    @Test
+    public void testRefreshAdjustsLimiters() {
+        TableHelper tableHelper = new TableHelper(mockDynamoDBClient, tableDescription(100, 100, 200));
+        CapacityRefresher refresher = new CapacityRefresher(tableHelper);
+        TableRWRateLimiter readRateLimiter = new TableRWRateLimiter(100, 50, 2);
+        TableRWRateLimiter writeRateLimiter = new TableRWRateLimiter(100, 50, 1);
+        refresher.addReadRateLimiter(readRateLimiter);
+        refresher.addWriteRateLimiter(writeRateLimiter);
+
+        Mockito.when(mockDynamoDBClient.describeTable(TABLE_NAME)).thenReturn(new DescribeTableResult().withTable(tableDescription(400, 300, 50)));
+        refresher.refresh();
+        assertEquals(400.0, readRateLimiter.getReadWriteIOPSCapacityUnits(), 0.0);
+        assertEquals(300.0, writeRateLimiter.getReadWriteIOPSCapacityUnits(), 0.0);
+        assertEquals(50.0, writeRateLimiter.getIndexRateLimiter("gsi").getReadWriteIOPSCapacityUnits(), 0.0);
+        assertNull(readRateLimiter.getIndexRateLimiter("gsi"));
+        assertEquals(400L, refresher.getReadCapacityUnits());
+        assertEquals(300L, refresher.getWriteCapacityUnits());
+    }
+
+    @Test
+    public void testRefreshFailureKeepsRates() {
+        TableHelper tableHelper = new TableHelper(mockDynamoDBClient, tableDescription(100, 100, 200));
+        CapacityRefresher refresher = new CapacityRefresher(tableHelper);
+        TableRWRateLimiter readRateLimiter = new TableRWRateLimiter(100, 50, 1);
+        refresher.addReadRateLimiter(readRateLimiter);
+
+        Mockito.when(mockDynamoDBClient.describeTable(TABLE_NAME)).thenThrow(new AmazonClientException("Unable to connect"));
+        refresher.refresh();
+        assertEquals(100.0, readRateLimiter.getReadWriteIOPSCapacityUnits(), 0.0);
+    }
+}
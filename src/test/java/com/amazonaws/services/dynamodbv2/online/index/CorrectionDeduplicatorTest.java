@@ -0,0 +1,103 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * 
+ * Unit tests for CorrectionDeduplicator.
+ * 
+ */
+public class CorrectionDeduplicatorTest {
+    private static final int MEMORY_MB = 16;
+
+    private static final String[][] KEYS = { { "1", "a" }, { "2", "a" }, { "1", "a" }, { "1", "b" }, { "1", "a" }, { "3", null } };
+
+    private CorrectionDeduplicator prePass(String keep) {
+        CorrectionDeduplicator deduplicator = new CorrectionDeduplicator(keep, MEMORY_MB);
+        for (int row = 0; row < KEYS.length; row++) {
+            deduplicator.addKeyOnPrePass(KEYS[row][0], KEYS[row][1], row);
+        }
+        return deduplicator;
+    }
+
+    @Test
+    public void testKeepFirst() {
+        CorrectionDeduplicator deduplicator = prePass(CorrectionDeduplicator.KEEP_FIRST);
+        boolean[] expected = { true, true, false, true, false, true };
+        for (int row = 0; row < KEYS.length; row++) {
+            assertEquals("Row " + row, expected[row], deduplicator.isKept(KEYS[row][0], KEYS[row][1], row));
+        }
+        assertEquals(2L, deduplicator.getNumOfDuplicatesRemoved());
+    }
+
+    @Test
+    public void testKeepLast() {
+        CorrectionDeduplicator deduplicator = prePass(CorrectionDeduplicator.KEEP_LAST);
+        boolean[] expected = { false, true, false, true, true, true };
+        for (int row = 0; row < KEYS.length; row++) {
+            assertEquals("Row " + row, expected[row], deduplicator.isKept(KEYS[row][0], KEYS[row][1], row));
+        }
+        assertEquals(2L, deduplicator.getNumOfDuplicatesRemoved());
+    }
+
+    @Test
+    public void testRangeKeyIsPartOfFingerprint() {
+        assertFalse(CorrectionDeduplicator.getFingerprint("1", "a") == CorrectionDeduplicator.getFingerprint("1a", null));
+        assertTrue(CorrectionDeduplicator.getFingerprint("1", "a") == CorrectionDeduplicator.getFingerprint("1", "a"));
+    }
+
+    @Test
+    public void testManyUniqueKeysKept() {
+        CorrectionDeduplicator deduplicator = new CorrectionDeduplicator(CorrectionDeduplicator.KEEP_LAST, MEMORY_MB);
+        int numOfRows = 100000;
+        for (int row = 0; row < numOfRows; row++) {
+            deduplicator.addKeyOnPrePass(String.valueOf(row), null, row);
+        }
+        for (int row = 0; row < numOfRows; row++) {
+            assertTrue(deduplicator.isKept(String.valueOf(row), null, row));
+        }
+        assertEquals(0L, deduplicator.getNumOfDuplicatesRemoved());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testKeyFingerprintMapFull() {
+        KeyFingerprintMap map = new KeyFingerprintMap(4 * KeyFingerprintMap.BYTES_PER_SLOT);
+        for (long fingerprint = 1; fingerprint <= 4; fingerprint++) {
+            map.put(fingerprint, fingerprint);
+        }
+    }
+
+    @Test
+    public void testKeyFingerprintMapGet() {
+        KeyFingerprintMap map = new KeyFingerprintMap(1024);
+        map.put(0, 5);
+        map.put(-7, 6);
+        assertEquals(5L, map.get(0));
+        assertEquals(6L, map.get(-7));
+        assertEquals(KeyFingerprintMap.NOT_FOUND, map.get(42));
+        assertEquals(2, map.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidKeep() {
+        new CorrectionDeduplicator(CorrectionDeduplicator.KEEP_NONE, MEMORY_MB);
+    }
+}
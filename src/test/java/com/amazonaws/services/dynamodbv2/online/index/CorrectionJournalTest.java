@@ -0,0 +1,92 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 
+ * Unit tests for CorrectionJournal.
+ * 
+ */
+public class CorrectionJournalTest {
+    private final String inputPath = "./violation_detection.csv";
+    private File outputFile;
+
+    @Before
+    public void setup() throws IOException {
+        outputFile = File.createTempFile("correction_output", ".csv");
+        outputFile.delete();
+    }
+
+    @After
+    public void cleanup() {
+        new File(outputFile.getPath() + CorrectionJournal.JOURNAL_FILE_SUFFIX).delete();
+    }
+
+    @Test
+    public void testNewJournal() throws IOException {
+        CorrectionJournal journal = new CorrectionJournal(outputFile.getPath(), inputPath);
+        assertFalse("Should not resume without journal", journal.isResumed());
+        assertEquals("Should not skip any row", 0L, journal.getRowsToSkip());
+    }
+
+    @Test
+    public void testCompleteRowOutOfOrder() throws IOException {
+        CorrectionJournal journal = new CorrectionJournal(outputFile.getPath(), inputPath);
+        assertFalse(journal.completeRow(1));
+        assertFalse(journal.completeRow(2));
+        for (long row = 3; row < CorrectionJournal.COMMIT_INTERVAL_ROWS; row++) {
+            assertFalse("Should not commit while row 0 is not completed", journal.completeRow(row));
+        }
+        assertTrue("Should commit once rows are contiguous", journal.completeRow(0));
+    }
+
+    @Test
+    public void testResumeFromCommittedRows() throws IOException {
+        CorrectionJournal journal = new CorrectionJournal(outputFile.getPath(), inputPath);
+        for (long row = 0; row < 10; row++) {
+            journal.completeRow(row);
+        }
+        journal.completeRow(11);
+        journal.commit();
+        assertEquals("Should commit only contiguous rows", 10L, journal.getCommittedRows());
+
+        CorrectionJournal resumedJournal = new CorrectionJournal(outputFile.getPath(), inputPath);
+        assertTrue("Should resume from journal", resumedJournal.isResumed());
+        assertEquals("Should skip committed rows", 10L, resumedJournal.getRowsToSkip());
+        assertFalse("Should ignore rows already committed", resumedJournal.completeRow(3));
+
+        resumedJournal.delete();
+        assertFalse("Should start over once journal is deleted", new CorrectionJournal(outputFile.getPath(), inputPath).isResumed());
+    }
+
+    @Test
+    public void testJournalOfAnotherInputFile() throws IOException {
+        CorrectionJournal journal = new CorrectionJournal(outputFile.getPath(), inputPath);
+        journal.completeRow(0);
+        journal.commit();
+        assertFalse("Should ignore journal of another input file", new CorrectionJournal(outputFile.getPath(), "./another.csv").isResumed());
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+
+/**
+ * 
+ * Unit tests for CorrectionPreReader.
+ * 
+ */
+public class CorrectionPreReaderTest {
+    private final String tableName = "TestTable";
+    private final String hashKeyName = "hashKey";
+    private final String rangeKeyName = "rangeKey";
+    private final String gsiHashKeyName = "gsiHashKey";
+
+    private AmazonDynamoDBClient mockDynamoDBClient = Mockito.mock(AmazonDynamoDBClient.class);
+    private TableHelper mockTableHelper = Mockito.mock(TableHelper.class);
+    private CorrectionPreReader preReader;
+
+    @Before
+    public void setup() {
+        Mockito.when(mockTableHelper.getTableHashKeyName()).thenReturn(hashKeyName);
+        preReader = new CorrectionPreReader(mockDynamoDBClient, tableName, mockTableHelper, null, true /* isRunningOnDDBLocal */);
+    }
+
+    private Map<String, AttributeValue> key(String hashKey) {
+        Map<String, AttributeValue> key = new HashMap<String, AttributeValue>();
+        key.put(hashKeyName, new AttributeValue().withS(hashKey));
+        return key;
+    }
+
+    private Map<String, AttributeValue> item(String hashKey, AttributeValue gsiHashKey) {
+        Map<String, AttributeValue> item = key(hashKey);
+        item.put(gsiHashKeyName, gsiHashKey);
+        return item;
+    }
+
+    private CorrectionRequest request(String hashKey, AttributeValue expectedGsiHashKey) {
+        Map<String, ExpectedAttributeValue> expectedItems = new HashMap<String, ExpectedAttributeValue>();
+        expectedItems.put(gsiHashKeyName, new ExpectedAttributeValue().withExists(true).withValue(expectedGsiHashKey));
+        return new CorrectionRequest(hashKey, key(hashKey), null, expectedItems, null, 0);
+    }
+
+    private BatchGetItemResult result(List<Map<String, AttributeValue>> items, List<Map<String, AttributeValue>> unprocessedKeys) {
+        Map<String, List<Map<String, AttributeValue>>> responses = new HashMap<String, List<Map<String, AttributeValue>>>();
+        responses.put(tableName, items);
+        Map<String, KeysAndAttributes> unprocessed = new HashMap<String, KeysAndAttributes>();
+        if (unprocessedKeys != null) {
+            unprocessed.put(tableName, new KeysAndAttributes().withKeys(unprocessedKeys));
+        }
+        return new BatchGetItemResult().withResponses(responses).withUnprocessedKeys(unprocessed);
+    }
+
+    @Test
+    public void testFindAlreadyFixed() {
+        CorrectionRequest unchanged = request("a", new AttributeValue().withN("1.0"));
+        CorrectionRequest changed = request("b", new AttributeValue().withN("1"));
+        CorrectionRequest deleted = request("c", new AttributeValue().withN("1"));
+        List<Map<String, AttributeValue>> items = new ArrayList<Map<String, AttributeValue>>();
+        items.add(item("a", new AttributeValue().withN("1")));
+        items.add(item("b", new AttributeValue().withN("2")));
+        Mockito.when(mockDynamoDBClient.batchGetItem(Mockito.any(BatchGetItemRequest.class))).thenReturn(result(items, null));
+
+        List<CorrectionRequest> requests = new ArrayList<CorrectionRequest>();
+        requests.add(unchanged);
+        requests.add(changed);
+        requests.add(deleted);
+        Set<CorrectionRequest> alreadyFixed = preReader.findAlreadyFixed(requests);
+        assertEquals(1, alreadyFixed.size());
+        assertFalse(alreadyFixed.contains(unchanged));
+        assertTrue(alreadyFixed.contains(changed));
+        // An item not returned is left to its conditional update
+        assertFalse(alreadyFixed.contains(deleted));
+    }
+
+    @Test
+    public void testNumberKeyMatchedByValue() {
+        Mockito.when(mockTableHelper.getTableRangeKeyName()).thenReturn(rangeKeyName);
+        Map<String, ExpectedAttributeValue> expectedItems = new HashMap<String, ExpectedAttributeValue>();
+        expectedItems.put(gsiHashKeyName, new ExpectedAttributeValue().withExists(true).withValue(new AttributeValue().withS("x")));
+        Map<String, AttributeValue> requestKey = key("a");
+        requestKey.put(rangeKeyName, new AttributeValue().withN("1.50"));
+        CorrectionRequest changed = new CorrectionRequest("a", requestKey, null, expectedItems, null, 0);
+        Map<String, AttributeValue> unchangedKey = key("b");
+        unchangedKey.put(rangeKeyName, new AttributeValue().withN("0.0"));
+        CorrectionRequest unchanged = new CorrectionRequest("b", unchangedKey, null, expectedItems, null, 0);
+
+        // The service returns the numbers normalized
+        List<Map<String, AttributeValue>> items = new ArrayList<Map<String, AttributeValue>>();
+        Map<String, AttributeValue> changedItem = item("a", new AttributeValue().withS("y"));
+        changedItem.put(rangeKeyName, new AttributeValue().withN("1.5"));
+        items.add(changedItem);
+        Map<String, AttributeValue> unchangedItem = item("b", new AttributeValue().withS("x"));
+        unchangedItem.put(rangeKeyName, new AttributeValue().withN("0"));
+        items.add(unchangedItem);
+        Mockito.when(mockDynamoDBClient.batchGetItem(Mockito.any(BatchGetItemRequest.class))).thenReturn(result(items, null));
+
+        List<CorrectionRequest> requests = new ArrayList<CorrectionRequest>();
+        requests.add(changed);
+        requests.add(unchanged);
+        Set<CorrectionRequest> alreadyFixed = preReader.findAlreadyFixed(requests);
+        assertEquals(1, alreadyFixed.size());
+        assertTrue(alreadyFixed.contains(changed));
+    }
+
+    @Test
+    public void testUnprocessedKeysRetried() {
+        CorrectionRequest changed = request("b", new AttributeValue().withS("x"));
+        List<Map<String, AttributeValue>> unprocessedKeys = new ArrayList<Map<String, AttributeValue>>();
+        unprocessedKeys.add(key("b"));
+        List<Map<String, AttributeValue>> items = new ArrayList<Map<String, AttributeValue>>();
+        items.add(item("b", new AttributeValue().withS("y")));
+        Mockito.when(mockDynamoDBClient.batchGetItem(Mockito.any(BatchGetItemRequest.class))).thenReturn(
+                result(new ArrayList<Map<String, AttributeValue>>(), unprocessedKeys), result(items, null));
+
+        List<CorrectionRequest> requests = new ArrayList<CorrectionRequest>();
+        requests.add(changed);
+        assertTrue(preReader.findAlreadyFixed(requests).contains(changed));
+        Mockito.verify(mockDynamoDBClient, Mockito.times(2)).batchGetItem(Mockito.any(BatchGetItemRequest.class));
+    }
+
+    @Test
+    public void testReadFailureSendsUpdates() {
+        Mockito.when(mockDynamoDBClient.batchGetItem(Mockito.any(BatchGetItemRequest.class))).thenThrow(new AmazonServiceException("throttled"));
+        List<CorrectionRequest> requests = new ArrayList<CorrectionRequest>();
+        requests.add(request("a", new AttributeValue().withS("x")));
+        assertTrue(preReader.findAlreadyFixed(requests).isEmpty());
+    }
+}
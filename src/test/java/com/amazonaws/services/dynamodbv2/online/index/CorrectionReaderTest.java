@@ -14,11 +14,16 @@
  */
 package com.amazonaws.services.dynamodbv2.online.index;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.util.Arrays;
 import java.io.Reader;
 import java.util.Iterator;
 
@@ -77,4 +82,54 @@ public class CorrectionReaderTest {
     public void testGetValueInRecordByNameWithIllegalName() {
         // CSVRecord cannot be constructed and mocked
     }
+
+    @Test
+    public void testLoadCSVFileOnMultipleThreads() throws IOException {
+        File csvFile = File.createTempFile("correction_input", ".csv");
+        try {
+            FileWriter writer = new FileWriter(csvFile);
+            writer.write("\nTable Hash Key,GSI Hash Key Value\nhashKey1,\nhashKey2,N:1\n");
+            writer.close();
+
+            CorrectionReader correctionReader = new CorrectionReader();
+            correctionReader.loadCSVFile(csvFile.getPath(), 2);
+            assertTrue(correctionReader.ifContainsColumn(ViolationRecord.TABLE_HASH_KEY));
+            assertFalse(correctionReader.ifContainsColumn(ViolationRecord.TABLE_RANGE_KEY));
+            assertTrue(correctionReader.moveToNextRecordIfHas());
+            assertEquals("hashKey1", correctionReader.getValueInRecordByName(ViolationRecord.TABLE_HASH_KEY));
+            assertNull("Empty value should be null", correctionReader.getValueInRecordByName(ViolationRecord.GSI_HASH_KEY));
+            assertNull("Missing column should be null", correctionReader.getValueInRecordByName(ViolationRecord.TABLE_RANGE_KEY));
+            assertTrue(correctionReader.moveToNextRecordIfHas());
+            assertEquals("N:1", correctionReader.getValueInRecordByName(ViolationRecord.GSI_HASH_KEY));
+            assertFalse(correctionReader.moveToNextRecordIfHas());
+        } finally {
+            csvFile.delete();
+        }
+    }
+
+    @Test
+    public void testGetValueByColumnIndex() throws IOException {
+        File csvFile = File.createTempFile("correction_input", ".csv");
+        try {
+            FileWriter writer = new FileWriter(csvFile);
+            writer.write("\nTable Hash Key,GSI Hash Key Value\nhashKey1,\nhashKey2,N:1\n");
+            writer.close();
+
+            CorrectionReader correctionReader = new CorrectionReader();
+            correctionReader.loadCSVFile(csvFile.getPath());
+            int tableHashKeyColumn = correctionReader.getColumnIndex(ViolationRecord.TABLE_HASH_KEY);
+            int gsiHashKeyColumn = correctionReader.getColumnIndex(ViolationRecord.GSI_HASH_KEY);
+            assertEquals(-1, correctionReader.getColumnIndex(ViolationRecord.TABLE_RANGE_KEY));
+            assertTrue(correctionReader.moveToNextRecordIfHas());
+            assertEquals("hashKey1", correctionReader.getValue(tableHashKeyColumn));
+            assertNull("Empty value should be null", correctionReader.getValue(gsiHashKeyColumn));
+            assertNull("Missing column should be null", correctionReader.getValue(-1));
+            assertTrue(correctionReader.moveToNextRecordIfHas());
+            assertEquals("N:1", correctionReader.getValue(gsiHashKeyColumn));
+            assertEquals(Arrays.asList("hashKey2", "N:1"), correctionReader.getCurrentRecord());
+            assertFalse(correctionReader.moveToNextRecordIfHas());
+        } finally {
+            csvFile.delete();
+        }
+    }
 }
@@ -20,10 +20,21 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 
 import com.amazonaws.services.dynamodbv2.online.index.Correction;
 import com.amazonaws.services.dynamodbv2.online.index.CorrectionReader;
@@ -53,6 +64,11 @@ public class CorrectionTest {
     private String gsiHashKeyType = "S";
     private String gsiRangeKyeType = "N";
     private String correctionFilePath = "/correction/file";
+    /** Header of the mocked correction input */
+    private static final List<String> COLUMNS = Arrays.asList(ViolationRecord.TABLE_HASH_KEY, ViolationRecord.TABLE_RANGE_KEY,
+            ViolationRecord.GSI_HASH_KEY, ViolationRecord.GSI_RANGE_KEY, ViolationRecord.GSI_HASH_KEY_UPDATE_VALUE,
+            ViolationRecord.GSI_RANGE_KEY_UPDATE_VALUE, ViolationRecord.GSI_HASH_KEY_VIOLATION_TYPE, ViolationRecord.GSI_RANGE_KEY_VIOLATION_TYPE,
+            ViolationRecord.GSI_CORRECTION_DELETE_BLANK);
 
     @Before
     public void setupBeforeTests() throws Exception {
@@ -64,50 +80,54 @@ public class CorrectionTest {
         Mockito.when(mockOptions.getGsiHashKeyType()).thenReturn(gsiHashKeyType);
         Mockito.when(mockOptions.getGsiRangeKeyName()).thenReturn(gsiRangeKeyName);
         Mockito.when(mockOptions.getGsiRangeKeyType()).thenReturn(gsiRangeKyeType);
+        for (String column : COLUMNS) {
+            Mockito.when(mockCorrectionReader.getColumnIndex(column)).thenReturn(COLUMNS.indexOf(column));
+        }
+        correction.resolveColumnIndexes();
     }
 
     @Test
     public void testLoadCorrectionFile() throws IOException {
         correction.loadRecordsFromCorrectionFile(correctionFilePath);
-        Mockito.verify(mockCorrectionReader).loadCSVFile(correctionFilePath);
+        Mockito.verify(mockCorrectionReader).loadCSVFile(correctionFilePath, 0);
     }
 
     @Test(expected = IllegalArgumentException.class)
     public void testLoadCorrectionFileWithInvalidFilePath() throws IOException {
-        Mockito.doThrow(new FileNotFoundException()).when(mockCorrectionReader).loadCSVFile(Mockito.anyString());
+        Mockito.doThrow(new FileNotFoundException()).when(mockCorrectionReader).loadCSVFile(Mockito.anyString(), Mockito.anyInt());
         correction.loadRecordsFromCorrectionFile(correctionFilePath);
     }
 
     @Test(expected = IllegalArgumentException.class)
     public void testLoadCorrectionFileWithIOException() throws IOException {
-        Mockito.doThrow(new IOException()).when(mockCorrectionReader).loadCSVFile(Mockito.anyString());
+        Mockito.doThrow(new IOException()).when(mockCorrectionReader).loadCSVFile(Mockito.anyString(), Mockito.anyInt());
         correction.loadRecordsFromCorrectionFile(correctionFilePath);
     }
 
     @Test
     public void testGetNextTableHashKey() {
         String testTableHashKey = randDataGenerator.nextRadomString(10);
-        Mockito.when(mockCorrectionReader.getValueInRecordByName(ViolationRecord.TABLE_HASH_KEY)).thenReturn(testTableHashKey);
+        Mockito.when(mockCorrectionReader.getValue(COLUMNS.indexOf(ViolationRecord.TABLE_HASH_KEY))).thenReturn(testTableHashKey);
         assertEquals("Should return the next table hash key", testTableHashKey, correction.getNextTableHashKey());
     }
 
     @Test(expected = IllegalArgumentException.class)
     public void testGetNextTableHashKeyWithValueNotFound() {
-        Mockito.when(mockCorrectionReader.getValueInRecordByName(ViolationRecord.TABLE_HASH_KEY)).thenReturn(null);
+        Mockito.when(mockCorrectionReader.getValue(COLUMNS.indexOf(ViolationRecord.TABLE_HASH_KEY))).thenReturn(null);
         correction.getNextTableHashKey();
     }
 
     @Test
     public void testGetNextTableRangeKey() {
         String testTableRangeKey = randDataGenerator.nextRadomString(10);
-        Mockito.when(mockCorrectionReader.getValueInRecordByName(ViolationRecord.TABLE_RANGE_KEY)).thenReturn(testTableRangeKey);
+        Mockito.when(mockCorrectionReader.getValue(COLUMNS.indexOf(ViolationRecord.TABLE_RANGE_KEY))).thenReturn(testTableRangeKey);
         Mockito.when(mockTableHelper.getTableRangeKeyName()).thenReturn(rangeKeyName);
         assertEquals("Should get the next table range key", testTableRangeKey, correction.getNextTableRangeKey());
     }
 
     @Test
     public void testGetNextTableRangeKeyWithNoRangeKeyOnTable() {
-        Mockito.when(mockCorrectionReader.getValueInRecordByName(ViolationRecord.TABLE_RANGE_KEY)).thenReturn(null);
+        Mockito.when(mockCorrectionReader.getValue(COLUMNS.indexOf(ViolationRecord.TABLE_RANGE_KEY))).thenReturn(null);
         Mockito.when(mockTableHelper.getTableRangeKeyName()).thenReturn(null);
         assertEquals("Should get the next table range key", null, correction.getNextTableRangeKey());
     }
@@ -115,14 +135,14 @@ public class CorrectionTest {
     @Test(expected = IllegalArgumentException.class)
     public void testGetNextTableRangeKeyWithNoTableRangeKeyButFoundOnInputFile() {
         String testTableRangeKey = randDataGenerator.nextRadomString(10);
-        Mockito.when(mockCorrectionReader.getValueInRecordByName(ViolationRecord.TABLE_RANGE_KEY)).thenReturn(testTableRangeKey);
+        Mockito.when(mockCorrectionReader.getValue(COLUMNS.indexOf(ViolationRecord.TABLE_RANGE_KEY))).thenReturn(testTableRangeKey);
         Mockito.when(mockTableHelper.getTableRangeKeyName()).thenReturn(null);
         correction.getNextTableRangeKey();
     }
 
     @Test(expected = IllegalArgumentException.class)
     public void testGetNextTableRangeKeyWithTableRangeKeyButNotFoundOnFile() {
-        Mockito.when(mockCorrectionReader.getValueInRecordByName(ViolationRecord.TABLE_RANGE_KEY)).thenReturn(null);
+        Mockito.when(mockCorrectionReader.getValue(COLUMNS.indexOf(ViolationRecord.TABLE_RANGE_KEY))).thenReturn(null);
         Mockito.when(mockTableHelper.getTableRangeKeyName()).thenReturn(rangeKeyName);
         correction.getNextTableRangeKey();
     }
@@ -130,14 +150,14 @@ public class CorrectionTest {
     @Test
     public void testGetNextGsiHashKeyUpdateValue() {
         String testGsiHashKeyUpdateValue = randDataGenerator.nextRadomString(10);
-        Mockito.when(mockCorrectionReader.getValueInRecordByName(ViolationRecord.GSI_HASH_KEY_UPDATE_VALUE)).thenReturn(testGsiHashKeyUpdateValue);
+        Mockito.when(mockCorrectionReader.getValue(COLUMNS.indexOf(ViolationRecord.GSI_HASH_KEY_UPDATE_VALUE))).thenReturn(testGsiHashKeyUpdateValue);
         Mockito.when(mockOptions.getGsiHashKeyName()).thenReturn(gsiHashKeyName);
         assertEquals("Should return the given gsi hash key update value", testGsiHashKeyUpdateValue, correction.getNextGsiHashKeyUpdateValue());
     }
 
     @Test
     public void testGetNextGsiHashKeyUpdateValueWithNoGsiHashKey() {
-        Mockito.when(mockCorrectionReader.getValueInRecordByName(ViolationRecord.GSI_HASH_KEY_UPDATE_VALUE)).thenReturn(null);
+        Mockito.when(mockCorrectionReader.getValue(COLUMNS.indexOf(ViolationRecord.GSI_HASH_KEY_UPDATE_VALUE))).thenReturn(null);
         Mockito.when(mockOptions.getGsiHashKeyName()).thenReturn(null);
         assertEquals("Should return the given gsi hash key update value", null, correction.getNextGsiHashKeyUpdateValue());
     }
@@ -145,14 +165,14 @@ public class CorrectionTest {
     @Test
     public void testGetNextGsiHashKeyUpdateValueWithNoGsiHashKeyButProvidedOnInputFile() {
         String testGsiHashKeyUpdateValue = randDataGenerator.nextRadomString(10);
-        Mockito.when(mockCorrectionReader.getValueInRecordByName(ViolationRecord.GSI_HASH_KEY_UPDATE_VALUE)).thenReturn(testGsiHashKeyUpdateValue);
+        Mockito.when(mockCorrectionReader.getValue(COLUMNS.indexOf(ViolationRecord.GSI_HASH_KEY_UPDATE_VALUE))).thenReturn(testGsiHashKeyUpdateValue);
         Mockito.when(mockOptions.getGsiHashKeyName()).thenReturn(null);
         assertEquals("Should return the given gsi hash key update value", testGsiHashKeyUpdateValue, correction.getNextGsiHashKeyUpdateValue());
     }
 
     @Test
     public void testGetNextGsiHashKeyUpdateValueWithGsiHashKeyButNotProvidedOnInputFile() {
-        Mockito.when(mockCorrectionReader.getValueInRecordByName(ViolationRecord.GSI_HASH_KEY_UPDATE_VALUE)).thenReturn(null);
+        Mockito.when(mockCorrectionReader.getValue(COLUMNS.indexOf(ViolationRecord.GSI_HASH_KEY_UPDATE_VALUE))).thenReturn(null);
         Mockito.when(mockOptions.getGsiHashKeyName()).thenReturn(gsiHashKeyName);
         assertEquals("Should return null", null, correction.getNextGsiHashKeyUpdateValue());
     }
@@ -160,14 +180,14 @@ public class CorrectionTest {
     @Test
     public void testGetNextGsiRangeKeyUpdateValue() {
         String testGsiRangeKeyUpdateValue = randDataGenerator.nextRadomString(10);
-        Mockito.when(mockCorrectionReader.getValueInRecordByName(ViolationRecord.GSI_RANGE_KEY_UPDATE_VALUE)).thenReturn(testGsiRangeKeyUpdateValue);
+        Mockito.when(mockCorrectionReader.getValue(COLUMNS.indexOf(ViolationRecord.GSI_RANGE_KEY_UPDATE_VALUE))).thenReturn(testGsiRangeKeyUpdateValue);
         Mockito.when(mockOptions.getGsiRangeKeyName()).thenReturn(gsiRangeKeyName);
         assertEquals("Should return next range key update value", testGsiRangeKeyUpdateValue, correction.getNextGsiRangeKeyUpdateValue());
     }
 
     @Test
     public void testGetNextGsiRangeKeyUpdateValueWithNoGsiRangeKey() {
-        Mockito.when(mockCorrectionReader.getValueInRecordByName(ViolationRecord.GSI_RANGE_KEY_UPDATE_VALUE)).thenReturn(null);
+        Mockito.when(mockCorrectionReader.getValue(COLUMNS.indexOf(ViolationRecord.GSI_RANGE_KEY_UPDATE_VALUE))).thenReturn(null);
         Mockito.when(mockOptions.getGsiRangeKeyName()).thenReturn(null);
         assertEquals("Should return next range key update value", null, correction.getNextGsiRangeKeyUpdateValue());
     }
@@ -175,14 +195,14 @@ public class CorrectionTest {
     @Test
     public void testGetNextGsiRangeKeyUpdateValueWithNoGsiRangeKeyButFoundOnInputFile() {
         String testGsiRangeKeyUpdateValue = randDataGenerator.nextRadomString(10);
-        Mockito.when(mockCorrectionReader.getValueInRecordByName(ViolationRecord.GSI_RANGE_KEY_UPDATE_VALUE)).thenReturn(testGsiRangeKeyUpdateValue);
+        Mockito.when(mockCorrectionReader.getValue(COLUMNS.indexOf(ViolationRecord.GSI_RANGE_KEY_UPDATE_VALUE))).thenReturn(testGsiRangeKeyUpdateValue);
         Mockito.when(mockOptions.getGsiRangeKeyName()).thenReturn(null);
         assertEquals("Should return next range key update value", testGsiRangeKeyUpdateValue, correction.getNextGsiRangeKeyUpdateValue());
     }
 
     @Test
     public void testGetNextGsiRangeKeyUpdateValueWithGsiRangeKeyButNotFoundOnInputFile() {
-        Mockito.when(mockCorrectionReader.getValueInRecordByName(ViolationRecord.GSI_RANGE_KEY_UPDATE_VALUE)).thenReturn(null);
+        Mockito.when(mockCorrectionReader.getValue(COLUMNS.indexOf(ViolationRecord.GSI_RANGE_KEY_UPDATE_VALUE))).thenReturn(null);
         Mockito.when(mockOptions.getGsiRangeKeyName()).thenReturn(gsiRangeKeyName);
         assertEquals("Should have returned null", null, correction.getNextGsiRangeKeyUpdateValue());
     }
@@ -190,26 +210,26 @@ public class CorrectionTest {
     @Test
     public void testGetNextDeleteBlankAttributeYes() {
         String testNextDeleteBlankAttributeString = "Y";
-        Mockito.when(mockCorrectionReader.getValueInRecordByName(ViolationRecord.GSI_CORRECTION_DELETE_BLANK)).thenReturn(testNextDeleteBlankAttributeString);
+        Mockito.when(mockCorrectionReader.getValue(COLUMNS.indexOf(ViolationRecord.GSI_CORRECTION_DELETE_BLANK))).thenReturn(testNextDeleteBlankAttributeString);
         assertTrue(correction.getNextDeleteBlankAttribute());
     }
     
     @Test
     public void testGetNextDeleteBlankAttributeNO() {
         String testNextDeleteBlankAttributeString = "N";
-        Mockito.when(mockCorrectionReader.getValueInRecordByName(ViolationRecord.GSI_CORRECTION_DELETE_BLANK)).thenReturn(testNextDeleteBlankAttributeString);
+        Mockito.when(mockCorrectionReader.getValue(COLUMNS.indexOf(ViolationRecord.GSI_CORRECTION_DELETE_BLANK))).thenReturn(testNextDeleteBlankAttributeString);
         assertFalse(correction.getNextDeleteBlankAttribute());
     } 
     
     @Test
     public void testGetNextDeleteBlankAttributeEmpty() {
         String testNextDeleteBlankAttributeString = "";
-        Mockito.when(mockCorrectionReader.getValueInRecordByName(ViolationRecord.GSI_CORRECTION_DELETE_BLANK)).thenReturn(testNextDeleteBlankAttributeString);
+        Mockito.when(mockCorrectionReader.getValue(COLUMNS.indexOf(ViolationRecord.GSI_CORRECTION_DELETE_BLANK))).thenReturn(testNextDeleteBlankAttributeString);
         assertFalse(correction.getNextDeleteBlankAttribute());
     } 
     @Test
     public void testGetNextDeleteBlankAttributeWithNoColumn() {
-        Mockito.when(mockCorrectionReader.getValueInRecordByName(ViolationRecord.GSI_CORRECTION_DELETE_BLANK)).thenReturn(null);
+        Mockito.when(mockCorrectionReader.getValue(COLUMNS.indexOf(ViolationRecord.GSI_CORRECTION_DELETE_BLANK))).thenReturn(null);
         correction.getNextDeleteBlankAttribute();
         assertFalse(correction.getNextDeleteBlankAttribute());
     } 
@@ -217,9 +237,134 @@ public class CorrectionTest {
     @Test(expected = IllegalArgumentException.class)
     public void testGetNextDeleteBlankAttributeWithInvalidValue() {
         String testNextDeleteBlankAttributeString = "invalidValue";
-        Mockito.when(mockCorrectionReader.getValueInRecordByName(ViolationRecord.GSI_CORRECTION_DELETE_BLANK)).thenReturn(testNextDeleteBlankAttributeString);
+        Mockito.when(mockCorrectionReader.getValue(COLUMNS.indexOf(ViolationRecord.GSI_CORRECTION_DELETE_BLANK))).thenReturn(testNextDeleteBlankAttributeString);
         assertFalse(correction.getNextDeleteBlankAttribute());
     }
-    
-    
+
+    @Test
+    public void testGetUpdateWorkerForKey() {
+        String tableHashKey = randDataGenerator.nextRadomString(10);
+        int worker = Correction.getUpdateWorkerForKey(tableHashKey, 7);
+        assertTrue("Worker should be in range", worker >= 0 && worker < 7);
+        assertEquals("Same key should always go to the same worker", worker, Correction.getUpdateWorkerForKey(new String(tableHashKey), 7));
+        assertEquals("Single worker should get every key", 0, Correction.getUpdateWorkerForKey(tableHashKey, 1));
+    }
+
+    @Test
+    public void testSubmitUpdateWithSingleWorker() throws Exception {
+        CorrectionRequest request = new CorrectionRequest("hashKey", null, null, null, null, 0);
+        Mockito.when(mockTableWriter.sendUpdateRequest(null, null, null)).thenReturn(true);
+        correction.submitUpdate(request);
+        Mockito.verify(mockTableWriter).sendUpdateRequest(null, null, null);
+        assertEquals("Should count the successful update", 1L, correction.getSuccessfulUpdates());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testSubmitAsyncUpdate() throws Exception {
+        Mockito.when(mockOptions.getMaxInFlightUpdates()).thenReturn(2);
+        Mockito.when(mockTableWriter.sendUpdateRequestAsync(Mockito.anyMap(), Mockito.anyMap(), Mockito.anyMap(), Mockito.any(AsyncHandler.class)))
+                .thenAnswer(new Answer<Boolean>() {
+                    @Override
+                    public Boolean answer(InvocationOnMock invocation) {
+                        ((AsyncHandler<?, ?>) invocation.getArguments()[3]).onSuccess(null, null);
+                        return true;
+                    }
+                });
+        // Second update on the same key is only sent once the first one completes
+        correction.submitAsyncUpdate(new CorrectionRequest("hashKey", null, null, null, null, 0));
+        correction.submitAsyncUpdate(new CorrectionRequest("hashKey", null, null, null, null, 0));
+        correction.waitForAsyncUpdates();
+        assertEquals("Should count both successful updates", 2L, correction.getSuccessfulUpdates());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testSubmitAsyncUpdateSameHashKeyDifferentRangeKeys() throws Exception {
+        final List<AsyncHandler<?, ?>> handlers = new ArrayList<AsyncHandler<?, ?>>();
+        Mockito.when(mockOptions.getMaxInFlightUpdates()).thenReturn(2);
+        Mockito.when(mockTableWriter.sendUpdateRequestAsync(Mockito.anyMap(), Mockito.anyMap(), Mockito.anyMap(), Mockito.any(AsyncHandler.class)))
+                .thenAnswer(new Answer<Boolean>() {
+                    @Override
+                    public Boolean answer(InvocationOnMock invocation) {
+                        handlers.add((AsyncHandler<?, ?>) invocation.getArguments()[3]);
+                        return true;
+                    }
+                });
+        // Items sharing a hash key but not a range key are both in flight at once
+        correction.submitAsyncUpdate(new CorrectionRequest("hashKey", getPrimaryKey("hashKey", "range1"), null, null, null, 0));
+        correction.submitAsyncUpdate(new CorrectionRequest("hashKey", getPrimaryKey("hashKey", "range2"), null, null, null, 1));
+        assertEquals("Should send both updates without waiting", 2, handlers.size());
+        for (AsyncHandler<?, ?> handler : handlers) {
+            handler.onSuccess(null, null);
+        }
+        correction.waitForAsyncUpdates();
+        assertEquals("Should count both successful updates", 2L, correction.getSuccessfulUpdates());
+    }
+
+    @Test
+    public void testStopUpdateWorkersSendsQueuedUpdates() throws Exception {
+        final AtomicInteger sentUpdates = new AtomicInteger();
+        Mockito.when(mockOptions.getNumOfCorrectionWorkers()).thenReturn(2);
+        Correction spyCorrection = Mockito.spy(correction);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                sentUpdates.incrementAndGet();
+                return null;
+            }
+        }).when(spyCorrection).sendUpdate(Mockito.any(CorrectionRequest.class), Mockito.any(TableWriter.class));
+        spyCorrection.startUpdateWorkers();
+        for (int row = 0; row < 10; row++) {
+            spyCorrection.submitUpdate(new CorrectionRequest("hashKey" + row, null, null, null, null, row));
+        }
+        assertTrue("Should send every queued update", spyCorrection.stopUpdateWorkers());
+        assertEquals("Should send every queued update", 10, sentUpdates.get());
+        assertTrue("Should do nothing once stopped", spyCorrection.stopUpdateWorkers());
+    }
+
+    @Test
+    public void testSubmitUpdateFailsAfterWorkerFailure() throws Exception {
+        Mockito.when(mockOptions.getNumOfCorrectionWorkers()).thenReturn(2);
+        Correction spyCorrection = Mockito.spy(correction);
+        Mockito.doThrow(new Error("Worker failure")).when(spyCorrection).sendUpdate(Mockito.any(CorrectionRequest.class), Mockito.any(TableWriter.class));
+        spyCorrection.startUpdateWorkers();
+        boolean isFailed = false;
+        try {
+            // More than a queue holds, all sent to the failed worker
+            for (int row = 0; row < 2000; row++) {
+                spyCorrection.submitUpdate(new CorrectionRequest("hashKey", null, null, null, null, row));
+            }
+        } catch (IllegalArgumentException iae) {
+            isFailed = true;
+        }
+        assertTrue("Should fail instead of blocking on the failed worker", isFailed);
+        assertFalse("Should report the updates left unsent", spyCorrection.stopUpdateWorkers());
+    }
+
+    private static Map<String, AttributeValue> getPrimaryKey(String hashKey, String rangeKey) {
+        Map<String, AttributeValue> primaryKey = new HashMap<String, AttributeValue>();
+        primaryKey.put("hk", new AttributeValue().withS(hashKey));
+        primaryKey.put("rk", new AttributeValue().withS(rangeKey));
+        return primaryKey;
+    }
+
+    @Test
+    public void testDryRunDeleteCountsInvalidRows() {
+        Mockito.when(mockCorrectionReader.moveToNextRecordIfHas()).thenReturn(true, true, true, false);
+        Mockito.when(mockCorrectionReader.getValue(COLUMNS.indexOf(ViolationRecord.TABLE_HASH_KEY))).thenReturn("a", "b", "");
+        Mockito.when(mockTableHelper.getTableHashKeyType()).thenReturn("S");
+        Mockito.when(mockTableHelper.getGsiKeyAttributeNames()).thenReturn(new HashMap<String, List<String>>());
+        Mockito.when(mockTableWriter.genAttributeValueForTableKey("S", "a")).thenReturn(new AttributeValue().withS("a"));
+        Mockito.when(mockTableWriter.genAttributeValueForTableKey("S", "b")).thenReturn(new AttributeValue().withS("b"));
+        Mockito.when(mockTableWriter.genAttributeValueForTableKey("S", "")).thenThrow(new IllegalArgumentException());
+        Map<String, AttributeValue> primaryKey = new HashMap<String, AttributeValue>();
+        primaryKey.put("id", new AttributeValue().withS("a"));
+        Mockito.when(mockTableWriter.genTablePrimaryKey(Mockito.any(AttributeValue.class), Mockito.any(AttributeValue.class))).thenReturn(primaryKey);
+
+        CorrectionCostEstimator estimator = correction.dryRunFromFile(true /* delete */);
+        assertEquals("Should estimate the valid rows only", 2L, estimator.getNumOfWrites());
+        assertEquals(2L, estimator.getTotalWriteUnits());
+        Mockito.verify(mockTableWriter, Mockito.never()).drainDeleteRetries();
+    }
 }
@@ -0,0 +1,58 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * 
+ * Unit tests for CountMinSketch.
+ * 
+ */
+public class CountMinSketchTest {
+
+    @Test
+    public void testEstimateNeverUndercounts() {
+        CountMinSketch sketch = new CountMinSketch(1024, 4);
+        for (int i = 0; i < 100000; i++) {
+            sketch.add("value" + (i % 5000));
+        }
+        sketch.add("hot", 5000);
+        assertTrue(sketch.estimate("hot") >= 5000);
+        // e / width of the total count
+        assertTrue(sketch.estimate("hot") < 5000 + 105000 * 3 / 1024);
+        assertTrue(sketch.estimate("value1") >= 20);
+        assertEquals(105000L, sketch.getTotal());
+    }
+
+    @Test
+    public void testMerge() {
+        CountMinSketch first = new CountMinSketch();
+        CountMinSketch second = new CountMinSketch();
+        first.add("a", 3);
+        second.add("a", 4);
+        first.merge(second);
+        assertEquals(7L, first.estimate("a"));
+        assertEquals(0L, first.estimate("b"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentDimensions() {
+        new CountMinSketch(16, 2).merge(new CountMinSketch(32, 2));
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.base.Strings;
+
+/**
+ * 
+ * Unit tests for GsiBackfillEstimator.
+ * 
+ */
+public class GsiBackfillEstimatorTest {
+
+    private Map<String, AttributeValue> item(String gsiHash) {
+        Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+        // 2 + 10 bytes
+        item.put("id", new AttributeValue().withS("0123456789"));
+        if (gsiHash != null) {
+            item.put("gh", new AttributeValue().withS(gsiHash));
+        }
+        // 4 + 1000 bytes
+        item.put("data", new AttributeValue().withS(Strings.repeat("d", 1000)));
+        // 5 + 100 bytes
+        item.put("other", new AttributeValue().withS(Strings.repeat("o", 100)));
+        return item;
+    }
+
+    private GsiBackfillEstimator estimator(String projectionType) {
+        return new GsiBackfillEstimator(projectionType, Arrays.asList("data"), "id", null, "gh", null, 10);
+    }
+
+    @Test
+    public void testEntrySizePerProjection() {
+        // 100 bytes overhead, table key 12 bytes, GSI key 2 + 4 bytes
+        assertEquals(118L, estimator("KEYS_ONLY").getEntrySize(item("abcd")));
+        assertEquals(1122L, estimator("INCLUDE").getEntrySize(item("abcd")));
+        assertEquals(1227L, estimator("ALL").getEntrySize(item("abcd")));
+    }
+
+    @Test
+    public void testSparseItemsAndViolationsNotProjected() {
+        GsiBackfillEstimator first = estimator("INCLUDE");
+        GsiBackfillEstimator second = estimator("INCLUDE");
+        first.addItem(item("abcd"), false);
+        first.addItem(item(null), false);
+        second.addItem(item("abcd"), false);
+        second.addItem(item("abcd"), true);
+        first.merge(second);
+
+        assertEquals(2L, first.getItemsProjected());
+        assertEquals(1L, first.getItemsNotProjected());
+        assertEquals(1L, first.getItemsWithViolations());
+        assertEquals(2244L, first.getEntrySizes().getSum());
+        // 1122 bytes take 2 write units each
+        assertEquals(4L, first.getTotalWriteUnits());
+        assertEquals(1L, first.getEstimatedSeconds());
+    }
+
+    @Test
+    public void testEstimatedSecondsWithoutCapacity() {
+        GsiBackfillEstimator estimator = new GsiBackfillEstimator("KEYS_ONLY", null, "id", null, "gh", null, 0);
+        estimator.addItem(item("abcd"), false);
+        assertEquals(-1L, estimator.getEstimatedSeconds());
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * 
+ * Unit tests for HotKeyPredictor.
+ * 
+ */
+public class HotKeyPredictorTest {
+
+    @Test
+    public void testSkewedValuesMergedAcrossSegments() {
+        HotKeyPredictor first = new HotKeyPredictor("status");
+        HotKeyPredictor second = new HotKeyPredictor("status");
+        for (int i = 0; i < 10000; i++) {
+            HotKeyPredictor predictor = i % 2 == 0 ? first : second;
+            predictor.addValue(i % 10 < 6 ? "ACTIVE" : "user" + i);
+        }
+        first.merge(second);
+        assertEquals(10000L, first.getItemsWithValue());
+        long distinct = first.getDistinctValues();
+        assertTrue("Distinct " + distinct + " should be close to 4001", Math.abs(distinct - 4001) < 120);
+    }
+
+    @Test
+    public void testProjectedWriteRate() {
+        // 60% of the items with 2000 table writes per second
+        assertEquals(1200.0, HotKeyPredictor.getProjectedWriteRate(6000, 10000, 2000), 0.0);
+        assertEquals(0.0, HotKeyPredictor.getProjectedWriteRate(0, 0, 2000), 0.0);
+    }
+
+    @Test
+    public void testWriteReport() throws Exception {
+        HotKeyPredictor predictor = new HotKeyPredictor("status");
+        for (int i = 0; i < 100; i++) {
+            predictor.addValue(i < 60 ? "ACTIVE" : "user" + i);
+        }
+        File reportFile = File.createTempFile("hot_keys", ".json");
+        reportFile.deleteOnExit();
+        JsonGenerator generator = new JsonFactory().createGenerator(reportFile, JsonEncoding.UTF8);
+        generator.writeStartObject();
+        predictor.writeReport(generator, 200, 4000);
+        generator.writeEndObject();
+        generator.close();
+
+        String report = Files.toString(reportFile, Charsets.UTF_8);
+        assertTrue(report.contains("\"value\":\"ACTIVE\",\"items\":60,\"share\":0.6,\"projectedWriteRate\":1200.0,\"exceedsPartitionLimit\":true"));
+        assertTrue(report.contains("\"distinctValues\":41"));
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * 
+ * Unit tests for HyperLogLog.
+ * 
+ */
+public class HyperLogLogTest {
+
+    @Test
+    public void testSmallCardinalityIsExact() {
+        HyperLogLog hyperLogLog = new HyperLogLog();
+        for (int i = 0; i < 100; i++) {
+            hyperLogLog.add("key" + (i % 10));
+        }
+        assertEquals(10L, hyperLogLog.estimate());
+    }
+
+    @Test
+    public void testLargeCardinalityWithinError() {
+        HyperLogLog hyperLogLog = new HyperLogLog();
+        for (int i = 0; i < 1000000; i++) {
+            hyperLogLog.add("key" + i);
+        }
+        long estimate = hyperLogLog.estimate();
+        assertTrue("Estimate " + estimate + " should be within 3%", Math.abs(estimate - 1000000) < 30000);
+    }
+
+    @Test
+    public void testMergeCountsOverlapOnce() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        for (int i = 0; i < 3000; i++) {
+            first.add("key" + i);
+            second.add("key" + (i + 1000));
+        }
+        first.merge(second);
+        long estimate = first.estimate();
+        assertTrue("Estimate " + estimate + " should be close to 4000", Math.abs(estimate - 4000) < 120);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentPrecision() {
+        new HyperLogLog(10).merge(new HyperLogLog(12));
+    }
+}
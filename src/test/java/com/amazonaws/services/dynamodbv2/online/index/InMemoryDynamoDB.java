@@ -0,0 +1,1090 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonServiceException.ErrorType;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.ResponseMetadata;
+import com.amazonaws.regions.Region;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeAction;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.Capacity;
+import com.amazonaws.services.dynamodbv2.model.Condition;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.CreateTableResult;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemResult;
+import com.amazonaws.services.dynamodbv2.model.DeleteTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteTableResult;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableResult;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexUpdate;
+import com.amazonaws.services.dynamodbv2.model.IndexStatus;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.ListTablesRequest;
+import com.amazonaws.services.dynamodbv2.model.ListTablesResult;
+import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputDescription;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ResourceInUseException;
+import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.TableStatus;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateTableResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.amazonaws.services.dynamodbv2.online.index.benchmark.ExportFileWriter;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * In-process DynamoDB for tests and benchmarks, no DynamoDB Local needed.
+ * 
+ * Supports the calls made by the tool: parallel Scan, BatchWriteItem,
+ * BatchGetItem, UpdateItem, PutItem and DeleteItem with Expected, and the
+ * table calls. Consumed capacity is computed like DynamoDB does, per table
+ * and per index, so rate limiting works as against DynamoDB. Latency,
+ * throttling and unprocessed items can be injected. Items are ordered by a
+ * hash of their hash key, so that the segments of a parallel scan are
+ * contiguous ranges of the table as in DynamoDB. Thread safe.
+ */
+public class InMemoryDynamoDB implements AmazonDynamoDB, StreamingScanClient {
+    public static final int MAX_BATCH_WRITE_ITEMS = 25;
+    public static final int MAX_BATCH_GET_ITEMS = 100;
+    public static final int MAX_PAGE_BYTES = 1024 * 1024;
+    private static final long HASH_RANGE = 1L << 32;
+    private static final HashFunction PARTITION_FUNCTION = Hashing.murmur3_32();
+
+    private Map<String, Table> tables = new ConcurrentHashMap<String, Table>();
+
+    /** Injected faults */
+    private volatile long latencyMillis = 0;
+    private volatile int throttleEveryNthRequest = 0;
+    private volatile int unprocessedEveryNthItem = 0;
+
+    /** Statistics */
+    private AtomicLong numOfRequests = new AtomicLong(0);
+    private AtomicLong numOfThrottledRequests = new AtomicLong(0);
+    private AtomicLong numOfUnprocessedItems = new AtomicLong(0);
+    private AtomicLong batchItemCount = new AtomicLong(0);
+    private double consumedReadUnits = 0;
+    private double consumedWriteUnits = 0;
+
+    /**
+     * Sleep this long before answering each item request.
+     */
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * Throw ProvisionedThroughputExceededException for every nth item
+     * request, 0 never throttles.
+     */
+    public void setThrottleEveryNthRequest(int throttleEveryNthRequest) {
+        this.throttleEveryNthRequest = throttleEveryNthRequest;
+    }
+
+    /**
+     * Return every nth item of the batch calls as unprocessed, 0 processes
+     * all of them.
+     */
+    public void setUnprocessedEveryNthItem(int unprocessedEveryNthItem) {
+        this.unprocessedEveryNthItem = unprocessedEveryNthItem;
+    }
+
+    public long getNumOfRequests() {
+        return numOfRequests.get();
+    }
+
+    public long getNumOfThrottledRequests() {
+        return numOfThrottledRequests.get();
+    }
+
+    public long getNumOfUnprocessedItems() {
+        return numOfUnprocessedItems.get();
+    }
+
+    public synchronized double getConsumedReadUnits() {
+        return consumedReadUnits;
+    }
+
+    public synchronized double getConsumedWriteUnits() {
+        return consumedWriteUnits;
+    }
+
+    public int getNumOfItems(String tableName) {
+        return getTable(tableName).items.size();
+    }
+
+    /**
+     * Count the request, then wait and throttle as injected.
+     */
+    private void beforeRequest() {
+        long requestNum = numOfRequests.incrementAndGet();
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (throttleEveryNthRequest > 0 && requestNum % throttleEveryNthRequest == 0) {
+            numOfThrottledRequests.incrementAndGet();
+            ProvisionedThroughputExceededException exception = new ProvisionedThroughputExceededException(
+                    "The level of configured provisioned throughput for the table was exceeded.");
+            exception.setErrorCode("ProvisionedThroughputExceededException");
+            exception.setErrorType(ErrorType.Client);
+            exception.setStatusCode(400);
+            exception.setServiceName("AmazonDynamoDBv2");
+            throw exception;
+        }
+    }
+
+    private boolean isUnprocessed() {
+        return unprocessedEveryNthItem > 0 && batchItemCount.incrementAndGet() % unprocessedEveryNthItem == 0;
+    }
+
+    private synchronized void addConsumedUnits(double readUnits, double writeUnits) {
+        consumedReadUnits += readUnits;
+        consumedWriteUnits += writeUnits;
+    }
+
+    private static AmazonServiceException validationException(String message) {
+        AmazonServiceException exception = new AmazonServiceException(message);
+        exception.setErrorCode("ValidationException");
+        exception.setErrorType(ErrorType.Client);
+        exception.setStatusCode(400);
+        exception.setServiceName("AmazonDynamoDBv2");
+        return exception;
+    }
+
+    private Table getTable(String tableName) {
+        Table table = tableName == null ? null : tables.get(tableName);
+        if (table == null) {
+            throw new ResourceNotFoundException("Requested resource not found: Table: " + tableName + " not found");
+        }
+        return table;
+    }
+
+    /**
+     * Secondary index of a table, its key attributes are the table keys and
+     * the index keys.
+     */
+    private static class Index {
+        private String indexName;
+        private boolean isGlobal;
+        private String hashKeyName;
+        private String rangeKeyName;
+        private List<String> keyAttributeNames = new ArrayList<String>();
+        private String projectionType;
+        private List<String> nonKeyAttributeNames;
+
+        private boolean contains(Map<String, AttributeValue> item) {
+            return item != null && item.containsKey(hashKeyName) && (rangeKeyName == null || item.containsKey(rangeKeyName));
+        }
+
+        private long getEntryWriteUnits(Map<String, AttributeValue> item) {
+            return ItemSizeCalculator.getWriteUnits(ItemSizeCalculator.getIndexEntrySize(item, keyAttributeNames, projectionType, nonKeyAttributeNames));
+        }
+
+        /**
+         * Write units to move the index from the old to the new item, an
+         * index key change is a delete and a put.
+         */
+        private long getWriteUnits(Map<String, AttributeValue> oldItem, Map<String, AttributeValue> newItem) {
+            boolean inOld = contains(oldItem);
+            boolean inNew = contains(newItem);
+            if (inOld && inNew) {
+                boolean sameKey = oldItem.get(hashKeyName).equals(newItem.get(hashKeyName))
+                        && (rangeKeyName == null || oldItem.get(rangeKeyName).equals(newItem.get(rangeKeyName)));
+                long oldUnits = getEntryWriteUnits(oldItem);
+                long newUnits = getEntryWriteUnits(newItem);
+                return sameKey ? Math.max(oldUnits, newUnits) : oldUnits + newUnits;
+            }
+            if (inOld) {
+                return getEntryWriteUnits(oldItem);
+            }
+            if (inNew) {
+                return getEntryWriteUnits(newItem);
+            }
+            return 0;
+        }
+    }
+
+    private static class Table {
+        private String tableName;
+        private String hashKeyName;
+        private String rangeKeyName;
+        private List<KeySchemaElement> keySchema;
+        private List<AttributeDefinition> attributeDefinitions;
+        private long readCapacityUnits;
+        private long writeCapacityUnits;
+        private Date creationDateTime = new Date();
+        private List<Index> indexes = new ArrayList<Index>();
+        private Map<String, ProvisionedThroughput> gsiThroughputs = new HashMap<String, ProvisionedThroughput>();
+        private ConcurrentSkipListMap<String, Map<String, AttributeValue>> items = new ConcurrentSkipListMap<String, Map<String, AttributeValue>>();
+        private AtomicLong sizeBytes = new AtomicLong(0);
+    }
+
+    private static String getHashKeyName(List<KeySchemaElement> keySchema) {
+        for (KeySchemaElement element : keySchema) {
+            if (KeyType.HASH.toString().equals(element.getKeyType())) {
+                return element.getAttributeName();
+            }
+        }
+        throw validationException("One or more parameter values were invalid: Missing the key HASH in the key schema");
+    }
+
+    private static String getRangeKeyName(List<KeySchemaElement> keySchema) {
+        for (KeySchemaElement element : keySchema) {
+            if (KeyType.RANGE.toString().equals(element.getKeyType())) {
+                return element.getAttributeName();
+            }
+        }
+        return null;
+    }
+
+    private static Index createIndex(Table table, String indexName, boolean isGlobal, List<KeySchemaElement> keySchema, String projectionType,
+            List<String> nonKeyAttributeNames) {
+        Index index = new Index();
+        index.indexName = indexName;
+        index.isGlobal = isGlobal;
+        index.hashKeyName = getHashKeyName(keySchema);
+        index.rangeKeyName = getRangeKeyName(keySchema);
+        for (String name : new String[] { table.hashKeyName, table.rangeKeyName, index.hashKeyName, index.rangeKeyName }) {
+            if (name != null && !index.keyAttributeNames.contains(name)) {
+                index.keyAttributeNames.add(name);
+            }
+        }
+        index.projectionType = projectionType;
+        index.nonKeyAttributeNames = nonKeyAttributeNames;
+        return index;
+    }
+
+    @Override
+    public CreateTableResult createTable(CreateTableRequest createTableRequest) {
+        synchronized (tables) {
+            if (tables.containsKey(createTableRequest.getTableName())) {
+                throw new ResourceInUseException("Table already exists: " + createTableRequest.getTableName());
+            }
+            Table table = new Table();
+            table.tableName = createTableRequest.getTableName();
+            table.keySchema = createTableRequest.getKeySchema();
+            table.attributeDefinitions = createTableRequest.getAttributeDefinitions();
+            table.hashKeyName = getHashKeyName(table.keySchema);
+            table.rangeKeyName = getRangeKeyName(table.keySchema);
+            table.readCapacityUnits = createTableRequest.getProvisionedThroughput().getReadCapacityUnits();
+            table.writeCapacityUnits = createTableRequest.getProvisionedThroughput().getWriteCapacityUnits();
+            if (createTableRequest.getGlobalSecondaryIndexes() != null) {
+                for (GlobalSecondaryIndex gsi : createTableRequest.getGlobalSecondaryIndexes()) {
+                    table.indexes.add(createIndex(table, gsi.getIndexName(), true, gsi.getKeySchema(), gsi.getProjection().getProjectionType(), gsi
+                            .getProjection().getNonKeyAttributes()));
+                    table.gsiThroughputs.put(gsi.getIndexName(), gsi.getProvisionedThroughput());
+                }
+            }
+            if (createTableRequest.getLocalSecondaryIndexes() != null) {
+                for (LocalSecondaryIndex lsi : createTableRequest.getLocalSecondaryIndexes()) {
+                    table.indexes.add(createIndex(table, lsi.getIndexName(), false, lsi.getKeySchema(), lsi.getProjection().getProjectionType(), lsi
+                            .getProjection().getNonKeyAttributes()));
+                }
+            }
+            tables.put(table.tableName, table);
+            return new CreateTableResult().withTableDescription(describe(table));
+        }
+    }
+
+    private static TableDescription describe(Table table) {
+        TableDescription description = new TableDescription().withTableName(table.tableName).withKeySchema(table.keySchema)
+                .withAttributeDefinitions(table.attributeDefinitions).withTableStatus(TableStatus.ACTIVE).withCreationDateTime(table.creationDateTime)
+                .withItemCount((long) table.items.size()).withTableSizeBytes(table.sizeBytes.get());
+        synchronized (table) {
+            description.withProvisionedThroughput(new ProvisionedThroughputDescription().withReadCapacityUnits(table.readCapacityUnits)
+                    .withWriteCapacityUnits(table.writeCapacityUnits));
+            List<GlobalSecondaryIndexDescription> gsis = new ArrayList<GlobalSecondaryIndexDescription>();
+            List<LocalSecondaryIndexDescription> lsis = new ArrayList<LocalSecondaryIndexDescription>();
+            for (Index index : table.indexes) {
+                List<KeySchemaElement> keySchema = new ArrayList<KeySchemaElement>();
+                keySchema.add(new KeySchemaElement(index.hashKeyName, KeyType.HASH));
+                if (index.rangeKeyName != null) {
+                    keySchema.add(new KeySchemaElement(index.rangeKeyName, KeyType.RANGE));
+                }
+                Projection projection = new Projection().withProjectionType(index.projectionType).withNonKeyAttributes(index.nonKeyAttributeNames);
+                if (index.isGlobal) {
+                    ProvisionedThroughput throughput = table.gsiThroughputs.get(index.indexName);
+                    gsis.add(new GlobalSecondaryIndexDescription().withIndexName(index.indexName).withKeySchema(keySchema).withProjection(projection)
+                            .withIndexStatus(IndexStatus.ACTIVE).withProvisionedThroughput(
+                                    new ProvisionedThroughputDescription().withReadCapacityUnits(throughput.getReadCapacityUnits())
+                                            .withWriteCapacityUnits(throughput.getWriteCapacityUnits())));
+                } else {
+                    lsis.add(new LocalSecondaryIndexDescription().withIndexName(index.indexName).withKeySchema(keySchema).withProjection(projection));
+                }
+            }
+            if (!gsis.isEmpty()) {
+                description.withGlobalSecondaryIndexes(gsis);
+            }
+            if (!lsis.isEmpty()) {
+                description.withLocalSecondaryIndexes(lsis);
+            }
+        }
+        return description;
+    }
+
+    @Override
+    public DescribeTableResult describeTable(DescribeTableRequest describeTableRequest) {
+        return new DescribeTableResult().withTable(describe(getTable(describeTableRequest.getTableName())));
+    }
+
+    @Override
+    public UpdateTableResult updateTable(UpdateTableRequest updateTableRequest) {
+        Table table = getTable(updateTableRequest.getTableName());
+        synchronized (table) {
+            if (updateTableRequest.getProvisionedThroughput() != null) {
+                table.readCapacityUnits = updateTableRequest.getProvisionedThroughput().getReadCapacityUnits();
+                table.writeCapacityUnits = updateTableRequest.getProvisionedThroughput().getWriteCapacityUnits();
+            }
+            if (updateTableRequest.getGlobalSecondaryIndexUpdates() != null) {
+                for (GlobalSecondaryIndexUpdate update : updateTableRequest.getGlobalSecondaryIndexUpdates()) {
+                    if (update.getUpdate() != null) {
+                        if (!table.gsiThroughputs.containsKey(update.getUpdate().getIndexName())) {
+                            throw new ResourceNotFoundException("Requested resource not found: Index: " + update.getUpdate().getIndexName());
+                        }
+                        table.gsiThroughputs.put(update.getUpdate().getIndexName(), update.getUpdate().getProvisionedThroughput());
+                    }
+                }
+            }
+        }
+        return new UpdateTableResult().withTableDescription(describe(table));
+    }
+
+    @Override
+    public DeleteTableResult deleteTable(DeleteTableRequest deleteTableRequest) {
+        Table table = getTable(deleteTableRequest.getTableName());
+        tables.remove(table.tableName);
+        return new DeleteTableResult().withTableDescription(describe(table));
+    }
+
+    @Override
+    public ListTablesResult listTables(ListTablesRequest listTablesRequest) {
+        List<String> tableNames = new ArrayList<String>(tables.keySet());
+        Collections.sort(tableNames);
+        return new ListTablesResult().withTableNames(tableNames);
+    }
+
+    /**
+     * Sort key of an item: the hash of its hash key, then its keys, so that
+     * each segment is a range of the sorted items.
+     */
+    private static String getItemKey(Table table, Map<String, AttributeValue> item) {
+        AttributeValue hashKey = item.get(table.hashKeyName);
+        if (hashKey == null || (table.rangeKeyName != null && item.get(table.rangeKeyName) == null)) {
+            throw validationException("One or more parameter values were invalid: Missing the key in the item");
+        }
+        String hashKeyString = toKeyString(hashKey);
+        long hash = PARTITION_FUNCTION.hashString(hashKeyString, Charsets.UTF_8).asInt() & 0xffffffffL;
+        StringBuilder key = new StringBuilder(String.format("%08x", hash)).append('\u0000').append(hashKeyString);
+        if (table.rangeKeyName != null) {
+            key.append('\u0000').append(toKeyString(item.get(table.rangeKeyName)));
+        }
+        return key.toString();
+    }
+
+    private static String toKeyString(AttributeValue value) {
+        if (value.getS() != null) {
+            return "S" + value.getS();
+        }
+        if (value.getN() != null) {
+            return "N" + new BigDecimal(value.getN()).stripTrailingZeros().toPlainString();
+        }
+        if (value.getB() != null) {
+            ByteBuffer buffer = value.getB().duplicate();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return "B" + BaseEncoding.base64().encode(bytes);
+        }
+        throw validationException("One or more parameter values were invalid: Key attributes must be S, N or B");
+    }
+
+    private static String getSegmentStart(long segment, long totalSegments) {
+        return String.format("%08x", segment * HASH_RANGE / totalSegments);
+    }
+
+    private static Map<String, AttributeValue> getPrimaryKey(Table table, Map<String, AttributeValue> item) {
+        Map<String, AttributeValue> key = new HashMap<String, AttributeValue>();
+        key.put(table.hashKeyName, copy(item.get(table.hashKeyName)));
+        if (table.rangeKeyName != null) {
+            key.put(table.rangeKeyName, copy(item.get(table.rangeKeyName)));
+        }
+        return key;
+    }
+
+    /**
+     * Copy of the value, binary values are duplicated so that readers can
+     * consume them.
+     */
+    private static AttributeValue copy(AttributeValue value) {
+        AttributeValue copy = new AttributeValue().withS(value.getS()).withN(value.getN()).withSS(value.getSS()).withNS(value.getNS())
+                .withBOOL(value.getBOOL()).withNULL(value.getNULL());
+        if (value.getB() != null) {
+            copy.withB(value.getB().duplicate());
+        }
+        if (value.getBS() != null) {
+            List<ByteBuffer> binarySet = new ArrayList<ByteBuffer>();
+            for (ByteBuffer binary : value.getBS()) {
+                binarySet.add(binary.duplicate());
+            }
+            copy.withBS(binarySet);
+        }
+        if (value.getM() != null) {
+            copy.withM(copy(value.getM(), null));
+        }
+        if (value.getL() != null) {
+            List<AttributeValue> list = new ArrayList<AttributeValue>();
+            for (AttributeValue element : value.getL()) {
+                list.add(copy(element));
+            }
+            copy.withL(list);
+        }
+        return copy;
+    }
+
+    /**
+     * Copy of the item with only the given attributes, all if null.
+     */
+    private static Map<String, AttributeValue> copy(Map<String, AttributeValue> item, List<String> attributesToGet) {
+        Map<String, AttributeValue> copy = new HashMap<String, AttributeValue>();
+        if (attributesToGet == null) {
+            for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+                copy.put(attribute.getKey(), copy(attribute.getValue()));
+            }
+        } else {
+            for (String name : attributesToGet) {
+                if (item.containsKey(name)) {
+                    copy.put(name, copy(item.get(name)));
+                }
+            }
+        }
+        return copy;
+    }
+
+    private static ConsumedCapacity getConsumedCapacity(String returnConsumedCapacity, Table table, double tableUnits, Map<String, Double> indexUnits) {
+        if (returnConsumedCapacity == null || ReturnConsumedCapacity.NONE.toString().equals(returnConsumedCapacity)) {
+            return null;
+        }
+        double totalUnits = tableUnits;
+        for (double units : indexUnits.values()) {
+            totalUnits += units;
+        }
+        ConsumedCapacity consumedCapacity = new ConsumedCapacity().withTableName(table.tableName).withCapacityUnits(totalUnits);
+        if (ReturnConsumedCapacity.INDEXES.toString().equals(returnConsumedCapacity)) {
+            consumedCapacity.withTable(new Capacity().withCapacityUnits(tableUnits));
+            Map<String, Capacity> gsis = new HashMap<String, Capacity>();
+            Map<String, Capacity> lsis = new HashMap<String, Capacity>();
+            for (Index index : table.indexes) {
+                if (indexUnits.containsKey(index.indexName)) {
+                    (index.isGlobal ? gsis : lsis).put(index.indexName, new Capacity().withCapacityUnits(indexUnits.get(index.indexName)));
+                }
+            }
+            if (!gsis.isEmpty()) {
+                consumedCapacity.withGlobalSecondaryIndexes(gsis);
+            }
+            if (!lsis.isEmpty()) {
+                consumedCapacity.withLocalSecondaryIndexes(lsis);
+            }
+        }
+        return consumedCapacity;
+    }
+
+    /**
+     * Scan pages are limited to 1 MB of items and charged for the total
+     * size of the items read, whatever attributes are returned.
+     */
+    @Override
+    public ScanResult scan(ScanRequest scanRequest) {
+        beforeRequest();
+        if (scanRequest.getScanFilter() != null || scanRequest.getFilterExpression() != null || scanRequest.getProjectionExpression() != null) {
+            throw new UnsupportedOperationException("Scan filters and expressions are not supported");
+        }
+        Table table = getTable(scanRequest.getTableName());
+        long totalSegments = scanRequest.getTotalSegments() == null ? 1 : scanRequest.getTotalSegments();
+        long segment = scanRequest.getSegment() == null ? 0 : scanRequest.getSegment();
+        if (segment < 0 || segment >= totalSegments) {
+            throw validationException("The Segment parameter is out of range");
+        }
+        String start = getSegmentStart(segment, totalSegments);
+        String end = segment + 1 == totalSegments ? null : getSegmentStart(segment + 1, totalSegments);
+        ConcurrentNavigableMap<String, Map<String, AttributeValue>> segmentItems;
+        if (scanRequest.getExclusiveStartKey() != null) {
+            segmentItems = table.items.tailMap(getItemKey(table, scanRequest.getExclusiveStartKey()), false);
+        } else {
+            segmentItems = table.items.tailMap(start, true);
+        }
+        if (end != null) {
+            segmentItems = segmentItems.headMap(end, false);
+        }
+
+        int limit = scanRequest.getLimit() == null ? Integer.MAX_VALUE : scanRequest.getLimit();
+        List<Map<String, AttributeValue>> items = new ArrayList<Map<String, AttributeValue>>();
+        long bytesRead = 0;
+        Map<String, AttributeValue> lastItem = null;
+        boolean hasMore = false;
+        for (Map<String, AttributeValue> item : segmentItems.values()) {
+            if (items.size() >= limit || bytesRead >= MAX_PAGE_BYTES) {
+                hasMore = true;
+                break;
+            }
+            bytesRead += ItemSizeCalculator.getItemSize(item);
+            items.add(copy(item, scanRequest.getAttributesToGet()));
+            lastItem = item;
+        }
+        // Scans are eventually consistent reads
+        double readUnits = ItemSizeCalculator.getReadUnits(Math.max(1, bytesRead), false);
+        addConsumedUnits(readUnits, 0);
+        return new ScanResult().withItems(items).withCount(items.size()).withScannedCount(items.size())
+                .withLastEvaluatedKey(hasMore ? getPrimaryKey(table, lastItem) : null)
+                .withConsumedCapacity(getConsumedCapacity(scanRequest.getReturnConsumedCapacity(), table, readUnits, new HashMap<String, Double>()));
+    }
+
+    /**
+     * The Scan result is written in the JSON of a DynamoDB response, then
+     * decoded by the decoder.
+     */
+    @Override
+    public ScanPage streamingScan(ScanRequest scanRequest, ScanResponseDecoder decoder) {
+        ScanResult scanResult = scan(scanRequest);
+        try {
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            JsonGenerator generator = new JsonFactory().createGenerator(response);
+            generator.writeStartObject();
+            if (scanResult.getConsumedCapacity() != null) {
+                generator.writeObjectFieldStart("ConsumedCapacity");
+                generator.writeNumberField("CapacityUnits", scanResult.getConsumedCapacity().getCapacityUnits());
+                generator.writeStringField("TableName", scanResult.getConsumedCapacity().getTableName());
+                generator.writeEndObject();
+            }
+            generator.writeNumberField("Count", scanResult.getCount());
+            generator.writeArrayFieldStart("Items");
+            for (Map<String, AttributeValue> item : scanResult.getItems()) {
+                ExportFileWriter.writeItem(generator, item);
+            }
+            generator.writeEndArray();
+            if (scanResult.getLastEvaluatedKey() != null) {
+                generator.writeFieldName("LastEvaluatedKey");
+                ExportFileWriter.writeItem(generator, scanResult.getLastEvaluatedKey());
+            }
+            generator.writeNumberField("ScannedCount", scanResult.getScannedCount());
+            generator.writeEndObject();
+            generator.close();
+            return decoder.decode(new ByteArrayInputStream(response.toByteArray()));
+        } catch (IOException ioe) {
+            throw new IllegalStateException("Failed to decode scan response", ioe);
+        }
+    }
+
+    @Override
+    public GetItemResult getItem(GetItemRequest getItemRequest) {
+        beforeRequest();
+        Table table = getTable(getItemRequest.getTableName());
+        Map<String, AttributeValue> item = table.items.get(getItemKey(table, getItemRequest.getKey()));
+        boolean consistentRead = getItemRequest.getConsistentRead() != null && getItemRequest.getConsistentRead();
+        double readUnits = ItemSizeCalculator.getReadUnits(Math.max(1, ItemSizeCalculator.getItemSize(item)), consistentRead);
+        addConsumedUnits(readUnits, 0);
+        return new GetItemResult().withItem(item == null ? null : copy(item, getItemRequest.getAttributesToGet())).withConsumedCapacity(
+                getConsumedCapacity(getItemRequest.getReturnConsumedCapacity(), table, readUnits, new HashMap<String, Double>()));
+    }
+
+    @Override
+    public BatchGetItemResult batchGetItem(BatchGetItemRequest batchGetItemRequest) {
+        beforeRequest();
+        int numOfKeys = 0;
+        for (KeysAndAttributes keysAndAttributes : batchGetItemRequest.getRequestItems().values()) {
+            numOfKeys += keysAndAttributes.getKeys().size();
+        }
+        if (numOfKeys > MAX_BATCH_GET_ITEMS) {
+            throw validationException("Too many items requested for the BatchGetItem call");
+        }
+        Map<String, List<Map<String, AttributeValue>>> responses = new HashMap<String, List<Map<String, AttributeValue>>>();
+        Map<String, KeysAndAttributes> unprocessedKeys = new HashMap<String, KeysAndAttributes>();
+        List<ConsumedCapacity> consumedCapacities = new ArrayList<ConsumedCapacity>();
+        for (Map.Entry<String, KeysAndAttributes> requestItems : batchGetItemRequest.getRequestItems().entrySet()) {
+            Table table = getTable(requestItems.getKey());
+            KeysAndAttributes keysAndAttributes = requestItems.getValue();
+            boolean consistentRead = keysAndAttributes.getConsistentRead() != null && keysAndAttributes.getConsistentRead();
+            List<Map<String, AttributeValue>> items = new ArrayList<Map<String, AttributeValue>>();
+            List<Map<String, AttributeValue>> unprocessed = new ArrayList<Map<String, AttributeValue>>();
+            double readUnits = 0;
+            for (Map<String, AttributeValue> key : keysAndAttributes.getKeys()) {
+                if (isUnprocessed()) {
+                    numOfUnprocessedItems.incrementAndGet();
+                    unprocessed.add(key);
+                    continue;
+                }
+                Map<String, AttributeValue> item = table.items.get(getItemKey(table, key));
+                readUnits += ItemSizeCalculator.getReadUnits(Math.max(1, ItemSizeCalculator.getItemSize(item)), consistentRead);
+                if (item != null) {
+                    items.add(copy(item, keysAndAttributes.getAttributesToGet()));
+                }
+            }
+            responses.put(table.tableName, items);
+            if (!unprocessed.isEmpty()) {
+                unprocessedKeys.put(table.tableName, new KeysAndAttributes().withKeys(unprocessed).withAttributesToGet(keysAndAttributes.getAttributesToGet())
+                        .withConsistentRead(keysAndAttributes.getConsistentRead()));
+            }
+            addConsumedUnits(readUnits, 0);
+            ConsumedCapacity consumedCapacity = getConsumedCapacity(batchGetItemRequest.getReturnConsumedCapacity(), table, readUnits,
+                    new HashMap<String, Double>());
+            if (consumedCapacity != null) {
+                consumedCapacities.add(consumedCapacity);
+            }
+        }
+        return new BatchGetItemResult().withResponses(responses).withUnprocessedKeys(unprocessedKeys).withConsumedCapacity(
+                consumedCapacities.isEmpty() ? null : consumedCapacities);
+    }
+
+    /**
+     * Replace the item of the same key, null deletes it, and return the
+     * write units consumed by the table and each index.
+     */
+    private Map<String, Double> write(Table table, String itemKey, Map<String, AttributeValue> oldItem, Map<String, AttributeValue> newItem) {
+        if (newItem == null) {
+            if (oldItem != null) {
+                table.items.remove(itemKey);
+            }
+        } else {
+            table.items.put(itemKey, newItem);
+        }
+        table.sizeBytes.addAndGet(ItemSizeCalculator.getItemSize(newItem) - ItemSizeCalculator.getItemSize(oldItem));
+        Map<String, Double> indexUnits = new HashMap<String, Double>();
+        double writeUnits = 0;
+        for (Index index : table.indexes) {
+            long units = index.getWriteUnits(oldItem, newItem);
+            if (units > 0) {
+                indexUnits.put(index.indexName, (double) units);
+                writeUnits += units;
+            }
+        }
+        addConsumedUnits(0, writeUnits + getTableWriteUnits(oldItem, newItem));
+        return indexUnits;
+    }
+
+    /**
+     * Writes are charged for the larger of the old and the new item.
+     */
+    private static double getTableWriteUnits(Map<String, AttributeValue> oldItem, Map<String, AttributeValue> newItem) {
+        return ItemSizeCalculator.getWriteUnits(Math.max(1, Math.max(ItemSizeCalculator.getItemSize(oldItem), ItemSizeCalculator.getItemSize(newItem))));
+    }
+
+    private static void checkExpected(Map<String, AttributeValue> item, Map<String, ExpectedAttributeValue> expected) {
+        if (expected == null) {
+            return;
+        }
+        for (Map.Entry<String, ExpectedAttributeValue> entry : expected.entrySet()) {
+            ExpectedAttributeValue expectedValue = entry.getValue();
+            if (expectedValue.getComparisonOperator() != null) {
+                throw new UnsupportedOperationException("Expected with ComparisonOperator is not supported");
+            }
+            AttributeValue value = item == null ? null : item.get(entry.getKey());
+            boolean exists = expectedValue.getExists() == null || expectedValue.getExists();
+            boolean matches;
+            if (!exists) {
+                matches = value == null;
+            } else {
+                matches = value != null && value.equals(expectedValue.getValue());
+            }
+            if (!matches) {
+                ConditionalCheckFailedException exception = new ConditionalCheckFailedException("The conditional request failed");
+                exception.setErrorCode("ConditionalCheckFailedException");
+                exception.setErrorType(ErrorType.Client);
+                exception.setStatusCode(400);
+                exception.setServiceName("AmazonDynamoDBv2");
+                throw exception;
+            }
+        }
+    }
+
+    @Override
+    public PutItemResult putItem(PutItemRequest putItemRequest) {
+        beforeRequest();
+        Table table = getTable(putItemRequest.getTableName());
+        Map<String, AttributeValue> newItem = copy(putItemRequest.getItem(), null);
+        String itemKey = getItemKey(table, newItem);
+        synchronized (table) {
+            Map<String, AttributeValue> oldItem = table.items.get(itemKey);
+            checkExpected(oldItem, putItemRequest.getExpected());
+            Map<String, Double> indexUnits = write(table, itemKey, oldItem, newItem);
+            return new PutItemResult().withAttributes(
+                    ReturnValue.ALL_OLD.toString().equals(putItemRequest.getReturnValues()) && oldItem != null ? copy(oldItem, null) : null)
+                    .withConsumedCapacity(
+                            getConsumedCapacity(putItemRequest.getReturnConsumedCapacity(), table, getTableWriteUnits(oldItem, newItem), indexUnits));
+        }
+    }
+
+    @Override
+    public DeleteItemResult deleteItem(DeleteItemRequest deleteItemRequest) {
+        beforeRequest();
+        Table table = getTable(deleteItemRequest.getTableName());
+        String itemKey = getItemKey(table, deleteItemRequest.getKey());
+        synchronized (table) {
+            Map<String, AttributeValue> oldItem = table.items.get(itemKey);
+            checkExpected(oldItem, deleteItemRequest.getExpected());
+            Map<String, Double> indexUnits = write(table, itemKey, oldItem, null);
+            return new DeleteItemResult().withAttributes(
+                    ReturnValue.ALL_OLD.toString().equals(deleteItemRequest.getReturnValues()) && oldItem != null ? copy(oldItem, null) : null)
+                    .withConsumedCapacity(getConsumedCapacity(deleteItemRequest.getReturnConsumedCapacity(), table, getTableWriteUnits(oldItem, null),
+                            indexUnits));
+        }
+    }
+
+    @Override
+    public UpdateItemResult updateItem(UpdateItemRequest updateItemRequest) {
+        beforeRequest();
+        if (updateItemRequest.getUpdateExpression() != null || updateItemRequest.getConditionExpression() != null) {
+            throw new UnsupportedOperationException("Update and condition expressions are not supported");
+        }
+        Table table = getTable(updateItemRequest.getTableName());
+        String itemKey = getItemKey(table, updateItemRequest.getKey());
+        synchronized (table) {
+            Map<String, AttributeValue> oldItem = table.items.get(itemKey);
+            checkExpected(oldItem, updateItemRequest.getExpected());
+            Map<String, AttributeValue> newItem = oldItem == null ? copy(updateItemRequest.getKey(), null) : new HashMap<String, AttributeValue>(oldItem);
+            Map<String, AttributeValueUpdate> updates = updateItemRequest.getAttributeUpdates() == null ? new HashMap<String, AttributeValueUpdate>()
+                    : updateItemRequest.getAttributeUpdates();
+            for (Map.Entry<String, AttributeValueUpdate> update : updates.entrySet()) {
+                if (update.getKey().equals(table.hashKeyName) || update.getKey().equals(table.rangeKeyName)) {
+                    throw validationException("One or more parameter values were invalid: Cannot update attribute " + update.getKey()
+                            + ". This attribute is part of the key");
+                }
+                applyUpdate(newItem, update.getKey(), update.getValue());
+            }
+            Map<String, Double> indexUnits = write(table, itemKey, oldItem, newItem);
+            return new UpdateItemResult().withAttributes(getReturnValues(updateItemRequest.getReturnValues(), oldItem, newItem, updates.keySet()))
+                    .withConsumedCapacity(getConsumedCapacity(updateItemRequest.getReturnConsumedCapacity(), table, getTableWriteUnits(oldItem, newItem),
+                            indexUnits));
+        }
+    }
+
+    private static void applyUpdate(Map<String, AttributeValue> item, String name, AttributeValueUpdate update) {
+        String action = update.getAction() == null ? AttributeAction.PUT.toString() : update.getAction();
+        AttributeValue value = update.getValue();
+        AttributeValue current = item.get(name);
+        if (AttributeAction.PUT.toString().equals(action)) {
+            item.put(name, copy(value));
+        } else if (AttributeAction.DELETE.toString().equals(action)) {
+            if (value == null || current == null) {
+                item.remove(name);
+            } else if (value.getSS() != null && current.getSS() != null) {
+                putSet(item, name, new AttributeValue().withSS(difference(current.getSS(), value.getSS())));
+            } else if (value.getNS() != null && current.getNS() != null) {
+                putSet(item, name, new AttributeValue().withNS(difference(current.getNS(), value.getNS())));
+            } else if (value.getBS() != null && current.getBS() != null) {
+                putSet(item, name, new AttributeValue().withBS(difference(current.getBS(), value.getBS())));
+            } else {
+                throw validationException("Type mismatch for attribute to update");
+            }
+        } else if (AttributeAction.ADD.toString().equals(action)) {
+            if (current == null) {
+                item.put(name, copy(value));
+            } else if (value.getN() != null && current.getN() != null) {
+                item.put(name, new AttributeValue().withN(new BigDecimal(current.getN()).add(new BigDecimal(value.getN())).toPlainString()));
+            } else if (value.getSS() != null && current.getSS() != null) {
+                item.put(name, new AttributeValue().withSS(union(current.getSS(), value.getSS())));
+            } else if (value.getNS() != null && current.getNS() != null) {
+                item.put(name, new AttributeValue().withNS(union(current.getNS(), value.getNS())));
+            } else if (value.getBS() != null && current.getBS() != null) {
+                item.put(name, new AttributeValue().withBS(union(current.getBS(), value.getBS())));
+            } else {
+                throw validationException("Type mismatch for attribute to update");
+            }
+        } else {
+            throw validationException("Unknown attribute action " + action);
+        }
+    }
+
+    /** An empty set removes the attribute */
+    private static void putSet(Map<String, AttributeValue> item, String name, AttributeValue set) {
+        boolean empty = (set.getSS() != null && set.getSS().isEmpty()) || (set.getNS() != null && set.getNS().isEmpty())
+                || (set.getBS() != null && set.getBS().isEmpty());
+        if (empty) {
+            item.remove(name);
+        } else {
+            item.put(name, set);
+        }
+    }
+
+    private static <T> List<T> difference(List<T> set, List<T> toRemove) {
+        Set<T> result = new LinkedHashSet<T>(set);
+        result.removeAll(new HashSet<T>(toRemove));
+        return new ArrayList<T>(result);
+    }
+
+    private static <T> List<T> union(List<T> set, List<T> toAdd) {
+        Set<T> result = new LinkedHashSet<T>(set);
+        result.addAll(toAdd);
+        return new ArrayList<T>(result);
+    }
+
+    private static Map<String, AttributeValue> getReturnValues(String returnValues, Map<String, AttributeValue> oldItem,
+            Map<String, AttributeValue> newItem, Set<String> updatedNames) {
+        if (returnValues == null || ReturnValue.NONE.toString().equals(returnValues)) {
+            return null;
+        }
+        if (ReturnValue.ALL_NEW.toString().equals(returnValues)) {
+            return copy(newItem, null);
+        }
+        if (ReturnValue.ALL_OLD.toString().equals(returnValues)) {
+            return oldItem == null ? null : copy(oldItem, null);
+        }
+        Map<String, AttributeValue> item = ReturnValue.UPDATED_NEW.toString().equals(returnValues) ? newItem : oldItem;
+        return item == null ? null : copy(item, new ArrayList<String>(updatedNames));
+    }
+
+    @Override
+    public BatchWriteItemResult batchWriteItem(BatchWriteItemRequest batchWriteItemRequest) {
+        beforeRequest();
+        int numOfItems = 0;
+        for (List<WriteRequest> writeRequests : batchWriteItemRequest.getRequestItems().values()) {
+            numOfItems += writeRequests.size();
+        }
+        if (numOfItems == 0 || numOfItems > MAX_BATCH_WRITE_ITEMS) {
+            throw validationException("1 validation error detected: Value at 'requestItems' failed to satisfy constraint: "
+                    + "Map value must satisfy constraint: Member must have length less than or equal to 25");
+        }
+        Map<String, List<WriteRequest>> unprocessedItems = new HashMap<String, List<WriteRequest>>();
+        List<ConsumedCapacity> consumedCapacities = new ArrayList<ConsumedCapacity>();
+        for (Map.Entry<String, List<WriteRequest>> requestItems : batchWriteItemRequest.getRequestItems().entrySet()) {
+            Table table = getTable(requestItems.getKey());
+            List<WriteRequest> unprocessed = new ArrayList<WriteRequest>();
+            double tableUnits = 0;
+            Map<String, Double> indexUnits = new HashMap<String, Double>();
+            for (WriteRequest writeRequest : requestItems.getValue()) {
+                if (isUnprocessed()) {
+                    numOfUnprocessedItems.incrementAndGet();
+                    unprocessed.add(writeRequest);
+                    continue;
+                }
+                Map<String, AttributeValue> newItem = writeRequest.getPutRequest() == null ? null : copy(writeRequest.getPutRequest().getItem(), null);
+                String itemKey = getItemKey(table, newItem != null ? newItem : writeRequest.getDeleteRequest().getKey());
+                synchronized (table) {
+                    Map<String, AttributeValue> oldItem = table.items.get(itemKey);
+                    tableUnits += getTableWriteUnits(oldItem, newItem);
+                    for (Map.Entry<String, Double> units : write(table, itemKey, oldItem, newItem).entrySet()) {
+                        Double total = indexUnits.get(units.getKey());
+                        indexUnits.put(units.getKey(), (total == null ? 0 : total) + units.getValue());
+                    }
+                }
+            }
+            if (!unprocessed.isEmpty()) {
+                unprocessedItems.put(table.tableName, unprocessed);
+            }
+            ConsumedCapacity consumedCapacity = getConsumedCapacity(batchWriteItemRequest.getReturnConsumedCapacity(), table, tableUnits, indexUnits);
+            if (consumedCapacity != null) {
+                consumedCapacities.add(consumedCapacity);
+            }
+        }
+        return new BatchWriteItemResult().withUnprocessedItems(unprocessedItems).withConsumedCapacity(
+                consumedCapacities.isEmpty() ? null : consumedCapacities);
+    }
+
+    @Override
+    public QueryResult query(QueryRequest queryRequest) {
+        throw new UnsupportedOperationException("Query is not supported");
+    }
+
+    /** Convenience forms of the calls above */
+
+    @Override
+    public void setEndpoint(String endpoint) {
+    }
+
+    @Override
+    public void setRegion(Region region) {
+    }
+
+    @Override
+    public ListTablesResult listTables() {
+        return listTables(new ListTablesRequest());
+    }
+
+    @Override
+    public ListTablesResult listTables(String exclusiveStartTableName) {
+        return listTables(new ListTablesRequest().withExclusiveStartTableName(exclusiveStartTableName));
+    }
+
+    @Override
+    public ListTablesResult listTables(String exclusiveStartTableName, Integer limit) {
+        return listTables(new ListTablesRequest().withExclusiveStartTableName(exclusiveStartTableName).withLimit(limit));
+    }
+
+    @Override
+    public ListTablesResult listTables(Integer limit) {
+        return listTables(new ListTablesRequest().withLimit(limit));
+    }
+
+    @Override
+    public ScanResult scan(String tableName, List<String> attributesToGet) {
+        return scan(new ScanRequest().withTableName(tableName).withAttributesToGet(attributesToGet));
+    }
+
+    @Override
+    public ScanResult scan(String tableName, Map<String, Condition> scanFilter) {
+        return scan(new ScanRequest().withTableName(tableName).withScanFilter(scanFilter));
+    }
+
+    @Override
+    public ScanResult scan(String tableName, List<String> attributesToGet, Map<String, Condition> scanFilter) {
+        return scan(new ScanRequest().withTableName(tableName).withAttributesToGet(attributesToGet).withScanFilter(scanFilter));
+    }
+
+    @Override
+    public UpdateTableResult updateTable(String tableName, ProvisionedThroughput provisionedThroughput) {
+        return updateTable(new UpdateTableRequest().withTableName(tableName).withProvisionedThroughput(provisionedThroughput));
+    }
+
+    @Override
+    public DeleteTableResult deleteTable(String tableName) {
+        return deleteTable(new DeleteTableRequest().withTableName(tableName));
+    }
+
+    @Override
+    public BatchWriteItemResult batchWriteItem(Map<String, List<WriteRequest>> requestItems) {
+        return batchWriteItem(new BatchWriteItemRequest().withRequestItems(requestItems));
+    }
+
+    @Override
+    public DescribeTableResult describeTable(String tableName) {
+        return describeTable(new DescribeTableRequest().withTableName(tableName));
+    }
+
+    @Override
+    public GetItemResult getItem(String tableName, Map<String, AttributeValue> key) {
+        return getItem(new GetItemRequest().withTableName(tableName).withKey(key));
+    }
+
+    @Override
+    public GetItemResult getItem(String tableName, Map<String, AttributeValue> key, Boolean consistentRead) {
+        return getItem(new GetItemRequest().withTableName(tableName).withKey(key).withConsistentRead(consistentRead));
+    }
+
+    @Override
+    public DeleteItemResult deleteItem(String tableName, Map<String, AttributeValue> key) {
+        return deleteItem(new DeleteItemRequest().withTableName(tableName).withKey(key));
+    }
+
+    @Override
+    public DeleteItemResult deleteItem(String tableName, Map<String, AttributeValue> key, String returnValues) {
+        return deleteItem(new DeleteItemRequest().withTableName(tableName).withKey(key).withReturnValues(returnValues));
+    }
+
+    @Override
+    public CreateTableResult createTable(List<AttributeDefinition> attributeDefinitions, String tableName, List<KeySchemaElement> keySchema,
+            ProvisionedThroughput provisionedThroughput) {
+        return createTable(new CreateTableRequest().withAttributeDefinitions(attributeDefinitions).withTableName(tableName).withKeySchema(keySchema)
+                .withProvisionedThroughput(provisionedThroughput));
+    }
+
+    @Override
+    public PutItemResult putItem(String tableName, Map<String, AttributeValue> item) {
+        return putItem(new PutItemRequest().withTableName(tableName).withItem(item));
+    }
+
+    @Override
+    public PutItemResult putItem(String tableName, Map<String, AttributeValue> item, String returnValues) {
+        return putItem(new PutItemRequest().withTableName(tableName).withItem(item).withReturnValues(returnValues));
+    }
+
+    @Override
+    public UpdateItemResult updateItem(String tableName, Map<String, AttributeValue> key, Map<String, AttributeValueUpdate> attributeUpdates) {
+        return updateItem(new UpdateItemRequest().withTableName(tableName).withKey(key).withAttributeUpdates(attributeUpdates));
+    }
+
+    @Override
+    public UpdateItemResult updateItem(String tableName, Map<String, AttributeValue> key, Map<String, AttributeValueUpdate> attributeUpdates,
+            String returnValues) {
+        return updateItem(new UpdateItemRequest().withTableName(tableName).withKey(key).withAttributeUpdates(attributeUpdates)
+                .withReturnValues(returnValues));
+    }
+
+    @Override
+    public BatchGetItemResult batchGetItem(Map<String, KeysAndAttributes> requestItems, String returnConsumedCapacity) {
+        return batchGetItem(new BatchGetItemRequest().withRequestItems(requestItems).withReturnConsumedCapacity(returnConsumedCapacity));
+    }
+
+    @Override
+    public BatchGetItemResult batchGetItem(Map<String, KeysAndAttributes> requestItems) {
+        return batchGetItem(new BatchGetItemRequest().withRequestItems(requestItems));
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    @Override
+    public ResponseMetadata getCachedResponseMetadata(AmazonWebServiceRequest request) {
+        return null;
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteRequest;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.google.common.base.Strings;
+
+/**
+ * 
+ * Unit tests for InMemoryDynamoDB.
+ * 
+ */
+public class InMemoryDynamoDBTest {
+    private static final String TABLE_NAME = "table";
+    private static final int NUM_OF_ITEMS = 200;
+    private InMemoryDynamoDB dynamoDB;
+
+    @Before
+    public void setup() {
+        dynamoDB = new InMemoryDynamoDB();
+        dynamoDB.createTable(new CreateTableRequest()
+                .withTableName(TABLE_NAME)
+                .withAttributeDefinitions(new AttributeDefinition("id", "S"), new AttributeDefinition("gh", "S"))
+                .withKeySchema(new KeySchemaElement("id", KeyType.HASH))
+                .withProvisionedThroughput(new ProvisionedThroughput(1000L, 1000L))
+                .withGlobalSecondaryIndexes(
+                        new GlobalSecondaryIndex().withIndexName("gsi").withKeySchema(new KeySchemaElement("gh", KeyType.HASH))
+                                .withProjection(new Projection().withProjectionType(ProjectionType.KEYS_ONLY))
+                                .withProvisionedThroughput(new ProvisionedThroughput(100L, 100L))));
+        for (int i = 0; i < NUM_OF_ITEMS; i++) {
+            dynamoDB.putItem(TABLE_NAME, item(i));
+        }
+    }
+
+    private static Map<String, AttributeValue> key(int i) {
+        Map<String, AttributeValue> key = new HashMap<String, AttributeValue>();
+        // 2 + 4 bytes
+        key.put("id", new AttributeValue().withS(String.format("%04d", i)));
+        return key;
+    }
+
+    private static Map<String, AttributeValue> item(int i) {
+        Map<String, AttributeValue> item = key(i);
+        if (i % 2 == 0) {
+            // 2 + 4 bytes
+            item.put("gh", new AttributeValue().withS("even"));
+        }
+        // 4 + 2000 bytes
+        item.put("data", new AttributeValue().withS(Strings.repeat("d", 2000)));
+        return item;
+    }
+
+    @Test
+    public void testDescribeTable() {
+        TableHelper tableHelper = new TableHelper(dynamoDB, TABLE_NAME);
+        assertEquals("id", tableHelper.getTableHashKeyName());
+        assertEquals(1000L, tableHelper.getWriteCapacityUnits());
+        assertEquals(Long.valueOf(100), tableHelper.getGsiWriteCapacityUnits().get("gsi"));
+        assertEquals((long) NUM_OF_ITEMS, tableHelper.getItemCount());
+        // 2010 bytes per item, 6 more for the even items
+        assertEquals(NUM_OF_ITEMS * 2010L + NUM_OF_ITEMS / 2 * 6L, tableHelper.getTableSizeBytes());
+    }
+
+    @Test
+    public void testParallelScanReturnsEachItemOnce() {
+        int totalSegments = 4;
+        Set<String> ids = new HashSet<String>();
+        int numOfNonEmptySegments = 0;
+        for (int segment = 0; segment < totalSegments; segment++) {
+            Map<String, AttributeValue> exclusiveStartKey = null;
+            int itemsInSegment = 0;
+            do {
+                ScanResult result = dynamoDB.scan(new ScanRequest().withTableName(TABLE_NAME).withTotalSegments(totalSegments).withSegment(segment)
+                        .withLimit(7).withExclusiveStartKey(exclusiveStartKey));
+                assertTrue(result.getItems().size() <= 7);
+                for (Map<String, AttributeValue> item : result.getItems()) {
+                    assertTrue("Item scanned twice", ids.add(item.get("id").getS()));
+                }
+                itemsInSegment += result.getItems().size();
+                exclusiveStartKey = result.getLastEvaluatedKey();
+            } while (exclusiveStartKey != null);
+            if (itemsInSegment > 0) {
+                numOfNonEmptySegments++;
+            }
+        }
+        assertEquals(NUM_OF_ITEMS, ids.size());
+        assertEquals(totalSegments, numOfNonEmptySegments);
+    }
+
+    @Test
+    public void testScanConsumedCapacity() {
+        List<String> attributesToGet = new ArrayList<String>();
+        attributesToGet.add("id");
+        ScanResult result = dynamoDB.scan(new ScanRequest().withTableName(TABLE_NAME).withLimit(10).withAttributesToGet(attributesToGet)
+                .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL));
+        assertEquals(1, result.getItems().get(0).size());
+        // Charged for the whole items: about 20 KB is 5 read units, halved for eventual consistency
+        assertEquals(2.5, result.getConsumedCapacity().getCapacityUnits(), 0.0);
+    }
+
+    @Test
+    public void testBatchWriteWithUnprocessedItemsAndIndexCapacity() {
+        dynamoDB.setUnprocessedEveryNthItem(5);
+        List<WriteRequest> writeRequests = new ArrayList<WriteRequest>();
+        for (int i = 0; i < 10; i++) {
+            writeRequests.add(new WriteRequest().withDeleteRequest(new DeleteRequest().withKey(key(i))));
+        }
+        Map<String, List<WriteRequest>> requestItems = new HashMap<String, List<WriteRequest>>();
+        requestItems.put(TABLE_NAME, writeRequests);
+        BatchWriteItemResult result = dynamoDB.batchWriteItem(new BatchWriteItemRequest().withRequestItems(requestItems).withReturnConsumedCapacity(
+                ReturnConsumedCapacity.INDEXES));
+        assertEquals(2, result.getUnprocessedItems().get(TABLE_NAME).size());
+        assertEquals(NUM_OF_ITEMS - 8, dynamoDB.getNumOfItems(TABLE_NAME));
+        // 8 deletes of 2 units, the 4 even items deleted also delete their GSI entry
+        assertEquals(16.0, result.getConsumedCapacity().get(0).getTable().getCapacityUnits(), 0.0);
+        assertEquals(4.0, result.getConsumedCapacity().get(0).getGlobalSecondaryIndexes().get("gsi").getCapacityUnits(), 0.0);
+        assertEquals(20.0, result.getConsumedCapacity().get(0).getCapacityUnits(), 0.0);
+    }
+
+    @Test
+    public void testUpdateWithExpected() {
+        Map<String, AttributeValueUpdate> updates = new HashMap<String, AttributeValueUpdate>();
+        updates.put("gh", new AttributeValueUpdate().withValue(new AttributeValue().withS("odd")));
+        Map<String, ExpectedAttributeValue> expected = new HashMap<String, ExpectedAttributeValue>();
+        expected.put("gh", new ExpectedAttributeValue().withExists(false));
+        UpdateItemResult result = dynamoDB.updateItem(new UpdateItemRequest().withTableName(TABLE_NAME).withKey(key(1)).withAttributeUpdates(updates)
+                .withExpected(expected).withReturnValues(ReturnValue.UPDATED_NEW).withReturnConsumedCapacity(ReturnConsumedCapacity.INDEXES));
+        assertEquals("odd", result.getAttributes().get("gh").getS());
+        assertEquals(1, result.getAttributes().size());
+        assertEquals(1.0, result.getConsumedCapacity().getGlobalSecondaryIndexes().get("gsi").getCapacityUnits(), 0.0);
+
+        try {
+            dynamoDB.updateItem(new UpdateItemRequest().withTableName(TABLE_NAME).withKey(key(1)).withAttributeUpdates(updates).withExpected(expected));
+            fail("Update should fail once the attribute exists");
+        } catch (ConditionalCheckFailedException ccfe) {
+            assertEquals("ConditionalCheckFailedException", ccfe.getErrorCode());
+        }
+    }
+
+    @Test
+    public void testThrottling() {
+        dynamoDB.setThrottleEveryNthRequest(2);
+        long requests = dynamoDB.getNumOfRequests();
+        int throttled = 0;
+        for (int i = 0; i < 10; i++) {
+            try {
+                dynamoDB.getItem(TABLE_NAME, key(i));
+            } catch (ProvisionedThroughputExceededException ptee) {
+                assertEquals(400, ptee.getStatusCode());
+                throttled++;
+            }
+        }
+        assertEquals(5, throttled);
+        assertEquals(5L, dynamoDB.getNumOfThrottledRequests());
+        assertEquals(requests + 10, dynamoDB.getNumOfRequests());
+    }
+
+    @Test
+    public void testTableWriterRetriesUnprocessedDeletes() {
+        Options mockOptions = Mockito.mock(Options.class);
+        Mockito.when(mockOptions.getTableName()).thenReturn(TABLE_NAME);
+        Mockito.when(mockOptions.getReadWriteIOPSPercent()).thenReturn(100);
+        Mockito.when(mockOptions.getDeleteRetryTimeoutSeconds()).thenReturn(60);
+        TableHelper tableHelper = new TableHelper(dynamoDB, TABLE_NAME);
+        TableWriter tableWriter = new TableWriter(mockOptions, tableHelper, dynamoDB, 1, false /* isRunningOnDDBLocal */);
+
+        dynamoDB.setUnprocessedEveryNthItem(3);
+        int deleted = 0;
+        for (int i = 0; i < 50; i++) {
+            deleted += tableWriter.addDeleteRequest(item(i));
+        }
+        deleted += tableWriter.drainDeleteRetries();
+        assertEquals(50, deleted);
+        assertEquals(NUM_OF_ITEMS - 50, dynamoDB.getNumOfItems(TABLE_NAME));
+        assertTrue(dynamoDB.getNumOfUnprocessedItems() > 0);
+        assertNull(dynamoDB.getItem(TABLE_NAME, key(0)).getItem());
+    }
+}
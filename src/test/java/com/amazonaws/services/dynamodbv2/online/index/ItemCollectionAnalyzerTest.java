@@ -0,0 +1,121 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.Files;
+
+/**
+ * 
+ * Unit tests for ItemCollectionAnalyzer.
+ * 
+ */
+public class ItemCollectionAnalyzerTest {
+    private File outputFile;
+
+    @Before
+    public void setup() throws IOException {
+        outputFile = File.createTempFile("item_collection_sizes", ".csv");
+    }
+
+    @After
+    public void cleanup() {
+        outputFile.delete();
+    }
+
+    private static Map<String, AttributeValue> item(String hashKey, String rangeKey, boolean withLsiKey) {
+        Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+        // 2 + 4 bytes
+        item.put("id", new AttributeValue().withS(hashKey));
+        // 2 + 4 bytes
+        item.put("rk", new AttributeValue().withS(rangeKey));
+        if (withLsiKey) {
+            // 3 + 4 bytes
+            item.put("lsi", new AttributeValue().withS("abcd"));
+        }
+        // 4 + 1000 bytes
+        item.put("data", new AttributeValue().withS(Strings.repeat("d", 1000)));
+        return item;
+    }
+
+    private static ItemCollectionAnalyzer analyzer(long memoryBytes) {
+        LocalSecondaryIndexDescription lsi = new LocalSecondaryIndexDescription().withIndexName("lsi-index")
+                .withKeySchema(new KeySchemaElement("id", KeyType.HASH), new KeySchemaElement("lsi", KeyType.RANGE))
+                .withProjection(new Projection().withProjectionType(ProjectionType.KEYS_ONLY));
+        List<LocalSecondaryIndexDescription> lsis = Arrays.asList(lsi);
+        return new ItemCollectionAnalyzer("id", "rk", lsis, memoryBytes, new File(System.getProperty("java.io.tmpdir")));
+    }
+
+    @Test
+    public void testCollectionSize() {
+        ItemCollectionAnalyzer analyzer = analyzer(1024 * 1024);
+        assertEquals(1016L, analyzer.getCollectionSize(item("key1", "r001", false)));
+        // LSI entry: 100 bytes overhead, table keys 12 bytes, LSI range key 7 bytes
+        assertEquals(1023L + 119L, analyzer.getCollectionSize(item("key1", "r001", true)));
+    }
+
+    @Test
+    public void testCollectionSizeWithoutLsi() {
+        ItemCollectionAnalyzer analyzer = new ItemCollectionAnalyzer("id", "rk", null, 1024 * 1024, new File(System.getProperty("java.io.tmpdir")));
+        assertEquals(1023L, analyzer.getCollectionSize(item("key1", "r001", true)));
+    }
+
+    @Test
+    public void testReportKeysOverThreshold() throws IOException {
+        ItemCollectionAnalyzer first = analyzer(64 * 1024);
+        ItemCollectionAnalyzer second = analyzer(64 * 1024);
+        for (int i = 0; i < 2000; i++) {
+            first.addItem(item(String.format("k%03d", i % 1000), "r001", false));
+        }
+        for (int i = 0; i < 10; i++) {
+            second.addItem(item("big1", "r" + String.format("%03d", i), true));
+        }
+        first.finish();
+
+        ItemCollectionAnalyzer merged = analyzer(64 * 1024);
+        merged.merge(first);
+        merged.merge(second);
+        merged.writeReport(outputFile.getPath(), 5000);
+        assertEquals(2010L, merged.getItemsAnalyzed());
+        assertEquals(1001L, merged.getDistinctHashKeys());
+        assertEquals(1L, merged.getHashKeysOverThreshold());
+        assertEquals(11420L, merged.getLargestCollectionBytes());
+
+        List<String> lines = Files.readLines(outputFile, Charsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertEquals(ItemCollectionAnalyzer.TABLE_HASH_KEY + "," + ItemCollectionAnalyzer.ITEM_COLLECTION_BYTES, lines.get(0));
+        assertEquals("big1,11420", lines.get(1));
+    }
+}
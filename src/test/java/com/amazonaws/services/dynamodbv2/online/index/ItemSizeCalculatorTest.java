@@ -0,0 +1,123 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeAction;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
+
+/**
+ * 
+ * Unit tests for ItemSizeCalculator and CorrectionCostEstimator.
+ * 
+ */
+public class ItemSizeCalculatorTest {
+
+    @Test
+    public void testValueSizes() {
+        assertEquals(3L, ItemSizeCalculator.getValueSize(new AttributeValue().withS("abc")));
+        assertEquals(2L, ItemSizeCalculator.getValueSize(new AttributeValue().withS("é")));
+        assertEquals(4L, ItemSizeCalculator.getValueSize(new AttributeValue().withB(ByteBuffer.wrap(new byte[4]))));
+        assertEquals(2L, ItemSizeCalculator.getValueSize(new AttributeValue().withN("12")));
+        assertEquals(2L, ItemSizeCalculator.getValueSize(new AttributeValue().withN("1000")));
+        assertEquals(4L, ItemSizeCalculator.getValueSize(new AttributeValue().withN("-123.45")));
+        assertEquals(6L, ItemSizeCalculator.getValueSize(new AttributeValue().withSS("abc", "def")));
+        assertEquals(1L, ItemSizeCalculator.getValueSize(new AttributeValue().withBOOL(true)));
+        assertEquals(0L, ItemSizeCalculator.getValueSize(null));
+    }
+
+    @Test
+    public void testWriteAndReadUnits() {
+        assertEquals(1L, ItemSizeCalculator.getWriteUnits(0));
+        assertEquals(1L, ItemSizeCalculator.getWriteUnits(1024));
+        assertEquals(2L, ItemSizeCalculator.getWriteUnits(1025));
+        assertEquals(0.5, ItemSizeCalculator.getReadUnits(100, false), 0.0);
+        assertEquals(2.0, ItemSizeCalculator.getReadUnits(4097, true), 0.0);
+    }
+
+    private Map<String, AttributeValue> primaryKey() {
+        Map<String, AttributeValue> primaryKey = new HashMap<String, AttributeValue>();
+        primaryKey.put("id", new AttributeValue().withS("item"));
+        return primaryKey;
+    }
+
+    @Test
+    public void testEstimateUpdateWithGsiAmplification() {
+        Map<String, List<String>> gsiKeys = new HashMap<String, List<String>>();
+        gsiKeys.put("gsi", Arrays.asList("gsiHash"));
+        gsiKeys.put("otherGsi", Arrays.asList("other"));
+        CorrectionCostEstimator estimator = new CorrectionCostEstimator(gsiKeys);
+
+        Map<String, AttributeValueUpdate> updateItems = new HashMap<String, AttributeValueUpdate>();
+        char[] value = new char[2000];
+        Arrays.fill(value, 'x');
+        updateItems.put("gsiHash", new AttributeValueUpdate().withAction(AttributeAction.PUT).withValue(new AttributeValue().withS(new String(value))));
+        estimator.addUpdate(primaryKey(), updateItems);
+        assertEquals(2L, estimator.getTableWriteUnits());
+        // Delete of the old entry and put of the new 2113 bytes one on the first GSI only
+        assertEquals(4L, estimator.getGsiWriteUnits());
+
+        updateItems.put("gsiHash", new AttributeValueUpdate().withAction(AttributeAction.DELETE));
+        estimator.addUpdate(primaryKey(), updateItems);
+        assertEquals(3L, estimator.getTableWriteUnits());
+        assertEquals(5L, estimator.getGsiWriteUnits());
+        assertEquals(2L, estimator.getNumOfWrites());
+    }
+
+    @Test
+    public void testEstimateDeleteAndRuntime() {
+        Map<String, List<String>> gsiKeys = new HashMap<String, List<String>>();
+        gsiKeys.put("gsi", Arrays.asList("gsiHash", "gsiRange"));
+        CorrectionCostEstimator estimator = new CorrectionCostEstimator(gsiKeys);
+        for (int i = 0; i < 10; i++) {
+            estimator.addDelete(primaryKey());
+        }
+        assertEquals(20L, estimator.getTotalWriteUnits());
+        assertEquals(4L, estimator.getProjectedSeconds(5.0));
+        assertEquals(-1L, estimator.getProjectedSeconds(0));
+    }
+
+    @Test
+    public void testProjectedSecondsWithGsiRates() {
+        Map<String, List<String>> gsiKeys = new HashMap<String, List<String>>();
+        gsiKeys.put("fastGsi", Arrays.asList("gsiHash"));
+        gsiKeys.put("slowGsi", Arrays.asList("other"));
+        gsiKeys.put("unpacedGsi", Arrays.asList("third"));
+        CorrectionCostEstimator estimator = new CorrectionCostEstimator(gsiKeys);
+        for (int i = 0; i < 10; i++) {
+            estimator.addDelete(primaryKey());
+        }
+        // 10 table units and 10 units on each GSI
+        assertEquals(10L, estimator.getGsiWriteUnits("slowGsi"));
+        Map<String, Double> gsiRates = new HashMap<String, Double>();
+        gsiRates.put("fastGsi", 100.0);
+        gsiRates.put("slowGsi", 2.0);
+        // Table and unpaced GSI: 20 units at 10 per second, slow GSI: 10 units at 2 per second
+        assertEquals(5L, estimator.getProjectedSeconds(10.0, gsiRates));
+        gsiRates.put("slowGsi", 100.0);
+        assertEquals(2L, estimator.getProjectedSeconds(10.0, gsiRates));
+        assertEquals(-1L, estimator.getProjectedSeconds(0, gsiRates));
+    }
+}
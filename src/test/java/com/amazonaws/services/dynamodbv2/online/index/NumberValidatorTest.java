@@ -0,0 +1,65 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * 
+ * Unit tests for NumberValidator.
+ * 
+ */
+public class NumberValidatorTest {
+    private NumberValidator numberValidator = new NumberValidator();
+
+    @Test
+    public void testValidateWithValidNumbers() {
+        String[] numbers = { "0", "-0", "0.000", "1", "-1", "+1", "123.45", ".5", "5.", "1E-130", "-1e-130", "9.9999999999999999999999999999999999999E+125",
+                "12345678901234567890123456789012345678", "1000000000000000000000000000000000000000000000", "0.00000000000000000000000000000000000000000001",
+                "0e999999999999" };
+        for (String number : numbers) {
+            assertEquals("Should be valid: " + number, NumberValidator.VALID, numberValidator.validate(number));
+        }
+    }
+
+    @Test
+    public void testValidateWithInvalidFormat() {
+        String[] numbers = { "", "-", ".", "abc", "1.2.3", "1e", "1e+", "1e1.5", "1-2", "--1", " 1" };
+        for (String number : numbers) {
+            assertEquals("Should be invalid format: " + number, NumberValidator.INVALID_FORMAT, numberValidator.validate(number));
+        }
+    }
+
+    @Test
+    public void testValidateWithPrecisionExceeded() {
+        assertEquals(NumberValidator.PRECISION_EXCEEDED, numberValidator.validate("123456789012345678901234567890123456789"));
+        assertEquals("Should count significant digits only", 39, numberValidator.getSignificantDigits());
+        assertEquals(NumberValidator.PRECISION_EXCEEDED, numberValidator.validate("0.000123456789012345678901234567890123456789000"));
+        assertEquals(39, numberValidator.getSignificantDigits());
+    }
+
+    @Test
+    public void testValidateWithMagnitudeExceeded() {
+        assertEquals(NumberValidator.MAGNITUDE_EXCEEDED, numberValidator.validate("1E126"));
+        assertEquals(126, numberValidator.getExponent());
+        assertEquals(NumberValidator.MAGNITUDE_EXCEEDED, numberValidator.validate("-10E125"));
+        assertEquals(126, numberValidator.getExponent());
+        assertEquals(NumberValidator.MAGNITUDE_EXCEEDED, numberValidator.validate("0.01E-129"));
+        assertEquals(-131, numberValidator.getExponent());
+        assertEquals(NumberValidator.MAGNITUDE_EXCEEDED, numberValidator.validate("1e99999999999999999999"));
+    }
+}
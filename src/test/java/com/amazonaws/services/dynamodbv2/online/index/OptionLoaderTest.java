@@ -15,7 +15,9 @@
 package com.amazonaws.services.dynamodbv2.online.index;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.Properties;
 
 import org.junit.Before;
@@ -237,6 +239,12 @@ public class OptionLoaderTest {
         assertEquals("Should return the given num of segments", Integer.parseInt(numOfSegments), optionLoader.loadNumOfSegments());
     }
     
+    @Test
+    public void testLoadNumOfSegmentsAuto() {
+        Mockito.when(mockProperties.getProperty(Options.NUM_OF_SEGMENTS, Options.NUM_OF_SEGMENTS_DEFAULT)).thenReturn(Options.NUM_OF_SEGMENTS_DEFAULT);
+        assertEquals("Should return auto num of segments", Options.AUTO_NUM_OF_SEGMENTS, optionLoader.loadNumOfSegments());
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testLoadNumOfSegmentsWithInvalidInteger() {
         Mockito.when(mockProperties.getProperty(Options.NUM_OF_SEGMENTS, Options.NUM_OF_SEGMENTS_DEFAULT)).thenReturn("invalidint");
@@ -288,6 +296,51 @@ public class OptionLoaderTest {
         Mockito.when(mockProperties.getProperty(Options.NUM_OF_RECORDS)).thenReturn("-20");
         optionLoader.loadNumOfRecords();
     }
+
+    @Test
+    public void testLoadScanPageSize() {
+        Mockito.when(mockProperties.getProperty(Options.SCAN_PAGE_SIZE, Options.SCAN_PAGE_SIZE_DEFAULT)).thenReturn("500");
+        Mockito.when(mockOptionChecker.isNumberInRange(500, Options.MIN_SCAN_PAGE_SIZE, Options.MAX_SCAN_PAGE_SIZE)).thenReturn(true);
+        assertEquals("Should return the scan page size set", 500, optionLoader.loadScanPageSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadScanPageSizeWithValueExceedsRange() {
+        Mockito.when(mockProperties.getProperty(Options.SCAN_PAGE_SIZE, Options.SCAN_PAGE_SIZE_DEFAULT)).thenReturn("-1");
+        optionLoader.loadScanPageSize();
+    }
+
+    @Test
+    public void testLoadIntegerInRange() {
+        Mockito.when(mockProperties.getProperty(Options.SOCKET_TIMEOUT_MILLIS, Options.SOCKET_TIMEOUT_MILLIS_DEFAULT)).thenReturn(" 2000 ");
+        Mockito.when(mockOptionChecker.isNumberInRange(2000, Options.MIN_SOCKET_TIMEOUT_MILLIS, Options.MAX_SOCKET_TIMEOUT_MILLIS)).thenReturn(true);
+        assertEquals(2000, optionLoader.loadIntegerInRange(Options.SOCKET_TIMEOUT_MILLIS, Options.SOCKET_TIMEOUT_MILLIS_DEFAULT,
+                Options.MIN_SOCKET_TIMEOUT_MILLIS, Options.MAX_SOCKET_TIMEOUT_MILLIS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadIntegerInRangeWithValueExceedsRange() {
+        Mockito.when(mockProperties.getProperty(Options.MAX_CONNECTIONS, Options.MAX_CONNECTIONS_DEFAULT)).thenReturn("20000");
+        optionLoader.loadIntegerInRange(Options.MAX_CONNECTIONS, Options.MAX_CONNECTIONS_DEFAULT, Options.MIN_MAX_CONNECTIONS, Options.MAX_MAX_CONNECTIONS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadIntegerInRangeWithInvalidInteger() {
+        Mockito.when(mockProperties.getProperty(Options.MAX_ERROR_RETRY, Options.MAX_ERROR_RETRY_DEFAULT)).thenReturn("ten");
+        optionLoader.loadIntegerInRange(Options.MAX_ERROR_RETRY, Options.MAX_ERROR_RETRY_DEFAULT, Options.MIN_MAX_ERROR_RETRY, Options.MAX_MAX_ERROR_RETRY);
+    }
+
+    @Test
+    public void testLoadBoolean() {
+        Mockito.when(mockProperties.getProperty(Options.RESPONSE_GZIP, Options.RESPONSE_GZIP_DEFAULT)).thenReturn("TRUE");
+        assertTrue(optionLoader.loadBoolean(Options.RESPONSE_GZIP, Options.RESPONSE_GZIP_DEFAULT));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadBooleanWithInvalidValue() {
+        Mockito.when(mockProperties.getProperty(Options.TCP_KEEP_ALIVE, Options.TCP_KEEP_ALIVE_DEFAULT)).thenReturn("yes");
+        optionLoader.loadBoolean(Options.TCP_KEEP_ALIVE, Options.TCP_KEEP_ALIVE_DEFAULT);
+    }
     
     @Test
     public void testloadCorrectionInputPath(){
@@ -301,4 +354,257 @@ public class OptionLoaderTest {
         Mockito.when(mockProperties.getProperty(Options.CORRECTION_INPUT_PATH)).thenReturn(null);
         optionLoader.loadCorrectionInputPath();
     }
+
+    @Test
+    public void testLoadNumOfCorrectionWorkers() {
+        String numOfWorkers = "8";
+        Mockito.when(mockProperties.getProperty(Options.NUM_OF_CORRECTION_WORKERS, Options.NUM_OF_CORRECTION_WORKERS_DEFAULT)).thenReturn(numOfWorkers);
+        Mockito.when(mockOptionChecker.isNumberInRange(Integer.parseInt(numOfWorkers), Options.MIN_NUM_OF_CORRECTION_WORKERS,
+                Options.MAX_NUM_OF_CORRECTION_WORKERS)).thenReturn(true);
+        assertEquals("Should return the given num of correction workers", Integer.parseInt(numOfWorkers), optionLoader.loadNumOfCorrectionWorkers());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadNumOfCorrectionWorkersWithNumberExceedsRange() {
+        String numOfWorkers = "0";
+        Mockito.when(mockProperties.getProperty(Options.NUM_OF_CORRECTION_WORKERS, Options.NUM_OF_CORRECTION_WORKERS_DEFAULT)).thenReturn(numOfWorkers);
+        Mockito.when(mockOptionChecker.isNumberInRange(Integer.parseInt(numOfWorkers), Options.MIN_NUM_OF_CORRECTION_WORKERS,
+                Options.MAX_NUM_OF_CORRECTION_WORKERS)).thenReturn(false);
+        optionLoader.loadNumOfCorrectionWorkers();
+    }
+
+    @Test
+    public void testLoadMaxInFlightUpdates() {
+        String maxInFlightUpdates = "64";
+        Mockito.when(mockProperties.getProperty(Options.MAX_IN_FLIGHT_UPDATES, Options.MAX_IN_FLIGHT_UPDATES_DEFAULT)).thenReturn(maxInFlightUpdates);
+        Mockito.when(mockOptionChecker.isNumberInRange(Integer.parseInt(maxInFlightUpdates), Options.MIN_MAX_IN_FLIGHT_UPDATES,
+                Options.MAX_MAX_IN_FLIGHT_UPDATES)).thenReturn(true);
+        assertEquals("Should return the given max in-flight updates", Integer.parseInt(maxInFlightUpdates), optionLoader.loadMaxInFlightUpdates());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadMaxInFlightUpdatesWithInvalidInteger() {
+        Mockito.when(mockProperties.getProperty(Options.MAX_IN_FLIGHT_UPDATES, Options.MAX_IN_FLIGHT_UPDATES_DEFAULT)).thenReturn("many");
+        optionLoader.loadMaxInFlightUpdates();
+    }
+
+    @Test
+    public void testLoadDeleteRetryTimeoutSeconds() {
+        String timeout = "600";
+        Mockito.when(mockProperties.getProperty(Options.DELETE_RETRY_TIMEOUT_SECONDS, Options.DELETE_RETRY_TIMEOUT_SECONDS_DEFAULT)).thenReturn(timeout);
+        Mockito.when(mockOptionChecker.isNumberInRange(Integer.parseInt(timeout), Options.MIN_DELETE_RETRY_TIMEOUT_SECONDS,
+                Options.MAX_DELETE_RETRY_TIMEOUT_SECONDS)).thenReturn(true);
+        assertEquals("Should return the given delete retry timeout", Integer.parseInt(timeout), optionLoader.loadDeleteRetryTimeoutSeconds());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadDeleteRetryTimeoutSecondsWithNumberExceedsRange() {
+        String timeout = "-1";
+        Mockito.when(mockProperties.getProperty(Options.DELETE_RETRY_TIMEOUT_SECONDS, Options.DELETE_RETRY_TIMEOUT_SECONDS_DEFAULT)).thenReturn(timeout);
+        Mockito.when(mockOptionChecker.isNumberInRange(Integer.parseInt(timeout), Options.MIN_DELETE_RETRY_TIMEOUT_SECONDS,
+                Options.MAX_DELETE_RETRY_TIMEOUT_SECONDS)).thenReturn(false);
+        optionLoader.loadDeleteRetryTimeoutSeconds();
+    }
+
+    @Test
+    public void testLoadCapacityRefreshIntervalSeconds() {
+        String interval = "60";
+        Mockito.when(mockProperties.getProperty(Options.CAPACITY_REFRESH_INTERVAL_SECONDS, Options.CAPACITY_REFRESH_INTERVAL_SECONDS_DEFAULT)).thenReturn(interval);
+        Mockito.when(mockOptionChecker.isNumberInRange(Integer.parseInt(interval), Options.MIN_CAPACITY_REFRESH_INTERVAL_SECONDS,
+                Options.MAX_CAPACITY_REFRESH_INTERVAL_SECONDS)).thenReturn(true);
+        assertEquals("Should return the given capacity refresh interval", Integer.parseInt(interval), optionLoader.loadCapacityRefreshIntervalSeconds());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadCapacityRefreshIntervalSecondsWithInvalidNumber() {
+        Mockito.when(mockProperties.getProperty(Options.CAPACITY_REFRESH_INTERVAL_SECONDS, Options.CAPACITY_REFRESH_INTERVAL_SECONDS_DEFAULT)).thenReturn("1m");
+        optionLoader.loadCapacityRefreshIntervalSeconds();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadAnalyticsReportInvalid() {
+        Mockito.when(mockProperties.getProperty(Options.ANALYTICS_REPORT, Options.ANALYTICS_REPORT_DEFAULT)).thenReturn("yes");
+        optionLoader.loadAnalyticsReport();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadAnalyticsReportOutputPathWithS3Path() {
+        String s3Path = "s3://bucket/analytics.json";
+        Mockito.when(mockProperties.getProperty(Options.ANALYTICS_REPORT_OUTPUT_PATH, Options.ANALYTICS_REPORT_OUTPUT_PATH_DEFAULT)).thenReturn(s3Path);
+        Mockito.when(mockOptionChecker.isS3Path(s3Path)).thenReturn(true);
+        optionLoader.loadAnalyticsReportOutputPath();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadProjectedTableWriteRateWithNumberExceedsRange() {
+        String writeRate = "-1";
+        Mockito.when(mockProperties.getProperty(Options.PROJECTED_TABLE_WRITE_RATE, Options.PROJECTED_TABLE_WRITE_RATE_DEFAULT)).thenReturn(writeRate);
+        Mockito.when(mockOptionChecker.isNumberInRange(Integer.parseInt(writeRate), Options.MIN_PROJECTED_TABLE_WRITE_RATE,
+                Options.MAX_PROJECTED_TABLE_WRITE_RATE)).thenReturn(false);
+        optionLoader.loadProjectedTableWriteRate();
+    }
+
+    @Test
+    public void testLoadGsiProjectionType() {
+        Mockito.when(mockProperties.getProperty(Options.GSI_PROJECTION_TYPE, Options.GSI_PROJECTION_TYPE_DEFAULT)).thenReturn(" INCLUDE ");
+        assertEquals("Should return the given projection type", "INCLUDE", optionLoader.loadGsiProjectionType());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadGsiProjectionTypeInvalid() {
+        Mockito.when(mockProperties.getProperty(Options.GSI_PROJECTION_TYPE, Options.GSI_PROJECTION_TYPE_DEFAULT)).thenReturn("KEYS");
+        optionLoader.loadGsiProjectionType();
+    }
+
+    @Test
+    public void testLoadGsiNonKeyAttributes() {
+        Mockito.when(mockProperties.getProperty(Options.GSI_NON_KEY_ATTRIBUTES)).thenReturn("a, b,,c ");
+        assertEquals("Should return the given attributes", Arrays.asList("a", "b", "c"), optionLoader.loadGsiNonKeyAttributes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadGsiNonKeyAttributesEmpty() {
+        Mockito.when(mockProperties.getProperty(Options.GSI_NON_KEY_ATTRIBUTES)).thenReturn(" , ");
+        optionLoader.loadGsiNonKeyAttributes();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadDeleteFailureOutputPathWithS3Path() {
+        String s3Path = "s3://bucket/failures.csv";
+        Mockito.when(mockProperties.getProperty(Options.DELETE_FAILURE_OUTPUT_PATH, Options.DELETE_FAILURE_OUTPUT_PATH_DEFAULT)).thenReturn(s3Path);
+        Mockito.when(mockOptionChecker.isS3Path(s3Path)).thenReturn(true);
+        optionLoader.loadDeleteFailureOutputPath();
+    }
+
+    @Test
+    public void testLoadCorrectionJournal() {
+        Mockito.when(mockProperties.getProperty(Options.CORRECTION_JOURNAL, Options.CORRECTION_JOURNAL_DEFAULT)).thenReturn("true");
+        assertTrue("Should enable correction journal", optionLoader.loadCorrectionJournal());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadCorrectionJournalWithInvalidValue() {
+        Mockito.when(mockProperties.getProperty(Options.CORRECTION_JOURNAL, Options.CORRECTION_JOURNAL_DEFAULT)).thenReturn("yes");
+        optionLoader.loadCorrectionJournal();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadNumOfCorrectionReaderThreadsWithNumberExceedsRange() {
+        String numOfThreads = "65";
+        Mockito.when(mockProperties.getProperty(Options.NUM_OF_CORRECTION_READER_THREADS, Options.NUM_OF_CORRECTION_READER_THREADS_DEFAULT)).thenReturn(numOfThreads);
+        Mockito.when(mockOptionChecker.isNumberInRange(Integer.parseInt(numOfThreads), Options.MIN_NUM_OF_CORRECTION_READER_THREADS,
+                Options.MAX_NUM_OF_CORRECTION_READER_THREADS)).thenReturn(false);
+        optionLoader.loadNumOfCorrectionReaderThreads();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadStreamCorrectionInputFromS3WithInvalidValue() {
+        Mockito.when(mockProperties.getProperty(Options.STREAM_CORRECTION_INPUT_FROM_S3, Options.STREAM_CORRECTION_INPUT_FROM_S3_DEFAULT)).thenReturn("1");
+        optionLoader.loadStreamCorrectionInputFromS3();
+    }
+
+    @Test
+    public void testLoadDedupeCorrectionInput() {
+        Mockito.when(mockProperties.getProperty(Options.DEDUPE_CORRECTION_INPUT, Options.DEDUPE_CORRECTION_INPUT_DEFAULT)).thenReturn(" Last ");
+        assertEquals(CorrectionDeduplicator.KEEP_LAST, optionLoader.loadDedupeCorrectionInput());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadDedupeCorrectionInputWithInvalidValue() {
+        Mockito.when(mockProperties.getProperty(Options.DEDUPE_CORRECTION_INPUT, Options.DEDUPE_CORRECTION_INPUT_DEFAULT)).thenReturn("true");
+        optionLoader.loadDedupeCorrectionInput();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadDedupeMemoryMBExceedsRange() {
+        Mockito.when(mockProperties.getProperty(Options.DEDUPE_MEMORY_MB, Options.DEDUPE_MEMORY_MB_DEFAULT)).thenReturn("4096");
+        optionLoader.loadDedupeMemoryMB();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadPreReadCorrectionItemsWithInvalidValue() {
+        Mockito.when(mockProperties.getProperty(Options.PRE_READ_CORRECTION_ITEMS, Options.PRE_READ_CORRECTION_ITEMS_DEFAULT)).thenReturn("yes");
+        optionLoader.loadPreReadCorrectionItems();
+    }
+
+    @Test
+    public void testLoadFixTransform() {
+        Mockito.when(mockProperties.getProperty(Options.FIX_SIZE_VIOLATION, Options.FIX_SIZE_VIOLATION_DEFAULT)).thenReturn("Remove");
+        assertEquals(ViolationFixer.REMOVE, optionLoader.loadFixTransform(Options.FIX_SIZE_VIOLATION, Options.FIX_SIZE_VIOLATION_DEFAULT,
+                ViolationFixer.TRUNCATE, ViolationFixer.REMOVE, ViolationFixer.NONE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadFixTransformWithInvalidTransform() {
+        Mockito.when(mockProperties.getProperty(Options.FIX_NUMBER_VIOLATION, Options.FIX_NUMBER_VIOLATION_DEFAULT)).thenReturn(ViolationFixer.TRUNCATE);
+        optionLoader.loadFixTransform(Options.FIX_NUMBER_VIOLATION, Options.FIX_NUMBER_VIOLATION_DEFAULT, ViolationFixer.REMOVE, ViolationFixer.NONE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadFixAuditOutputPathWithS3Path() {
+        String s3Path = "s3://bucket/audit.csv";
+        Mockito.when(mockProperties.getProperty(Options.FIX_AUDIT_OUTPUT_PATH, Options.FIX_AUDIT_OUTPUT_PATH_DEFAULT)).thenReturn(s3Path);
+        Mockito.when(mockOptionChecker.isS3Path(s3Path)).thenReturn(true);
+        optionLoader.loadFixAuditOutputPath();
+    }
+
+    @Test
+    public void testLoadItemCollectionThresholdMB() {
+        Mockito.when(mockProperties.getProperty(Options.ITEM_COLLECTION_THRESHOLD_MB, Options.ITEM_COLLECTION_THRESHOLD_MB_DEFAULT)).thenReturn(" 8192 ");
+        Mockito.when(mockOptionChecker.isNumberInRange(8192, Options.MIN_ITEM_COLLECTION_THRESHOLD_MB, Options.MAX_ITEM_COLLECTION_THRESHOLD_MB))
+                .thenReturn(true);
+        assertEquals(8192, optionLoader.loadItemCollectionThresholdMB());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadItemCollectionThresholdMBWithNumberExceedsRange() {
+        String threshold = "20480";
+        Mockito.when(mockProperties.getProperty(Options.ITEM_COLLECTION_THRESHOLD_MB, Options.ITEM_COLLECTION_THRESHOLD_MB_DEFAULT)).thenReturn(threshold);
+        Mockito.when(mockOptionChecker.isNumberInRange(Integer.parseInt(threshold), Options.MIN_ITEM_COLLECTION_THRESHOLD_MB,
+                Options.MAX_ITEM_COLLECTION_THRESHOLD_MB)).thenReturn(false);
+        optionLoader.loadItemCollectionThresholdMB();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadItemCollectionMemoryMBWithInvalidFormat() {
+        Mockito.when(mockProperties.getProperty(Options.ITEM_COLLECTION_MEMORY_MB, Options.ITEM_COLLECTION_MEMORY_MB_DEFAULT)).thenReturn("1GB");
+        optionLoader.loadItemCollectionMemoryMB();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadItemCollectionOutputPathWithS3Path() {
+        String s3Path = "s3://bucket/item_collection_sizes.csv";
+        Mockito.when(mockProperties.getProperty(Options.ITEM_COLLECTION_OUTPUT_PATH, Options.ITEM_COLLECTION_OUTPUT_PATH_DEFAULT)).thenReturn(s3Path);
+        Mockito.when(mockOptionChecker.isS3Path(s3Path)).thenReturn(true);
+        optionLoader.loadItemCollectionOutputPath();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadItemCollectionSpillDirectoryWithS3Path() {
+        String s3Path = "s3://bucket/spill";
+        Mockito.when(mockProperties.getProperty(Options.ITEM_COLLECTION_SPILL_DIRECTORY, Options.ITEM_COLLECTION_SPILL_DIRECTORY_DEFAULT)).thenReturn(s3Path);
+        Mockito.when(mockOptionChecker.isS3Path(s3Path)).thenReturn(true);
+        optionLoader.loadItemCollectionSpillDirectory();
+    }
+
+    @Test
+    public void testCheckStreamingScanDecoder() {
+        optionLoader.checkStreamingScanDecoder(true, false, false, -1);
+        optionLoader.checkStreamingScanDecoder(false, true, true, 100);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCheckStreamingScanDecoderWithAnalyticsReport() {
+        optionLoader.checkStreamingScanDecoder(true, true, false, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCheckStreamingScanDecoderWithItemCollectionAnalysis() {
+        optionLoader.checkStreamingScanDecoder(true, false, true, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCheckStreamingScanDecoderWithNumOfRecords() {
+        optionLoader.checkStreamingScanDecoder(true, false, false, 100);
+    }
 }
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 
+ * Unit tests for ParallelCSVReader.
+ * 
+ */
+public class ParallelCSVReaderTest {
+    private File csvFile;
+
+    @Before
+    public void setup() throws IOException {
+        csvFile = File.createTempFile("correction_input", ".csv");
+    }
+
+    @After
+    public void cleanup() {
+        csvFile.delete();
+    }
+
+    private void writeFile(String content) throws IOException {
+        OutputStream out = new FileOutputStream(csvFile);
+        try {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            out.close();
+        }
+    }
+
+    private List<List<String>> readAll(ParallelCSVReader reader) throws IOException {
+        List<List<String>> records = new ArrayList<List<String>>();
+        String[] values;
+        while ((values = reader.nextRecord()) != null) {
+            records.add(Arrays.asList(values));
+        }
+        return records;
+    }
+
+    @Test
+    public void testReadRecordsInFileOrder() throws IOException {
+        StringBuilder content = new StringBuilder("\r\nTable Hash Key,Table Range Key\r\n");
+        List<List<String>> expected = new ArrayList<List<String>>();
+        for (int i = 0; i < 200; i++) {
+            content.append("key" + i + "," + i + "\r\n");
+            expected.add(Arrays.asList("key" + i, String.valueOf(i)));
+        }
+        writeFile(content.toString());
+
+        // Small chunks to have many of them parsed in parallel
+        ParallelCSVReader reader = new ParallelCSVReader(csvFile.getPath(), 4, 16);
+        assertEquals(Arrays.asList("Table Hash Key", "Table Range Key"), reader.getHeader());
+        assertEquals("Should return all records in file order", expected, readAll(reader));
+    }
+
+    @Test
+    public void testQuotedNewLineIsNotSplit() throws IOException {
+        writeFile("a,b\n\"x\ny,\"\"z\"\"\",1\n\"é\",2\n");
+        ParallelCSVReader reader = new ParallelCSVReader(csvFile.getPath(), 2, 1);
+        List<List<String>> records = readAll(reader);
+        assertEquals(2, records.size());
+        assertEquals(Arrays.asList("x\ny,\"z\"", "1"), records.get(0));
+        assertEquals(Arrays.asList("é", "2"), records.get(1));
+    }
+
+    @Test
+    public void testQuotedFieldsAcrossRanges() throws IOException {
+        StringBuilder content = new StringBuilder("a,b\n");
+        List<List<String>> expected = new ArrayList<List<String>>();
+        for (int i = 0; i < 20; i++) {
+            String value = "line" + i + "\n\n\"quoted\"\nend";
+            content.append("\"" + value.replace("\"", "\"\"") + "\"," + i + "\n");
+            expected.add(Arrays.asList(value, String.valueOf(i)));
+        }
+        writeFile(content.toString());
+        // Boundaries fall inside and outside quoted fields depending on the range size
+        for (int chunkSize = 1; chunkSize <= 64; chunkSize++) {
+            ParallelCSVReader reader = new ParallelCSVReader(csvFile.getPath(), 3, chunkSize);
+            assertEquals("Should not split quoted fields with range size " + chunkSize, expected, readAll(reader));
+        }
+    }
+
+    @Test
+    public void testReadFileWithOnlyHeader() throws IOException {
+        writeFile("Table Hash Key");
+        ParallelCSVReader reader = new ParallelCSVReader(csvFile.getPath(), 2);
+        assertEquals(Arrays.asList("Table Hash Key"), reader.getHeader());
+        assertNull(reader.nextRecord());
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+
+/**
+ * 
+ * Unit tests for S3RangedInputStream.
+ * 
+ */
+public class S3RangedInputStreamTest {
+    private AmazonS3Client mockS3Client = Mockito.mock(AmazonS3Client.class);
+    private final String bucketName = "bucket";
+    private final String key = "input.csv";
+
+    private void mockObject(final byte[] content) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(content.length);
+        Mockito.when(mockS3Client.getObjectMetadata(bucketName, key)).thenReturn(metadata);
+        Mockito.when(mockS3Client.getObject(Mockito.any(GetObjectRequest.class))).thenAnswer(new Answer<S3Object>() {
+            @Override
+            public S3Object answer(InvocationOnMock invocation) {
+                long[] range = ((GetObjectRequest) invocation.getArguments()[0]).getRange();
+                S3Object object = new S3Object();
+                object.setObjectContent(new ByteArrayInputStream(Arrays.copyOfRange(content, (int) range[0], (int) range[1] + 1)));
+                return object;
+            }
+        });
+    }
+
+    private String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[5];
+        int bytesRead;
+        while ((bytesRead = in.read(buffer, 0, buffer.length)) >= 0) {
+            out.write(buffer, 0, bytesRead);
+        }
+        in.close();
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testReadRangesInOrder() throws IOException {
+        String content = "Table Hash Key\nhashKey1\nhashKey2\nhashKey3\n";
+        mockObject(content.getBytes(StandardCharsets.UTF_8));
+        S3RangedInputStream in = new S3RangedInputStream(mockS3Client, bucketName, key, 4 /* rangeSize */, 3 /* numOfParallelRanges */);
+        assertEquals("Should return the object content in order", content, readAll(in));
+    }
+
+    @Test
+    public void testRetryFailedRange() throws IOException {
+        String content = "Table Hash Key\nhashKey1\n";
+        mockObject(content.getBytes(StandardCharsets.UTF_8));
+        S3Object object = new S3Object();
+        object.setObjectContent(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        Mockito.doThrow(new AmazonClientException("Connection reset")).doReturn(object).when(mockS3Client).getObject(Mockito.any(GetObjectRequest.class));
+        S3RangedInputStream in = new S3RangedInputStream(mockS3Client, bucketName, key, content.length(), 1 /* numOfParallelRanges */);
+        assertEquals("Should return the content of the retried range", content, readAll(in));
+    }
+
+    @Test
+    public void testRangeRetryDelayWithinBackoff() throws IOException {
+        mockObject(new byte[0]);
+        S3RangedInputStream in = new S3RangedInputStream(mockS3Client, bucketName, key);
+        for (int attempt = 1; attempt <= 30; attempt++) {
+            long maxDelay = Math.min(S3RangedInputStream.RANGE_RETRY_BASE_DELAY_MILLIS << Math.min(attempt, 20),
+                    S3RangedInputStream.RANGE_RETRY_MAX_DELAY_MILLIS);
+            long delay = in.getRangeRetryDelayMillis(attempt);
+            assertTrue("Delay should be within the backoff", delay >= 0 && delay <= maxDelay);
+        }
+        in.close();
+    }
+
+    @Test
+    public void testReadEmptyObject() throws IOException {
+        mockObject(new byte[0]);
+        S3RangedInputStream in = new S3RangedInputStream(mockS3Client, bucketName, key);
+        assertEquals(-1, in.read());
+    }
+}
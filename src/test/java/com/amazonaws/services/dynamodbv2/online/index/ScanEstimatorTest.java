@@ -0,0 +1,100 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputDescription;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+
+/**
+ * 
+ * Unit tests for ScanEstimator.
+ * 
+ */
+public class ScanEstimatorTest {
+    private static final long GB = 1024L * 1024 * 1024;
+
+    private Options mockOptions = Mockito.mock(Options.class);
+    private AmazonDynamoDBClient mockDynamoDBClient = Mockito.mock(AmazonDynamoDBClient.class);
+
+    @Before
+    public void setup() {
+        Mockito.when(mockOptions.getReadWriteIOPSPercent()).thenReturn(50);
+        Mockito.when(mockOptions.getNumOfSegments()).thenReturn(1);
+        Mockito.when(mockOptions.getNumOfScanThreads()).thenReturn(1);
+        Mockito.when(mockOptions.getTableName()).thenReturn("table");
+    }
+
+    private ScanEstimator estimator(long tableSizeBytes, long itemCount, long readCapacityUnits) {
+        List<KeySchemaElement> keySchema = new ArrayList<KeySchemaElement>();
+        keySchema.add(new KeySchemaElement().withAttributeName("id").withKeyType(KeyType.HASH));
+        TableDescription tableDescription = new TableDescription().withTableSizeBytes(tableSizeBytes).withItemCount(itemCount).withKeySchema(keySchema)
+                .withProvisionedThroughput(new ProvisionedThroughputDescription().withReadCapacityUnits(readCapacityUnits).withWriteCapacityUnits(1L));
+        return new ScanEstimator(mockOptions, new TableHelper(mockDynamoDBClient, tableDescription), mockDynamoDBClient, true /* isRunningOnDDBLocal */);
+    }
+
+    @Test
+    public void testEstimateWithProvisionedCapacity() {
+        ScanEstimator estimator = estimator(10 * GB, 10000000, 1000);
+        // 0.5 read unit per item, pages of 128 read units in 100 ms each
+        estimator.computeEstimate(200.0, 400, 4, 400);
+        assertEquals(5000000.0, estimator.getTotalReadUnits(), 0.0);
+        assertEquals(39063L, estimator.getNumOfPages());
+        // Read rate of 500 units per second, a segment reads 1280 units per second
+        assertEquals(10000L, estimator.getEstimatedSeconds());
+        assertEquals(1, estimator.getRecommendedSegments());
+    }
+
+    @Test
+    public void testEstimateLatencyBound() {
+        ScanEstimator estimator = estimator(10 * GB, 10000000, 40000);
+        estimator.computeEstimate(200.0, 400, 4, 4000);
+        // Read rate of 20000 units per second, a segment reads 128 units per second
+        assertEquals(157, estimator.getRecommendedSegments());
+        assertEquals(39063L, estimator.getEstimatedSeconds());
+    }
+
+    @Test
+    public void testEstimateWithoutProvisionedCapacity() {
+        ScanEstimator estimator = estimator(10 * GB, 0, 0);
+        estimator.computeEstimate(0, 0, 4, 400);
+        assertEquals(10 * GB / 4096 / 2.0, estimator.getTotalReadUnits(), 0.0);
+        assertEquals(5, estimator.getRecommendedSegments());
+    }
+
+    @Test
+    public void testCalibrationScan() {
+        Mockito.when(mockDynamoDBClient.scan(Mockito.any(ScanRequest.class))).thenReturn(
+                new ScanResult().withScannedCount(100).withConsumedCapacity(new ConsumedCapacity().withCapacityUnits(50.0)));
+        ScanEstimator estimator = estimator(GB, 1000, 100);
+        estimator.estimate();
+        Mockito.verify(mockDynamoDBClient, Mockito.times(ScanEstimator.NUM_OF_CALIBRATION_SEGMENTS)).scan(Mockito.any(ScanRequest.class));
+        assertEquals(500.0, estimator.getTotalReadUnits(), 0.0);
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+
+/**
+ * 
+ * Unit tests for ScanMemoryGovernor.
+ * 
+ */
+public class ScanMemoryGovernorTest {
+    private static final long MB = 1024L * 1024;
+
+    @Test
+    public void testFirstPageReservesFullPage() {
+        ScanMemoryGovernor governor = new ScanMemoryGovernor(100 * MB, ScanMemoryGovernor.SDK_INFLATION);
+        assertEquals(100 * 1024, governor.getBudgetKB());
+        assertEquals(4 * 1024, governor.acquire());
+        assertEquals(4 * 1024, governor.getPeakInFlightKB());
+    }
+
+    @Test
+    public void testReservationNeverExceedsBudget() {
+        ScanMemoryGovernor governor = new ScanMemoryGovernor(MB, ScanMemoryGovernor.SDK_INFLATION);
+        int reservedKB = governor.acquire();
+        assertEquals(1024, reservedKB);
+        governor.release(reservedKB, null);
+        assertEquals(1024, governor.acquire());
+        assertEquals(0L, governor.getNumOfWaits());
+    }
+
+    @Test
+    public void testEstimateFollowsConsumedCapacity() {
+        ScanMemoryGovernor governor = new ScanMemoryGovernor(100 * MB, ScanMemoryGovernor.DECODER_INFLATION);
+        int reservedKB = governor.acquire();
+        // 16 read units read 128 KB
+        governor.release(reservedKB, new ConsumedCapacity().withCapacityUnits(16.0));
+        assertTrue(governor.getPageBytesEstimate() < ScanMemoryGovernor.MAX_PAGE_BYTES);
+        for (int i = 0; i < 100; i++) {
+            governor.release(governor.acquire(), new ConsumedCapacity().withCapacityUnits(16.0));
+        }
+        assertEquals(128 * 1024L, governor.getPageBytesEstimate());
+        assertEquals(128, governor.getPageReservationKB());
+        // A larger page is followed at once
+        governor.release(governor.acquire(), new ConsumedCapacity().withCapacityUnits(128.0));
+        assertEquals(ScanMemoryGovernor.MAX_PAGE_BYTES, governor.getPageBytesEstimate());
+    }
+
+    @Test
+    public void testAcquireWaitsForRelease() throws Exception {
+        final ScanMemoryGovernor governor = new ScanMemoryGovernor(6 * MB, ScanMemoryGovernor.SDK_INFLATION);
+        int reservedKB = governor.acquire();
+        final CountDownLatch acquired = new CountDownLatch(1);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                governor.acquire();
+                acquired.countDown();
+            }
+        });
+        thread.start();
+        assertTrue(!acquired.await(200, TimeUnit.MILLISECONDS));
+        governor.release(reservedKB, null);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        assertEquals(1L, governor.getNumOfWaits());
+        assertEquals(4 * 1024, governor.getPeakInFlightKB());
+    }
+
+    @Test
+    public void testMaxPagesInFlight() {
+        assertEquals(25, ScanMemoryGovernor.getMaxPagesInFlight(100 * MB, ScanMemoryGovernor.SDK_INFLATION));
+        assertEquals(100, ScanMemoryGovernor.getMaxPagesInFlight(100 * MB, ScanMemoryGovernor.DECODER_INFLATION));
+        assertEquals(1, ScanMemoryGovernor.getMaxPagesInFlight(MB, ScanMemoryGovernor.SDK_INFLATION));
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.online.index.benchmark.ExportFileWriter;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * 
+ * Unit test scan response decoder.
+ * 
+ */
+public class ScanResponseDecoderTest {
+    private static RandomDataGenerator dataGenerator = new RandomDataGenerator();
+
+    private static String hashKeyName = "hashKey";
+    private static String rangeKeyName = "rangeKey";
+    private static String gsiHashKeyName = "gsiHashKey";
+    private static String gsiRangeKeyName = "gsiRangeKey";
+
+    private ScanResponseDecoder decoder;
+
+    @Before
+    public void setupBeforeTest() {
+        decoder = new ScanResponseDecoder(hashKeyName, rangeKeyName, gsiHashKeyName, "S", gsiRangeKeyName, "N");
+    }
+
+    private static Map<String, AttributeValue> createItem(int index, AttributeValue gsiHashKey, AttributeValue gsiRangeKey) {
+        Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+        item.put(hashKeyName, new AttributeValue().withS("hash" + index));
+        item.put(rangeKeyName, new AttributeValue().withN(Integer.toString(index)));
+        item.put("payload", new AttributeValue().withS(dataGenerator.nextRadomString(100)));
+        item.put("nested", new AttributeValue().withM(new HashMap<String, AttributeValue>()));
+        if (gsiHashKey != null) {
+            item.put(gsiHashKeyName, gsiHashKey);
+        }
+        if (gsiRangeKey != null) {
+            item.put(gsiRangeKeyName, gsiRangeKey);
+        }
+        return item;
+    }
+
+    private ScanPage decode(Map<String, AttributeValue> lastEvaluatedKey, List<Map<String, AttributeValue>> items) throws IOException {
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        JsonGenerator generator = new JsonFactory().createGenerator(response);
+        generator.writeStartObject();
+        generator.writeObjectFieldStart("ConsumedCapacity");
+        generator.writeNumberField("CapacityUnits", 12.5);
+        generator.writeStringField("TableName", "table");
+        generator.writeEndObject();
+        generator.writeNumberField("Count", items.size());
+        generator.writeArrayFieldStart("Items");
+        for (Map<String, AttributeValue> item : items) {
+            ExportFileWriter.writeItem(generator, item);
+        }
+        generator.writeEndArray();
+        if (lastEvaluatedKey != null) {
+            generator.writeFieldName("LastEvaluatedKey");
+            ExportFileWriter.writeItem(generator, lastEvaluatedKey);
+        }
+        generator.writeNumberField("ScannedCount", items.size() + 1);
+        generator.writeEndObject();
+        generator.close();
+        return decoder.decode(new ByteArrayInputStream(response.toByteArray()));
+    }
+
+    private boolean isCandidate(AttributeValue gsiHashKey, AttributeValue gsiRangeKey) throws IOException {
+        ScanPage scanPage = decode(null, Arrays.asList(createItem(0, gsiHashKey, gsiRangeKey)));
+        return scanPage.getViolationCandidates().size() == 1;
+    }
+
+    @Test
+    public void testDecodeCountsAndCapacity() throws IOException {
+        Map<String, AttributeValue> lastEvaluatedKey = new HashMap<String, AttributeValue>();
+        lastEvaluatedKey.put(hashKeyName, new AttributeValue().withS("hash1"));
+        lastEvaluatedKey.put(rangeKeyName, new AttributeValue().withN("1"));
+        ScanPage scanPage = decode(lastEvaluatedKey,
+                Arrays.asList(createItem(0, new AttributeValue().withS("valid"), null), createItem(1, null, null)));
+        assertEquals(2, scanPage.getCount());
+        assertEquals(3, scanPage.getScannedCount());
+        assertEquals(12.5, scanPage.getConsumedCapacity().getCapacityUnits(), 0.0);
+        assertEquals("table", scanPage.getConsumedCapacity().getTableName());
+        assertEquals(lastEvaluatedKey, scanPage.getLastEvaluatedKey());
+        assertTrue(scanPage.getViolationCandidates().isEmpty());
+    }
+
+    @Test
+    public void testDecodeWithoutLastEvaluatedKey() throws IOException {
+        assertNull(decode(null, new ArrayList<Map<String, AttributeValue>>()).getLastEvaluatedKey());
+    }
+
+    @Test
+    public void testDecodeCandidateKeepsKeysOnly() throws IOException {
+        Map<String, AttributeValue> item = createItem(1, new AttributeValue().withN("1"), new AttributeValue().withN("2"));
+        ScanPage scanPage = decode(null, Arrays.asList(createItem(0, null, null), item));
+        assertEquals(Arrays.asList(1), scanPage.getViolationCandidateIndexes());
+        Map<String, AttributeValue> candidate = scanPage.getViolationCandidates().get(0);
+        item.remove("payload");
+        item.remove("nested");
+        assertEquals(item, candidate);
+    }
+
+    @Test
+    public void testStringKeySize() throws IOException {
+        assertFalse(isCandidate(new AttributeValue().withS(dataGenerator.nextRadomString(ViolationChecker.MAX_HASH_KEY_SIZE)), null));
+        assertTrue(isCandidate(new AttributeValue().withS(dataGenerator.nextRadomString(ViolationChecker.MAX_HASH_KEY_SIZE + 1)), null));
+        // Three bytes per character in UTF-8
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < ViolationChecker.MAX_HASH_KEY_SIZE / 3 + 1; i++) {
+            text.append('\u20ac');
+        }
+        assertTrue(isCandidate(new AttributeValue().withS(text.toString()), null));
+    }
+
+    @Test
+    public void testNumberKey() throws IOException {
+        assertFalse(isCandidate(null, new AttributeValue().withN("-1.5E10")));
+        assertTrue(isCandidate(null, new AttributeValue().withN("1E126")));
+        assertTrue(isCandidate(null, new AttributeValue().withN("123456789012345678901234567890123456789")));
+    }
+
+    @Test
+    public void testTypeMismatch() throws IOException {
+        assertTrue(isCandidate(new AttributeValue().withN("1"), null));
+        assertTrue(isCandidate(null, new AttributeValue().withS("1")));
+        assertTrue(isCandidate(new AttributeValue().withB(ByteBuffer.wrap(new byte[] { 1 })), null));
+        assertTrue(isCandidate(new AttributeValue().withSS("a", "b"), null));
+        assertTrue(isCandidate(null, new AttributeValue().withNS("1", "2")));
+    }
+
+    @Test
+    public void testDocumentTypesAreNotViolations() throws IOException {
+        assertFalse(isCandidate(new AttributeValue().withBOOL(true), null));
+        assertFalse(isCandidate(new AttributeValue().withNULL(true), null));
+        assertFalse(isCandidate(null, new AttributeValue().withM(new HashMap<String, AttributeValue>())));
+    }
+
+    @Test
+    public void testBinaryKeySize() throws IOException {
+        decoder = new ScanResponseDecoder(hashKeyName, rangeKeyName, gsiHashKeyName, "B", null, null);
+        assertFalse(isCandidate(new AttributeValue().withB(ByteBuffer.wrap(new byte[ViolationChecker.MAX_HASH_KEY_SIZE])), null));
+        assertTrue(isCandidate(new AttributeValue().withB(ByteBuffer.wrap(new byte[ViolationChecker.MAX_HASH_KEY_SIZE + 1])), null));
+    }
+
+    @Test
+    public void testUtf8AndBase64Length() {
+        assertEquals(1, ScanResponseDecoder.getUtf8Length("a"));
+        assertEquals(2, ScanResponseDecoder.getUtf8Length("\u00e9"));
+        assertEquals(3, ScanResponseDecoder.getUtf8Length("\u20ac"));
+        assertEquals(4, ScanResponseDecoder.getUtf8Length("\ud83d\ude00"));
+        assertEquals(0, ScanResponseDecoder.getBase64DecodedLength(""));
+        assertEquals(1, ScanResponseDecoder.getBase64DecodedLength("AQ=="));
+        assertEquals(2, ScanResponseDecoder.getBase64DecodedLength("AQI="));
+        assertEquals(3, ScanResponseDecoder.getBase64DecodedLength("AQID"));
+    }
+}
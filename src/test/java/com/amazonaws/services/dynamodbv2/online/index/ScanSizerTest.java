@@ -0,0 +1,143 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputDescription;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+
+/**
+ * 
+ * Unit tests for ScanSizer.
+ * 
+ */
+public class ScanSizerTest {
+    private static final long MB = 1024L * 1024;
+    private static final long GB = 1024L * MB;
+
+    private Options mockOptions = Mockito.mock(Options.class);
+    private AmazonDynamoDBClient mockDynamoDBClient = Mockito.mock(AmazonDynamoDBClient.class);
+
+    @Before
+    public void setup() {
+        Mockito.when(mockOptions.getReadWriteIOPSPercent()).thenReturn(50);
+        Mockito.when(mockOptions.getNumOfSegments()).thenReturn(Options.AUTO_NUM_OF_SEGMENTS);
+        Mockito.when(mockOptions.getNumOfScanThreads()).thenReturn(0);
+    }
+
+    private ScanSizer sizer(long tableSizeBytes, long readCapacityUnits, int numOfCores) {
+        List<KeySchemaElement> keySchema = new ArrayList<KeySchemaElement>();
+        keySchema.add(new KeySchemaElement().withAttributeName("id").withKeyType(KeyType.HASH));
+        TableDescription tableDescription = new TableDescription().withTableSizeBytes(tableSizeBytes).withKeySchema(keySchema)
+                .withProvisionedThroughput(new ProvisionedThroughputDescription().withReadCapacityUnits(readCapacityUnits).withWriteCapacityUnits(1L));
+        ScanSizer sizer = new ScanSizer(mockOptions, new TableHelper(mockDynamoDBClient, tableDescription), numOfCores);
+        sizer.compute();
+        return sizer;
+    }
+
+    @Test
+    public void testLargeTableLimitedByCores() {
+        // No provisioned read capacity
+        ScanSizer sizer = sizer(1024 * GB, 0, 4);
+        assertEquals(32, sizer.getNumOfScanThreads());
+        assertEquals(512, sizer.getNumOfSegments());
+        assertTrue(sizer.getReason().contains("per core"));
+    }
+
+    @Test
+    public void testLimitedByReadCapacity() {
+        // 5000 read units per second, 1280 per thread
+        ScanSizer sizer = sizer(100 * GB, 10000, 4);
+        assertEquals(4, sizer.getNumOfScanThreads());
+        assertEquals(50, sizer.getNumOfSegments());
+        assertTrue(sizer.getReason().contains("read capacity"));
+    }
+
+    @Test
+    public void testSmallTableLimitedBySize() {
+        ScanSizer sizer = sizer(100 * MB, 100000, 4);
+        assertEquals(2, sizer.getNumOfScanThreads());
+        assertEquals(2, sizer.getNumOfSegments());
+        assertTrue(sizer.getReason().contains("table size"));
+    }
+
+    @Test
+    public void testEmptyTable() {
+        ScanSizer sizer = sizer(0, 100000, 4);
+        assertEquals(1, sizer.getNumOfScanThreads());
+        assertEquals(1, sizer.getNumOfSegments());
+    }
+
+    @Test
+    public void testGivenSegments() {
+        Mockito.when(mockOptions.getNumOfSegments()).thenReturn(100);
+        // One thread per given segment, as when segments were threads
+        ScanSizer sizer = sizer(0, 0, 2);
+        assertEquals(100, sizer.getNumOfScanThreads());
+        assertEquals(100, sizer.getNumOfSegments());
+        assertTrue(sizer.getReason().contains("one per given segment"));
+
+        Mockito.when(mockOptions.getNumOfSegments()).thenReturn(4);
+        sizer = sizer(0, 0, 2);
+        assertEquals(4, sizer.getNumOfScanThreads());
+        assertEquals(4, sizer.getNumOfSegments());
+    }
+
+    @Test
+    public void testGivenThreads() {
+        Mockito.when(mockOptions.getNumOfScanThreads()).thenReturn(64);
+        ScanSizer sizer = sizer(10 * GB, 1000, 1);
+        assertEquals(64, sizer.getNumOfScanThreads());
+        assertEquals(64, sizer.getNumOfSegments());
+
+        // No more threads than segments
+        Mockito.when(mockOptions.getNumOfSegments()).thenReturn(8);
+        sizer = sizer(10 * GB, 1000, 1);
+        assertEquals(8, sizer.getNumOfScanThreads());
+        assertEquals(8, sizer.getNumOfSegments());
+    }
+
+    @Test
+    public void testMaxNumOfScanThreads() {
+        int coreThreads = Runtime.getRuntime().availableProcessors() * ScanSizer.SCAN_THREADS_PER_CORE;
+        assertEquals(coreThreads, ScanSizer.getMaxNumOfScanThreads(mockOptions));
+        Mockito.when(mockOptions.getNumOfSegments()).thenReturn(1000);
+        assertEquals(1000, ScanSizer.getMaxNumOfScanThreads(mockOptions));
+        Mockito.when(mockOptions.getNumOfScanThreads()).thenReturn(200);
+        assertEquals(200, ScanSizer.getMaxNumOfScanThreads(mockOptions));
+    }
+
+    @Test
+    public void testLimitedByScanMemory() {
+        // Pages of 4 MB once unmarshalled, in 1% of the heap
+        Mockito.when(mockOptions.getScanMemoryPercent()).thenReturn(1);
+        int memoryThreads = ScanMemoryGovernor.getMaxPagesInFlight(ScanMemoryGovernor.getBudgetBytes(1), ScanMemoryGovernor.SDK_INFLATION);
+        ScanSizer sizer = sizer(1024 * GB, 0, 1024);
+        assertEquals(memoryThreads, sizer.getNumOfScanThreads());
+        assertTrue(sizer.getReason().contains(Options.SCAN_MEMORY_PERCENT));
+    }
+}
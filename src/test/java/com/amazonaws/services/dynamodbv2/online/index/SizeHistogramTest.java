@@ -0,0 +1,80 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * 
+ * Unit tests for SizeHistogram.
+ * 
+ */
+public class SizeHistogramTest {
+
+    @Test
+    public void testSmallSizesAreExact() {
+        SizeHistogram histogram = new SizeHistogram();
+        for (int size = 0; size < 10; size++) {
+            histogram.add(size);
+        }
+        assertEquals(4L, histogram.getQuantile(0.5));
+        assertEquals(9L, histogram.getQuantile(1.0));
+        assertEquals(0L, histogram.getMin());
+        assertEquals(45L, histogram.getSum());
+    }
+
+    @Test
+    public void testQuantileWithinBucketError() {
+        SizeHistogram histogram = new SizeHistogram();
+        for (int size = 1; size <= 100000; size++) {
+            histogram.add(size);
+        }
+        long p90 = histogram.getQuantile(0.9);
+        assertTrue("p90 " + p90 + " should be within 4%", Math.abs(p90 - 90000) < 3600);
+        assertEquals(100000L, histogram.getMax());
+        assertEquals(100000L, histogram.getCount());
+    }
+
+    @Test
+    public void testMerge() {
+        SizeHistogram first = new SizeHistogram();
+        SizeHistogram second = new SizeHistogram();
+        first.add(3000, 2);
+        second.add(5);
+        first.merge(second);
+        assertEquals(3L, first.getCount());
+        assertEquals(5L, first.getMin());
+        assertEquals(3000L, first.getMax());
+        assertEquals(6005L, first.getSum());
+    }
+
+    @Test
+    public void testBucketValueInBucket() {
+        for (long size : new long[] { 16, 17, 1000, 2049, 409600, Long.MAX_VALUE / 3 }) {
+            int bucket = SizeHistogram.getBucket(size);
+            assertEquals(bucket, SizeHistogram.getBucket(SizeHistogram.getBucketValue(bucket)));
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        SizeHistogram histogram = new SizeHistogram();
+        assertEquals(0L, histogram.getQuantile(0.5));
+        assertEquals(0L, histogram.getMin());
+    }
+}
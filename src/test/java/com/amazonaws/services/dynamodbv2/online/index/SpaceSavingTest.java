@@ -0,0 +1,74 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * 
+ * Unit tests for SpaceSaving.
+ * 
+ */
+public class SpaceSavingTest {
+
+    @Test
+    public void testExactCountsBelowCapacity() {
+        SpaceSaving spaceSaving = new SpaceSaving(10);
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j <= i; j++) {
+                spaceSaving.add("value" + i);
+            }
+        }
+        List<SpaceSaving.Entry> top = spaceSaving.getTop(2);
+        assertEquals(2, top.size());
+        assertEquals("value4", top.get(0).getValue());
+        assertEquals(5L, top.get(0).getCount());
+        assertEquals(0L, top.get(0).getError());
+        assertEquals("value3", top.get(1).getValue());
+        assertEquals(15L, spaceSaving.getTotal());
+    }
+
+    @Test
+    public void testHeavyHittersKeptOverCapacity() {
+        SpaceSaving spaceSaving = new SpaceSaving(10);
+        for (int i = 0; i < 10000; i++) {
+            spaceSaving.add(i % 4 == 0 ? "heavy" : "light" + i);
+        }
+        SpaceSaving.Entry top = spaceSaving.getTop(1).get(0);
+        assertEquals("heavy", top.getValue());
+        assertTrue(top.getCount() >= 2500);
+        assertTrue(top.getCount() - top.getError() <= 2500);
+    }
+
+    @Test
+    public void testMerge() {
+        SpaceSaving first = new SpaceSaving(10);
+        SpaceSaving second = new SpaceSaving(10);
+        first.add("a");
+        first.add("b");
+        second.add("a");
+        second.add("a");
+        first.merge(second);
+        SpaceSaving.Entry top = first.getTop(1).get(0);
+        assertEquals("a", top.getValue());
+        assertEquals(3L, top.getCount());
+        assertEquals(4L, first.getTotal());
+    }
+}
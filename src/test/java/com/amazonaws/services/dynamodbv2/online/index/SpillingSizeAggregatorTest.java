@@ -0,0 +1,178 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+
+/**
+ * 
+ * Unit tests for SpillingSizeAggregator.
+ * 
+ */
+public class SpillingSizeAggregatorTest {
+    private static final long SMALL_MEMORY_BYTES = 64 * 1024;
+    private File spillDirectory;
+
+    @Before
+    public void setup() throws IOException {
+        spillDirectory = File.createTempFile("spill", "");
+        spillDirectory.delete();
+        spillDirectory.mkdir();
+    }
+
+    @After
+    public void cleanup() {
+        for (File file : spillDirectory.listFiles()) {
+            file.delete();
+        }
+        spillDirectory.delete();
+    }
+
+    private static byte[] key(int i) {
+        return ("key" + i).getBytes(Charsets.UTF_8);
+    }
+
+    private static Map<String, Long> merge(List<File> runs, long threshold) throws IOException {
+        final Map<String, Long> sums = new HashMap<String, Long>();
+        SpillingSizeAggregator.mergeRuns(runs, threshold, new SpillingSizeAggregator.KeyHandler() {
+            @Override
+            public void handle(byte[] key, long totalSize) {
+                assertFalse("Each key should be handled once", sums.containsKey(new String(key, Charsets.UTF_8)));
+                sums.put(new String(key, Charsets.UTF_8), totalSize);
+            }
+        });
+        return sums;
+    }
+
+    @Test
+    public void testSumsInMemory() throws IOException {
+        SpillingSizeAggregator aggregator = new SpillingSizeAggregator(SMALL_MEMORY_BYTES, spillDirectory);
+        aggregator.add(key(1), 10);
+        aggregator.add(key(2), 5);
+        aggregator.add(key(1), 7);
+        assertEquals(2, aggregator.size());
+        List<File> runs = aggregator.finish();
+        assertEquals(1, runs.size());
+        Map<String, Long> sums = merge(runs, 0);
+        assertEquals(2, sums.size());
+        assertEquals(Long.valueOf(17), sums.get("key1"));
+        assertEquals(Long.valueOf(5), sums.get("key2"));
+        assertFalse("Runs should be deleted once merged", runs.get(0).exists());
+    }
+
+    @Test
+    public void testSumsAcrossSpillsAndAggregators() throws IOException {
+        SpillingSizeAggregator first = new SpillingSizeAggregator(SMALL_MEMORY_BYTES, spillDirectory);
+        SpillingSizeAggregator second = new SpillingSizeAggregator(SMALL_MEMORY_BYTES, spillDirectory);
+        int numOfKeys = 5000;
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < numOfKeys; i++) {
+                first.add(key(i), i);
+                second.add(key(i), 1);
+            }
+        }
+        List<File> runs = new ArrayList<File>(first.finish());
+        runs.addAll(second.finish());
+        assertTrue("Small memory should spill several runs", runs.size() > 2);
+
+        final Map<String, Long> sums = new HashMap<String, Long>();
+        long distinctKeys = SpillingSizeAggregator.mergeRuns(runs, 0, new SpillingSizeAggregator.KeyHandler() {
+            @Override
+            public void handle(byte[] key, long totalSize) {
+                sums.put(new String(key, Charsets.UTF_8), totalSize);
+            }
+        });
+        assertEquals((long) numOfKeys, distinctKeys);
+        for (int i = 0; i < numOfKeys; i++) {
+            assertEquals(Long.valueOf(3L * i + 3), sums.get("key" + i));
+        }
+        assertEquals(0, spillDirectory.listFiles().length);
+    }
+
+    @Test
+    public void testMergeMoreRunsThanFanIn() throws IOException {
+        // The smallest table holds one key, every new key spills a run
+        SpillingSizeAggregator aggregator = new SpillingSizeAggregator(0, spillDirectory);
+        int numOfKeys = SpillingSizeAggregator.MAX_MERGE_FAN_IN * 3 + 5;
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < numOfKeys; i++) {
+                aggregator.add(key(i), i);
+            }
+        }
+        List<File> runs = aggregator.finish();
+        assertTrue("Should spill more runs than the fan-in", runs.size() > SpillingSizeAggregator.MAX_MERGE_FAN_IN);
+        Map<String, Long> sums = merge(runs, 0);
+        assertEquals(numOfKeys, sums.size());
+        for (int i = 0; i < numOfKeys; i++) {
+            assertEquals(Long.valueOf(2L * i), sums.get("key" + i));
+        }
+        assertEquals("Runs and intermediate runs should be deleted", 0, spillDirectory.listFiles().length);
+    }
+
+    @Test
+    public void testMergeInSeveralPasses() throws IOException {
+        SpillingSizeAggregator aggregator = new SpillingSizeAggregator(0, spillDirectory);
+        for (int i = 0; i < 100; i++) {
+            aggregator.add(key(i % 30), 1);
+        }
+        final Map<String, Long> sums = new HashMap<String, Long>();
+        // 100 runs with a fan-in of 3 take several passes of intermediate runs
+        long distinctKeys = SpillingSizeAggregator.mergeRuns(aggregator.finish(), 4, new SpillingSizeAggregator.KeyHandler() {
+            @Override
+            public void handle(byte[] key, long totalSize) {
+                assertFalse("Each key should be handled once", sums.containsKey(new String(key, Charsets.UTF_8)));
+                sums.put(new String(key, Charsets.UTF_8), totalSize);
+            }
+        }, 3);
+        assertEquals(30L, distinctKeys);
+        assertEquals("Only keys 0 to 9 appear 4 times", 10, sums.size());
+        assertEquals(Long.valueOf(4), sums.get("key0"));
+        assertEquals(0, spillDirectory.listFiles().length);
+    }
+
+    @Test
+    public void testThreshold() throws IOException {
+        SpillingSizeAggregator aggregator = new SpillingSizeAggregator(SMALL_MEMORY_BYTES, spillDirectory);
+        for (int i = 0; i < 100; i++) {
+            aggregator.add(key(i), i);
+        }
+        Map<String, Long> sums = merge(aggregator.finish(), 90);
+        assertEquals(10, sums.size());
+        assertEquals(Long.valueOf(90), sums.get("key90"));
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        SpillingSizeAggregator aggregator = new SpillingSizeAggregator(SMALL_MEMORY_BYTES, spillDirectory);
+        List<File> runs = aggregator.finish();
+        assertEquals(0, runs.size());
+        assertEquals(0, merge(runs, 0).size());
+    }
+}
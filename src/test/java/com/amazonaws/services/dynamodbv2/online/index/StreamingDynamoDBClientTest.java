@@ -0,0 +1,97 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+import com.amazonaws.AmazonWebServiceResponse;
+import com.amazonaws.http.HttpResponse;
+import com.amazonaws.internal.CRC32MismatchException;
+
+/**
+ * 
+ * Unit test the scan response handler of the streaming DynamoDB client.
+ * 
+ */
+public class StreamingDynamoDBClientTest {
+    private static String response = "{\"Count\":0,\"Items\":[],\"ScannedCount\":5}";
+
+    private static long getCRC32(byte[] content) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(content);
+        return crc32.getValue();
+    }
+
+    private static AmazonWebServiceResponse<ScanPage> handle(byte[] content, String crc32, boolean gzip) throws Exception {
+        HttpResponse httpResponse = new HttpResponse(null, null);
+        httpResponse.setContent(new ByteArrayInputStream(content));
+        httpResponse.addHeader("x-amzn-RequestId", "requestId");
+        if (crc32 != null) {
+            httpResponse.addHeader("x-amz-crc32", crc32);
+        }
+        if (gzip) {
+            httpResponse.addHeader("Content-Encoding", "gzip");
+        }
+        ScanResponseDecoder decoder = new ScanResponseDecoder("hashKey", null, "gsiHashKey", "S", null, null);
+        return new StreamingDynamoDBClient.ScanPageResponseHandler(decoder).handle(httpResponse);
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        GZIPOutputStream gzipOutput = new GZIPOutputStream(output);
+        gzipOutput.write(content);
+        gzipOutput.close();
+        return output.toByteArray();
+    }
+
+    @Test
+    public void testHandleWithChecksum() throws Exception {
+        byte[] content = response.getBytes("UTF-8");
+        AmazonWebServiceResponse<ScanPage> awsResponse = handle(content, Long.toString(getCRC32(content)), false);
+        assertEquals(5, awsResponse.getResult().getScannedCount());
+        assertEquals("requestId", awsResponse.getRequestId());
+    }
+
+    @Test
+    public void testHandleWithoutChecksum() throws Exception {
+        assertEquals(5, handle(response.getBytes("UTF-8"), null, false).getResult().getScannedCount());
+    }
+
+    @Test
+    public void testHandleGzipChecksumOfCompressedContent() throws Exception {
+        byte[] content = gzip(response.getBytes("UTF-8"));
+        assertEquals(5, handle(content, Long.toString(getCRC32(content)), true).getResult().getScannedCount());
+    }
+
+    @Test
+    public void testHandleWithChecksumMismatch() throws Exception {
+        byte[] content = response.getBytes("UTF-8");
+        try {
+            handle(content, Long.toString(getCRC32(content) + 1), false);
+            fail("Expected CRC32MismatchException");
+        } catch (CRC32MismatchException e) {
+            // Expected
+        }
+    }
+}
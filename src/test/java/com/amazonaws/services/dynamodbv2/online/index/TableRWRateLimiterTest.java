@@ -0,0 +1,78 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.model.Capacity;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+
+/**
+ * 
+ * Unit tests for TableRWRateLimiter.
+ * 
+ */
+public class TableRWRateLimiterTest {
+
+    @Test
+    public void testSetCapacityIgnoresZero() {
+        TableRWRateLimiter rateLimiter = new TableRWRateLimiter(100, 50, 1);
+        assertFalse(rateLimiter.setReadWriteIOPSCapacityUnits(0));
+        assertFalse(rateLimiter.setReadWriteIOPSCapacityUnits(100));
+        assertTrue(rateLimiter.setReadWriteIOPSCapacityUnits(200));
+        assertEquals(200.0, rateLimiter.getReadWriteIOPSCapacityUnits(), 0.0);
+    }
+
+    @Test
+    public void testIndexRateLimitersSkipZeroCapacity() {
+        Map<String, Long> indexCapacityUnits = new HashMap<String, Long>();
+        indexCapacityUnits.put("gsi1", 10L);
+        indexCapacityUnits.put("gsi2", 0L);
+        TableRWRateLimiter rateLimiter = new TableRWRateLimiter(100, indexCapacityUnits, 50, 2);
+        assertEquals(10.0, rateLimiter.getIndexRateLimiter("gsi1").getReadWriteIOPSCapacityUnits(), 0.0);
+        assertNull(rateLimiter.getIndexRateLimiter("gsi2"));
+
+        indexCapacityUnits.put("gsi1", 20L);
+        rateLimiter.setIndexCapacityUnits(indexCapacityUnits);
+        assertEquals(20.0, rateLimiter.getIndexRateLimiter("gsi1").getReadWriteIOPSCapacityUnits(), 0.0);
+    }
+
+    @Test
+    public void testIndexWithLowestCapacityGovernsRate() {
+        Map<String, Long> indexCapacityUnits = new HashMap<String, Long>();
+        indexCapacityUnits.put("gsi", 2L);
+        // 1000 permits per second for the table, 2 for the GSI
+        TableRWRateLimiter rateLimiter = new TableRWRateLimiter(1000, indexCapacityUnits, 100, 1);
+        Map<String, Capacity> gsiCapacity = new HashMap<String, Capacity>();
+        gsiCapacity.put("gsi", new Capacity().withCapacityUnits(2.0));
+        ConsumedCapacity consumedCapacity = new ConsumedCapacity().withCapacityUnits(4.0).withTable(new Capacity().withCapacityUnits(2.0))
+                .withGlobalSecondaryIndexes(gsiCapacity);
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.adjustRateWithConsumedCapacity(consumedCapacity);
+        }
+        // The GSI permits of the second and third writes wait a second each
+        assertTrue(System.currentTimeMillis() - start >= 1500);
+    }
+}
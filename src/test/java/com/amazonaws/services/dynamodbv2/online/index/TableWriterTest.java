@@ -16,6 +16,12 @@ package com.amazonaws.services.dynamodbv2.online.index;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -28,7 +34,9 @@ import org.mockito.Mockito;
 
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
 import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.DeleteRequest;
 import com.amazonaws.services.dynamodbv2.model.WriteRequest;
 import com.amazonaws.services.dynamodbv2.online.index.TableWriter;
 import com.google.common.util.concurrent.RateLimiter;
@@ -137,4 +145,40 @@ public class TableWriterTest {
         tableWriter.genAttributeValueForKey("SS", value);
     }
     
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSendUpdateRequestAsyncWithSyncClient() {
+        Map<String, AttributeValueUpdate> updateItems = new HashMap<String, AttributeValueUpdate>();
+        tableWriter.sendUpdateRequestAsync(new HashMap<String, AttributeValue>(), updateItems, null, null);
+    }
+
+    @Test
+    public void testAddDeleteRetriesAfterDeadline() throws IOException {
+        File failureFile = File.createTempFile("delete_failures", ".csv");
+        failureFile.deleteOnExit();
+        DeleteFailureWriter.getInstance().init(failureFile.getPath(), true /* tableHasRangeKey */);
+        List<WriteRequest> unprocessedRequests = new ArrayList<WriteRequest>();
+        Map<String, AttributeValue> primaryKey = tableWriter.genTablePrimaryKey(new AttributeValue().withS("hashValue"), new AttributeValue().withN("7"));
+        unprocessedRequests.add(new WriteRequest().withDeleteRequest(new DeleteRequest().withKey(primaryKey)));
+
+        // Writer for unit test has no retry time, unprocessed requests fail at once
+        tableWriter.addDeleteRetries(unprocessedRequests);
+        DeleteFailureWriter.getInstance().flushAndCloseWriter();
+        assertEquals("Should not queue the request for retry", 0, tableWriter.getNumOfDeleteRetries());
+        assertEquals("Should record the failed delete", 1L, DeleteFailureWriter.getInstance().getNumOfFailedDeletes());
+        List<String> lines = Files.readAllLines(failureFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals("Should write header and key", 2, lines.size());
+        assertEquals(ViolationRecord.TABLE_HASH_KEY + "," + ViolationRecord.TABLE_RANGE_KEY, lines.get(0));
+        assertEquals("hashValue,7", lines.get(1));
+    }
+
+    @Test
+    public void testGetDeleteRetryDelayMillis() {
+        for (int attempts = 1; attempts < 30; attempts++) {
+            long delay = tableWriter.getDeleteRetryDelayMillis(attempts);
+            assertTrue("Delay should not be negative", delay >= 0);
+            assertTrue("Delay should not exceed the exponential bound", delay <= TableWriter.DELETE_RETRY_BASE_DELAY_MILLIS << Math.min(attempts, 20));
+            assertTrue("Delay should not exceed the max delay", delay <= TableWriter.DELETE_RETRY_MAX_DELAY_MILLIS);
+        }
+    }
 }
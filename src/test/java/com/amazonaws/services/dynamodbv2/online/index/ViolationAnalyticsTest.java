@@ -0,0 +1,125 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.Files;
+
+/**
+ * 
+ * Unit tests for ViolationAnalytics.
+ * 
+ */
+public class ViolationAnalyticsTest {
+    private static final String TABLE_HASH_KEY = "id";
+    private static final String GSI_HASH_KEY = "gsiHash";
+    private static final String GSI_RANGE_KEY = "gsiRange";
+
+    private ViolationChecker violationChecker;
+
+    @Before
+    public void setup() {
+        violationChecker = new ViolationChecker(null, TABLE_HASH_KEY, null, GSI_HASH_KEY, "S", GSI_RANGE_KEY, "N", false, false, null, null);
+    }
+
+    private Map<String, AttributeValue> item(String id, AttributeValue gsiHash, AttributeValue gsiRange) {
+        Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+        item.put(TABLE_HASH_KEY, new AttributeValue().withS(id));
+        if (gsiHash != null) {
+            item.put(GSI_HASH_KEY, gsiHash);
+        }
+        if (gsiRange != null) {
+            item.put(GSI_RANGE_KEY, gsiRange);
+        }
+        return item;
+    }
+
+    private void addItem(ViolationAnalytics analytics, Map<String, AttributeValue> item) {
+        violationChecker.checkItemViolationAndGetRecord(item);
+        analytics.addItem(item, violationChecker);
+    }
+
+    @Test
+    public void testAggregateAndMergeSegments() {
+        ViolationAnalytics first = new ViolationAnalytics(TABLE_HASH_KEY, GSI_HASH_KEY, GSI_RANGE_KEY);
+        ViolationAnalytics second = new ViolationAnalytics(TABLE_HASH_KEY, GSI_HASH_KEY, GSI_RANGE_KEY);
+        addItem(first, item("customer#1", new AttributeValue().withS(Strings.repeat("a", 3000)), new AttributeValue().withN("1")));
+        addItem(first, item("customer#2", new AttributeValue().withN("1"), null));
+        addItem(second, item("customer#3", null, new AttributeValue().withS("one")));
+        addItem(second, item("order#1", new AttributeValue().withS("valid"), new AttributeValue().withN("2")));
+        first.merge(second);
+
+        assertEquals(4L, first.getItemsScanned());
+        assertEquals(3L, first.getItemsWithViolations());
+        assertEquals(1L, first.getItemsMissingGsiHashKey());
+        assertEquals(1L, first.getItemsMissingGsiRangeKey());
+        assertEquals(Long.valueOf(1), first.getGsiHashKeyViolations().get(ViolationChecker.SIZE_VIOLATION));
+        assertEquals(Long.valueOf(1), first.getGsiHashKeyViolations().get(ViolationChecker.TYPE_VIOLATION));
+        assertEquals(Long.valueOf(1), first.getGsiRangeKeyViolations().get(ViolationChecker.TYPE_VIOLATION));
+        assertEquals(3000L, first.getOversizeValueSizes().getMax());
+        assertEquals(3L, first.getDistinctViolatingHashKeys());
+        SpaceSaving.Entry top = first.getTopViolatingKeyPrefixes().getTop(1).get(0);
+        assertEquals("customer", top.getValue());
+        assertEquals(3L, top.getCount());
+        // Only values without violations go to the GSI
+        assertEquals(1L, first.getHotKeyPredictor().getItemsWithValue());
+    }
+
+    @Test
+    public void testRangeKeyViolationKeptOutOfSkew() {
+        ViolationAnalytics analytics = new ViolationAnalytics(TABLE_HASH_KEY, GSI_HASH_KEY, GSI_RANGE_KEY);
+        addItem(analytics, item("customer#1", new AttributeValue().withS("valid"), new AttributeValue().withS("one")));
+        addItem(analytics, item("customer#2", new AttributeValue().withS("valid"), new AttributeValue().withN("2")));
+        assertEquals(1L, analytics.getItemsWithViolations());
+        // The item with a range key violation never reaches the GSI
+        assertEquals(1L, analytics.getHotKeyPredictor().getItemsWithValue());
+    }
+
+    @Test
+    public void testBinaryKeyStringKeepsValue() {
+        AttributeValue value = new AttributeValue().withB(ByteBuffer.wrap(new byte[] { (byte) 0xff, 0x00 }));
+        assertEquals("/wA=", ViolationAnalytics.toKeyString(value));
+        assertEquals(2, value.getB().remaining());
+    }
+
+    @Test
+    public void testWriteReport() throws Exception {
+        ViolationAnalytics analytics = new ViolationAnalytics(TABLE_HASH_KEY, GSI_HASH_KEY, null);
+        addItem(analytics, item("customer#1", new AttributeValue().withN("1"), null));
+        File reportFile = File.createTempFile("violation_analytics", ".json");
+        reportFile.deleteOnExit();
+        analytics.writeReport(reportFile.getPath(), "table", 100);
+
+        String report = Files.toString(reportFile, Charsets.UTF_8);
+        assertTrue(report.contains("\"tableName\" : \"table\""));
+        assertTrue(report.contains("\"Type Violation\" : 1"));
+        assertTrue(report.contains("\"prefix\" : \"customer\""));
+        assertTrue(!report.contains("gsiRangeKey"));
+        assertTrue(report.contains("\"gsiHashKeySkew\""));
+    }
+}
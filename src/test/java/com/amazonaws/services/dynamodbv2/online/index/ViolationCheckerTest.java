@@ -14,6 +14,7 @@
  */
 package com.amazonaws.services.dynamodbv2.online.index;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.nio.ByteBuffer;
@@ -104,6 +105,27 @@ public class ViolationCheckerTest {
         assertTrue(violationChecker.checkAttributeViolation(keyValue, "N", KeyType.RANGE));
     }
 
+    @Test
+    public void testCheckAttributeViolationWithValidNumber() {
+        AttributeValue keyValue = new AttributeValue().withN(String.valueOf(dataGenerator.nextRandomInt()));
+        assertFalse(violationChecker.checkAttributeViolation(keyValue, "N", KeyType.HASH));
+    }
+
+    @Test
+    public void testCheckAttributeViolationWithNumberPrecisionViolation() {
+        AttributeValue keyValue = new AttributeValue().withN("1234567890123456789012345678901234567891");
+        assertTrue(violationChecker.checkAttributeViolation(keyValue, "N", KeyType.HASH));
+        Mockito.verify(mockViolationRecord).setGSIHashKeyViolationType(ViolationChecker.NUMBER_VIOLATION);
+        Mockito.verify(mockViolationRecord).setGSIHashKeyViolationDesc("Max Precision Allowed: 38 Found: 40");
+    }
+
+    @Test
+    public void testCheckAttributeViolationWithNumberMagnitudeViolation() {
+        AttributeValue keyValue = new AttributeValue().withN("1E-131");
+        assertTrue(violationChecker.checkAttributeViolation(keyValue, "N", KeyType.RANGE));
+        Mockito.verify(mockViolationRecord).setGSIRangeKeyViolationType(ViolationChecker.NUMBER_VIOLATION);
+        Mockito.verify(mockViolationRecord).setGSIRangeKeyViolationDesc("Exponent Range Allowed: -130 ~ 125 Found: -131");
+    }
 
     @Test
     public void testRecordItemTableHashKeyWithS() {
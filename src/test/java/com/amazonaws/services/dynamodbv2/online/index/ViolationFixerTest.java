@@ -0,0 +1,190 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeAction;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+
+/**
+ * 
+ * Unit tests for ViolationFixer.
+ * 
+ */
+@SuppressWarnings("unchecked")
+public class ViolationFixerTest {
+    private final String tableHashKeyName = "hashKey";
+    private final String gsiHashKeyName = "gsiHashKey";
+    private final String gsiRangeKeyName = "gsiRangeKey";
+
+    private Options mockOptions = Mockito.mock(Options.class);
+    private TableHelper mockTableHelper = Mockito.mock(TableHelper.class);
+    private TableWriter mockTableWriter = Mockito.mock(TableWriter.class);
+    private File auditFile;
+    private ViolationFixer fixer;
+
+    @Before
+    public void setup() throws IOException {
+        Mockito.when(mockTableHelper.getTableHashKeyName()).thenReturn(tableHashKeyName);
+        Mockito.when(mockOptions.getGsiHashKeyName()).thenReturn(gsiHashKeyName);
+        Mockito.when(mockOptions.getGsiHashKeyType()).thenReturn("N");
+        Mockito.when(mockOptions.getGsiRangeKeyName()).thenReturn(gsiRangeKeyName);
+        Mockito.when(mockOptions.getGsiRangeKeyType()).thenReturn("S");
+        Mockito.when(mockOptions.getFixSizeViolation()).thenReturn(ViolationFixer.TRUNCATE);
+        Mockito.when(mockOptions.getFixTypeViolation()).thenReturn(ViolationFixer.COERCE);
+        Mockito.when(mockOptions.getFixNumberViolation()).thenReturn(ViolationFixer.REMOVE);
+        fixer = new ViolationFixer(mockOptions, mockTableHelper, mockTableWriter);
+        auditFile = File.createTempFile("violation_fix_audit", ".csv");
+        FixAuditWriter.getInstance().createOutputFile(auditFile.getPath(), false);
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        FixAuditWriter.getInstance().flushAndCloseWriter();
+        auditFile.delete();
+    }
+
+    private Map<String, AttributeValue> item(AttributeValue gsiHashKey, AttributeValue gsiRangeKey) {
+        Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+        item.put(tableHashKeyName, new AttributeValue().withS("item"));
+        item.put(gsiHashKeyName, gsiHashKey);
+        item.put(gsiRangeKeyName, gsiRangeKey);
+        return item;
+    }
+
+    private String repeat(String value, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void testTruncateKeepsWholeCharacters() {
+        String value = "a" + repeat("é", 10);
+        String truncated = ViolationFixer.truncate(value, 10);
+        assertEquals("a" + repeat("é", 4), truncated);
+        assertEquals("abc", ViolationFixer.truncate("abc", 10));
+    }
+
+    @Test
+    public void testApplyTransform() {
+        assertEquals("12", ViolationFixer.applyTransform(ViolationFixer.COERCE, new AttributeValue().withS(" 12 "), "N", 2048).getN());
+        assertEquals("12", ViolationFixer.applyTransform(ViolationFixer.COERCE, new AttributeValue().withN("12"), "S", 2048).getS());
+        assertNull(ViolationFixer.applyTransform(ViolationFixer.COERCE, new AttributeValue().withS("twelve"), "N", 2048));
+        AttributeValue binary = new AttributeValue().withB(ByteBuffer.wrap(new byte[20]));
+        assertEquals(10, ViolationFixer.applyTransform(ViolationFixer.TRUNCATE, binary, "B", 10).getB().remaining());
+    }
+
+    @Test
+    public void testFixItemSendsConditionalUpdate() throws Exception {
+        AttributeValue gsiHashKey = new AttributeValue().withS("42");
+        AttributeValue gsiRangeKey = new AttributeValue().withS(repeat("x", ViolationChecker.MAX_RANGE_KEY_SIZE + 1));
+        fixer.fixItem(item(gsiHashKey, gsiRangeKey), true, true);
+
+        @SuppressWarnings("rawtypes")
+        ArgumentCaptor<Map> updates = ArgumentCaptor.forClass(Map.class);
+        @SuppressWarnings("rawtypes")
+        ArgumentCaptor<Map> expected = ArgumentCaptor.forClass(Map.class);
+        Mockito.verify(mockTableWriter).sendUpdateRequest(Matchers.anyMap(), updates.capture(), expected.capture());
+        Map<String, AttributeValueUpdate> updateItems = updates.getValue();
+        assertEquals("42", updateItems.get(gsiHashKeyName).getValue().getN());
+        assertEquals(ViolationChecker.MAX_RANGE_KEY_SIZE, updateItems.get(gsiRangeKeyName).getValue().getS().length());
+        Map<String, ExpectedAttributeValue> expectedItems = expected.getValue();
+        assertEquals(gsiHashKey, expectedItems.get(gsiHashKeyName).getValue());
+        assertEquals(1L, fixer.getItemsFixed());
+
+        FixAuditWriter.getInstance().flushAndCloseWriter();
+        List<String> lines = Files.readAllLines(auditFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(1).endsWith(ViolationFixer.FIXED) && lines.get(2).endsWith(ViolationFixer.FIXED));
+    }
+
+    @Test
+    public void testFixBinarySizeViolationRecordedWithGsiValue() throws Exception {
+        Mockito.when(mockOptions.getGsiRangeKeyType()).thenReturn("B");
+        fixer = new ViolationFixer(mockOptions, mockTableHelper, mockTableWriter);
+        // Recording the GSI value decodes the buffer of the item before the fix
+        ViolationChecker checker = new ViolationChecker(null, tableHashKeyName, null, gsiHashKeyName, "N", gsiRangeKeyName, "B", true, true,
+                new ViolationRecord(false, true, true, true), null);
+        byte[] bytes = repeat("x", ViolationChecker.MAX_RANGE_KEY_SIZE + 1).getBytes(StandardCharsets.UTF_8);
+        Map<String, AttributeValue> item = item(new AttributeValue().withN("42"), new AttributeValue().withB(ByteBuffer.wrap(bytes)));
+        checker.checkItemViolationAndGetRecord(item);
+        assertEquals(0, item.get(gsiRangeKeyName).getB().remaining());
+        fixer.fixItem(item, false, true);
+
+        @SuppressWarnings("rawtypes")
+        ArgumentCaptor<Map> updates = ArgumentCaptor.forClass(Map.class);
+        @SuppressWarnings("rawtypes")
+        ArgumentCaptor<Map> expected = ArgumentCaptor.forClass(Map.class);
+        Mockito.verify(mockTableWriter).sendUpdateRequest(Matchers.anyMap(), updates.capture(), expected.capture());
+        Map<String, AttributeValueUpdate> updateItems = updates.getValue();
+        assertEquals(ViolationChecker.MAX_RANGE_KEY_SIZE, updateItems.get(gsiRangeKeyName).getValue().getB().remaining());
+        Map<String, ExpectedAttributeValue> expectedItems = expected.getValue();
+        assertEquals(ByteBuffer.wrap(bytes), expectedItems.get(gsiRangeKeyName).getValue().getB());
+        assertEquals(1L, fixer.getItemsFixed());
+
+        FixAuditWriter.getInstance().flushAndCloseWriter();
+        List<String> lines = Files.readAllLines(auditFile.toPath(), StandardCharsets.UTF_8);
+        assertTrue("Should audit the whole value before the fix", lines.get(1).contains(new String(bytes, StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testFixItemRemovesInvalidNumber() throws Exception {
+        fixer.fixItem(item(new AttributeValue().withN("1E200"), null), true, false);
+        Map<String, AttributeValueUpdate> updateItems = new HashMap<String, AttributeValueUpdate>();
+        updateItems.put(gsiHashKeyName, new AttributeValueUpdate().withAction(AttributeAction.DELETE));
+        Mockito.verify(mockTableWriter).sendUpdateRequest(Matchers.anyMap(), Mockito.eq(updateItems), Matchers.anyMap());
+    }
+
+    @Test
+    public void testItemNotFixedWhenTransformCannotFix() throws Exception {
+        fixer.fixItem(item(new AttributeValue().withS("forty two"), null), true, false);
+        Mockito.verify(mockTableWriter, Mockito.never()).sendUpdateRequest(Matchers.anyMap(), Matchers.anyMap(), Matchers.anyMap());
+        assertEquals(1L, fixer.getItemsNotFixed());
+    }
+
+    @Test
+    public void testItemChangedSinceScan() throws Exception {
+        Mockito.when(mockTableWriter.sendUpdateRequest(Matchers.anyMap(), Matchers.anyMap(), Matchers.anyMap())).thenThrow(
+                new ConditionalCheckFailedException("changed"));
+        fixer.fixItem(item(new AttributeValue().withS("42"), null), true, false);
+        assertEquals(1L, fixer.getItemsChanged());
+        assertEquals(0L, fixer.getItemsFixed());
+    }
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Result of one benchmark run: throughput, latency of the DynamoDB calls,
+ * peak heap and garbage collection of the JVM during the run.
+ */
+public class BenchmarkResult {
+    public static final String DETECTION = "detection";
+    public static final String CORRECTION = "correction";
+
+    private static final String[] HEADER = { "Phase", "Violation Percent", "Segments", "Scan Page Size", "Correction Workers", "Records", "Seconds",
+            "Records Per Second", "Call", "Calls", "P50 Latency Millis", "P99 Latency Millis", "Peak Heap MB", "GC Count", "GC Millis" };
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+
+    private String phase;
+    private double violationPercent;
+    private int numOfSegments;
+    private int scanPageSize;
+    private int numOfCorrectionWorkers;
+    private long records;
+    private double seconds;
+    private String call;
+    private long calls;
+    private double p50LatencyMillis;
+    private double p99LatencyMillis;
+    private double peakHeapMB;
+    private long gcCount;
+    private long gcMillis;
+
+    private long startNanos;
+    private long startGcCount;
+    private long startGcMillis;
+
+    public BenchmarkResult(String phase, double violationPercent, int numOfSegments, int scanPageSize, int numOfCorrectionWorkers) {
+        this.phase = phase;
+        this.violationPercent = violationPercent;
+        this.numOfSegments = numOfSegments;
+        this.scanPageSize = scanPageSize;
+        this.numOfCorrectionWorkers = numOfCorrectionWorkers;
+    }
+
+    /**
+     * Reset the heap peaks and take the GC counters before the run.
+     */
+    public void start() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+        startGcCount = getGcCount();
+        startGcMillis = getGcMillis();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Take the measures of the run, the latency is the one of the main
+     * call of the phase.
+     */
+    public void stop(long records, LatencyRecorder latencyRecorder, String call) {
+        seconds = (System.nanoTime() - startNanos) / 1e9;
+        this.records = records;
+        this.call = call;
+        calls = latencyRecorder.getNumOfCalls(call);
+        p50LatencyMillis = latencyRecorder.getQuantileMillis(call, 0.5);
+        p99LatencyMillis = latencyRecorder.getQuantileMillis(call, 0.99);
+        long peakHeapBytes = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peakHeapBytes += pool.getPeakUsage().getUsed();
+            }
+        }
+        peakHeapMB = peakHeapBytes / BYTES_PER_MB;
+        gcCount = getGcCount() - startGcCount;
+        gcMillis = getGcMillis() - startGcMillis;
+    }
+
+    private static long getGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long getGcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public double getRecordsPerSecond() {
+        return seconds > 0 ? records / seconds : 0;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public double getP50LatencyMillis() {
+        return p50LatencyMillis;
+    }
+
+    public double getP99LatencyMillis() {
+        return p99LatencyMillis;
+    }
+
+    private Object[] getValues() {
+        return new Object[] { phase, violationPercent, numOfSegments, scanPageSize, numOfCorrectionWorkers, records, seconds, getRecordsPerSecond(), call,
+                calls, p50LatencyMillis, p99LatencyMillis, peakHeapMB, gcCount, gcMillis };
+    }
+
+    /**
+     * Write the results as JSON when the path ends with .json, as CSV
+     * otherwise.
+     */
+    public static void write(List<BenchmarkResult> results, String outputPath) throws IOException {
+        if (outputPath.endsWith(".json")) {
+            writeJson(results, outputPath);
+        } else {
+            writeCsv(results, outputPath);
+        }
+    }
+
+    protected static void writeCsv(List<BenchmarkResult> results, String outputPath) throws IOException {
+        CSVPrinter printer = new CSVPrinter(new BufferedWriter(new FileWriter(outputPath)), CSVFormat.RFC4180.withDelimiter(','));
+        try {
+            printer.printRecord((Object[]) HEADER);
+            for (BenchmarkResult result : results) {
+                printer.printRecord(result.getValues());
+            }
+        } finally {
+            printer.close();
+        }
+    }
+
+    protected static void writeJson(List<BenchmarkResult> results, String outputPath) throws IOException {
+        JsonGenerator generator = new JsonFactory().createGenerator(new File(outputPath), JsonEncoding.UTF8);
+        try {
+            generator.writeStartArray();
+            for (BenchmarkResult result : results) {
+                generator.writeStartObject();
+                Object[] values = result.getValues();
+                for (int i = 0; i < HEADER.length; i++) {
+                    if (values[i] instanceof String) {
+                        generator.writeStringField(HEADER[i], (String) values[i]);
+                    } else {
+                        generator.writeFieldName(HEADER[i]);
+                        generator.writeNumber(values[i].toString());
+                    }
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        } finally {
+            generator.close();
+        }
+    }
+}
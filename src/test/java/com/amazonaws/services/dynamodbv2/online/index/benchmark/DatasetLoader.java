@@ -0,0 +1,134 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+/**
+ * Write a synthetic dataset to a table with parallel BatchWriteItem calls.
+ * 
+ * Loader threads take chunks of consecutive item indexes until all the
+ * dataset is written. Unprocessed items and throttled calls are retried
+ * with an exponential backoff.
+ */
+public class DatasetLoader {
+    public static final int BATCH_WRITE_SIZE = 25;
+    public static final int CHUNK_SIZE = 10000;
+    private static final long MAX_BACKOFF_MILLIS = 1000;
+
+    private AmazonDynamoDB dynamoDBClient;
+    private String tableName;
+    private int numOfThreads;
+    private AtomicLong itemsWritten = new AtomicLong(0);
+    private AtomicLong numOfRetries = new AtomicLong(0);
+
+    public DatasetLoader(AmazonDynamoDB dynamoDBClient, String tableName, int numOfThreads) {
+        this.dynamoDBClient = dynamoDBClient;
+        this.tableName = tableName;
+        this.numOfThreads = numOfThreads;
+    }
+
+    public long getItemsWritten() {
+        return itemsWritten.get();
+    }
+
+    /**
+     * Retried batch calls, for unprocessed items or throttling.
+     */
+    public long getNumOfRetries() {
+        return numOfRetries.get();
+    }
+
+    /**
+     * Write all the items of the dataset, return once they are written.
+     */
+    public void load(final SyntheticDataset dataset) throws InterruptedException {
+        final AtomicLong nextChunk = new AtomicLong(0);
+        ExecutorService executor = Executors.newFixedThreadPool(numOfThreads);
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (int i = 0; i < numOfThreads; i++) {
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws InterruptedException {
+                    long from;
+                    while ((from = nextChunk.getAndAdd(CHUNK_SIZE)) < dataset.getNumOfItems()) {
+                        loadRange(dataset, from, Math.min(from + CHUNK_SIZE, dataset.getNumOfItems()));
+                    }
+                    return null;
+                }
+            }));
+        }
+        executor.shutdown();
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException ee) {
+            executor.shutdownNow();
+            throw new RuntimeException("Error: Failed to load dataset to table " + tableName + ".", ee.getCause());
+        }
+    }
+
+    protected void loadRange(SyntheticDataset dataset, long from, long to) throws InterruptedException {
+        List<WriteRequest> batch = new ArrayList<WriteRequest>(BATCH_WRITE_SIZE);
+        for (long index = from; index < to; index++) {
+            Map<String, AttributeValue> item = dataset.getItem(index);
+            batch.add(new WriteRequest().withPutRequest(new PutRequest().withItem(item)));
+            if (batch.size() == BATCH_WRITE_SIZE || index == to - 1) {
+                writeBatch(batch);
+                batch = new ArrayList<WriteRequest>(BATCH_WRITE_SIZE);
+            }
+        }
+    }
+
+    private void writeBatch(List<WriteRequest> batch) throws InterruptedException {
+        int attempts = 0;
+        while (!batch.isEmpty()) {
+            if (attempts > 0) {
+                numOfRetries.incrementAndGet();
+                Thread.sleep(Math.min(MAX_BACKOFF_MILLIS, 1L << Math.min(attempts, 10)));
+            }
+            attempts++;
+            Map<String, List<WriteRequest>> requestItems = new HashMap<String, List<WriteRequest>>();
+            requestItems.put(tableName, batch);
+            BatchWriteItemResult result;
+            try {
+                result = dynamoDBClient.batchWriteItem(requestItems);
+            } catch (ProvisionedThroughputExceededException ptee) {
+                continue;
+            }
+            List<WriteRequest> unprocessed = result.getUnprocessedItems() == null ? null : result.getUnprocessedItems().get(tableName);
+            int numOfUnprocessed = unprocessed == null ? 0 : unprocessed.size();
+            itemsWritten.addAndGet(batch.size() - numOfUnprocessed);
+            batch = numOfUnprocessed == 0 ? new ArrayList<WriteRequest>() : unprocessed;
+        }
+    }
+}
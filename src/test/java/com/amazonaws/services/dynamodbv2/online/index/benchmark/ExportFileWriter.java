@@ -0,0 +1,220 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index.benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.Files;
+
+/**
+ * Write a synthetic dataset in the format of a DynamoDB export to S3, so
+ * that offline paths can be run at scale without a table.
+ * 
+ * Data files are written in parallel under data/, one item per line in
+ * DynamoDB JSON, e.g. {"Item":{"id":{"S":"item0000000001"}}}, gzipped
+ * when asked. manifest-files.json lists the data files with their item
+ * count and MD5, manifest-summary.json gives the totals.
+ */
+public class ExportFileWriter {
+    public static final String DATA_DIRECTORY = "data";
+    public static final String MANIFEST_FILES = "manifest-files.json";
+    public static final String MANIFEST_SUMMARY = "manifest-summary.json";
+    public static final String EXPORT_VERSION = "2020-06-30";
+    public static final String OUTPUT_FORMAT = "DYNAMODB_JSON";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private SyntheticDataset dataset;
+    private boolean gzip;
+
+    public ExportFileWriter(SyntheticDataset dataset, boolean gzip) {
+        this.dataset = dataset;
+        this.gzip = gzip;
+    }
+
+    /**
+     * Write the export to the given directory in the given number of data
+     * files, return the data files.
+     */
+    public List<File> write(File exportDirectory, int numOfFiles, int numOfThreads) throws IOException, InterruptedException {
+        File dataDirectory = new File(exportDirectory, DATA_DIRECTORY);
+        if (!dataDirectory.isDirectory() && !dataDirectory.mkdirs()) {
+            throw new IOException("Error: Failed to create directory " + dataDirectory + ".");
+        }
+        List<File> dataFiles = new ArrayList<File>();
+        ExecutorService executor = Executors.newFixedThreadPool(numOfThreads);
+        List<Future<File>> futures = new ArrayList<Future<File>>();
+        long numOfItems = dataset.getNumOfItems();
+        for (int i = 0; i < numOfFiles; i++) {
+            final long from = numOfItems * i / numOfFiles;
+            final long to = numOfItems * (i + 1) / numOfFiles;
+            final File dataFile = new File(dataDirectory, String.format("part-%05d.json", i) + (gzip ? ".gz" : ""));
+            futures.add(executor.submit(new Callable<File>() {
+                @Override
+                public File call() throws IOException {
+                    writeDataFile(dataFile, dataset.getItems(from, to));
+                    return dataFile;
+                }
+            }));
+        }
+        executor.shutdown();
+        try {
+            for (Future<File> future : futures) {
+                dataFiles.add(future.get());
+            }
+        } catch (ExecutionException ee) {
+            executor.shutdownNow();
+            throw new IOException("Error: Failed to write export data file.", ee.getCause());
+        }
+        writeManifests(exportDirectory, dataFiles);
+        return dataFiles;
+    }
+
+    protected void writeDataFile(File dataFile, Iterator<Map<String, AttributeValue>> items) throws IOException {
+        OutputStream output = new BufferedOutputStream(new FileOutputStream(dataFile), 1 << 16);
+        if (gzip) {
+            output = new GZIPOutputStream(output, 1 << 16);
+        }
+        JsonGenerator generator = JSON_FACTORY.createGenerator(output, JsonEncoding.UTF8);
+        generator.setRootValueSeparator(null);
+        try {
+            while (items.hasNext()) {
+                generator.writeStartObject();
+                generator.writeFieldName("Item");
+                writeItem(generator, items.next());
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+        } finally {
+            generator.close();
+        }
+    }
+
+    private void writeManifests(File exportDirectory, List<File> dataFiles) throws IOException {
+        JsonGenerator files = JSON_FACTORY.createGenerator(new File(exportDirectory, MANIFEST_FILES), JsonEncoding.UTF8);
+        files.setRootValueSeparator(null);
+        long numOfItems = dataset.getNumOfItems();
+        try {
+            for (int i = 0; i < dataFiles.size(); i++) {
+                File dataFile = dataFiles.get(i);
+                files.writeStartObject();
+                files.writeNumberField("itemCount", numOfItems * (i + 1) / dataFiles.size() - numOfItems * i / dataFiles.size());
+                files.writeStringField("md5Checksum", BaseEncoding.base64().encode(Files.hash(dataFile, Hashing.md5()).asBytes()));
+                files.writeStringField("dataFileS3Key", DATA_DIRECTORY + "/" + dataFile.getName());
+                files.writeEndObject();
+                files.writeRaw('\n');
+            }
+        } finally {
+            files.close();
+        }
+        JsonGenerator summary = JSON_FACTORY.createGenerator(new File(exportDirectory, MANIFEST_SUMMARY), JsonEncoding.UTF8);
+        try {
+            summary.writeStartObject();
+            summary.writeStringField("version", EXPORT_VERSION);
+            summary.writeStringField("outputFormat", OUTPUT_FORMAT);
+            summary.writeNumberField("itemCount", numOfItems);
+            summary.writeStringField("manifestFilesS3Key", MANIFEST_FILES);
+            summary.writeEndObject();
+        } finally {
+            summary.close();
+        }
+    }
+
+    /**
+     * Write the item in DynamoDB JSON.
+     */
+    public static void writeItem(JsonGenerator generator, Map<String, AttributeValue> item) throws IOException {
+        generator.writeStartObject();
+        for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+            generator.writeFieldName(attribute.getKey());
+            writeAttributeValue(generator, attribute.getValue());
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * DynamoDB JSON of the value: numbers are strings, binaries are base64.
+     */
+    protected static void writeAttributeValue(JsonGenerator generator, AttributeValue value) throws IOException {
+        generator.writeStartObject();
+        if (value.getS() != null) {
+            generator.writeStringField("S", value.getS());
+        } else if (value.getN() != null) {
+            generator.writeStringField("N", value.getN());
+        } else if (value.getB() != null) {
+            generator.writeStringField("B", toBase64(value.getB()));
+        } else if (value.getSS() != null) {
+            writeStringArray(generator, "SS", value.getSS());
+        } else if (value.getNS() != null) {
+            writeStringArray(generator, "NS", value.getNS());
+        } else if (value.getBS() != null) {
+            List<String> binaries = new ArrayList<String>();
+            for (ByteBuffer binary : value.getBS()) {
+                binaries.add(toBase64(binary));
+            }
+            writeStringArray(generator, "BS", binaries);
+        } else if (value.getM() != null) {
+            generator.writeFieldName("M");
+            writeItem(generator, value.getM());
+        } else if (value.getL() != null) {
+            generator.writeArrayFieldStart("L");
+            for (AttributeValue element : value.getL()) {
+                writeAttributeValue(generator, element);
+            }
+            generator.writeEndArray();
+        } else if (value.getBOOL() != null) {
+            generator.writeBooleanField("BOOL", value.getBOOL());
+        } else if (value.getNULL() != null) {
+            generator.writeBooleanField("NULL", value.getNULL());
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeStringArray(JsonGenerator generator, String type, List<String> values) throws IOException {
+        generator.writeArrayFieldStart(type);
+        for (String value : values) {
+            generator.writeString(value);
+        }
+        generator.writeEndArray();
+    }
+
+    private static String toBase64(ByteBuffer binary) {
+        ByteBuffer duplicate = binary.duplicate();
+        byte[] bytes = new byte[duplicate.remaining()];
+        duplicate.get(bytes);
+        return BaseEncoding.base64().encode(bytes);
+    }
+}
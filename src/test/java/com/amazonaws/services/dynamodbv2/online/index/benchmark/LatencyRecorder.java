@@ -0,0 +1,80 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.online.index.SizeHistogram;
+import com.amazonaws.services.dynamodbv2.online.index.StreamingScanClient;
+
+/**
+ * Record the latency of each call made to a DynamoDB client, by method
+ * name, in microseconds. Thread safe.
+ */
+public class LatencyRecorder {
+    private Map<String, SizeHistogram> latencies = new HashMap<String, SizeHistogram>();
+
+    /**
+     * Client recording the latency of each call to the given client. The
+     * streaming scan of the client is kept if it has one.
+     */
+    public AmazonDynamoDB wrap(final AmazonDynamoDB dynamoDBClient) {
+        Class<?>[] interfaces = dynamoDBClient instanceof StreamingScanClient ? new Class<?>[] { AmazonDynamoDB.class, StreamingScanClient.class }
+                : new Class<?>[] { AmazonDynamoDB.class };
+        return (AmazonDynamoDB) Proxy.newProxyInstance(AmazonDynamoDB.class.getClassLoader(), interfaces,
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        long start = System.nanoTime();
+                        try {
+                            return method.invoke(dynamoDBClient, args);
+                        } catch (InvocationTargetException ite) {
+                            throw ite.getCause();
+                        } finally {
+                            record(method.getName(), (System.nanoTime() - start) / 1000);
+                        }
+                    }
+                });
+    }
+
+    public synchronized void record(String methodName, long micros) {
+        SizeHistogram histogram = latencies.get(methodName);
+        if (histogram == null) {
+            histogram = new SizeHistogram();
+            latencies.put(methodName, histogram);
+        }
+        histogram.add(micros);
+    }
+
+    public synchronized long getNumOfCalls(String methodName) {
+        SizeHistogram histogram = latencies.get(methodName);
+        return histogram == null ? 0 : histogram.getCount();
+    }
+
+    /**
+     * Latency quantile of the calls to the method in milliseconds, 0 if the
+     * method was not called.
+     */
+    public synchronized double getQuantileMillis(String methodName, double quantile) {
+        SizeHistogram histogram = latencies.get(methodName);
+        return histogram == null || histogram.getCount() == 0 ? 0 : histogram.getQuantile(quantile) / 1000.0;
+    }
+}
@@ -0,0 +1,239 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index.benchmark;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.online.index.ViolationChecker;
+import com.google.common.hash.Hashing;
+
+/**
+ * Deterministic dataset for benchmarks: the item at an index is always the
+ * same for a given seed, whatever order or thread items are generated in,
+ * so a dataset can be generated in parallel ranges and generated again
+ * instead of being kept.
+ * 
+ * Items have a string table hash key, a string GSI hash key and a payload.
+ * GSI hash key values are drawn uniformly or with a Zipf distribution from
+ * a set of distinct values. Payload sizes are fixed, uniform or
+ * exponential around the given mean. A percentage of items violate the GSI
+ * hash key with a number instead of a string, another percentage with a
+ * string over the key size limit.
+ */
+public class SyntheticDataset {
+    public static final String TABLE_HASH_KEY_NAME = "id";
+    public static final String GSI_HASH_KEY_NAME = "gsiKey";
+    public static final String GSI_HASH_KEY_TYPE = "S";
+    public static final String PAYLOAD_NAME = "payload";
+
+    /** Key distributions */
+    public static final String UNIFORM = "uniform";
+    public static final String ZIPF = "zipf";
+    /** Payload size distributions, and UNIFORM */
+    public static final String FIXED = "fixed";
+    public static final String EXPONENTIAL = "exponential";
+
+    public static final int MAX_DISTINCT_GSI_KEYS = 10000000;
+    /** Payloads are kept under the item size limit of 400 KB */
+    public static final int MAX_PAYLOAD_BYTES = 380 * 1024;
+    private static final char[] PAYLOAD_CHARS = new char[MAX_PAYLOAD_BYTES];
+    private static final String OVERSIZED_GSI_KEY;
+
+    static {
+        Arrays.fill(PAYLOAD_CHARS, 'p');
+        char[] oversized = new char[ViolationChecker.MAX_HASH_KEY_SIZE + 1];
+        Arrays.fill(oversized, 'x');
+        OVERSIZED_GSI_KEY = new String(oversized);
+    }
+
+    private long numOfItems;
+    private int payloadBytes;
+    private long seed;
+    private double typeViolationPercent;
+    private double sizeViolationPercent;
+    private String gsiKeyDistribution = UNIFORM;
+    private int numOfDistinctGsiKeys = 1000;
+    /** Cumulative weights of the GSI key ranks, only for Zipf */
+    private double[] gsiKeyCumulativeWeights = null;
+    private String payloadSizeDistribution = FIXED;
+
+    /**
+     * Half of the violations are type violations, half size violations.
+     */
+    public SyntheticDataset(long numOfItems, int payloadBytes, double violationPercent, long seed) {
+        if (payloadBytes < 0 || payloadBytes > MAX_PAYLOAD_BYTES) {
+            throw new IllegalArgumentException("Error: Payload size " + payloadBytes + " exceeds range 0 ~ " + MAX_PAYLOAD_BYTES + ".");
+        }
+        this.numOfItems = numOfItems;
+        this.payloadBytes = payloadBytes;
+        this.seed = seed;
+        setViolationPercents(violationPercent / 2, violationPercent / 2);
+    }
+
+    public void setViolationPercents(double typeViolationPercent, double sizeViolationPercent) {
+        if (typeViolationPercent < 0 || sizeViolationPercent < 0 || typeViolationPercent + sizeViolationPercent > 100) {
+            throw new IllegalArgumentException("Error: Violation percents " + typeViolationPercent + " and " + sizeViolationPercent
+                    + " must be positive and add up to at most 100.");
+        }
+        this.typeViolationPercent = typeViolationPercent;
+        this.sizeViolationPercent = sizeViolationPercent;
+    }
+
+    /**
+     * Draw GSI hash key values from the given number of distinct values,
+     * uniformly or with a Zipf distribution of the given exponent where the
+     * value of rank r has a weight of 1 / (r + 1)^exponent.
+     */
+    public void setGsiKeyDistribution(String distribution, int numOfDistinctKeys, double zipfExponent) {
+        if (numOfDistinctKeys < 1 || numOfDistinctKeys > MAX_DISTINCT_GSI_KEYS) {
+            throw new IllegalArgumentException("Error: Number of distinct GSI keys " + numOfDistinctKeys + " exceeds range 1 ~ "
+                    + MAX_DISTINCT_GSI_KEYS + ".");
+        }
+        if (UNIFORM.equals(distribution)) {
+            gsiKeyCumulativeWeights = null;
+        } else if (ZIPF.equals(distribution)) {
+            gsiKeyCumulativeWeights = new double[numOfDistinctKeys];
+            double total = 0;
+            for (int rank = 0; rank < numOfDistinctKeys; rank++) {
+                total += 1 / Math.pow(rank + 1, zipfExponent);
+                gsiKeyCumulativeWeights[rank] = total;
+            }
+        } else {
+            throw new IllegalArgumentException("Error: GSI key distribution " + distribution + " should be '" + UNIFORM + "' or '" + ZIPF + "'.");
+        }
+        this.gsiKeyDistribution = distribution;
+        this.numOfDistinctGsiKeys = numOfDistinctKeys;
+    }
+
+    /**
+     * Payload sizes are the payload size given, uniform between 0 and twice
+     * of it, or exponential of that mean.
+     */
+    public void setPayloadSizeDistribution(String distribution) {
+        if (!FIXED.equals(distribution) && !UNIFORM.equals(distribution) && !EXPONENTIAL.equals(distribution)) {
+            throw new IllegalArgumentException("Error: Payload size distribution " + distribution + " should be '" + FIXED + "', '" + UNIFORM
+                    + "' or '" + EXPONENTIAL + "'.");
+        }
+        this.payloadSizeDistribution = distribution;
+    }
+
+    public long getNumOfItems() {
+        return numOfItems;
+    }
+
+    public double getViolationPercent() {
+        return typeViolationPercent + sizeViolationPercent;
+    }
+
+    public String getGsiKeyDistribution() {
+        return gsiKeyDistribution;
+    }
+
+    /**
+     * GSI hash key value of the given rank, rank 0 is the most frequent with
+     * a Zipf distribution.
+     */
+    public static String getGsiKeyValue(int rank) {
+        return "group" + rank;
+    }
+
+    public Map<String, AttributeValue> getItem(long index) {
+        // Hashed, the first values of Random are close for close seeds
+        Random random = new Random(Hashing.murmur3_128().newHasher().putLong(seed).putLong(index).hash().asLong());
+        Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+        item.put(TABLE_HASH_KEY_NAME, new AttributeValue().withS(String.format("item%010d", index)));
+        double violation = random.nextDouble() * 100;
+        if (violation < typeViolationPercent) {
+            item.put(GSI_HASH_KEY_NAME, new AttributeValue().withN(Integer.toString(random.nextInt(1000000))));
+        } else if (violation < typeViolationPercent + sizeViolationPercent) {
+            item.put(GSI_HASH_KEY_NAME, new AttributeValue().withS(OVERSIZED_GSI_KEY));
+        } else {
+            item.put(GSI_HASH_KEY_NAME, new AttributeValue().withS(getGsiKeyValue(nextGsiKeyRank(random))));
+        }
+        item.put(PAYLOAD_NAME, new AttributeValue().withS(new String(PAYLOAD_CHARS, 0, nextPayloadSize(random))));
+        return item;
+    }
+
+    private int nextGsiKeyRank(Random random) {
+        if (gsiKeyCumulativeWeights == null) {
+            return random.nextInt(numOfDistinctGsiKeys);
+        }
+        double weight = random.nextDouble() * gsiKeyCumulativeWeights[numOfDistinctGsiKeys - 1];
+        int rank = Arrays.binarySearch(gsiKeyCumulativeWeights, weight);
+        return rank >= 0 ? rank : Math.min(-rank - 1, numOfDistinctGsiKeys - 1);
+    }
+
+    private int nextPayloadSize(Random random) {
+        long size;
+        if (UNIFORM.equals(payloadSizeDistribution)) {
+            size = (long) (random.nextDouble() * (2L * payloadBytes + 1));
+        } else if (EXPONENTIAL.equals(payloadSizeDistribution)) {
+            size = (long) (-Math.log(1 - random.nextDouble()) * payloadBytes);
+        } else {
+            size = payloadBytes;
+        }
+        return (int) Math.min(size, MAX_PAYLOAD_BYTES);
+    }
+
+    /**
+     * Items of the index range [from, to) in order.
+     */
+    public Iterator<Map<String, AttributeValue>> getItems(final long from, final long to) {
+        return new Iterator<Map<String, AttributeValue>>() {
+            private long next = from;
+
+            @Override
+            public boolean hasNext() {
+                return next < to;
+            }
+
+            @Override
+            public Map<String, AttributeValue> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return getItem(next++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Create the table of the dataset, items are written by
+     * {@link DatasetLoader}.
+     */
+    public static void createTable(AmazonDynamoDB dynamoDBClient, String tableName, long capacityUnits) {
+        dynamoDBClient.createTable(new CreateTableRequest().withTableName(tableName)
+                .withAttributeDefinitions(new AttributeDefinition(TABLE_HASH_KEY_NAME, "S"))
+                .withKeySchema(new KeySchemaElement(TABLE_HASH_KEY_NAME, KeyType.HASH))
+                .withProvisionedThroughput(new ProvisionedThroughput(capacityUnits, capacityUnits)));
+    }
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.online.index.InMemoryDynamoDB;
+
+/**
+ * Test the synthetic dataset, its parallel loader and export writer.
+ */
+public class SyntheticDatasetTest {
+    private static final int NUM_OF_ITEMS = 20000;
+    private static final String TABLE_NAME = "synthetic";
+
+    private File workDirectory;
+
+    @Before
+    public void setup() throws IOException {
+        workDirectory = File.createTempFile("synthetic", "");
+        workDirectory.delete();
+        workDirectory.mkdir();
+    }
+
+    @After
+    public void cleanup() {
+        delete(workDirectory);
+    }
+
+    private static void delete(File file) {
+        if (file.isDirectory()) {
+            for (File child : file.listFiles()) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static Map<String, Integer> countGsiKeyValues(SyntheticDataset dataset) {
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        Iterator<Map<String, AttributeValue>> items = dataset.getItems(0, dataset.getNumOfItems());
+        while (items.hasNext()) {
+            AttributeValue value = items.next().get(SyntheticDataset.GSI_HASH_KEY_NAME);
+            String key = value.getN() != null ? "N" : value.getS();
+            Integer count = counts.get(key);
+            counts.put(key, count == null ? 1 : count + 1);
+        }
+        return counts;
+    }
+
+    private static int getCount(Map<String, Integer> counts, String key) {
+        Integer count = counts.get(key);
+        return count == null ? 0 : count;
+    }
+
+    @Test
+    public void testSameItemsForSameSeed() {
+        SyntheticDataset dataset = new SyntheticDataset(NUM_OF_ITEMS, 10, 50, 7);
+        dataset.setPayloadSizeDistribution(SyntheticDataset.EXPONENTIAL);
+        SyntheticDataset other = new SyntheticDataset(NUM_OF_ITEMS, 10, 50, 7);
+        other.setPayloadSizeDistribution(SyntheticDataset.EXPONENTIAL);
+        assertEquals(dataset.getItem(123), other.getItem(123));
+        assertEquals(dataset.getItem(123), dataset.getItems(123, 124).next());
+        assertTrue(!dataset.getItem(123).equals(new SyntheticDataset(NUM_OF_ITEMS, 10, 50, 8).getItem(123)));
+    }
+
+    @Test
+    public void testUniformGsiKeys() {
+        SyntheticDataset dataset = new SyntheticDataset(NUM_OF_ITEMS, 0, 0, 1);
+        dataset.setGsiKeyDistribution(SyntheticDataset.UNIFORM, 100, 0);
+        Map<String, Integer> counts = countGsiKeyValues(dataset);
+        assertEquals(100, counts.size());
+        for (int count : counts.values()) {
+            assertTrue(count > NUM_OF_ITEMS / 100 / 2 && count < NUM_OF_ITEMS / 100 * 2);
+        }
+    }
+
+    @Test
+    public void testZipfGsiKeys() {
+        SyntheticDataset dataset = new SyntheticDataset(NUM_OF_ITEMS, 0, 0, 1);
+        dataset.setGsiKeyDistribution(SyntheticDataset.ZIPF, 1000, 1.0);
+        Map<String, Integer> counts = countGsiKeyValues(dataset);
+        // Rank 0 has 1 / H(1000), about 13% of the items
+        int hottest = getCount(counts, SyntheticDataset.getGsiKeyValue(0));
+        assertTrue(hottest > NUM_OF_ITEMS / 10 && hottest < NUM_OF_ITEMS / 6);
+        int second = getCount(counts, SyntheticDataset.getGsiKeyValue(1));
+        assertTrue(second > hottest / 3 && second < hottest * 2 / 3);
+    }
+
+    @Test
+    public void testViolationPercents() {
+        SyntheticDataset dataset = new SyntheticDataset(NUM_OF_ITEMS, 0, 0, 1);
+        dataset.setViolationPercents(5, 10);
+        int typeViolations = 0;
+        int sizeViolations = 0;
+        for (long i = 0; i < NUM_OF_ITEMS; i++) {
+            AttributeValue value = dataset.getItem(i).get(SyntheticDataset.GSI_HASH_KEY_NAME);
+            if (value.getN() != null) {
+                typeViolations++;
+            } else if (value.getS().length() > 2048) {
+                sizeViolations++;
+            }
+        }
+        assertTrue(Math.abs(typeViolations - NUM_OF_ITEMS * 0.05) < NUM_OF_ITEMS * 0.01);
+        assertTrue(Math.abs(sizeViolations - NUM_OF_ITEMS * 0.10) < NUM_OF_ITEMS * 0.01);
+        assertEquals(15.0, dataset.getViolationPercent(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testViolationPercentsOver100() {
+        new SyntheticDataset(NUM_OF_ITEMS, 0, 0, 1).setViolationPercents(60, 50);
+    }
+
+    private static double getMeanPayloadSize(SyntheticDataset dataset) {
+        long total = 0;
+        for (long i = 0; i < NUM_OF_ITEMS; i++) {
+            total += dataset.getItem(i).get(SyntheticDataset.PAYLOAD_NAME).getS().length();
+        }
+        return (double) total / NUM_OF_ITEMS;
+    }
+
+    @Test
+    public void testPayloadSizeDistributions() {
+        SyntheticDataset dataset = new SyntheticDataset(NUM_OF_ITEMS, 1000, 0, 1);
+        assertEquals(1000, getMeanPayloadSize(dataset), 0);
+        dataset.setPayloadSizeDistribution(SyntheticDataset.UNIFORM);
+        assertEquals(1000, getMeanPayloadSize(dataset), 20);
+        dataset.setPayloadSizeDistribution(SyntheticDataset.EXPONENTIAL);
+        assertEquals(1000, getMeanPayloadSize(dataset), 30);
+    }
+
+    @Test
+    public void testLoadInParallelWithRetries() throws InterruptedException {
+        SyntheticDataset dataset = new SyntheticDataset(1000, 10, 10, 1);
+        InMemoryDynamoDB dynamoDB = new InMemoryDynamoDB();
+        SyntheticDataset.createTable(dynamoDB, TABLE_NAME, 100000);
+        dynamoDB.setUnprocessedEveryNthItem(7);
+        dynamoDB.setThrottleEveryNthRequest(5);
+
+        DatasetLoader loader = new DatasetLoader(dynamoDB, TABLE_NAME, 4);
+        loader.load(dataset);
+        assertEquals(1000L, loader.getItemsWritten());
+        assertTrue(loader.getNumOfRetries() > 0);
+        assertEquals(1000, dynamoDB.getNumOfItems(TABLE_NAME));
+
+        dynamoDB.setThrottleEveryNthRequest(0);
+        Map<String, AttributeValue> item = dataset.getItem(567);
+        Map<String, AttributeValue> key = new HashMap<String, AttributeValue>();
+        key.put(SyntheticDataset.TABLE_HASH_KEY_NAME, item.get(SyntheticDataset.TABLE_HASH_KEY_NAME));
+        assertEquals(item, dynamoDB.getItem(new GetItemRequest().withTableName(TABLE_NAME).withKey(key)).getItem());
+    }
+
+    @Test
+    public void testWriteExport() throws Exception {
+        SyntheticDataset dataset = new SyntheticDataset(1003, 5, 0, 1);
+        List<File> dataFiles = new ExportFileWriter(dataset, true /* gzip */).write(workDirectory, 3, 2);
+        assertEquals(3, dataFiles.size());
+
+        int numOfLines = 0;
+        String firstLine = null;
+        for (File dataFile : dataFiles) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(dataFile)), "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (firstLine == null) {
+                        firstLine = line;
+                    }
+                    assertTrue(line.startsWith("{\"Item\":{"));
+                    numOfLines++;
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        assertEquals(1003, numOfLines);
+        assertTrue(firstLine.contains("\"" + SyntheticDataset.TABLE_HASH_KEY_NAME + "\":{\"S\":\"item0000000000\"}"));
+        assertTrue(firstLine.contains("\"" + SyntheticDataset.PAYLOAD_NAME + "\":{\"S\":\"ppppp\"}"));
+
+        BufferedReader manifest = new BufferedReader(new FileReader(new File(workDirectory, ExportFileWriter.MANIFEST_FILES)));
+        try {
+            assertTrue(manifest.readLine().startsWith("{\"itemCount\":334,"));
+            assertTrue(manifest.readLine().contains("\"dataFileS3Key\":\"data/part-00001.json.gz\""));
+            assertTrue(manifest.readLine() != null);
+            assertEquals(null, manifest.readLine());
+        } finally {
+            manifest.close();
+        }
+    }
+}
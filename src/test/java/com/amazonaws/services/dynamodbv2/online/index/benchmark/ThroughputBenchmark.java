@@ -0,0 +1,288 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index.benchmark;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.online.index.Correction;
+import com.amazonaws.services.dynamodbv2.online.index.InMemoryDynamoDB;
+import com.amazonaws.services.dynamodbv2.online.index.OptionLoader;
+import com.amazonaws.services.dynamodbv2.online.index.Options;
+import com.amazonaws.services.dynamodbv2.online.index.TableHelper;
+import com.amazonaws.services.dynamodbv2.online.index.TableReader;
+import com.amazonaws.services.dynamodbv2.online.index.ViolationRecord;
+
+/**
+ * End to end throughput benchmark of detection and correction against the
+ * in-memory DynamoDB.
+ * 
+ * A synthetic dataset is loaded for each violation percent, detection is
+ * run for each number of segments and scan page size, then correction of
+ * the detected violations is run for each number of correction workers.
+ * Options of the tool are loaded from a generated property file, so the
+ * runs go through the same option checks as the tool.
+ * 
+ * Usage: ThroughputBenchmark [benchmark property file]
+ */
+public class ThroughputBenchmark {
+    public static final String NUM_OF_ITEMS = "numOfItems";
+    public static final String NUM_OF_ITEMS_DEFAULT = "100000";
+    public static final String ITEM_SIZE_BYTES = "itemSizeBytes";
+    public static final String ITEM_SIZE_BYTES_DEFAULT = "1024";
+    public static final String VIOLATION_PERCENTS = "violationPercents";
+    public static final String VIOLATION_PERCENTS_DEFAULT = "1,10";
+    public static final String NUM_OF_SEGMENTS = "numOfSegments";
+    public static final String NUM_OF_SEGMENTS_DEFAULT = "1,4";
+    public static final String SCAN_PAGE_SIZES = "scanPageSizes";
+    public static final String SCAN_PAGE_SIZES_DEFAULT = "0";
+    public static final String NUM_OF_CORRECTION_WORKERS = "numOfCorrectionWorkers";
+    public static final String NUM_OF_CORRECTION_WORKERS_DEFAULT = "1,4";
+    public static final String LATENCY_MILLIS = "latencyMillis";
+    public static final String LATENCY_MILLIS_DEFAULT = "0";
+    public static final String CAPACITY_UNITS = "capacityUnits";
+    public static final String CAPACITY_UNITS_DEFAULT = "100000";
+    public static final String SEED = "seed";
+    public static final String SEED_DEFAULT = "1";
+    public static final String OUTPUT_PATH = "outputPath";
+    public static final String OUTPUT_PATH_DEFAULT = "./benchmark_results.csv";
+    public static final String GSI_KEY_DISTRIBUTION = "gsiKeyDistribution";
+    public static final String GSI_KEY_DISTRIBUTION_DEFAULT = SyntheticDataset.UNIFORM;
+    public static final String NUM_OF_DISTINCT_GSI_KEYS = "numOfDistinctGsiKeys";
+    public static final String NUM_OF_DISTINCT_GSI_KEYS_DEFAULT = "1000";
+    public static final String ZIPF_EXPONENT = "zipfExponent";
+    public static final String ZIPF_EXPONENT_DEFAULT = "1.0";
+    public static final String PAYLOAD_SIZE_DISTRIBUTION = "payloadSizeDistribution";
+    public static final String PAYLOAD_SIZE_DISTRIBUTION_DEFAULT = SyntheticDataset.FIXED;
+    public static final String NUM_OF_LOADER_THREADS = "numOfLoaderThreads";
+    public static final String NUM_OF_LOADER_THREADS_DEFAULT = "8";
+    public static final String STREAMING_SCAN_DECODER = "streamingScanDecoder";
+    public static final String STREAMING_SCAN_DECODER_DEFAULT = "false";
+    public static final String WORK_DIRECTORY = "workDirectory";
+    public static final String WORK_DIRECTORY_DEFAULT = ".";
+
+    private static final String TABLE_NAME = "benchmark";
+    private static final String UPDATE_VALUE_PREFIX = "fixed";
+
+    private Properties properties;
+    private File workDirectory;
+    private List<BenchmarkResult> results = new ArrayList<BenchmarkResult>();
+
+    public ThroughputBenchmark(Properties properties) {
+        this.properties = properties;
+        this.workDirectory = new File(getProperty(WORK_DIRECTORY, WORK_DIRECTORY_DEFAULT));
+    }
+
+    public List<BenchmarkResult> getResults() {
+        return results;
+    }
+
+    private String getProperty(String name, String defaultValue) {
+        return properties.getProperty(name, defaultValue).trim();
+    }
+
+    private List<Integer> getIntegerList(String name, String defaultValue) {
+        List<Integer> values = new ArrayList<Integer>();
+        for (String value : getProperty(name, defaultValue).split(",")) {
+            values.add(Integer.parseInt(value.trim()));
+        }
+        return values;
+    }
+
+    public void run() throws Exception {
+        long numOfItems = Long.parseLong(getProperty(NUM_OF_ITEMS, NUM_OF_ITEMS_DEFAULT));
+        int itemSizeBytes = Integer.parseInt(getProperty(ITEM_SIZE_BYTES, ITEM_SIZE_BYTES_DEFAULT));
+        long seed = Long.parseLong(getProperty(SEED, SEED_DEFAULT));
+        for (String violationPercent : getProperty(VIOLATION_PERCENTS, VIOLATION_PERCENTS_DEFAULT).split(",")) {
+            SyntheticDataset dataset = new SyntheticDataset(numOfItems, itemSizeBytes, Double.parseDouble(violationPercent.trim()), seed);
+            dataset.setGsiKeyDistribution(getProperty(GSI_KEY_DISTRIBUTION, GSI_KEY_DISTRIBUTION_DEFAULT),
+                    Integer.parseInt(getProperty(NUM_OF_DISTINCT_GSI_KEYS, NUM_OF_DISTINCT_GSI_KEYS_DEFAULT)),
+                    Double.parseDouble(getProperty(ZIPF_EXPONENT, ZIPF_EXPONENT_DEFAULT)));
+            dataset.setPayloadSizeDistribution(getProperty(PAYLOAD_SIZE_DISTRIBUTION, PAYLOAD_SIZE_DISTRIBUTION_DEFAULT));
+            String detectionOutputPath = null;
+            for (int numOfSegments : getIntegerList(NUM_OF_SEGMENTS, NUM_OF_SEGMENTS_DEFAULT)) {
+                for (int scanPageSize : getIntegerList(SCAN_PAGE_SIZES, SCAN_PAGE_SIZES_DEFAULT)) {
+                    detectionOutputPath = runDetection(dataset, numOfSegments, scanPageSize);
+                }
+            }
+            if (detectionOutputPath == null) {
+                continue;
+            }
+            String correctionInputPath = new File(workDirectory, "benchmark_correction_input.csv").getPath();
+            long numOfCorrections = writeCorrectionInput(detectionOutputPath, correctionInputPath);
+            for (int numOfCorrectionWorkers : getIntegerList(NUM_OF_CORRECTION_WORKERS, NUM_OF_CORRECTION_WORKERS_DEFAULT)) {
+                runCorrection(dataset, correctionInputPath, numOfCorrections, numOfCorrectionWorkers);
+            }
+        }
+        BenchmarkResult.write(results, getProperty(OUTPUT_PATH, OUTPUT_PATH_DEFAULT));
+    }
+
+    /**
+     * A fresh table is loaded for each run, so earlier runs do not change
+     * what is measured.
+     */
+    private InMemoryDynamoDB createTable(SyntheticDataset dataset) throws InterruptedException {
+        InMemoryDynamoDB dynamoDB = new InMemoryDynamoDB();
+        SyntheticDataset.createTable(dynamoDB, TABLE_NAME, Long.parseLong(getProperty(CAPACITY_UNITS, CAPACITY_UNITS_DEFAULT)));
+        new DatasetLoader(dynamoDB, TABLE_NAME, Integer.parseInt(getProperty(NUM_OF_LOADER_THREADS, NUM_OF_LOADER_THREADS_DEFAULT))).load(dataset);
+        dynamoDB.setLatencyMillis(Long.parseLong(getProperty(LATENCY_MILLIS, LATENCY_MILLIS_DEFAULT)));
+        return dynamoDB;
+    }
+
+    private String runDetection(SyntheticDataset dataset, int numOfSegments, int scanPageSize) throws Exception {
+        String detectionOutputPath = new File(workDirectory, "benchmark_detection_output.csv").getPath();
+        Properties toolProperties = getToolProperties();
+        toolProperties.setProperty(Options.DETECTION_OUTPUT_PATH, detectionOutputPath);
+        toolProperties.setProperty(Options.NUM_OF_SEGMENTS, Integer.toString(numOfSegments));
+        toolProperties.setProperty(Options.SCAN_PAGE_SIZE, Integer.toString(scanPageSize));
+        boolean streamingScanDecoder = Boolean.parseBoolean(getProperty(STREAMING_SCAN_DECODER, STREAMING_SCAN_DECODER_DEFAULT));
+        toolProperties.setProperty(Options.STREAMING_SCAN_DECODER, Boolean.toString(streamingScanDecoder));
+        OptionLoader optionLoader = new OptionLoader(writeToolProperties(toolProperties));
+        optionLoader.loadDetectionOptions();
+        Options options = Options.getInstance();
+
+        InMemoryDynamoDB dynamoDB = createTable(dataset);
+        LatencyRecorder latencyRecorder = new LatencyRecorder();
+        AmazonDynamoDB dynamoDBClient = latencyRecorder.wrap(dynamoDB);
+        BenchmarkResult result = new BenchmarkResult(BenchmarkResult.DETECTION, dataset.getViolationPercent(), numOfSegments, scanPageSize, 0);
+        result.start();
+        TableHelper tableHelper = new TableHelper(dynamoDBClient, options.getTableName());
+        new TableReader(options, dynamoDBClient, tableHelper, false /* isRunningOnDDBLocal */).scanTable(false /* deleteViolationsAfterFound */);
+        result.stop(dataset.getNumOfItems(), latencyRecorder, streamingScanDecoder ? "streamingScan" : "scan");
+        results.add(result);
+        return detectionOutputPath;
+    }
+
+    private void runCorrection(SyntheticDataset dataset, String correctionInputPath, long numOfCorrections, int numOfCorrectionWorkers)
+            throws Exception {
+        Properties toolProperties = getToolProperties();
+        toolProperties.setProperty(Options.CORRECTION_INPUT_PATH, correctionInputPath);
+        toolProperties.setProperty(Options.CORRECTION_OUTPUT_PATH, new File(workDirectory, "benchmark_correction_output.csv").getPath());
+        toolProperties.setProperty(Options.NUM_OF_CORRECTION_WORKERS, Integer.toString(numOfCorrectionWorkers));
+        OptionLoader optionLoader = new OptionLoader(writeToolProperties(toolProperties));
+        optionLoader.loadCorrectionOptions();
+        Options options = Options.getInstance();
+
+        InMemoryDynamoDB dynamoDB = createTable(dataset);
+        LatencyRecorder latencyRecorder = new LatencyRecorder();
+        AmazonDynamoDB dynamoDBClient = latencyRecorder.wrap(dynamoDB);
+        BenchmarkResult result = new BenchmarkResult(BenchmarkResult.CORRECTION, dataset.getViolationPercent(), 0, 0, numOfCorrectionWorkers);
+        result.start();
+        TableHelper tableHelper = new TableHelper(dynamoDBClient, options.getTableName());
+        new Correction(options, tableHelper, dynamoDBClient, false /* isRunningOnDDBLocal */).updateFromFile(true /* useConditionalUpdate */);
+        result.stop(numOfCorrections, latencyRecorder, "updateItem");
+        results.add(result);
+    }
+
+    /**
+     * Tool options shared by detection and correction. Credentials are not
+     * used against the in-memory DynamoDB.
+     */
+    private Properties getToolProperties() {
+        Properties toolProperties = new Properties();
+        toolProperties.setProperty(Options.AWS_CREDENTIAL_FILE, new File(workDirectory, "credentials").getPath());
+        toolProperties.setProperty(Options.DYNAMODB_REGION, "us-east-1");
+        toolProperties.setProperty(Options.TABLE_NAME, TABLE_NAME);
+        toolProperties.setProperty(Options.GSI_HASH_KEY_NAME, SyntheticDataset.GSI_HASH_KEY_NAME);
+        toolProperties.setProperty(Options.GSI_HASH_KEY_TYPE, SyntheticDataset.GSI_HASH_KEY_TYPE);
+        toolProperties.setProperty(Options.READ_WRITE_IOPS_PERCENT, "100");
+        toolProperties.setProperty(Options.RECORD_GSI_VALUE_IN_VIOLATION_RECORD, "true");
+        toolProperties.setProperty(Options.CAPACITY_REFRESH_INTERVAL_SECONDS, "0");
+        toolProperties.setProperty(Options.DELETE_FAILURE_OUTPUT_PATH, new File(workDirectory, "benchmark_delete_failures.csv").getPath());
+        return toolProperties;
+    }
+
+    private String writeToolProperties(Properties toolProperties) throws IOException {
+        File file = new File(workDirectory, "benchmark_tool.properties");
+        FileWriter writer = new FileWriter(file);
+        try {
+            toolProperties.store(writer, "Generated by " + ThroughputBenchmark.class.getSimpleName());
+        } finally {
+            writer.close();
+        }
+        return file.getPath();
+    }
+
+    /**
+     * Copy the detection output to a correction input, every violated GSI
+     * hash key is updated to a valid string.
+     */
+    protected static long writeCorrectionInput(String detectionOutputPath, String correctionInputPath) throws IOException {
+        CSVParser parser = new CSVParser(new BufferedReader(new FileReader(detectionOutputPath)), CSVFormat.RFC4180.withHeader().withDelimiter(',')
+                .withIgnoreEmptyLines(true));
+        CSVPrinter printer = new CSVPrinter(new BufferedWriter(new FileWriter(correctionInputPath)), CSVFormat.RFC4180.withDelimiter(','));
+        long numOfRecords = 0;
+        try {
+            List<String> header = new ArrayList<String>();
+            for (Map.Entry<String, Integer> column : parser.getHeaderMap().entrySet()) {
+                header.add(column.getKey());
+            }
+            if (!header.contains(ViolationRecord.GSI_HASH_KEY_UPDATE_VALUE)) {
+                header.add(ViolationRecord.GSI_HASH_KEY_UPDATE_VALUE);
+            }
+            printer.printRecord(header);
+            for (CSVRecord record : parser) {
+                List<String> values = new ArrayList<String>();
+                for (String column : header) {
+                    if (ViolationRecord.GSI_HASH_KEY_UPDATE_VALUE.equals(column)) {
+                        values.add(UPDATE_VALUE_PREFIX + record.get(ViolationRecord.TABLE_HASH_KEY));
+                    } else {
+                        values.add(record.get(column));
+                    }
+                }
+                printer.printRecord(values);
+                numOfRecords++;
+            }
+        } finally {
+            parser.close();
+            printer.close();
+        }
+        return numOfRecords;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Properties properties = new Properties();
+        if (args.length > 0) {
+            InputStream input = new FileInputStream(args[0]);
+            try {
+                properties.load(input);
+            } finally {
+                input.close();
+            }
+        }
+        ThroughputBenchmark benchmark = new ThroughputBenchmark(properties);
+        benchmark.run();
+        for (BenchmarkResult result : benchmark.getResults()) {
+            System.out.println(result.getPhase() + ": " + result.getRecords() + " records, " + String.format("%.0f", result.getRecordsPerSecond())
+                    + " records/s, p50 " + result.getP50LatencyMillis() + " ms, p99 " + result.getP99LatencyMillis() + " ms");
+        }
+    }
+}
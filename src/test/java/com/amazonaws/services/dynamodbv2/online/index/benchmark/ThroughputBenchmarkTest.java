@@ -0,0 +1,143 @@
+/**
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0/
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.online.index.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Run a tiny benchmark matrix end to end.
+ */
+public class ThroughputBenchmarkTest {
+    private static final int NUM_OF_ITEMS = 200;
+
+    private File workDirectory;
+
+    @Before
+    public void setup() throws IOException {
+        workDirectory = File.createTempFile("benchmark", "");
+        workDirectory.delete();
+        workDirectory.mkdir();
+    }
+
+    @After
+    public void cleanup() {
+        for (File file : workDirectory.listFiles()) {
+            file.delete();
+        }
+        workDirectory.delete();
+    }
+
+    private Properties getProperties(String outputFileName) {
+        Properties properties = new Properties();
+        properties.setProperty(ThroughputBenchmark.NUM_OF_ITEMS, Integer.toString(NUM_OF_ITEMS));
+        properties.setProperty(ThroughputBenchmark.ITEM_SIZE_BYTES, "100");
+        properties.setProperty(ThroughputBenchmark.VIOLATION_PERCENTS, "10");
+        properties.setProperty(ThroughputBenchmark.NUM_OF_SEGMENTS, "1,2");
+        properties.setProperty(ThroughputBenchmark.SCAN_PAGE_SIZES, "50");
+        properties.setProperty(ThroughputBenchmark.NUM_OF_CORRECTION_WORKERS, "2");
+        properties.setProperty(ThroughputBenchmark.WORK_DIRECTORY, workDirectory.getPath());
+        properties.setProperty(ThroughputBenchmark.OUTPUT_PATH, new File(workDirectory, outputFileName).getPath());
+        return properties;
+    }
+
+    private static long countViolations(SyntheticDataset dataset) {
+        long violations = 0;
+        for (long i = 0; i < dataset.getNumOfItems(); i++) {
+            if (dataset.getItem(i).get(SyntheticDataset.GSI_HASH_KEY_NAME).getN() != null
+                    || dataset.getItem(i).get(SyntheticDataset.GSI_HASH_KEY_NAME).getS().length() > 1024) {
+                violations++;
+            }
+        }
+        return violations;
+    }
+
+    @Test
+    public void testDatasetIsDeterministic() {
+        SyntheticDataset dataset = new SyntheticDataset(NUM_OF_ITEMS, 10, 50, 7);
+        SyntheticDataset other = new SyntheticDataset(NUM_OF_ITEMS, 10, 50, 7);
+        assertEquals(dataset.getItem(123), other.getItem(123));
+        long violations = countViolations(dataset);
+        assertTrue(violations > 0 && violations < NUM_OF_ITEMS);
+    }
+
+    @Test
+    public void testRunMatrixToCsv() throws Exception {
+        ThroughputBenchmark benchmark = new ThroughputBenchmark(getProperties("results.csv"));
+        benchmark.run();
+
+        assertEquals(3, benchmark.getResults().size());
+        long violations = countViolations(new SyntheticDataset(NUM_OF_ITEMS, 100, 10, 1));
+        for (BenchmarkResult result : benchmark.getResults()) {
+            if (BenchmarkResult.DETECTION.equals(result.getPhase())) {
+                assertEquals((long) NUM_OF_ITEMS, result.getRecords());
+                assertTrue(result.getCalls() >= NUM_OF_ITEMS / 50);
+            } else {
+                assertEquals(violations, result.getRecords());
+                assertEquals(violations, result.getCalls());
+            }
+        }
+        BufferedReader reader = new BufferedReader(new FileReader(new File(workDirectory, "results.csv")));
+        try {
+            assertTrue(reader.readLine().startsWith("Phase,"));
+            assertTrue(reader.readLine().startsWith(BenchmarkResult.DETECTION + ","));
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testRunToJson() throws Exception {
+        Properties properties = getProperties("results.json");
+        properties.setProperty(ThroughputBenchmark.NUM_OF_SEGMENTS, "1");
+        new ThroughputBenchmark(properties).run();
+
+        BufferedReader reader = new BufferedReader(new FileReader(new File(workDirectory, "results.json")));
+        try {
+            String json = reader.readLine();
+            assertTrue(json.startsWith("[{\"Phase\":\"detection\""));
+            assertTrue(json.contains("\"Phase\":\"correction\""));
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testRunWithStreamingScanDecoder() throws Exception {
+        Properties properties = getProperties("results.csv");
+        properties.setProperty(ThroughputBenchmark.STREAMING_SCAN_DECODER, "true");
+        ThroughputBenchmark benchmark = new ThroughputBenchmark(properties);
+        benchmark.run();
+
+        long violations = countViolations(new SyntheticDataset(NUM_OF_ITEMS, 100, 10, 1));
+        for (BenchmarkResult result : benchmark.getResults()) {
+            if (BenchmarkResult.DETECTION.equals(result.getPhase())) {
+                assertTrue(result.getCalls() >= NUM_OF_ITEMS / 50);
+            } else {
+                assertEquals(violations, result.getRecords());
+            }
+        }
+    }
+}
@@ -20,7 +20,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
@@ -47,11 +47,11 @@ import com.amazonaws.services.dynamodbv2.online.index.RandomDataGenerator;
  * 
  */
 public class TableManager {
-    private AmazonDynamoDBClient client;
+    private AmazonDynamoDB client;
     RandomDataGenerator randDataGenerator;
     PrintHelper printHelper = new PrintHelper();
 
-    public TableManager(AmazonDynamoDBClient client) {
+    public TableManager(AmazonDynamoDB client) {
         this.client = client;
         this.randDataGenerator = new RandomDataGenerator();
     }